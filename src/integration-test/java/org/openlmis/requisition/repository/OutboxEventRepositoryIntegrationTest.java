@@ -0,0 +1,103 @@
+package org.openlmis.requisition.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openlmis.Application;
+import org.openlmis.outbox.domain.OutboxEvent;
+import org.openlmis.outbox.repository.OutboxEventRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(Application.class)
+@Transactional
+public class OutboxEventRepositoryIntegrationTest {
+
+  @Autowired
+  private OutboxEventRepository outboxEventRepository;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  private List<OutboxEvent> events = new ArrayList<>();
+
+  @Before
+  public void setUp() {
+    outboxEventRepository.deleteAll();
+    for (int i = 0; i < 3; i++) {
+      events.add(outboxEventRepository.save(new OutboxEvent("Requisition", UUID.randomUUID(),
+          "REQUISITION_SUBMITTED", "{}")));
+    }
+    entityManager.flush();
+  }
+
+  @Test
+  public void shouldClaimOldestEventsWhichAreNotClaimed() {
+    LocalDateTime claimedUntil = LocalDateTime.now().plusMinutes(1);
+
+    List<OutboxEvent> first = outboxEventRepository.claimPending(2, claimedUntil);
+    List<OutboxEvent> second = outboxEventRepository.claimPending(2, claimedUntil);
+
+    assertEquals(ids(events.get(0), events.get(1)), ids(first));
+    assertEquals(ids(events.get(2)), ids(second));
+    assertTrue(outboxEventRepository.claimPending(2, claimedUntil).isEmpty());
+  }
+
+  @Test
+  public void shouldClaimEventsWhoseClaimExpired() {
+    outboxEventRepository.claimPending(3, LocalDateTime.now().minusSeconds(1));
+
+    List<OutboxEvent> claimed =
+        outboxEventRepository.claimPending(3, LocalDateTime.now().plusMinutes(1));
+
+    assertEquals(ids(events), ids(claimed));
+  }
+
+  @Test
+  public void shouldReleaseClaims() {
+    List<OutboxEvent> claimed =
+        outboxEventRepository.claimPending(1, LocalDateTime.now().plusMinutes(1));
+
+    outboxEventRepository.releaseClaims(ids(claimed));
+    entityManager.clear();
+
+    assertNull(outboxEventRepository.findOne(claimed.get(0).getId()).getClaimedUntil());
+  }
+
+  @Test
+  public void shouldDeleteDeliveredEvents() {
+    outboxEventRepository.deleteDelivered(ids(events.get(0)));
+    entityManager.clear();
+
+    assertFalse(outboxEventRepository.exists(events.get(0).getId()));
+    assertEquals(2, outboxEventRepository.count());
+  }
+
+  private List<Long> ids(List<OutboxEvent> events) {
+    return ids(events.toArray(new OutboxEvent[events.size()]));
+  }
+
+  private List<Long> ids(OutboxEvent... events) {
+    List<Long> ids = new ArrayList<>();
+    for (OutboxEvent event : events) {
+      ids.add(event.getId());
+    }
+    return ids;
+  }
+}
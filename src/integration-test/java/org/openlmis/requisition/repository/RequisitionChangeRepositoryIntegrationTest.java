@@ -0,0 +1,146 @@
+package org.openlmis.requisition.repository;
+
+import org.hibernate.event.spi.EventSource;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openlmis.Application;
+import org.openlmis.requisition.domain.RequisitionChange;
+import org.openlmis.requisition.domain.RequisitionChangeType;
+import org.openlmis.requisition.domain.RequisitionStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+// changes are committed by each test, as the feed only returns changes of ended transactions
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(Application.class)
+public class RequisitionChangeRepositoryIntegrationTest {
+
+  @Autowired
+  private RequisitionChangeRepository repository;
+
+  @Autowired
+  private RequisitionChangeListener requisitionChangeListener;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  private List<RequisitionChange> changes;
+
+  @Before
+  public void setUp() {
+    List<Long> changeSequences = new ArrayList<>();
+    for (int changesCount = 0; changesCount < 5; changesCount++) {
+      changeSequences.add(repository.save(new RequisitionChange(UUID.randomUUID(),
+          RequisitionChangeType.UPDATED, RequisitionStatus.INITIATED)).getChangeSequence());
+    }
+    // transaction ids are filled in by the database
+    changes = new ArrayList<>();
+    repository.findAll(changeSequences).forEach(changes::add);
+    changes.sort(Comparator.comparing(RequisitionChange::getChangeSequence));
+  }
+
+  @After
+  public void tearDown() {
+    repository.delete(changes);
+  }
+
+  @Test
+  public void testFindChangesAfterGivenPosition() {
+    RequisitionChange since = changes.get(1);
+    List<RequisitionChange> receivedChanges = findChanges(since, 10);
+
+    Assert.assertEquals(changes.subList(2, 5).stream()
+        .map(RequisitionChange::getRequisitionId).collect(Collectors.toList()),
+        receivedChanges.stream()
+            .map(RequisitionChange::getRequisitionId).collect(Collectors.toList()));
+    for (RequisitionChange receivedChange : receivedChanges) {
+      Assert.assertTrue(receivedChange.getTransactionId() > since.getTransactionId());
+    }
+  }
+
+  @Test
+  public void testFindChangesWithLimit() {
+    RequisitionChange first = changes.get(0);
+    List<RequisitionChange> receivedChanges = repository.findChanges(
+        first.getTransactionId(), first.getChangeSequence() - 1, 2);
+
+    Assert.assertEquals(2, receivedChanges.size());
+    Assert.assertEquals(first.getRequisitionId(), receivedChanges.get(0).getRequisitionId());
+  }
+
+  @Test
+  public void testFindChangesInCommitOrderOfInterleavedTransactions() throws Exception {
+    RequisitionChange since = changes.get(changes.size() - 1);
+    UUID first = UUID.randomUUID();
+    UUID second = UUID.randomUUID();
+    CountDownLatch firstWritten = new CountDownLatch(1);
+    CountDownLatch firstReleased = new CountDownLatch(1);
+    ExecutorService transactions = Executors.newFixedThreadPool(2);
+    try {
+      // the first transaction writes its change and waits before the commit
+      Future<?> firstTransaction = transactions.submit(() ->
+          recordChange(first, firstWritten, firstReleased));
+      Assert.assertTrue(firstWritten.await(10, TimeUnit.SECONDS));
+      recordChange(second, new CountDownLatch(1), new CountDownLatch(0));
+
+      // a reader must not see the committed second change and pass the first one with its token
+      Assert.assertTrue(findChanges(since, 10).isEmpty());
+
+      firstReleased.countDown();
+      firstTransaction.get(10, TimeUnit.SECONDS);
+
+      List<RequisitionChange> receivedChanges = findChanges(since, 10);
+      Assert.assertEquals(Arrays.asList(first, second), receivedChanges.stream()
+          .map(RequisitionChange::getRequisitionId).collect(Collectors.toList()));
+      repository.delete(receivedChanges);
+    } finally {
+      firstReleased.countDown();
+      transactions.shutdownNow();
+    }
+  }
+
+  private List<RequisitionChange> findChanges(RequisitionChange since, int limit) {
+    return repository.findChanges(since.getTransactionId(), since.getChangeSequence(), limit);
+  }
+
+  private void recordChange(UUID requisitionId, CountDownLatch written,
+                            CountDownLatch released) {
+    new TransactionTemplate(transactionManager).execute(status -> {
+      requisitionChangeListener.requisitionUpdated(requisitionId, RequisitionStatus.SUBMITTED);
+      // runs right after the change is written, before the commit
+      entityManager.unwrap(EventSource.class).getActionQueue().registerProcess(session -> {
+        written.countDown();
+        try {
+          released.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      return null;
+    });
+  }
+}
@@ -3,15 +3,28 @@ package org.openlmis.requisition.repository;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.openlmis.requisition.domain.LineItemBatch;
+import org.openlmis.requisition.domain.LineItemCalculation;
+import org.openlmis.requisition.domain.LineItemField;
 import org.openlmis.requisition.domain.Requisition;
 import org.openlmis.requisition.domain.RequisitionLineItem;
 import org.openlmis.requisition.domain.RequisitionStatus;
+import org.openlmis.requisition.domain.RequisitionTemplate;
+import org.openlmis.requisition.domain.RequisitionTemplateColumn;
+import org.openlmis.requisition.domain.SourceType;
+import org.openlmis.requisition.exception.RequisitionTemplateColumnException;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
 @SuppressWarnings("PMD.TooManyMethods")
 public class RequisitionLineItemRepositoryIntegrationTest
     extends BaseCrudRepositoryIntegrationTest<RequisitionLineItem> {
@@ -22,6 +35,9 @@ public class RequisitionLineItemRepositoryIntegrationTest
   @Autowired
   private RequisitionRepository requisitionRepository;
 
+  @PersistenceContext
+  private EntityManager entityManager;
+
   private List<RequisitionLineItem> requisitionLineItems;
 
   @Before
@@ -91,6 +107,70 @@ public class RequisitionLineItemRepositoryIntegrationTest
     }
   }
 
+  @Test
+  public void testUpdateRequisitionLineItem() {
+    RequisitionLineItem requisitionLineItem = requisitionLineItems.get(0);
+    Long version = requisitionLineItem.getVersion();
+    Map<String, Object> values = new HashMap<>();
+    values.put("beginningBalance", 10);
+
+    int updated = repository.updateRequisitionLineItem(
+        requisitionLineItem.getRequisition().getId(), requisitionLineItem.getId(),
+        version, values, LineItemCalculation.defaultCalculation());
+    Assert.assertEquals(1, updated);
+
+    updated = repository.updateRequisitionLineItem(
+        requisitionLineItem.getRequisition().getId(), requisitionLineItem.getId(),
+        version, values, LineItemCalculation.defaultCalculation());
+    Assert.assertEquals(0, updated);
+
+    Map<UUID, Long> versions =
+        repository.findVersions(Collections.singletonList(requisitionLineItem.getId()));
+    Assert.assertEquals(Long.valueOf(version + 1), versions.get(requisitionLineItem.getId()));
+  }
+
+  @Test
+  public void testUpdateRequisitionLineItemRecalculatesTemplateFields()
+      throws RequisitionTemplateColumnException {
+    RequisitionLineItem requisitionLineItem = requisitionLineItems.get(0);
+    Map<String, RequisitionTemplateColumn> columns = new HashMap<>();
+    columns.put(RequisitionLineItem.TOTAL_CONSUMED_QUANTITY, new RequisitionTemplateColumn(
+        RequisitionLineItem.TOTAL_CONSUMED_QUANTITY, "Total consumed quantity", 1, true, false,
+        true, false, SourceType.CALCULATED));
+    columns.put(RequisitionLineItem.STOCK_ON_HAND, new RequisitionTemplateColumn(
+        RequisitionLineItem.STOCK_ON_HAND, "Stock on hand", 2, true, false, true, false,
+        SourceType.USER_INPUT));
+    Map<String, Object> values = new HashMap<>();
+    values.put(RequisitionLineItem.STOCK_ON_HAND, 0);
+    values.put(RequisitionLineItem.TOTAL_CONSUMED_QUANTITY, 50);
+
+    repository.updateRequisitionLineItem(requisitionLineItem.getRequisition().getId(),
+        requisitionLineItem.getId(), requisitionLineItem.getVersion(), values,
+        LineItemCalculation.compile(new RequisitionTemplate(columns)));
+    entityManager.clear();
+    RequisitionLineItem updated = repository.findOne(requisitionLineItem.getId());
+
+    Assert.assertEquals(Integer.valueOf(0), updated.getStockOnHand());
+    Assert.assertEquals(Integer.valueOf(3), updated.getTotalConsumedQuantity());
+  }
+
+  @Test
+  public void testFindLineItemBatch() {
+    RequisitionLineItem requisitionLineItem = cloneRequisitionLineItem(requisitionLineItems.get(0));
+    requisitionLineItem.setStockOnHand(null);
+    repository.save(requisitionLineItem);
+    Requisition requisition = requisitionLineItem.getRequisition();
+    entityManager.flush();
+
+    LineItemBatch batch = repository.findLineItemBatch(
+        requisition.getProgram(), requisition.getProcessingPeriod());
+
+    Assert.assertEquals(2, batch.size());
+    Assert.assertEquals(requisition.getId(), batch.getRequisition(0));
+    Assert.assertEquals(2, batch.sum(LineItemField.BEGINNING_BALANCE));
+    Assert.assertEquals(1, batch.sum(LineItemField.STOCK_ON_HAND));
+  }
+
   private RequisitionLineItem cloneRequisitionLineItem(RequisitionLineItem requisitionLineItem) {
     RequisitionLineItem clonedRequisitionLineItem = new RequisitionLineItem();
     clonedRequisitionLineItem.setOrderableProduct(requisitionLineItem.getOrderableProduct());
@@ -0,0 +1,98 @@
+package org.openlmis.requisition.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openlmis.Application;
+import org.openlmis.requisition.domain.Requisition;
+import org.openlmis.requisition.domain.RequisitionStatus;
+import org.openlmis.requisition.service.RequisitionPartitionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.UUID;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(Application.class)
+@Transactional
+public class RequisitionPartitionIntegrationTest {
+
+  @Autowired
+  private RequisitionRepository requisitionRepository;
+
+  @Autowired
+  private RequisitionPartitionService requisitionPartitionService;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Value("${requisitionPartitions.monthsAhead}")
+  private int monthsAhead;
+
+  @Test
+  public void shouldCreateRequisitionsAsPartitionedTable() {
+    Number count = (Number) entityManager.createNativeQuery(
+        "SELECT count(*) FROM pg_partitioned_table"
+            + " WHERE partrelid = CAST('requisition.requisitions' AS regclass)")
+        .getSingleResult();
+
+    assertEquals(1, count.intValue());
+  }
+
+  @Test
+  public void shouldCreatePartitionsOfFollowingMonthsAtStart() {
+    List<YearMonth> partitions = requisitionPartitionService.findPartitions();
+
+    YearMonth current = YearMonth.now();
+    for (int months = 0; months <= monthsAhead; months++) {
+      assertTrue(partitions.contains(current.plusMonths(months)));
+    }
+  }
+
+  @Test
+  public void shouldCreateDefaultPartition() {
+    Number count = (Number) entityManager.createNativeQuery(
+        "SELECT count(*) FROM pg_inherits"
+            + " WHERE inhparent = CAST('requisition.requisitions' AS regclass)"
+            + " AND inhrelid = CAST('requisition.requisitions_default' AS regclass)")
+        .getSingleResult();
+
+    assertEquals(1, count.intValue());
+  }
+
+  @Test
+  public void shouldStoreRequisitionInPartitionOfMonthItWasCreatedIn() {
+    Requisition requisition = requisitionRepository.save(generateInstance());
+    entityManager.flush();
+
+    String partition = (String) entityManager.createNativeQuery(
+        "SELECT CAST(CAST(tableoid AS regclass) AS text) FROM requisition.requisitions"
+            + " WHERE id = CAST(:id AS uuid)")
+        .setParameter("id", requisition.getId().toString())
+        .getSingleResult();
+
+    assertEquals("requisition.requisitions_p"
+        + requisition.getCreatedDate().format(DateTimeFormatter.ofPattern("yyyyMM")), partition);
+  }
+
+  private Requisition generateInstance() {
+    Requisition requisition = new Requisition();
+    requisition.setProgram(UUID.randomUUID());
+    requisition.setFacility(UUID.randomUUID());
+    requisition.setProcessingPeriod(UUID.randomUUID());
+    requisition.setSupervisoryNode(UUID.randomUUID());
+    requisition.setStatus(RequisitionStatus.INITIATED);
+    return requisition;
+  }
+}
@@ -4,8 +4,14 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.openlmis.requisition.domain.Requisition;
+import org.openlmis.requisition.domain.RequisitionLineItem;
+import org.openlmis.requisition.domain.RequisitionSearchEntry;
 import org.openlmis.requisition.domain.RequisitionStatus;
+import org.openlmis.utils.ETagUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -19,6 +25,12 @@ public class RequisitionRepositoryIntegrationTest
   @Autowired
   private RequisitionRepository repository;
 
+  @Autowired
+  private RequisitionSearchEntryRepository requisitionSearchEntryRepository;
+
+  @Autowired
+  private RequisitionLineItemRepository requisitionLineItemRepository;
+
   private List<Requisition> requisitions;
 
   RequisitionRepository getRepository() {
@@ -45,6 +57,33 @@ public class RequisitionRepositoryIntegrationTest
     }
   }
 
+  @Test
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  public void testFindVersionStampChangesWithLineItems() {
+    Requisition requisition = requisitions.get(0);
+    RequisitionLineItem lineItem = new RequisitionLineItem();
+    lineItem.setRequisition(requisition);
+    lineItem.setOrderableProduct(UUID.randomUUID());
+    lineItem.setStockOnHand(1);
+    try {
+      final String created = repository.findVersionStamp(requisition.getId());
+      lineItem = requisitionLineItemRepository.save(lineItem);
+      final String added = repository.findVersionStamp(requisition.getId());
+      lineItem.setStockOnHand(2);
+      lineItem = requisitionLineItemRepository.save(lineItem);
+      String changed = repository.findVersionStamp(requisition.getId());
+
+      Assert.assertNotEquals(created, added);
+      Assert.assertNotEquals(added, changed);
+      Assert.assertEquals(requisition.getVersion(), ETagUtils.parseVersion(changed));
+    } finally {
+      // line items are removed together with their requisition
+      for (Requisition saved : requisitions) {
+        repository.delete(saved.getId());
+      }
+    }
+  }
+
   @Test
   public void testSearchRequisitionsByAllParameters() {
     Requisition requisition = new Requisition();
@@ -123,4 +162,52 @@ public class RequisitionRepositoryIntegrationTest
 
     Assert.assertEquals(5, receivedRequisitions.size());
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testSearchApprovedRequisitionsWithSortAndFilterAndPaging() {
+    for (int requisitionsCount = 0; requisitionsCount < 4; requisitionsCount++) {
+      Requisition requisition = requisitions.get(requisitionsCount);
+      requisition.setStatus(RequisitionStatus.APPROVED);
+      repository.save(requisition);
+
+      RequisitionSearchEntry entry = new RequisitionSearchEntry();
+      entry.setRequisitionId(requisition.getId());
+      entry.setFacility(requisition.getFacility());
+      entry.setFacilityCode("FC" + requisitionsCount);
+      entry.setFacilityName("Facility " + (requisitionsCount % 2));
+      entry.setProgram(requisition.getProgram());
+      entry.setProgramName("Program " + requisitionsCount);
+      requisitionSearchEntryRepository.save(entry);
+    }
+    requisitions.get(3).setStatus(RequisitionStatus.RELEASED);
+    repository.save(requisitions.get(3));
+
+    Page<Requisition> receivedRequisitions =
+        repository.searchApprovedRequisitionsWithSortAndFilterAndPaging(
+            "Facility 0", "facilityName", "facilityCode", true, 1, 10);
+
+    Assert.assertEquals(2, receivedRequisitions.getContent().size());
+    Assert.assertEquals(2, receivedRequisitions.getTotalElements());
+    Assert.assertEquals(1, receivedRequisitions.getTotalPages());
+    Assert.assertEquals(requisitions.get(2).getId(),
+        receivedRequisitions.getContent().get(0).getId());
+    Assert.assertEquals(requisitions.get(0).getId(),
+        receivedRequisitions.getContent().get(1).getId());
+
+    receivedRequisitions = repository.searchApprovedRequisitionsWithSortAndFilterAndPaging(
+        "", "all", "programName", false, 2, 2);
+
+    Assert.assertEquals(1, receivedRequisitions.getContent().size());
+    Assert.assertEquals(3, receivedRequisitions.getTotalElements());
+    Assert.assertEquals(2, receivedRequisitions.getTotalPages());
+    Assert.assertTrue(receivedRequisitions.isLast());
+    Assert.assertEquals(requisitions.get(2).getId(),
+        receivedRequisitions.getContent().get(0).getId());
+
+    receivedRequisitions = repository.searchApprovedRequisitionsWithSortAndFilterAndPaging(
+        "", "all", "programName", false, 3, 2);
+
+    Assert.assertTrue(receivedRequisitions.getContent().isEmpty());
+    Assert.assertEquals(3, receivedRequisitions.getTotalElements());
+  }
+}
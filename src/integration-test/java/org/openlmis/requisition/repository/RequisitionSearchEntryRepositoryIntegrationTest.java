@@ -0,0 +1,75 @@
+package org.openlmis.requisition.repository;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openlmis.Application;
+import org.openlmis.requisition.domain.Requisition;
+import org.openlmis.requisition.domain.RequisitionSearchEntry;
+import org.openlmis.requisition.domain.RequisitionStatus;
+import org.openlmis.requisition.dto.FacilityDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.UUID;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(Application.class)
+@Transactional
+public class RequisitionSearchEntryRepositoryIntegrationTest {
+
+  @Autowired
+  private RequisitionSearchEntryRepository repository;
+
+  @Autowired
+  private RequisitionRepository requisitionRepository;
+
+  @Test
+  public void testUpdateFacility() {
+    RequisitionSearchEntry entry = repository.save(generateEntry(generateRequisition()));
+
+    FacilityDto facility = new FacilityDto();
+    facility.setId(entry.getFacility());
+    facility.setCode("NEW");
+    facility.setName("New Facility");
+
+    Assert.assertEquals(1, repository.updateFacility(facility));
+    Assert.assertTrue(repository.findFacilities().contains(entry.getFacility()));
+  }
+
+  @Test
+  public void testFindApprovedRequisitionsWithoutEntry() {
+    Requisition withEntry = generateRequisition();
+    repository.save(generateEntry(withEntry));
+    Requisition withoutEntry = generateRequisition();
+
+    List<Requisition> requisitions = repository.findApprovedRequisitionsWithoutEntry();
+
+    Assert.assertTrue(requisitions.contains(withoutEntry));
+    Assert.assertFalse(requisitions.contains(withEntry));
+  }
+
+  private RequisitionSearchEntry generateEntry(Requisition requisition) {
+    RequisitionSearchEntry entry = new RequisitionSearchEntry();
+    entry.setRequisitionId(requisition.getId());
+    entry.setFacility(requisition.getFacility());
+    entry.setFacilityCode("FC");
+    entry.setFacilityName("Facility");
+    entry.setProgram(requisition.getProgram());
+    entry.setProgramName("Program");
+    entry.setProcessingPeriod(requisition.getProcessingPeriod());
+    return entry;
+  }
+
+  private Requisition generateRequisition() {
+    Requisition requisition = new Requisition();
+    requisition.setProgram(UUID.randomUUID());
+    requisition.setFacility(UUID.randomUUID());
+    requisition.setProcessingPeriod(UUID.randomUUID());
+    requisition.setStatus(RequisitionStatus.APPROVED);
+    return requisitionRepository.save(requisition);
+  }
+}
@@ -0,0 +1,155 @@
+package org.openlmis.requisition.repository;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openlmis.requisition.domain.Requisition;
+import org.openlmis.requisition.domain.RequisitionStatus;
+import org.openlmis.requisition.domain.RequisitionStatusCount;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+public class RequisitionStatusCountRepositoryIntegrationTest
+    extends BaseCrudRepositoryIntegrationTest<RequisitionStatusCount> {
+
+  @Autowired
+  private RequisitionStatusCountRepository repository;
+
+  @Autowired
+  private RequisitionRepository requisitionRepository;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  RequisitionStatusCountRepository getRepository() {
+    return this.repository;
+  }
+
+  RequisitionStatusCount generateInstance() {
+    return new RequisitionStatusCount(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(),
+        RequisitionStatus.INITIATED, (long) getNextInstanceNumber());
+  }
+
+  @Test
+  public void testUpdateCount() {
+    RequisitionStatusCount group = generateInstance();
+
+    repository.updateCount(group, 1);
+    repository.updateCount(group, 2);
+    List<RequisitionStatusCount> counts = repository.searchCounts(group.getProgram(), null, null);
+
+    Assert.assertEquals(1, counts.size());
+    Assert.assertEquals(group, counts.get(0));
+    Assert.assertEquals(Long.valueOf(3), counts.get(0).getCount());
+  }
+
+  @Test
+  public void testSearchCountsSkipsEmptyGroups() {
+    RequisitionStatusCount submitted = generateInstance();
+    submitted.setStatus(RequisitionStatus.SUBMITTED);
+    RequisitionStatusCount initiated = new RequisitionStatusCount(submitted.getProgram(),
+        submitted.getFacility(), submitted.getProcessingPeriod(), RequisitionStatus.INITIATED, 1L);
+    repository.updateCount(submitted, 2);
+    repository.updateCount(submitted, 3);
+    repository.updateCount(initiated, 1);
+    repository.updateCount(initiated, -1);
+
+    List<RequisitionStatusCount> counts = repository.searchCounts(
+        submitted.getProgram(), submitted.getFacility(), submitted.getProcessingPeriod());
+
+    Assert.assertEquals(1, counts.size());
+    Assert.assertEquals(submitted, counts.get(0));
+    Assert.assertEquals(Long.valueOf(5), counts.get(0).getCount());
+  }
+
+  @Test
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  public void testUpdateCountConcurrentlyKeepsOneCountForGroup() throws Exception {
+    RequisitionStatusCount group = generateInstance();
+    CyclicBarrier started = new CyclicBarrier(2);
+    ExecutorService transactions = Executors.newFixedThreadPool(2);
+    try {
+      List<Future<?>> updates = new ArrayList<>();
+      for (int i = 0; i < 2; i++) {
+        updates.add(transactions.submit(() ->
+            new TransactionTemplate(transactionManager).execute(status -> {
+              await(started);
+              repository.updateCount(group, 1);
+              return null;
+            })));
+      }
+      for (Future<?> update : updates) {
+        update.get(10, TimeUnit.SECONDS);
+      }
+
+      List<RequisitionStatusCount> counts = findCounts(group.getProgram());
+      Assert.assertEquals(1, counts.size());
+      Assert.assertEquals(Long.valueOf(2), counts.get(0).getCount());
+    } finally {
+      transactions.shutdownNow();
+      repository.delete(findCounts(group.getProgram()));
+    }
+  }
+
+  @Test
+  public void testRebuildCountsCountsStoredRequisitions() {
+    Requisition requisition = new Requisition();
+    requisition.setProgram(UUID.randomUUID());
+    requisition.setFacility(UUID.randomUUID());
+    requisition.setProcessingPeriod(UUID.randomUUID());
+    requisition.setStatus(RequisitionStatus.SUBMITTED);
+    requisitionRepository.save(requisition);
+    RequisitionStatusCount drifted = new RequisitionStatusCount(requisition.getProgram(),
+        requisition.getFacility(), requisition.getProcessingPeriod(),
+        RequisitionStatus.INITIATED, 1L);
+    repository.updateCount(drifted, 4);
+    entityManager.flush();
+
+    repository.rebuildCounts();
+    List<RequisitionStatusCount> counts =
+        repository.searchCounts(requisition.getProgram(), null, null);
+
+    Assert.assertEquals(1, counts.size());
+    Assert.assertEquals(RequisitionStatus.SUBMITTED, counts.get(0).getStatus());
+    Assert.assertEquals(Long.valueOf(1), counts.get(0).getCount());
+  }
+
+  private List<RequisitionStatusCount> findCounts(UUID program) {
+    List<RequisitionStatusCount> counts = new ArrayList<>();
+    for (RequisitionStatusCount count : repository.findAll()) {
+      if (program.equals(count.getProgram())) {
+        counts.add(count);
+      }
+    }
+    return counts;
+  }
+
+  private static void await(CyclicBarrier barrier) {
+    try {
+      barrier.await(10, TimeUnit.SECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    } catch (BrokenBarrierException | TimeoutException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+}
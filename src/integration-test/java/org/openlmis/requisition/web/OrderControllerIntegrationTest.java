@@ -19,8 +19,10 @@ import org.openlmis.requisition.domain.RequisitionLineItem;
 import org.openlmis.requisition.domain.RequisitionStatus;
 import org.openlmis.requisition.repository.RequisitionLineItemRepository;
 import org.openlmis.requisition.repository.RequisitionRepository;
+import org.openlmis.utils.EntityExporter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
@@ -36,6 +38,9 @@ public class OrderControllerIntegrationTest extends BaseWebIntegrationTest {
   private static final String RESOURCE_URL = "/api/orders";
   private static final String SEARCH_URL = RESOURCE_URL + "/search";
   private static final String ID_URL = RESOURCE_URL + "/{id}";
+  private static final String EXPORT_URL = RESOURCE_URL + "/export";
+  private static final String PAGE_NUMBER = "pageNumber";
+  private static final String PAGE_SIZE = "pageSize";
   private static final String ACCESS_TOKEN = "access_token";
   private static final String REQUESTING_FACILITY = "requestingFacility";
   private static final String SUPPLYING_FACILITY = "supplyingFacility";
@@ -70,6 +75,9 @@ public class OrderControllerIntegrationTest extends BaseWebIntegrationTest {
   @Autowired
   private RequisitionLineItemRepository requisitionLineItemRepository;
 
+  @Autowired
+  private EntityExporter entityExporter;
+
   private Order firstOrder = new Order();
   private Order secondOrder = new Order();
   private Order thirdOrder = new Order();
@@ -215,6 +223,29 @@ public class OrderControllerIntegrationTest extends BaseWebIntegrationTest {
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
 
+  @Test
+  public void shouldKeepRequisitionApprovedWhenItCannotBeConverted() {
+    orderRepository.deleteAll();
+    Requisition unsupplied = addRequisition(program, supplyingFacility, period1,
+        RequisitionStatus.APPROVED, UUID.randomUUID());
+
+    restAssured.given()
+            .queryParam(ACCESS_TOKEN, getToken())
+            .contentType(MediaType.APPLICATION_JSON_VALUE)
+            .body(Arrays.asList(requisition, unsupplied))
+            .when()
+            .post("/api/orders/requisitions")
+            .then()
+            .statusCode(400);
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+    assertEquals(0, orderRepository.count());
+    assertEquals(RequisitionStatus.APPROVED,
+        requisitionRepository.findOne(requisition.getId()).getStatus());
+    assertEquals(RequisitionStatus.APPROVED,
+        requisitionRepository.findOne(unsupplied.getId()).getStatus());
+  }
+
   @Ignore
   @Test
   public void shouldConvertRequisitionToOrder() {
@@ -408,20 +439,85 @@ public class OrderControllerIntegrationTest extends BaseWebIntegrationTest {
   @Test
   public void shouldGetAllOrders() {
 
-    Order[] response = restAssured.given()
+    List<Order> orders = restAssured.given()
           .queryParam(ACCESS_TOKEN, getToken())
+          .queryParam(PAGE_NUMBER, 1)
+          .queryParam(PAGE_SIZE, 10)
           .contentType(MediaType.APPLICATION_JSON_VALUE)
           .when()
           .get(RESOURCE_URL)
           .then()
           .statusCode(200)
-          .extract().as(Order[].class);
+          .extract().jsonPath().getList("content", Order.class);
 
-    Iterable<Order> orders = Arrays.asList(response);
     assertTrue(orders.iterator().hasNext());
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
 
+  @Test
+  public void shouldNotGetPageLargerThanMaximum() {
+
+    restAssured.given()
+          .queryParam(ACCESS_TOKEN, getToken())
+          .queryParam(PAGE_NUMBER, 1)
+          .queryParam(PAGE_SIZE, 100000)
+          .contentType(MediaType.APPLICATION_JSON_VALUE)
+          .when()
+          .get(RESOURCE_URL)
+          .then()
+          .statusCode(400);
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldNotFindExportOfOrdersWhenExportsAreDisabled() {
+    restAssured.given()
+          .queryParam(ACCESS_TOKEN, getToken())
+          .contentType(MediaType.APPLICATION_JSON_VALUE)
+          .when()
+          .get(EXPORT_URL)
+          .then()
+          .statusCode(404);
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldExportAllOrders() {
+    ReflectionTestUtils.setField(entityExporter, "enabled", true);
+
+    try {
+      Order[] response = restAssured.given()
+            .queryParam(ACCESS_TOKEN, getToken())
+            .contentType(MediaType.APPLICATION_JSON_VALUE)
+            .when()
+            .get(EXPORT_URL)
+            .then()
+            .statusCode(200)
+            .extract().as(Order[].class);
+
+      assertEquals(orderRepository.count(), response.length);
+    } finally {
+      ReflectionTestUtils.setField(entityExporter, "enabled", false);
+    }
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldNotExportOrdersWhenExportIsDisabled() {
+
+    restAssured.given()
+          .queryParam(ACCESS_TOKEN, getToken())
+          .contentType(MediaType.APPLICATION_JSON_VALUE)
+          .when()
+          .get(EXPORT_URL)
+          .then()
+          .statusCode(403);
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
   @Test
   public void shouldGetChosenOrder() {
 
@@ -29,7 +29,7 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.Month;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.List;
 import java.util.UUID;
 
 @Ignore
@@ -135,16 +135,17 @@ public class OrderLineItemControllerIntegrationTest extends BaseWebIntegrationTe
   @Test
   public void shouldGetAllOrders() {
 
-    OrderLineItem[] response = restAssured.given()
+    List<OrderLineItem> orderLineItems = restAssured.given()
           .queryParam(ACCESS_TOKEN, getToken())
+          .queryParam("pageNumber", 1)
+          .queryParam("pageSize", 10)
           .contentType(MediaType.APPLICATION_JSON_VALUE)
           .when()
           .get(RESOURCE_URL)
           .then()
           .statusCode(200)
-          .extract().as(OrderLineItem[].class);
+          .extract().jsonPath().getList("content", OrderLineItem.class);
 
-    Iterable<OrderLineItem> orderLineItems = Arrays.asList(response);
     assertTrue(orderLineItems.iterator().hasNext());
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
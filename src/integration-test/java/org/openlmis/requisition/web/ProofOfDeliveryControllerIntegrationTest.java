@@ -42,7 +42,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.Month;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.List;
 import java.util.UUID;
 
 @Ignore
@@ -241,16 +241,17 @@ public class ProofOfDeliveryControllerIntegrationTest extends BaseWebIntegration
   @Test
   public void shouldGetAllProofOfDeliveries() {
 
-    ProofOfDelivery[] response = restAssured.given()
+    List<ProofOfDelivery> proofOfDeliveries = restAssured.given()
           .queryParam(ACCESS_TOKEN, getToken())
+          .queryParam("pageNumber", 1)
+          .queryParam("pageSize", 10)
           .contentType(MediaType.APPLICATION_JSON_VALUE)
           .when()
           .get(RESOURCE_URL)
           .then()
           .statusCode(200)
-          .extract().as(ProofOfDelivery[].class);
+          .extract().jsonPath().getList("content", ProofOfDelivery.class);
 
-    Iterable<ProofOfDelivery> proofOfDeliveries = Arrays.asList(response);
     assertTrue(proofOfDeliveries.iterator().hasNext());
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
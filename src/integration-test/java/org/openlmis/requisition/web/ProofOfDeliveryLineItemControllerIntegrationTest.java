@@ -34,7 +34,7 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.Month;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.List;
 import java.util.UUID;
 
 @Ignore
@@ -188,16 +188,17 @@ public class ProofOfDeliveryLineItemControllerIntegrationTest extends BaseWebInt
   @Test
   public void shouldGetAllProofOfDeliveryLineItems() {
 
-    ProofOfDeliveryLineItem[] response = restAssured.given()
+    List<ProofOfDeliveryLineItem> proofOfDeliveryLineItems = restAssured.given()
           .queryParam(ACCESS_TOKEN, getToken())
+          .queryParam("pageNumber", 1)
+          .queryParam("pageSize", 10)
           .contentType(MediaType.APPLICATION_JSON_VALUE)
           .when()
           .get(RESOURCE_URL)
           .then()
           .statusCode(200)
-          .extract().as(ProofOfDeliveryLineItem[].class);
+          .extract().jsonPath().getList("content", ProofOfDeliveryLineItem.class);
 
-    Iterable<ProofOfDeliveryLineItem> proofOfDeliveryLineItems = Arrays.asList(response);
     assertTrue(proofOfDeliveryLineItems.iterator().hasNext());
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
@@ -7,6 +7,7 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
+import com.jayway.restassured.path.json.JsonPath;
 import guru.nidi.ramltester.junit.RamlMatchers;
 
 import org.junit.Assert;
@@ -15,6 +16,7 @@ import org.junit.Ignore;
 import org.junit.Test;
 import org.openlmis.requisition.domain.Comment;
 import org.openlmis.requisition.domain.Requisition;
+import org.openlmis.requisition.domain.RequisitionJobStatus;
 import org.openlmis.requisition.domain.RequisitionLineItem;
 import org.openlmis.requisition.domain.RequisitionStatus;
 import org.openlmis.requisition.dto.FacilityDto;
@@ -33,6 +35,7 @@ import org.openlmis.requisition.service.referencedata.ProgramReferenceDataServic
 import org.openlmis.settings.domain.ConfigurationSetting;
 import org.openlmis.settings.repository.ConfigurationSettingRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 
 import java.io.IOException;
@@ -42,6 +45,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -60,6 +64,7 @@ public class RequisitionControllerIntegrationTest extends BaseWebIntegrationTest
   private static final String REJECT_URL = RESOURCE_URL + "/{id}/reject";
   private static final String SUBMIT_URL = RESOURCE_URL + "/{id}/submit";
   private static final String SUBMITTED_URL = RESOURCE_URL + "/submitted";
+  private static final String JOB_URL = "/api/jobs/{id}";
   private static final String AUTHORIZATION_URL = RESOURCE_URL + "/{id}/authorize";
   private static final String ID_COMMENT_URL = RESOURCE_URL + "/comments/{id}";
   private static final String ID_URL = RESOURCE_URL + "/{id}";
@@ -224,10 +229,76 @@ public class RequisitionControllerIntegrationTest extends BaseWebIntegrationTest
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
 
+  @Test
+  public void shouldKeepLineItemsOfRequisitionSubmittedAsReceived() {
+    String received = restAssured.given()
+            .queryParam(ACCESS_TOKEN, getToken())
+            .pathParam("id", requisition.getId())
+            .when()
+            .get(ID_URL)
+            .then()
+            .statusCode(200)
+            .extract().asString();
+
+    restAssured.given()
+            .queryParam(ACCESS_TOKEN, getToken())
+            .contentType(MediaType.APPLICATION_JSON_VALUE)
+            .pathParam("id", requisition.getId())
+            .body(received)
+            .when()
+            .put(SUBMIT_URL)
+            .then()
+            .statusCode(200);
+
+    RequisitionLineItem saved = requisitionLineItemRepository.findOne(requisitionLineItem.getId());
+    assertNotNull(saved.getRequisition());
+    assertEquals(requisition.getId(), saved.getRequisition().getId());
+    assertEquals(RequisitionStatus.SUBMITTED, saved.getRequisition().getStatus());
+  }
+
+  @Test
+  public void shouldSubmitRequisitionAsynchronously() throws InterruptedException {
+
+    Map<String, Object> job = restAssured.given()
+            .queryParam(ACCESS_TOKEN, getToken())
+            .queryParam("async", true)
+            .contentType(MediaType.APPLICATION_JSON_VALUE)
+            .pathParam("id", requisition.getId())
+            .body(requisition)
+            .when()
+            .put(SUBMIT_URL)
+            .then()
+            .statusCode(202)
+            .extract().jsonPath().getMap("$");
+
+    assertEquals(requisition.getId().toString(), job.get("requisitionId"));
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+
+    String jobId = (String) job.get("id");
+    for (int attempt = 0; attempt < 50 && isJobPending(job); attempt++) {
+      Thread.sleep(100);
+      job = restAssured.given()
+              .queryParam(ACCESS_TOKEN, getToken())
+              .pathParam("id", jobId)
+              .when()
+              .get(JOB_URL)
+              .then()
+              .statusCode(200)
+              .extract().jsonPath().getMap("$");
+    }
+
+    assertEquals(RequisitionJobStatus.COMPLETED.toString(), job.get("status"));
+    assertEquals(200, job.get("resultStatus"));
+    assertEquals(RequisitionStatus.SUBMITTED,
+        requisitionRepository.findOne(requisition.getId()).getStatus());
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
   @Test
   public void shouldNotSubmitRequisitionWithNullRequisitionLineItems() {
 
-    requisition = configureRequisition(new Requisition());
+    // the period has a regular requisition already
+    requisition = configureRequisition(new Requisition(), true);
 
     String response = restAssured.given()
             .queryParam(ACCESS_TOKEN, getToken())
@@ -276,8 +347,9 @@ public class RequisitionControllerIntegrationTest extends BaseWebIntegrationTest
             .statusCode(400)
             .extract().asString();
 
-    String expectedExceptionMessage = EXPECTED_MESSAGE_FIRST_PART
-            + "\"A quantity must be entered prior to submission of a requisition.\"\n}";
+    String expectedExceptionMessage = lineItemErrorMessage(
+            RequisitionLineItem.REQUESTED_QUANTITY,
+            "A quantity must be entered prior to submission of a requisition.");
 
     assertTrue(response.contains(expectedExceptionMessage));
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
@@ -312,8 +384,9 @@ public class RequisitionControllerIntegrationTest extends BaseWebIntegrationTest
             .statusCode(400)
             .extract().asString();
 
-    String expectedExceptionMessage = EXPECTED_MESSAGE_FIRST_PART
-            + "\"A beginning balance must be entered prior to submission of a requisition.\"\n}";
+    String expectedExceptionMessage = lineItemErrorMessage(
+            RequisitionLineItem.BEGINNING_BALANCE,
+            "A beginning balance must be entered prior to submission of a requisition.");
 
     assertTrue(response.contains(expectedExceptionMessage));
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
@@ -349,8 +422,9 @@ public class RequisitionControllerIntegrationTest extends BaseWebIntegrationTest
             .statusCode(400)
             .extract().asString();
 
-    String expectedExceptionMessage = EXPECTED_MESSAGE_FIRST_PART
-            + "\"A beginning balance must be a non-negative value.\"\n}";
+    String expectedExceptionMessage = lineItemErrorMessage(
+            RequisitionLineItem.BEGINNING_BALANCE,
+            "A beginning balance must be a non-negative value.");
 
     assertTrue(response.contains(expectedExceptionMessage));
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
@@ -384,9 +458,9 @@ public class RequisitionControllerIntegrationTest extends BaseWebIntegrationTest
             .statusCode(400)
             .extract().asString();
 
-    String expectedExceptionMessage = EXPECTED_MESSAGE_FIRST_PART
-            + "\"A total received quantity"
-            + " must be entered prior to submission of a requisition.\"\n}";
+    String expectedExceptionMessage = lineItemErrorMessage(
+            RequisitionLineItem.TOTAL_RECEIVED_QUANTITY,
+            "A total received quantity must be entered prior to submission of a requisition.");
 
     assertTrue(response.contains(expectedExceptionMessage));
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
@@ -422,8 +496,9 @@ public class RequisitionControllerIntegrationTest extends BaseWebIntegrationTest
             .statusCode(400)
             .extract().asString();
 
-    String expectedExceptionMessage = EXPECTED_MESSAGE_FIRST_PART
-            + "\"A total received quantity must be a non-negative value.\"\n}";
+    String expectedExceptionMessage = lineItemErrorMessage(
+            RequisitionLineItem.TOTAL_RECEIVED_QUANTITY,
+            "A total received quantity must be a non-negative value.");
 
     assertTrue(response.contains(expectedExceptionMessage));
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
@@ -458,8 +533,9 @@ public class RequisitionControllerIntegrationTest extends BaseWebIntegrationTest
             .statusCode(400)
             .extract().asString();
 
-    String expectedExceptionMessage = EXPECTED_MESSAGE_FIRST_PART
-           + "\"A total stock on hand must be entered prior to submission of a requisition.\"\n}";
+    String expectedExceptionMessage = lineItemErrorMessage(
+            RequisitionLineItem.STOCK_ON_HAND,
+            "A total stock on hand must be entered prior to submission of a requisition.");
 
     assertTrue(response.contains(expectedExceptionMessage));
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
@@ -494,9 +570,9 @@ public class RequisitionControllerIntegrationTest extends BaseWebIntegrationTest
             .statusCode(400)
             .extract().asString();
 
-    String expectedExceptionMessage = EXPECTED_MESSAGE_FIRST_PART
-            + "\"A total consumed quantity"
-            + " must be entered prior to submission of a requisition.\"\n}";
+    String expectedExceptionMessage = lineItemErrorMessage(
+            RequisitionLineItem.TOTAL_CONSUMED_QUANTITY,
+            "A total consumed quantity must be entered prior to submission of a requisition.");
 
     assertTrue(response.contains(expectedExceptionMessage));
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
@@ -644,20 +720,39 @@ public class RequisitionControllerIntegrationTest extends BaseWebIntegrationTest
     requisition.setStatus(RequisitionStatus.AUTHORIZED);
     requisitionRepository.save(requisition);
 
-    Comment[] response = restAssured.given()
+    JsonPath page = restAssured.given()
             .queryParam(ACCESS_TOKEN, getToken())
+            .queryParam("limit", 1)
             .contentType(MediaType.APPLICATION_JSON_VALUE)
             .pathParam("id", requisition.getId())
             .when()
             .get(INSERT_COMMENT)
             .then()
             .statusCode(200)
-            .extract().as(Comment[].class);
+            .extract().jsonPath();
 
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
-    List<Comment> commentList = Arrays.asList(response);
+    List<Comment> commentList = page.getList("comments", Comment.class);
+    assertEquals(2, page.getInt("totalCount"));
+    assertTrue(page.getBoolean("hasMore"));
+    assertEquals(1, commentList.size());
     assertEquals("First comment", commentList.get(0).getBody());
-    assertEquals("Second comment", commentList.get(1).getBody());
+
+    page = restAssured.given()
+            .queryParam(ACCESS_TOKEN, getToken())
+            .queryParam("after", commentList.get(0).getId())
+            .contentType(MediaType.APPLICATION_JSON_VALUE)
+            .pathParam("id", requisition.getId())
+            .when()
+            .get(INSERT_COMMENT)
+            .then()
+            .statusCode(200)
+            .extract().jsonPath();
+
+    commentList = page.getList("comments", Comment.class);
+    assertFalse(page.getBoolean("hasMore"));
+    assertEquals(1, commentList.size());
+    assertEquals("Second comment", commentList.get(0).getBody());
   }
 
 
@@ -701,7 +796,7 @@ public class RequisitionControllerIntegrationTest extends BaseWebIntegrationTest
     Comment userPostComment = new Comment();
     userPostComment.setBody("User comment");
 
-    Comment[] response = restAssured.given()
+    Comment response = restAssured.given()
             .queryParam(ACCESS_TOKEN, getToken())
             .contentType(MediaType.APPLICATION_JSON_VALUE)
             .body(userPostComment)
@@ -709,13 +804,13 @@ public class RequisitionControllerIntegrationTest extends BaseWebIntegrationTest
             .when()
             .post(INSERT_COMMENT)
             .then()
-            .statusCode(200)
-            .extract().as(Comment[].class);
+            .statusCode(201)
+            .extract().as(Comment.class);
 
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
-    List<Comment> commentList = Arrays.asList(response);
-    assertEquals("Previous comment", commentList.get(0).getBody());
-    assertEquals("User comment", commentList.get(1).getBody());
+    assertEquals("User comment", response.getBody());
+    assertEquals(requisition.getId(), response.getRequisition().getId());
+    assertEquals(2, commentRepository.countComments(requisition.getId()));
   }
 
 
@@ -991,7 +1086,7 @@ public class RequisitionControllerIntegrationTest extends BaseWebIntegrationTest
   public void shouldNotUpdateRequisitionIfStatusIsNotInitiated() {
 
     requisition.setStatus(RequisitionStatus.SUBMITTED);
-    requisitionRepository.save(requisition);
+    requisition = requisitionRepository.save(requisition);
     requisition.setEmergency(true);
 
     restAssured.given()
@@ -1007,6 +1102,109 @@ public class RequisitionControllerIntegrationTest extends BaseWebIntegrationTest
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
 
+  @Test
+  public void shouldNotUpdateRequisitionWithoutVersion() {
+
+    requisition.setVersion(null);
+
+    restAssured.given()
+          .queryParam(ACCESS_TOKEN, getToken())
+          .contentType(MediaType.APPLICATION_JSON_VALUE)
+          .pathParam("id", requisition.getId())
+          .body(requisition)
+          .when()
+          .put(ID_URL)
+          .then()
+          .statusCode(428);
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldNotUpdateNonexistentRequisition() {
+
+    requisitionRepository.delete(requisition);
+
+    restAssured.given()
+          .queryParam(ACCESS_TOKEN, getToken())
+          .contentType(MediaType.APPLICATION_JSON_VALUE)
+          .pathParam("id", requisition.getId())
+          .body(requisition)
+          .when()
+          .put(ID_URL)
+          .then()
+          .statusCode(404);
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldUpdateRequisitionMatchingIfMatch() {
+
+    Long version = requisition.getVersion();
+    requisition.setVersion(null);
+    requisition.setEmergency(true);
+
+    Requisition response = restAssured.given()
+          .queryParam(ACCESS_TOKEN, getToken())
+          .header(HttpHeaders.IF_MATCH, "\"" + version + "\"")
+          .contentType(MediaType.APPLICATION_JSON_VALUE)
+          .pathParam("id", requisition.getId())
+          .body(requisition)
+          .when()
+          .put(ID_URL)
+          .then()
+          .statusCode(200)
+          .extract().as(Requisition.class);
+
+    assertTrue(response.getEmergency());
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldNotUpdateRequisitionNotMatchingIfMatch() {
+
+    Long version = requisition.getVersion();
+
+    String entityTag = restAssured.given()
+          .queryParam(ACCESS_TOKEN, getToken())
+          .header(HttpHeaders.IF_MATCH, "\"" + (version + 1) + "\"")
+          .contentType(MediaType.APPLICATION_JSON_VALUE)
+          .pathParam("id", requisition.getId())
+          .body(requisition)
+          .when()
+          .put(ID_URL)
+          .then()
+          .statusCode(409)
+          .extract().header(HttpHeaders.ETAG);
+
+    assertEquals("\"" + version + "\"", entityTag);
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldNotSubmitOutdatedRequisition() {
+
+    Long version = requisition.getVersion();
+    requisition.setEmergency(true);
+    requisition = requisitionRepository.save(requisition);
+    requisition.setVersion(version);
+
+    String detail = restAssured.given()
+            .queryParam(ACCESS_TOKEN, getToken())
+            .contentType(MediaType.APPLICATION_JSON_VALUE)
+            .pathParam("id", requisition.getId())
+            .body(requisition)
+            .when()
+            .put(SUBMIT_URL)
+            .then()
+            .statusCode(409)
+            .extract().path("description");
+
+    assertTrue(detail.contains("current version is " + (version + 1)));
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
   private void testApproveRequisition(Requisition requisition) {
 
     Requisition response = restAssured.given()
@@ -1025,14 +1223,28 @@ public class RequisitionControllerIntegrationTest extends BaseWebIntegrationTest
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
 
+  private boolean isJobPending(Map<String, Object> job) {
+    Object status = job.get("status");
+    return RequisitionJobStatus.QUEUED.toString().equals(status)
+        || RequisitionJobStatus.PROCESSING.toString().equals(status);
+  }
+
+  private String lineItemErrorMessage(String field, String message) {
+    return "{\n  \"requisitionLineItems[0]." + field + "\" : \"" + message + "\"\n}";
+  }
+
   private Requisition configureRequisition(Requisition requisition) {
+    return configureRequisition(requisition, false);
+  }
+
+  private Requisition configureRequisition(Requisition requisition, boolean emergency) {
     requisition.setFacility(facility.getId());
     requisition.setProcessingPeriod(period.getId());
     requisition.setProgram(program.getId());
     requisition.setStatus(RequisitionStatus.INITIATED);
     requisition.setSupervisoryNode(supervisoryNode.getId());
     requisition.setCreatedDate(localDateTime);
-    requisition.setEmergency(false);
+    requisition.setEmergency(emergency);
 
     return requisitionRepository.save(requisition);
   }
@@ -1203,4 +1415,23 @@ public class RequisitionControllerIntegrationTest extends BaseWebIntegrationTest
     }
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
+
+  @Test
+  public void shouldNotGetApprovedRequisitionsOfPageZero() {
+    restAssured.given()
+        .queryParam(ACCESS_TOKEN, getToken())
+        .queryParam("filterValue", "1")
+        .queryParam("filterBy", "facilityCode")
+        .queryParam("sortBy", "programName")
+        .queryParam("descending", Boolean.TRUE.toString())
+        .queryParam("pageNumber", valueOf(0))
+        .queryParam("pageSize", valueOf(20))
+        .contentType(MediaType.APPLICATION_JSON_VALUE)
+        .when()
+        .get(APPROVED_REQUISITIONS_SEARCH_URL)
+        .then()
+        .statusCode(400);
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
 }
@@ -24,7 +24,8 @@ import org.springframework.http.MediaType;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 
 @Ignore
@@ -135,19 +136,41 @@ public class RequisitionLineItemControllerIntegrationTest extends BaseWebIntegra
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
 
+  @Test
+  public void shouldRequireVersionsOfChangedRequisitionLineItems() {
+    RequisitionLineItem change = new RequisitionLineItem();
+    change.setId(requisitionLineItem.getId());
+    change.setBeginningBalance(1);
+
+    restAssured.given()
+        .queryParam(ACCESS_TOKEN, getToken())
+        .contentType(MediaType.APPLICATION_JSON_VALUE)
+        .pathParam("id", requisition.getId())
+        .body(Collections.singletonList(change))
+        .when()
+        .patch("/api/requisitions/{id}/requisitionLineItems")
+        .then()
+        .statusCode(428);
+
+    RequisitionLineItem saved = requisitionLineItemRepository.findOne(requisitionLineItem.getId());
+    assertEquals(requisitionLineItem.getBeginningBalance(), saved.getBeginningBalance());
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
   @Test
   public void shouldGetAllRequisitionLineItems() {
 
-    RequisitionLineItem[] response = restAssured.given()
+    List<RequisitionLineItem> requisitionLineItems = restAssured.given()
           .queryParam(ACCESS_TOKEN, getToken())
+          .queryParam("pageNumber", 1)
+          .queryParam("pageSize", 10)
           .contentType(MediaType.APPLICATION_JSON_VALUE)
           .when()
           .get(RESOURCE_URL)
           .then()
           .statusCode(200)
-          .extract().as(RequisitionLineItem[].class);
+          .extract().jsonPath().getList("content", RequisitionLineItem.class);
 
-    Iterable<RequisitionLineItem> requisitionLineItems = Arrays.asList(response);
     assertTrue(requisitionLineItems.iterator().hasNext());
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
@@ -10,7 +10,7 @@ import org.openlmis.requisition.repository.RequisitionTemplateRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 
-import java.util.Arrays;
+import java.util.List;
 import java.util.UUID;
 
 import static org.junit.Assert.assertEquals;
@@ -161,16 +161,17 @@ public class RequisitionTemplateControllerIntegrationTest extends BaseWebIntegra
   @Test
   public void shouldGetAllRequisitionTemplates() {
 
-    RequisitionTemplate[] response = restAssured.given()
+    List<RequisitionTemplate> requisitionTemplates = restAssured.given()
           .queryParam(ACCESS_TOKEN, getToken())
+          .queryParam("pageNumber", 1)
+          .queryParam("pageSize", 10)
           .contentType(MediaType.APPLICATION_JSON_VALUE)
           .when()
           .get(RESOURCE_URL)
           .then()
           .statusCode(200)
-          .extract().as(RequisitionTemplate[].class);
+          .extract().jsonPath().getList("content", RequisitionTemplate.class);
 
-    Iterable<RequisitionTemplate> requisitionTemplates = Arrays.asList(response);
     assertTrue(requisitionTemplates.iterator().hasNext());
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
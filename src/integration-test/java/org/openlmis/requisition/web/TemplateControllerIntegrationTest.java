@@ -11,7 +11,7 @@ import org.springframework.core.io.ClassPathResource;
 import org.springframework.http.MediaType;
 
 import java.io.IOException;
-import java.util.Arrays;
+import java.util.List;
 import java.util.UUID;
 
 import static org.junit.Assert.assertEquals;
@@ -143,16 +143,17 @@ public class TemplateControllerIntegrationTest extends BaseWebIntegrationTest {
   @Test
   public void shouldGetAllRequisitionTemplates() {
 
-    Template[] response = restAssured.given()
+    List<Template> templates = restAssured.given()
           .queryParam(ACCESS_TOKEN, getToken())
+          .queryParam("pageNumber", 1)
+          .queryParam("pageSize", 10)
           .contentType(MediaType.APPLICATION_JSON_VALUE)
           .when()
           .get(RESOURCE_URL)
           .then()
           .statusCode(200)
-          .extract().as(Template[].class);
+          .extract().jsonPath().getList("content", Template.class);
 
-    Iterable<Template> templates = Arrays.asList(response);
     assertTrue(templates.iterator().hasNext());
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
@@ -0,0 +1,264 @@
+package org.openlmis.fulfillment.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.domain.OrderNumberConfiguration;
+import org.openlmis.fulfillment.repository.OrderNumberConfigurationRepository;
+import org.openlmis.fulfillment.repository.OrderRepository;
+import org.openlmis.requisition.domain.Requisition;
+import org.openlmis.requisition.domain.RequisitionLineItem;
+import org.openlmis.requisition.domain.RequisitionStatus;
+import org.openlmis.requisition.dto.ProgramDto;
+import org.openlmis.requisition.dto.SupplyLineDto;
+import org.openlmis.requisition.dto.UserDto;
+import org.openlmis.requisition.exception.RequisitionException;
+import org.openlmis.requisition.repository.RequisitionRepository;
+import org.openlmis.requisition.repository.RequisitionSearchEntryRepository;
+import org.openlmis.requisition.service.RequisitionSearchEntryService;
+import org.openlmis.requisition.service.RequisitionService;
+import org.openlmis.requisition.service.referencedata.ProgramReferenceDataService;
+import org.openlmis.requisition.service.referencedata.SupplyLineReferenceDataService;
+import org.openlmis.requisition.service.referencedata.UserReferenceDataService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures conversion of approved requisitions into orders. Every call of a repository or of
+ * reference data takes {@code roundTripMicros}, like a round trip to the database or to the
+ * reference data service does, so the result mostly reflects the number of round trips. The
+ * requisitions are spread over {@code supplyLineCount} pairs of program and supervisory node,
+ * whose supply lines are looked up by {@code supplyLineWorkers} threads. The number of round
+ * trips of one conversion is printed during setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderConversionBenchmark {
+
+  private static final int PROGRAM_COUNT = 5;
+
+  @Param({"1000"})
+  private int requisitionCount;
+
+  @Param({"10"})
+  private int lineItemCount;
+
+  @Param({"50"})
+  private int supplyLineCount;
+
+  @Param({"100"})
+  private int roundTripMicros;
+
+  @Param({"1", "8"})
+  private int supplyLineWorkers;
+
+  private final AtomicLong roundTrips = new AtomicLong();
+  private final Map<UUID, Requisition> requisitions = new HashMap<>();
+  private final Map<List<UUID>, SupplyLineDto> supplyLines = new HashMap<>();
+  private final OrderNumberConfiguration orderNumberConfiguration =
+      new OrderNumberConfiguration("ORDER", true, true, true);
+
+  private List<Requisition> requisitionList;
+  private SupplyLineResolver supplyLineResolver;
+  private OrderService orderService;
+  private UUID userId;
+
+  /**
+   * Generates requisitions and wires the order service with stubbed repositories and reference
+   * data.
+   */
+  @Setup
+  public void setUp() throws ReflectiveOperationException, RequisitionException {
+    List<UUID> programs = new ArrayList<>();
+    for (int i = 0; i < PROGRAM_COUNT; i++) {
+      programs.add(UUID.randomUUID());
+    }
+    List<UUID> supervisoryNodes = new ArrayList<>();
+    for (int i = 0; i < supplyLineCount; i++) {
+      supervisoryNodes.add(UUID.randomUUID());
+    }
+
+    requisitionList = new ArrayList<>(requisitionCount);
+    for (int i = 0; i < requisitionCount; i++) {
+      Requisition requisition = generateRequisition(programs.get(i % PROGRAM_COUNT),
+          supervisoryNodes.get(i % supplyLineCount));
+      requisitions.put(requisition.getId(), requisition);
+      requisitionList.add(requisition);
+
+      List<UUID> key = Arrays.asList(requisition.getProgram(), requisition.getSupervisoryNode());
+      if (!supplyLines.containsKey(key)) {
+        SupplyLineDto supplyLine = new SupplyLineDto();
+        supplyLine.setId(UUID.randomUUID());
+        supplyLine.setProgram(requisition.getProgram());
+        supplyLine.setSupervisoryNode(requisition.getSupervisoryNode());
+        supplyLine.setSupplyingFacility(UUID.randomUUID());
+        supplyLines.put(key, supplyLine);
+      }
+    }
+    userId = UUID.randomUUID();
+
+    RequisitionSearchEntryService requisitionSearchEntryService =
+        new RequisitionSearchEntryService();
+    inject(requisitionSearchEntryService, repository(RequisitionSearchEntryRepository.class));
+
+    RequisitionService requisitionService = new RequisitionService();
+    inject(requisitionService, repository(RequisitionRepository.class),
+        requisitionSearchEntryService);
+
+    supplyLineResolver = new SupplyLineResolver();
+    inject(supplyLineResolver, new SupplyLineLookup());
+    ReflectionTestUtils.setField(supplyLineResolver, "workers", supplyLineWorkers);
+    ReflectionTestUtils.setField(supplyLineResolver, "timeout", TimeUnit.MINUTES.toMillis(1));
+    supplyLineResolver.start();
+
+    orderService = new OrderService();
+    inject(orderService, requisitionService, supplyLineResolver,
+        repository(OrderRepository.class), repository(OrderNumberConfigurationRepository.class),
+        new UserLookup(), new ProgramLookup());
+
+    roundTrips.set(0);
+    convertToOrder();
+    System.out.println("Round trips per conversion: " + roundTrips.get());
+  }
+
+  /**
+   * Stops the supply line lookups.
+   */
+  @TearDown
+  public void tearDown() {
+    supplyLineResolver.stop();
+  }
+
+  /**
+   * Converts all approved requisitions into orders.
+   */
+  @Benchmark
+  public List<Order> convertToOrder() throws RequisitionException {
+    for (Requisition requisition : requisitionList) {
+      requisition.setStatus(RequisitionStatus.APPROVED);
+    }
+    return orderService.convertToOrder(requisitionList, userId);
+  }
+
+  private Requisition generateRequisition(UUID program, UUID supervisoryNode) {
+    Requisition requisition = new Requisition();
+    requisition.setId(UUID.randomUUID());
+    requisition.setFacility(UUID.randomUUID());
+    requisition.setProgram(program);
+    requisition.setSupervisoryNode(supervisoryNode);
+    requisition.setEmergency(false);
+    requisition.setStatus(RequisitionStatus.APPROVED);
+
+    List<RequisitionLineItem> lineItems = new ArrayList<>(lineItemCount);
+    for (int i = 0; i < lineItemCount; i++) {
+      RequisitionLineItem lineItem = new RequisitionLineItem();
+      lineItem.setRequisition(requisition);
+      lineItem.setOrderableProduct(UUID.randomUUID());
+      lineItem.setRequestedQuantity(i + 1);
+      lineItems.add(lineItem);
+    }
+    requisition.setRequisitionLineItems(lineItems);
+    return requisition;
+  }
+
+  private <T> T repository(Class<T> type) {
+    return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type},
+        (proxy, method, args) -> {
+          roundTrip();
+          return answer(method.getName(), args);
+        }));
+  }
+
+  private Object answer(String method, Object[] args) {
+    switch (method) {
+      case "findAllWithLineItems":
+        List<Requisition> found = new ArrayList<>();
+        for (Object id : (Collection<?>) args[0]) {
+          found.add(requisitions.get(id));
+        }
+        return found;
+      case "findAll":
+        return Collections.singletonList(orderNumberConfiguration);
+      case "deleteByRequisitionIds":
+        return ((Collection<?>) args[0]).size();
+      case "save":
+        return args[0];
+      default:
+        return null;
+    }
+  }
+
+  private void roundTrip() {
+    roundTrips.incrementAndGet();
+    LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(roundTripMicros));
+  }
+
+  private static void inject(Object target, Object... dependencies)
+      throws ReflectiveOperationException {
+    for (Field field : target.getClass().getDeclaredFields()) {
+      for (Object dependency : dependencies) {
+        if (field.getType().isInstance(dependency)) {
+          field.setAccessible(true);
+          field.set(target, dependency);
+        }
+      }
+    }
+  }
+
+  private class UserLookup extends UserReferenceDataService {
+    @Override
+    public UserDto findOne(UUID id) {
+      roundTrip();
+      UserDto user = new UserDto();
+      user.setId(id);
+      return user;
+    }
+  }
+
+  private class ProgramLookup extends ProgramReferenceDataService {
+    @Override
+    public ProgramDto findOne(UUID id) {
+      roundTrip();
+      ProgramDto program = new ProgramDto();
+      program.setId(id);
+      program.setCode("PRG" + id.toString().substring(0, 4));
+      return program;
+    }
+  }
+
+  private class SupplyLineLookup extends SupplyLineReferenceDataService {
+    @Override
+    public Collection<SupplyLineDto> search(UUID programId, UUID supervisoryNodeId) {
+      roundTrip();
+      return Collections.singletonList(supplyLines.get(Arrays.asList(programId,
+          supervisoryNodeId)));
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package org.openlmis.requisition.domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a bulk computation over line items of many requisitions, calculating stock on hand,
+ * total consumption and number of stock-outs, on entities and on a {@link LineItemBatch}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class LineItemBatchBenchmark {
+
+  @Param({"100000"})
+  private int lineItemCount;
+
+  private List<RequisitionLineItem> lineItems;
+  private LineItemBatch batch;
+  private LineItemCalculation calculation;
+
+  /**
+   * Generates line items with random quantities, some of them missing, and their batch.
+   */
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    lineItems = new ArrayList<>(lineItemCount);
+    batch = new LineItemBatch(lineItemCount);
+    Requisition requisition = null;
+    for (int i = 0; i < lineItemCount; i++) {
+      if (i % 100 == 0) {
+        requisition = new Requisition();
+        requisition.setId(UUID.randomUUID());
+      }
+      RequisitionLineItem lineItem = new RequisitionLineItem();
+      lineItem.setRequisition(requisition);
+      lineItem.setBeginningBalance(random.nextInt(1000));
+      lineItem.setTotalReceivedQuantity(random.nextInt(1000));
+      lineItem.setTotalLossesAndAdjustments(random.nextInt(20) - 10);
+      lineItem.setTotalConsumedQuantity(random.nextInt(50) == 0 ? null : random.nextInt(2000));
+      lineItems.add(lineItem);
+      batch.add(lineItem);
+    }
+    calculation = LineItemCalculation.defaultCalculation();
+  }
+
+  /**
+   * Computation over entities with boxed quantities.
+   */
+  @Benchmark
+  public long entities() {
+    long consumed = 0;
+    int stockOuts = 0;
+    for (RequisitionLineItem lineItem : lineItems) {
+      Integer consumption = lineItem.getTotalConsumedQuantity();
+      if (consumption == null) {
+        lineItem.setStockOnHand(null);
+        continue;
+      }
+      int stockOnHand = lineItem.getBeginningBalance() + lineItem.getTotalReceivedQuantity()
+          + lineItem.getTotalLossesAndAdjustments() - consumption;
+      lineItem.setStockOnHand(stockOnHand);
+      consumed += consumption;
+      if (stockOnHand == 0) {
+        stockOuts++;
+      }
+    }
+    return consumed + stockOuts;
+  }
+
+  /**
+   * The same computation over primitive columns.
+   */
+  @Benchmark
+  public long batch() {
+    calculation.calculate(batch);
+    return batch.sum(LineItemField.TOTAL_CONSUMED_QUANTITY)
+        + batch.count(LineItemField.STOCK_ON_HAND, 0);
+  }
+}
@@ -0,0 +1,154 @@
+package org.openlmis.requisition.domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openlmis.requisition.exception.RequisitionTemplateColumnException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares calculating line items of one requisition with a compiled template calculation against
+ * the formula hard-coded in line items before, and against compiling the template on every call.
+ * Stock on hand is cleared before every call, so each variant writes, and boxes, every result.
+ * Recalculating line items whose stock on hand is already calculated shows the allocations of the
+ * calculation itself, as the compiled calculation leaves unchanged fields as they are.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class LineItemCalculationBenchmark {
+
+  @Param({"5000"})
+  private int lineItemCount;
+
+  private List<RequisitionLineItem> lineItems;
+  private RequisitionTemplate template;
+  private LineItemCalculation calculation;
+
+  /**
+   * Generates line items with random quantities and a template calculating stock on hand.
+   */
+  @Setup
+  public void setUp() throws RequisitionTemplateColumnException {
+    Random random = new Random(42);
+    lineItems = new ArrayList<>(lineItemCount);
+    for (int i = 0; i < lineItemCount; i++) {
+      RequisitionLineItem lineItem = new RequisitionLineItem();
+      lineItem.setBeginningBalance(random.nextInt(10000));
+      lineItem.setTotalReceivedQuantity(random.nextInt(10000));
+      lineItem.setTotalLossesAndAdjustments(random.nextInt(200) - 100);
+      lineItem.setTotalConsumedQuantity(random.nextInt(10000));
+      lineItems.add(lineItem);
+    }
+
+    Map<String, RequisitionTemplateColumn> columns = new HashMap<>();
+    columns.put(RequisitionLineItem.STOCK_ON_HAND, new RequisitionTemplateColumn(
+        RequisitionLineItem.STOCK_ON_HAND, "Stock on hand", 1, true, false, true, false,
+        SourceType.CALCULATED));
+    template = new RequisitionTemplate(columns);
+    calculation = LineItemCalculation.compile(template);
+  }
+
+  /**
+   * Clears stock on hand calculated by the previous call.
+   */
+  @Setup(Level.Invocation)
+  public void clearStockOnHand() {
+    for (RequisitionLineItem lineItem : lineItems) {
+      lineItem.setStockOnHand(null);
+    }
+  }
+
+  /**
+   * Stock on hand formula as it was hard-coded in line items.
+   */
+  @Benchmark
+  public List<RequisitionLineItem> hardCodedFormula() {
+    for (RequisitionLineItem lineItem : lineItems) {
+      lineItem.setStockOnHand(lineItem.getBeginningBalance() + lineItem.getTotalReceivedQuantity()
+          + lineItem.getTotalLossesAndAdjustments() - lineItem.getTotalConsumedQuantity());
+    }
+    return lineItems;
+  }
+
+  @Benchmark
+  public List<RequisitionLineItem> compiledCalculation() {
+    calculation.calculate(lineItems);
+    return lineItems;
+  }
+
+  /**
+   * Recalculates line items which were calculated before, which writes no field.
+   */
+  @Benchmark
+  public List<RequisitionLineItem> compiledRecalculation(Calculated calculated) {
+    calculation.calculate(calculated.lineItems);
+    return calculated.lineItems;
+  }
+
+  /**
+   * Recalculates line items with the hard-coded formula, which sets every field again.
+   */
+  @Benchmark
+  public List<RequisitionLineItem> hardCodedRecalculation(Calculated calculated) {
+    for (RequisitionLineItem lineItem : calculated.lineItems) {
+      lineItem.setStockOnHand(lineItem.getBeginningBalance() + lineItem.getTotalReceivedQuantity()
+          + lineItem.getTotalLossesAndAdjustments() - lineItem.getTotalConsumedQuantity());
+    }
+    return calculated.lineItems;
+  }
+
+  /**
+   * Compiles the template on every call, as without caching calculations per template version.
+   */
+  @Benchmark
+  public List<RequisitionLineItem> compileAndCalculate()
+      throws RequisitionTemplateColumnException {
+    LineItemCalculation.compile(template).calculate(lineItems);
+    return lineItems;
+  }
+
+  /**
+   * Line items whose stock on hand is calculated once, and kept between calls.
+   */
+  @State(Scope.Benchmark)
+  public static class Calculated {
+
+    private List<RequisitionLineItem> lineItems;
+
+    /**
+     * Copies line items of the benchmark and calculates their stock on hand.
+     */
+    @Setup
+    public void setUp(LineItemCalculationBenchmark benchmark) {
+      lineItems = new ArrayList<>(benchmark.lineItems.size());
+      for (RequisitionLineItem source : benchmark.lineItems) {
+        RequisitionLineItem lineItem = new RequisitionLineItem();
+        lineItem.setBeginningBalance(source.getBeginningBalance());
+        lineItem.setTotalReceivedQuantity(source.getTotalReceivedQuantity());
+        lineItem.setTotalLossesAndAdjustments(source.getTotalLossesAndAdjustments());
+        lineItem.setTotalConsumedQuantity(source.getTotalConsumedQuantity());
+        lineItems.add(lineItem);
+      }
+      benchmark.calculation.calculate(lineItems);
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package org.openlmis.requisition.validate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openlmis.requisition.domain.Requisition;
+import org.openlmis.requisition.domain.RequisitionLineItem;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Errors;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures validation of a large requisition with a compiled {@link LineItemValidation}, where
+ * every line item is valid.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LineItemValidationBenchmark {
+
+  @Param({"5000"})
+  private int lineItemCount;
+
+  private Requisition requisition;
+  private LineItemValidation validation;
+
+  /**
+   * Generates a requisition with valid random quantities.
+   */
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    List<RequisitionLineItem> lineItems = new ArrayList<>(lineItemCount);
+    for (int i = 0; i < lineItemCount; i++) {
+      RequisitionLineItem lineItem = new RequisitionLineItem();
+      lineItem.setBeginningBalance(random.nextInt(1000));
+      lineItem.setTotalReceivedQuantity(random.nextInt(1000));
+      lineItem.setTotalLossesAndAdjustments(0);
+      lineItem.setTotalConsumedQuantity(random.nextInt(1000));
+      lineItem.setStockOnHand(lineItem.getBeginningBalance()
+          + lineItem.getTotalReceivedQuantity() - lineItem.getTotalConsumedQuantity());
+      lineItem.setRequestedQuantity(random.nextInt(1000));
+      lineItem.setRequestedQuantityExplanation("Expected demand");
+      lineItems.add(lineItem);
+    }
+    requisition = new Requisition();
+    requisition.setRequisitionLineItems(lineItems);
+    validation = LineItemValidation.defaultValidation();
+  }
+
+  /**
+   * Validates all line items of the requisition.
+   */
+  @Benchmark
+  public Errors validate() {
+    Errors errors = new BeanPropertyBindingResult(requisition, "requisition");
+    validation.validate(requisition.getRequisitionLineItems(), errors);
+    return errors;
+  }
+}
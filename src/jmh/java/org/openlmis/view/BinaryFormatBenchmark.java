@@ -0,0 +1,114 @@
+package org.openlmis.view;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openlmis.requisition.domain.Requisition;
+import org.openlmis.requisition.domain.RequisitionLineItem;
+import org.openlmis.requisition.domain.RequisitionStatus;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a round trip (writing and reading back) of a requisition in JSON, Smile and CBOR,
+ * all written with the {@link CompactJsonModule}. Sizes of each format are printed during setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BinaryFormatBenchmark {
+
+  @Param({"1000"})
+  private int lineItemCount;
+
+  private Requisition requisition;
+  private ObjectMapper jsonMapper;
+  private ObjectMapper smileMapper;
+  private ObjectMapper cborMapper;
+
+  /**
+   * Generates a requisition with line items having most of their quantities set.
+   */
+  @Setup
+  public void setUp() throws IOException {
+    Random random = new Random(42);
+    requisition = new Requisition();
+    requisition.setId(UUID.randomUUID());
+    requisition.setFacility(UUID.randomUUID());
+    requisition.setProgram(UUID.randomUUID());
+    requisition.setProcessingPeriod(UUID.randomUUID());
+    requisition.setStatus(RequisitionStatus.SUBMITTED);
+    requisition.setCreatedDate(LocalDateTime.now());
+    requisition.setVersion(1L);
+
+    List<RequisitionLineItem> lineItems = new ArrayList<>(lineItemCount);
+    for (int i = 0; i < lineItemCount; i++) {
+      RequisitionLineItem lineItem = new RequisitionLineItem();
+      lineItem.setId(UUID.randomUUID());
+      lineItem.setRequisition(requisition);
+      lineItem.setOrderableProduct(UUID.randomUUID());
+      lineItem.setBeginningBalance(random.nextInt(1000));
+      lineItem.setTotalReceivedQuantity(random.nextInt(1000));
+      lineItem.setTotalLossesAndAdjustments(random.nextInt(20) - 10);
+      lineItem.setTotalConsumedQuantity(random.nextInt(1000));
+      lineItem.setStockInHand(random.nextInt(1000));
+      lineItem.setRequestedQuantity(random.nextInt(10) == 0 ? null : random.nextInt(500));
+      lineItem.setVersion(1L);
+      lineItems.add(lineItem);
+    }
+    requisition.setRequisitionLineItems(lineItems);
+
+    jsonMapper = createMapper(new ObjectMapper());
+    smileMapper = createMapper(new ObjectMapper(new SmileFactory()));
+    cborMapper = createMapper(new ObjectMapper(new CBORFactory()));
+    System.out.printf("%nBytes per %d-line requisition: JSON %d, Smile %d, CBOR %d%n",
+        lineItemCount, jsonMapper.writeValueAsBytes(requisition).length,
+        smileMapper.writeValueAsBytes(requisition).length,
+        cborMapper.writeValueAsBytes(requisition).length);
+  }
+
+  @Benchmark
+  public Requisition json() throws IOException {
+    return roundTrip(jsonMapper);
+  }
+
+  @Benchmark
+  public Requisition smile() throws IOException {
+    return roundTrip(smileMapper);
+  }
+
+  @Benchmark
+  public Requisition cbor() throws IOException {
+    return roundTrip(cborMapper);
+  }
+
+  private Requisition roundTrip(ObjectMapper mapper) throws IOException {
+    return mapper.readValue(mapper.writeValueAsBytes(requisition), Requisition.class);
+  }
+
+  private static ObjectMapper createMapper(ObjectMapper mapper) {
+    return mapper.registerModule(new CompactJsonModule())
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+  }
+}
@@ -0,0 +1,102 @@
+package org.openlmis.view;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openlmis.requisition.domain.Requisition;
+import org.openlmis.requisition.domain.RequisitionLineItem;
+import org.openlmis.requisition.domain.RequisitionStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares time of writing a requisition with the default serializer, which tracks identities
+ * of line items and repeats the requisition in each of them, and with the
+ * {@link RequisitionSerializer}. Sizes of both responses are printed during setup. The default
+ * serializer nests a level deeper with every line item, so it needs a bigger stack.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss256m")
+public class RequisitionSerializationBenchmark {
+
+  @Param({"1000"})
+  private int lineItemCount;
+
+  private Requisition requisition;
+  private ObjectMapper defaultMapper;
+  private ObjectMapper compactMapper;
+
+  /**
+   * Generates a requisition with line items having most of their quantities set.
+   */
+  @Setup
+  public void setUp() throws JsonProcessingException {
+    Random random = new Random(42);
+    requisition = new Requisition();
+    requisition.setId(UUID.randomUUID());
+    requisition.setFacility(UUID.randomUUID());
+    requisition.setProgram(UUID.randomUUID());
+    requisition.setProcessingPeriod(UUID.randomUUID());
+    requisition.setStatus(RequisitionStatus.SUBMITTED);
+    requisition.setCreatedDate(LocalDateTime.now());
+    requisition.setVersion(1L);
+
+    List<RequisitionLineItem> lineItems = new ArrayList<>(lineItemCount);
+    for (int i = 0; i < lineItemCount; i++) {
+      RequisitionLineItem lineItem = new RequisitionLineItem();
+      lineItem.setId(UUID.randomUUID());
+      lineItem.setRequisition(requisition);
+      lineItem.setOrderableProduct(UUID.randomUUID());
+      lineItem.setBeginningBalance(random.nextInt(1000));
+      lineItem.setTotalReceivedQuantity(random.nextInt(1000));
+      lineItem.setTotalLossesAndAdjustments(random.nextInt(20) - 10);
+      lineItem.setTotalConsumedQuantity(random.nextInt(1000));
+      lineItem.setStockInHand(random.nextInt(1000));
+      lineItem.setRequestedQuantity(random.nextInt(10) == 0 ? null : random.nextInt(500));
+      lineItem.setVersion(1L);
+      lineItems.add(lineItem);
+    }
+    requisition.setRequisitionLineItems(lineItems);
+
+    defaultMapper = new ObjectMapper();
+    compactMapper = new ObjectMapper().registerModule(new CompactJsonModule());
+    System.out.printf("%nBytes per %d-line requisition: default %d, compact %d%n", lineItemCount,
+        defaultMapper.writeValueAsBytes(requisition).length,
+        compactMapper.writeValueAsBytes(requisition).length);
+  }
+
+  /**
+   * Default serializer with identity info on line items.
+   */
+  @Benchmark
+  public byte[] defaultSerializer() throws JsonProcessingException {
+    return defaultMapper.writeValueAsBytes(requisition);
+  }
+
+  /**
+   * Compact serializer without identities, nulls and back-references.
+   */
+  @Benchmark
+  public byte[] compactSerializer() throws JsonProcessingException {
+    return compactMapper.writeValueAsBytes(requisition);
+  }
+}
@@ -0,0 +1,72 @@
+-- Benchmark of the approved requisition search with 1M requisitions, 900k of them approved.
+--
+-- Run against a database created by the service (so that the schema and the trigram indexes
+-- from import.sql exist). All generated data is rolled back at the end:
+--
+--   psql -h localhost -U postgres -d open_lmis -f src/jmh/sql/approved-search.sql
+--
+-- Each query mirrors the statement generated by
+-- RequisitionRepositoryImpl.searchApprovedRequisitionsWithSortAndFilterAndPaging for one value
+-- of filterBy. Compare the plans and timings with and without the *_trgm indexes by running
+-- the script again after dropping them. Plans recorded this way are in approved-search-plans.txt.
+
+\set ON_ERROR_STOP on
+
+BEGIN;
+
+INSERT INTO requisition.requisitions (id, createdDate, facility, program, processingPeriod,
+    status, version)
+SELECT md5('r' || i)::uuid, now() - (i % 365) * interval '1 day',
+    decode(md5('f' || (i % 5000)), 'hex'), decode(md5('p' || (i % 20)), 'hex'),
+    decode(md5('pp' || (i % 120)), 'hex'),
+    CASE WHEN i % 10 = 0 THEN 'RELEASED' ELSE 'APPROVED' END, 0
+FROM generate_series(1, 1000000) AS i;
+
+INSERT INTO requisition.requisition_search_entries (requisitionId, facility, facilityCode,
+    facilityName, program, programName, processingPeriod, periodEndDate, scheduleModifiedDate)
+SELECT md5('r' || i)::uuid, decode(md5('f' || (i % 5000)), 'hex'),
+    'HC' || lpad((i % 5000)::text, 5, '0'), 'Health Center ' || (i % 5000),
+    decode(md5('p' || (i % 20)), 'hex'), 'Program ' || (i % 20),
+    decode(md5('pp' || (i % 120)), 'hex'), current_date - (i % 120) * 30,
+    now() - (i % 50) * interval '1 day'
+FROM generate_series(1, 1000000) AS i
+WHERE i % 10 <> 0;
+
+ANALYZE requisition.requisitions;
+ANALYZE requisition.requisition_search_entries;
+
+\timing on
+
+-- filterBy=facilityName, sortBy=facilityName
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT r.*, count(*) OVER () AS total FROM requisition.requisitions r
+  JOIN requisition.requisition_search_entries e ON e.requisitionId = r.id
+WHERE r.status = 'APPROVED' AND (e.facilityName LIKE '%Center 4217%')
+ORDER BY e.facilityName ASC, e.scheduleModifiedDate DESC, r.id ASC LIMIT 10 OFFSET 0;
+
+-- filterBy=facilityCode, sortBy=facilityCode
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT r.*, count(*) OVER () AS total FROM requisition.requisitions r
+  JOIN requisition.requisition_search_entries e ON e.requisitionId = r.id
+WHERE r.status = 'APPROVED' AND (e.facilityCode LIKE '%C0421%')
+ORDER BY e.facilityCode ASC, e.scheduleModifiedDate DESC, r.id ASC LIMIT 10 OFFSET 0;
+
+-- filterBy=programName, sortBy=programName
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT r.*, count(*) OVER () AS total FROM requisition.requisitions r
+  JOIN requisition.requisition_search_entries e ON e.requisitionId = r.id
+WHERE r.status = 'APPROVED' AND (e.programName LIKE '%Program 17%')
+ORDER BY e.programName ASC, e.periodEndDate DESC, r.id ASC LIMIT 10 OFFSET 0;
+
+-- filterBy=all, sortBy=facilityName
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT r.*, count(*) OVER () AS total FROM requisition.requisitions r
+  JOIN requisition.requisition_search_entries e ON e.requisitionId = r.id
+WHERE r.status = 'APPROVED'
+  AND (e.programName LIKE '%Center 4217%' OR e.facilityCode LIKE '%Center 4217%'
+    OR e.facilityName LIKE '%Center 4217%')
+ORDER BY e.facilityName ASC, e.scheduleModifiedDate DESC, r.id ASC LIMIT 10 OFFSET 0;
+
+\timing off
+
+ROLLBACK;
@@ -0,0 +1,36 @@
+package org.openlmis.cache.domain;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * Number of changes of one cached entity. Every instance compares the versions with the ones it
+ * has seen before and evicts regions of entities changed by other instances from its
+ * second-level cache.
+ */
+@Entity
+@Table(name = "cache_region_versions")
+@NoArgsConstructor
+public class CacheRegionVersion {
+
+  @Id
+  @Getter
+  @Setter
+  private String region;
+
+  @Column(nullable = false)
+  @Getter
+  @Setter
+  private Long version;
+
+  public CacheRegionVersion(String region) {
+    this.region = region;
+    this.version = 0L;
+  }
+}
@@ -0,0 +1,15 @@
+package org.openlmis.cache.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@AllArgsConstructor
+@Getter
+public class CacheRegionStatisticsDto {
+  private String region;
+  private long hitCount;
+  private long missCount;
+  private long putCount;
+  private long elementCountInMemory;
+  private long sizeInMemory;
+}
@@ -0,0 +1,20 @@
+package org.openlmis.cache.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@AllArgsConstructor
+@Getter
+public class CacheStatisticsDto {
+  private boolean statisticsEnabled;
+  private long secondLevelCacheHitCount;
+  private long secondLevelCacheMissCount;
+  private long secondLevelCachePutCount;
+  private long queryCacheHitCount;
+  private long queryCacheMissCount;
+  private long queryCachePutCount;
+  private long remoteInvalidations;
+  private List<CacheRegionStatisticsDto> regions;
+}
@@ -0,0 +1,7 @@
+package org.openlmis.cache.repository;
+
+import org.openlmis.cache.domain.CacheRegionVersion;
+import org.springframework.data.repository.CrudRepository;
+
+public interface CacheRegionVersionRepository extends CrudRepository<CacheRegionVersion, String> {
+}
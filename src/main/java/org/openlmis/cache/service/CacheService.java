@@ -0,0 +1,251 @@
+package org.openlmis.cache.service;
+
+import org.hibernate.Cache;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.hibernate.type.EntityType;
+import org.hibernate.type.Type;
+import org.openlmis.cache.domain.CacheRegionVersion;
+import org.openlmis.cache.dto.CacheRegionStatisticsDto;
+import org.openlmis.cache.dto.CacheStatisticsDto;
+import org.openlmis.cache.repository.CacheRegionVersionRepository;
+import org.openlmis.utils.TransactionCollector;
+import org.openlmis.utils.TransactionCollector.Participant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Keeps second-level caches of all instances consistent. Hibernate updates the cache of the
+ * instance making a change itself, so changes of cached entities are only counted in
+ * {@link CacheRegionVersion}s in the changing transaction. Every instance polls the versions
+ * and evicts entities, collections and cached queries of the changed entities.
+ */
+@Service
+public class CacheService implements Participant<CacheService.ChangedRegions> {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(CacheService.class);
+
+  private final Map<String, Long> seenVersions = new ConcurrentHashMap<>();
+  private final Map<String, Set<Long>> ownVersions = new ConcurrentHashMap<>();
+  private final AtomicLong remoteInvalidations = new AtomicLong();
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  @Autowired
+  private TransactionCollector transactionCollector;
+
+  @Autowired
+  private CacheRegionVersionRepository cacheRegionVersionRepository;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  private SessionFactoryImplementor sessionFactory;
+
+  /**
+   * Starts collecting changes of cached entities and creates versions of cached entities which
+   * do not have one yet.
+   */
+  @PostConstruct
+  public void register() {
+    sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+    transactionCollector.addParticipant(this);
+
+    TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    for (String entityName : sessionFactory.getAllClassMetadata().keySet()) {
+      if (sessionFactory.getEntityPersister(entityName).hasCache()) {
+        try {
+          transactionTemplate.execute(status -> {
+            if (cacheRegionVersionRepository.findOne(entityName) == null) {
+              cacheRegionVersionRepository.save(new CacheRegionVersion(entityName));
+            }
+            return null;
+          });
+        } catch (DataIntegrityViolationException ex) {
+          LOGGER.debug("Version of {} was created by another instance", entityName, ex);
+        }
+      }
+    }
+
+    for (CacheRegionVersion version : cacheRegionVersionRepository.findAll()) {
+      seenVersions.put(version.getRegion(), version.getVersion());
+    }
+  }
+
+  /**
+   * Evicts cached entities changed by other instances since the last check. Versions written by
+   * this instance are skipped, because Hibernate already updated its cache.
+   */
+  @Scheduled(fixedDelayString = "${cache.invalidationDelay}")
+  public void evictChanged() {
+    for (CacheRegionVersion version : cacheRegionVersionRepository.findAll()) {
+      Long seen = seenVersions.put(version.getRegion(), version.getVersion());
+      if (seen != null && changedRemotely(version.getRegion(), seen, version.getVersion())) {
+        evict(version.getRegion());
+        remoteInvalidations.incrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Evicts the given entity together with collections containing or owned by it and all cached
+   * queries.
+   *
+   * @param entityName Name of the evicted entity.
+   */
+  public void evict(String entityName) {
+    Cache cache = sessionFactory.getCache();
+    cache.evictEntityRegion(entityName);
+
+    for (Object key : sessionFactory.getAllCollectionMetadata().keySet()) {
+      String role = (String) key;
+      CollectionPersister collection = sessionFactory.getCollectionPersister(role);
+      if (collection.hasCache() && (role.startsWith(entityName + ".")
+          || containsEntity(collection.getElementType(), entityName))) {
+        cache.evictCollectionRegion(role);
+      }
+    }
+
+    cache.evictDefaultQueryRegion();
+    cache.evictQueryRegions();
+  }
+
+  /**
+   * Returns hits, misses and puts of the second-level and query cache.
+   *
+   * @return Statistics of the whole cache and of each region.
+   */
+  public CacheStatisticsDto getStatistics() {
+    Statistics statistics = sessionFactory.getStatistics();
+    List<CacheRegionStatisticsDto> regions = new ArrayList<>();
+    for (String region : statistics.getSecondLevelCacheRegionNames()) {
+      SecondLevelCacheStatistics regionStatistics =
+          statistics.getSecondLevelCacheStatistics(region);
+      regions.add(new CacheRegionStatisticsDto(region, regionStatistics.getHitCount(),
+          regionStatistics.getMissCount(), regionStatistics.getPutCount(),
+          regionStatistics.getElementCountInMemory(), regionStatistics.getSizeInMemory()));
+    }
+
+    return new CacheStatisticsDto(statistics.isStatisticsEnabled(),
+        statistics.getSecondLevelCacheHitCount(), statistics.getSecondLevelCacheMissCount(),
+        statistics.getSecondLevelCachePutCount(), statistics.getQueryCacheHitCount(),
+        statistics.getQueryCacheMissCount(), statistics.getQueryCachePutCount(),
+        remoteInvalidations.get(), regions);
+  }
+
+  @Override
+  public void onPostInsert(PostInsertEvent event) {
+    record(event.getSession(), event.getPersister());
+  }
+
+  @Override
+  public void onPostUpdate(PostUpdateEvent event) {
+    record(event.getSession(), event.getPersister());
+  }
+
+  @Override
+  public void onPostDelete(PostDeleteEvent event) {
+    record(event.getSession(), event.getPersister());
+  }
+
+  @Override
+  public ChangedRegions startCollecting() {
+    return new ChangedRegions();
+  }
+
+  @Override
+  public void beforeCompletion(SessionImplementor session, ChangedRegions changed) {
+    changed.written.putAll(writeVersions(session, changed.regions));
+  }
+
+  @Override
+  public void afterCompletion(boolean success, ChangedRegions changed) {
+    if (success) {
+      changed.written.forEach((region, version) -> ownVersions
+          .computeIfAbsent(region, key -> ConcurrentHashMap.newKeySet())
+          .add(version));
+    }
+  }
+
+  private void record(EventSource session, EntityPersister persister) {
+    if (persister.hasCache()) {
+      transactionCollector.collect(session, this).regions.add(persister.getEntityName());
+    }
+  }
+
+  private Map<String, Long> writeVersions(SessionImplementor session, Set<String> regions) {
+    Map<String, Long> written = new HashMap<>();
+    if (regions.isEmpty()) {
+      return written;
+    }
+
+    Session current = (Session) session;
+    current
+        .createQuery("UPDATE CacheRegionVersion SET version = version + 1"
+            + " WHERE region IN (:regions)")
+        .setParameterList("regions", regions)
+        .executeUpdate();
+
+    List<?> versions = current
+        .createQuery("SELECT region, version FROM CacheRegionVersion WHERE region IN (:regions)")
+        .setParameterList("regions", regions)
+        .list();
+    for (Object version : versions) {
+      Object[] row = (Object[]) version;
+      written.put((String) row[0], (Long) row[1]);
+    }
+    return written;
+  }
+
+  private boolean changedRemotely(String region, long seen, long current) {
+    Set<Long> own = ownVersions.getOrDefault(region, Collections.emptySet());
+    long ownChanges = own.stream()
+        .filter(version -> version > seen && version <= current)
+        .count();
+    own.removeIf(version -> version <= current);
+    return current - seen > ownChanges;
+  }
+
+  private static boolean containsEntity(Type elementType, String entityName) {
+    return elementType.isEntityType()
+        && entityName.equals(((EntityType) elementType).getAssociatedEntityName());
+  }
+
+  /**
+   * Regions of cached entities changed in a transaction, along with their versions written
+   * right before the transaction commits.
+   */
+  static class ChangedRegions {
+    private final Set<String> regions = new HashSet<>();
+    private final Map<String, Long> written = new HashMap<>();
+  }
+}
@@ -0,0 +1,26 @@
+package org.openlmis.cache.web;
+
+import org.openlmis.cache.dto.CacheStatisticsDto;
+import org.openlmis.cache.service.CacheService;
+import org.openlmis.requisition.web.BaseController;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+@Controller
+public class CacheController extends BaseController {
+
+  @Autowired
+  private CacheService cacheService;
+
+  /**
+   * Returns hits, misses and puts of the second-level and query cache since the start.
+   */
+  @RequestMapping(value = "/cache/statistics", method = RequestMethod.GET)
+  public ResponseEntity<CacheStatisticsDto> getStatistics() {
+    return new ResponseEntity<>(cacheService.getStatistics(), HttpStatus.OK);
+  }
+}
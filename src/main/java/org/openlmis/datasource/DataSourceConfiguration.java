@@ -0,0 +1,43 @@
+package org.openlmis.datasource;
+
+import org.springframework.boot.autoconfigure.jdbc.DataSourceBuilder;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class DataSourceConfiguration {
+
+  @Bean
+  @ConfigurationProperties(prefix = "spring.datasource")
+  public DataSource primaryDataSource() {
+    return DataSourceBuilder.create().build();
+  }
+
+  @Bean
+  @ConfigurationProperties(prefix = "replicaDatasource")
+  public DataSource replicationDataSource() {
+    return DataSourceBuilder.create().build();
+  }
+
+  /**
+   * Creates data source used by JPA, which sends read-only transactions to the replica and all
+   * other statements to the primary. Connections are fetched lazily, so the read-only flag of a
+   * transaction is already known when the target is chosen.
+   *
+   * @param replicaLagMonitor Monitor telling whether reads can go to the replica.
+   * @return Created DataSource.
+   */
+  @Bean
+  @Primary
+  public DataSource dataSource(ReplicaLagMonitor replicaLagMonitor) {
+    ReadWriteRoutingDataSource routingDataSource = new ReadWriteRoutingDataSource(
+        primaryDataSource(), replicationDataSource(), replicaLagMonitor);
+    routingDataSource.afterPropertiesSet();
+    return new LazyConnectionDataSourceProxy(routingDataSource);
+  }
+}
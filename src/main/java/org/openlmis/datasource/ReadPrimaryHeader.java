@@ -0,0 +1,74 @@
+package org.openlmis.datasource;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Carries the time until which a client has to read from the primary, because the replica may
+ * not have replayed its last write yet. The time is sent in a response header which the client
+ * sends back with its following requests, so every instance serving them knows it, whether the
+ * client authenticates with a cookie or a bearer token.
+ */
+final class ReadPrimaryHeader {
+
+  static final String NAME = "X-Read-Primary-Until";
+
+  private ReadPrimaryHeader() {
+  }
+
+  /**
+   * Returns the time sent with the current request.
+   *
+   * @return Milliseconds since the epoch until which the client reads from the primary, or null
+   *         if the client has not sent any.
+   */
+  static Long read() {
+    HttpServletRequest request = currentRequest();
+    String value = request == null ? null : request.getHeader(NAME);
+    if (value == null) {
+      return null;
+    }
+    try {
+      return Long.valueOf(value.trim());
+    } catch (NumberFormatException ex) {
+      return null;
+    }
+  }
+
+  /**
+   * Checks whether the current thread serves a request which the header can be sent with.
+   */
+  static boolean isWritable() {
+    return currentResponse() != null;
+  }
+
+  /**
+   * Sends the given time with the response to the current request.
+   *
+   * @param until Milliseconds since the epoch until which the client has to read from the
+   *              primary.
+   */
+  static void write(long until) {
+    HttpServletResponse response = currentResponse();
+    if (response == null || response.isCommitted()) {
+      return;
+    }
+    response.setHeader(NAME, Long.toString(until));
+  }
+
+  private static HttpServletRequest currentRequest() {
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    return attributes instanceof ServletRequestAttributes
+        ? ((ServletRequestAttributes) attributes).getRequest() : null;
+  }
+
+  private static HttpServletResponse currentResponse() {
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    return attributes instanceof ServletRequestAttributes
+        ? ((ServletRequestAttributes) attributes).getResponse() : null;
+  }
+}
@@ -0,0 +1,63 @@
+package org.openlmis.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+/**
+ * Routes connections of read-only transactions marked with {@link ReplicaRead} to the replica
+ * unless the client has written recently. Writes and all other reads go to the primary. Writes
+ * made while serving a request tell the client until when it has to read from the primary.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+  enum Route {
+    PRIMARY, REPLICA
+  }
+
+  private final ReplicaLagMonitor replicaLagMonitor;
+
+  /**
+   * Creates routing data source with the given targets.
+   *
+   * @param primary Data source of the primary database.
+   * @param replica Data source of the replica database.
+   * @param replicaLagMonitor Monitor telling whether reads can go to the replica.
+   */
+  public ReadWriteRoutingDataSource(DataSource primary, DataSource replica,
+                                    ReplicaLagMonitor replicaLagMonitor) {
+    this.replicaLagMonitor = replicaLagMonitor;
+
+    Map<Object, Object> targets = new HashMap<>();
+    targets.put(Route.PRIMARY, primary);
+    targets.put(Route.REPLICA, replica);
+    setTargetDataSources(targets);
+    setDefaultTargetDataSource(primary);
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    boolean readOnly = TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    if (readOnly && ReplicaReadAspect.isActive()
+        && replicaLagMonitor.isReplicaReadable(ReadPrimaryHeader.read())) {
+      return Route.REPLICA;
+    }
+
+    if (!readOnly && TransactionSynchronizationManager.isSynchronizationActive()
+        && ReadPrimaryHeader.isWritable()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+              replicaLagMonitor.writeCommitted();
+            }
+          });
+    }
+    return Route.PRIMARY;
+  }
+}
@@ -0,0 +1,107 @@
+package org.openlmis.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Decides whether read-only transactions can use the replica. Reads go to the primary while the
+ * replica lags more than the configured time behind or cannot be reached, and for clients which
+ * wrote less than the maximum lag and one check delay ago, so they always read their own writes:
+ * the replica is only read while its lag, measured at most one check delay ago, is below the
+ * maximum, so by then it has replayed the write. The end of this window is kept by the client in
+ * a header, so it is known to all instances, whose clocks have to be synchronized. The lag is
+ * measured with functions of PostgreSQL 10, reads never go to a replica running an older version.
+ */
+@Component
+public class ReplicaLagMonitor {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+  static final int MIN_SERVER_VERSION = 100000;
+
+  static final String VERSION_QUERY =
+      "SELECT CAST(current_setting('server_version_num') AS integer)";
+
+  static final String LAG_QUERY = "SELECT CASE"
+      + " WHEN NOT pg_is_in_recovery() THEN 0"
+      + " WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0"
+      + " ELSE CAST(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000 AS bigint)"
+      + " END";
+
+  @Autowired
+  @Qualifier("replicationDataSource")
+  private DataSource replicationDataSource;
+
+  @Value("${replicaLag.max}")
+  private long maxLag;
+
+  @Value("${replicaLag.checkDelay}")
+  private long checkDelay;
+
+  private volatile boolean replicaAvailable;
+
+  private Integer serverVersion;
+
+  /**
+   * Measures how far the replica is behind the primary. The version of the replica is checked
+   * with the first measurement which reaches it.
+   */
+  @Scheduled(fixedDelayString = "${replicaLag.checkDelay}")
+  public void checkLag() {
+    Long lag;
+    try {
+      JdbcTemplate replica = new JdbcTemplate(replicationDataSource);
+      lag = isSupported(replica) ? replica.queryForObject(LAG_QUERY, Long.class) : null;
+    } catch (DataAccessException ex) {
+      LOGGER.warn("Could not check lag of the replica, reading from the primary", ex);
+      lag = null;
+    }
+
+    boolean available = lag != null && lag <= maxLag;
+    if (available != replicaAvailable) {
+      LOGGER.info("Replica lag is {} ms, reading from the {}", lag,
+          available ? "replica" : "primary");
+    }
+    replicaAvailable = available;
+  }
+
+  /**
+   * Checks whether reads of a client can go to the replica.
+   *
+   * @param readPrimaryUntil Milliseconds since the epoch until which the client has to read
+   *                         from the primary, or null if the client has not written.
+   * @return True if the replica is close enough and has replayed the last write of the client.
+   */
+  public boolean isReplicaReadable(Long readPrimaryUntil) {
+    return replicaAvailable
+        && (readPrimaryUntil == null || readPrimaryUntil <= System.currentTimeMillis());
+  }
+
+  /**
+   * Tells the client of the current request to read from the primary until the replica has
+   * replayed the committed write.
+   */
+  public void writeCommitted() {
+    ReadPrimaryHeader.write(System.currentTimeMillis() + maxLag + checkDelay);
+  }
+
+  private boolean isSupported(JdbcTemplate replica) {
+    if (serverVersion == null) {
+      serverVersion = replica.queryForObject(VERSION_QUERY, Integer.class);
+      if (serverVersion < MIN_SERVER_VERSION) {
+        LOGGER.error("Replica runs PostgreSQL {}, reading from a replica requires PostgreSQL 10"
+            + " or later, reading from the primary", serverVersion);
+      }
+    }
+    return serverVersion >= MIN_SERVER_VERSION;
+  }
+}
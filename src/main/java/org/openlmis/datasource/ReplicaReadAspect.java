@@ -0,0 +1,41 @@
+package org.openlmis.datasource;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * Remembers that the current thread runs a method marked with {@link ReplicaRead}, so that
+ * connections fetched meanwhile can go to the replica.
+ */
+@Aspect
+@Component
+public class ReplicaReadAspect {
+
+  private static final ThreadLocal<Boolean> ACTIVE = new ThreadLocal<>();
+
+  /**
+   * Runs the marked method allowing its reads to go to the replica.
+   *
+   * @param joinPoint Invocation of the marked method.
+   * @return Result of the marked method.
+   * @throws Throwable Anything thrown by the marked method.
+   */
+  @Around("@annotation(org.openlmis.datasource.ReplicaRead)")
+  public Object allowReplica(ProceedingJoinPoint joinPoint) throws Throwable {
+    Boolean previous = ACTIVE.get();
+    ACTIVE.set(Boolean.TRUE);
+    try {
+      return joinPoint.proceed();
+    } finally {
+      if (previous == null) {
+        ACTIVE.remove();
+      }
+    }
+  }
+
+  static boolean isActive() {
+    return ACTIVE.get() != null;
+  }
+}
@@ -1,6 +1,7 @@
 package org.openlmis.fulfillment.domain;
 
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
@@ -9,6 +10,9 @@ import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateTimeSerializer;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.NotFound;
+import org.hibernate.annotations.NotFoundAction;
+import org.hibernate.annotations.Type;
 import org.openlmis.fulfillment.utils.LocalDateTimePersistenceConverter;
 import org.openlmis.requisition.domain.BaseEntity;
 import org.openlmis.requisition.domain.Requisition;
@@ -20,29 +24,41 @@ import java.util.UUID;
 
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
+import javax.persistence.ConstraintMode;
 import javax.persistence.Convert;
 import javax.persistence.Entity;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
 import javax.persistence.FetchType;
+import javax.persistence.ForeignKey;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
 import javax.persistence.PrePersist;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = @Index(name = "orders_created_date", columnList = "createdDate"))
 @NoArgsConstructor
 @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "id")
 public class Order extends BaseEntity {
 
+  // requisitions are moved into the archive after their orders are received, the requisition
+  // of such an order is null and only its id is kept
   @OneToOne
-  @JoinColumn(name = "requisitionId")
+  @JoinColumn(name = "requisitionId",
+      foreignKey = @ForeignKey(name = "none", value = ConstraintMode.NO_CONSTRAINT))
+  @NotFound(action = NotFoundAction.IGNORE)
   @Getter
   @Setter
   private Requisition requisition;
 
+  @Column(name = "requisitionId", insertable = false, updatable = false)
+  @Type(type = "pg-uuid")
+  private UUID requisitionId;
+
   @JsonSerialize(using = LocalDateTimeSerializer.class)
   @JsonDeserialize(using = LocalDateTimeDeserializer.class)
   @Convert(converter = LocalDateTimePersistenceConverter.class)
@@ -99,11 +115,28 @@ public class Order extends BaseEntity {
   @Setter
   private List<OrderLineItem> orderLineItems;
 
+  @Version
+  @Column(nullable = false, columnDefinition = "bigint default 0")
+  @Getter
+  @Setter
+  private Long version;
+
   @PrePersist
   private void prePersist() {
     this.createdDate = LocalDateTime.now();
   }
 
+  /**
+   * Returns id of the requisition of this order, which is also known after the requisition was
+   * archived.
+   *
+   * @return Id of the requisition.
+   */
+  @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+  public UUID getRequisitionId() {
+    return requisition != null ? requisition.getId() : requisitionId;
+  }
+
   /**
    * Copy values of attributes into new or updated Order.
    *
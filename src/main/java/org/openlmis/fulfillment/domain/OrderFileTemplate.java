@@ -6,6 +6,8 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.openlmis.requisition.domain.BaseEntity;
 
 import javax.persistence.CascadeType;
@@ -18,6 +20,7 @@ import javax.persistence.Table;
 import java.util.List;
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "order_file_templates")
 @NoArgsConstructor
 @AllArgsConstructor
@@ -40,6 +43,7 @@ public class OrderFileTemplate extends BaseEntity {
       fetch = FetchType.EAGER,
       orphanRemoval = true)
   @OrderBy("position ASC")
+  @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
   @Getter
   @Setter
   private List<OrderFileColumn> orderFileColumns;
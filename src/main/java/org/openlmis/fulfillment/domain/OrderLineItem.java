@@ -13,6 +13,7 @@ import javax.persistence.Entity;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
 @Entity
 @Table(name = "order_line_items")
@@ -39,6 +40,12 @@ public class OrderLineItem extends BaseEntity {
   @Setter
   private Long filledQuantity;
 
+  @Version
+  @Column(nullable = false, columnDefinition = "bigint default 0")
+  @Getter
+  @Setter
+  private Long version;
+
   /**
    * Copy values of attributes into new or updated OrderLineItem.
    *
@@ -23,6 +23,7 @@ import javax.persistence.JoinColumn;
 import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
 
 @Entity
@@ -76,6 +77,12 @@ public class ProofOfDelivery extends BaseEntity {
   @Setter
   private LocalDate receivedDate;
 
+  @Version
+  @Column(nullable = false, columnDefinition = "bigint default 0")
+  @Getter
+  @Setter
+  private Long version;
+
   /**
    * Copy values of attributes into new or updated ProofOfDelivery.
    *
@@ -11,6 +11,7 @@ import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToOne;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
 @Entity
 @Table(name = "proof_of_delivery_line_items")
@@ -58,6 +59,12 @@ public class ProofOfDeliveryLineItem extends BaseEntity {
   @Setter
   private String notes;
 
+  @Version
+  @Column(nullable = false, columnDefinition = "bigint default 0")
+  @Getter
+  @Setter
+  private Long version;
+
   /**
    * Copy values of attributes into new or updated ProofOfDeliveryLineItem.
    *
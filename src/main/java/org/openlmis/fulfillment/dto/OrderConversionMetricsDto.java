@@ -0,0 +1,18 @@
+package org.openlmis.fulfillment.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@AllArgsConstructor
+@Getter
+public class OrderConversionMetricsDto {
+  private boolean enabled;
+  private long backlog;
+  private long runs;
+  private long converted;
+  private long failed;
+  private long lastRunConverted;
+  private long lastRunWithoutSupplyLine;
+  private long lastRunMillis;
+  private double convertedPerSecond;
+}
@@ -1,10 +1,17 @@
 package org.openlmis.fulfillment.repository;
 
 import org.openlmis.fulfillment.domain.OrderFileTemplate;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.PagingAndSortingRepository;
 
 import java.util.UUID;
 
+import javax.persistence.QueryHint;
+
 public interface OrderFileTemplateRepository extends
     PagingAndSortingRepository<OrderFileTemplate, UUID> {
+
+  @Override
+  @QueryHints(@QueryHint(name = org.hibernate.annotations.QueryHints.CACHEABLE, value = "true"))
+  Iterable<OrderFileTemplate> findAll();
 }
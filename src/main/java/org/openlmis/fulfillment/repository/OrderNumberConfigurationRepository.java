@@ -1,11 +1,18 @@
 package org.openlmis.fulfillment.repository;
 
 import org.openlmis.fulfillment.domain.OrderNumberConfiguration;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.PagingAndSortingRepository;
 
 import java.util.UUID;
 
+import javax.persistence.QueryHint;
+
 
 public interface OrderNumberConfigurationRepository
     extends PagingAndSortingRepository<OrderNumberConfiguration, UUID>  {
+
+  @Override
+  @QueryHints(@QueryHint(name = org.hibernate.annotations.QueryHints.CACHEABLE, value = "true"))
+  Iterable<OrderNumberConfiguration> findAll();
 }
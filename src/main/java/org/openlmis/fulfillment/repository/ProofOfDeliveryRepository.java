@@ -1,11 +1,12 @@
 package org.openlmis.fulfillment.repository;
 
 import org.openlmis.fulfillment.domain.ProofOfDelivery;
+import org.openlmis.fulfillment.repository.custom.ProofOfDeliveryRepositoryCustom;
 import org.springframework.data.repository.PagingAndSortingRepository;
 
 import java.util.UUID;
 
 public interface ProofOfDeliveryRepository extends
-    PagingAndSortingRepository<ProofOfDelivery, UUID> {
+    PagingAndSortingRepository<ProofOfDelivery, UUID>, ProofOfDeliveryRepositoryCustom {
 }
 
@@ -8,4 +8,6 @@ import java.util.UUID;
 public interface OrderRepositoryCustom {
 
   List<Order> searchOrders(UUID supplyingFacility, UUID requestingFacility, UUID program);
+
+  String findVersionStamp(UUID orderId);
 }
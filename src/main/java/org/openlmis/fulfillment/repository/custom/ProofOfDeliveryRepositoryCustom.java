@@ -0,0 +1,8 @@
+package org.openlmis.fulfillment.repository.custom;
+
+import java.util.UUID;
+
+public interface ProofOfDeliveryRepositoryCustom {
+
+  String findVersionStamp(UUID proofOfDeliveryId);
+}
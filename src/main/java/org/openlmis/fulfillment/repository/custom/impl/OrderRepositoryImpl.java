@@ -1,19 +1,27 @@
 package org.openlmis.fulfillment.repository.custom.impl;
 
 import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.domain.OrderLineItem;
 import org.openlmis.fulfillment.repository.custom.OrderRepositoryCustom;
+import org.openlmis.requisition.domain.Requisition;
+import org.openlmis.utils.ETagUtils;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
 public class OrderRepositoryImpl implements OrderRepositoryCustom {
 
+  private static final String VERSION = "version";
+
   @PersistenceContext
   private EntityManager entityManager;
 
@@ -51,4 +59,37 @@ public class OrderRepositoryImpl implements OrderRepositoryCustom {
     return entityManager.createQuery(query).getResultList();
   }
 
-}
\ No newline at end of file
+  /**
+   * Method returns stamp identifying current state of Order with its line items, without
+   * loading them.
+   * @param orderId id of Order.
+   * @return version stamp of Order or null if it does not exist.
+   */
+  public String findVersionStamp(UUID orderId) {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Object[]> query = builder.createQuery(Object[].class);
+    Root<Order> root = query.from(Order.class);
+    Join<Order, Requisition> requisition = root.join("requisition", JoinType.LEFT);
+    Join<Order, OrderLineItem> lineItems = root.join("orderLineItems", JoinType.LEFT);
+
+    query.multiselect(root.get(VERSION), requisition.get(VERSION),
+        lineItems.get("id"), lineItems.get(VERSION));
+    query.where(builder.equal(root.get("id"), orderId));
+    query.orderBy(builder.asc(lineItems.get("id")));
+
+    List<Object[]> rows = entityManager.createQuery(query).getResultList();
+    if (rows.isEmpty()) {
+      return null;
+    }
+
+    List<Object> components = new ArrayList<>();
+    components.add(rows.get(0)[1]);
+    for (Object[] row : rows) {
+      if (row[2] != null) {
+        components.add(row[2]);
+        components.add(row[3]);
+      }
+    }
+    return ETagUtils.versionStamp((Long) rows.get(0)[0], components);
+  }
+}
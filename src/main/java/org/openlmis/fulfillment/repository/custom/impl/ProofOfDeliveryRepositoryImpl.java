@@ -0,0 +1,68 @@
+package org.openlmis.fulfillment.repository.custom.impl;
+
+import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.domain.OrderLineItem;
+import org.openlmis.fulfillment.domain.ProofOfDelivery;
+import org.openlmis.fulfillment.domain.ProofOfDeliveryLineItem;
+import org.openlmis.fulfillment.repository.custom.ProofOfDeliveryRepositoryCustom;
+import org.openlmis.requisition.domain.Requisition;
+import org.openlmis.utils.ETagUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+public class ProofOfDeliveryRepositoryImpl implements ProofOfDeliveryRepositoryCustom {
+
+  private static final String VERSION = "version";
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  /**
+   * Method returns stamp identifying current state of ProofOfDelivery with its line items and
+   * order, without loading them.
+   * @param proofOfDeliveryId id of ProofOfDelivery.
+   * @return version stamp of ProofOfDelivery or null if it does not exist.
+   */
+  public String findVersionStamp(UUID proofOfDeliveryId) {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Object[]> query = builder.createQuery(Object[].class);
+    Root<ProofOfDelivery> root = query.from(ProofOfDelivery.class);
+    Join<ProofOfDelivery, Order> order = root.join("order", JoinType.LEFT);
+    Join<Order, Requisition> requisition = order.join("requisition", JoinType.LEFT);
+    Join<ProofOfDelivery, ProofOfDeliveryLineItem> lineItems =
+        root.join("proofOfDeliveryLineItems", JoinType.LEFT);
+    Join<ProofOfDeliveryLineItem, OrderLineItem> orderLineItem =
+        lineItems.join("orderLineItem", JoinType.LEFT);
+
+    query.multiselect(root.get(VERSION), order.get(VERSION), requisition.get(VERSION),
+        lineItems.get("id"), lineItems.get(VERSION), orderLineItem.get(VERSION));
+    query.where(builder.equal(root.get("id"), proofOfDeliveryId));
+    query.orderBy(builder.asc(lineItems.get("id")));
+
+    List<Object[]> rows = entityManager.createQuery(query).getResultList();
+    if (rows.isEmpty()) {
+      return null;
+    }
+
+    List<Object> components = new ArrayList<>();
+    components.add(rows.get(0)[1]);
+    components.add(rows.get(0)[2]);
+    for (Object[] row : rows) {
+      if (row[3] != null) {
+        components.add(row[3]);
+        components.add(row[4]);
+        components.add(row[5]);
+      }
+    }
+    return ETagUtils.versionStamp((Long) rows.get(0)[0], components);
+  }
+}
@@ -0,0 +1,202 @@
+package org.openlmis.fulfillment.service;
+
+import org.openlmis.fulfillment.dto.OrderConversionMetricsDto;
+import org.openlmis.requisition.domain.Requisition;
+import org.openlmis.requisition.domain.RequisitionStatus;
+import org.openlmis.requisition.dto.ApprovedRequisitionDto;
+import org.openlmis.requisition.dto.SupplyLineDto;
+import org.openlmis.requisition.exception.RequisitionException;
+import org.openlmis.requisition.repository.RequisitionRepository;
+import org.openlmis.utils.AdvisoryLocks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+
+/**
+ * Converts approved requisitions into orders without anyone picking them. Approved requisitions
+ * are read in batches, supply lines of each batch are resolved concurrently, and requisitions are
+ * grouped by the supply line they are converted through and converted in chunks, each chunk in
+ * its own transaction. A chunk which cannot be converted is rolled back, so it stays approved and
+ * is retried with the next run, as are requisitions without a supply line. Runs are guarded by a
+ * database advisory lock, so only one instance converts requisitions at a time.
+ */
+@Service
+public class OrderConversionService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(OrderConversionService.class);
+
+  // arbitrary key identifying the conversion among advisory locks of the database
+  static final long LOCK_KEY = 4_738_296_105_421L;
+
+  private final AtomicLong runs = new AtomicLong();
+  private final AtomicLong converted = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+  private final AtomicLong lastRunConverted = new AtomicLong();
+  private final AtomicLong lastRunWithoutSupplyLine = new AtomicLong();
+  private final AtomicLong lastRunNanos = new AtomicLong();
+  private final AtomicLong totalRunNanos = new AtomicLong();
+
+  @Autowired
+  private OrderService orderService;
+
+  @Autowired
+  private RequisitionRepository requisitionRepository;
+
+  @Autowired
+  private SupplyLineResolver supplyLineResolver;
+
+  @Autowired
+  @Qualifier("primaryDataSource")
+  private DataSource primaryDataSource;
+
+  @Value("${orderConversion.enabled}")
+  private boolean enabled;
+
+  @Value("${orderConversion.userId}")
+  private String userId;
+
+  @Value("${orderConversion.batchSize}")
+  private int batchSize;
+
+  @Value("${orderConversion.chunkSize}")
+  private int chunkSize;
+
+  private UUID user;
+
+  /**
+   * Checks the user recorded as the creator of converted orders.
+   */
+  @PostConstruct
+  public void start() {
+    if (enabled) {
+      user = UUID.fromString(userId);
+    }
+  }
+
+  /**
+   * Converts all approved requisitions if no other instance is converting them.
+   */
+  @Scheduled(fixedDelayString = "${orderConversion.delay}")
+  public void convertApproved() {
+    if (!enabled) {
+      return;
+    }
+
+    try (Connection connection = primaryDataSource.getConnection()) {
+      if (!AdvisoryLocks.tryLock(connection, LOCK_KEY)) {
+        LOGGER.debug("Requisitions are converted by another instance");
+        return;
+      }
+      try {
+        convertAll();
+      } finally {
+        AdvisoryLocks.unlock(connection, LOCK_KEY);
+      }
+    } catch (SQLException ex) {
+      LOGGER.warn("Could not lock conversion of approved requisitions", ex);
+    } catch (RequisitionException ex) {
+      LOGGER.warn("Conversion of approved requisitions was interrupted", ex);
+    }
+  }
+
+  /**
+   * Returns the number of approved requisitions and conversion statistics since the start.
+   */
+  public OrderConversionMetricsDto getMetrics() {
+    long totalMillis = TimeUnit.NANOSECONDS.toMillis(totalRunNanos.get());
+    return new OrderConversionMetricsDto(enabled,
+        requisitionRepository.countByStatus(RequisitionStatus.APPROVED), runs.get(),
+        converted.get(), failed.get(), lastRunConverted.get(), lastRunWithoutSupplyLine.get(),
+        TimeUnit.NANOSECONDS.toMillis(lastRunNanos.get()),
+        totalMillis == 0 ? 0 : converted.get() * 1000.0 / totalMillis);
+  }
+
+  private void convertAll() throws RequisitionException {
+    long start = System.nanoTime();
+    long convertedInRun = 0;
+    long withoutSupplyLineInRun = 0;
+    UUID after = null;
+    List<ApprovedRequisitionDto> batch;
+    do {
+      batch = requisitionRepository.findApproved(after, batchSize);
+      if (batch.isEmpty()) {
+        break;
+      }
+      after = batch.get(batch.size() - 1).getId();
+
+      List<Requisition> requisitions = new ArrayList<>(batch.size());
+      for (ApprovedRequisitionDto approved : batch) {
+        Requisition requisition = new Requisition();
+        requisition.setId(approved.getId());
+        requisition.setProgram(approved.getProgram());
+        requisition.setSupervisoryNode(approved.getSupervisoryNode());
+        requisitions.add(requisition);
+      }
+      Map<UUID, SupplyLineDto> supplyLines = supplyLineResolver.resolveAvailable(requisitions);
+      withoutSupplyLineInRun += requisitions.size() - supplyLines.size();
+
+      for (List<Requisition> group : groupBySupplyLine(requisitions, supplyLines)) {
+        convertedInRun += convertInChunks(group, supplyLines);
+      }
+    } while (batch.size() == batchSize);
+
+    lastRunWithoutSupplyLine.set(withoutSupplyLineInRun);
+    long duration = System.nanoTime() - start;
+    runs.incrementAndGet();
+    lastRunConverted.set(convertedInRun);
+    lastRunNanos.set(duration);
+    totalRunNanos.addAndGet(duration);
+    if (convertedInRun > 0) {
+      LOGGER.info("Converted {} approved requisitions into orders", convertedInRun);
+    }
+  }
+
+  private static Collection<List<Requisition>> groupBySupplyLine(
+      List<Requisition> requisitions, Map<UUID, SupplyLineDto> supplyLines) {
+    Map<UUID, List<Requisition>> groups = new LinkedHashMap<>();
+    for (Requisition requisition : requisitions) {
+      SupplyLineDto supplyLine = supplyLines.get(requisition.getId());
+      if (supplyLine == null) {
+        LOGGER.warn("Requisition {} has no supply line and cannot be converted",
+            requisition.getId());
+        continue;
+      }
+      groups.computeIfAbsent(supplyLine.getId(), key -> new ArrayList<>()).add(requisition);
+    }
+    return groups.values();
+  }
+
+  private long convertInChunks(List<Requisition> group, Map<UUID, SupplyLineDto> supplyLines) {
+    long convertedInGroup = 0;
+    for (int from = 0; from < group.size(); from += chunkSize) {
+      List<Requisition> chunk = group.subList(from, Math.min(from + chunkSize, group.size()));
+      try {
+        orderService.convertToOrder(chunk, user, supplyLines);
+        converted.addAndGet(chunk.size());
+        convertedInGroup += chunk.size();
+      } catch (RequisitionException | RuntimeException ex) {
+        failed.addAndGet(chunk.size());
+        LOGGER.warn("Could not convert " + chunk.size() + " requisitions, retrying later", ex);
+      }
+    }
+    return convertedInGroup;
+  }
+}
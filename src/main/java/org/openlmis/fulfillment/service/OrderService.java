@@ -11,11 +11,11 @@ import net.sf.jasperreports.engine.data.JRMapArrayDataSource;
 import net.sf.jasperreports.engine.export.JRPdfExporter;
 import net.sf.jasperreports.export.SimpleExporterInput;
 import net.sf.jasperreports.export.SimpleOutputStreamExporterOutput;
+import org.openlmis.datasource.ReplicaRead;
 import org.openlmis.fulfillment.domain.Order;
 import org.openlmis.fulfillment.domain.OrderLineItem;
 import org.openlmis.fulfillment.domain.OrderNumberConfiguration;
 import org.openlmis.fulfillment.domain.OrderStatus;
-import org.openlmis.fulfillment.repository.OrderLineItemRepository;
 import org.openlmis.fulfillment.repository.OrderNumberConfigurationRepository;
 import org.openlmis.fulfillment.repository.OrderRepository;
 import org.openlmis.requisition.domain.Requisition;
@@ -25,12 +25,10 @@ import org.openlmis.requisition.dto.ProgramDto;
 import org.openlmis.requisition.dto.SupplyLineDto;
 import org.openlmis.requisition.dto.UserDto;
 import org.openlmis.requisition.exception.RequisitionException;
-import org.openlmis.requisition.repository.RequisitionRepository;
 import org.openlmis.requisition.service.RequisitionService;
 import org.openlmis.requisition.service.referencedata.FacilityReferenceDataService;
 import org.openlmis.requisition.service.referencedata.OrderableProductReferenceDataService;
 import org.openlmis.requisition.service.referencedata.ProgramReferenceDataService;
-import org.openlmis.requisition.service.referencedata.SupplyLineReferenceDataService;
 import org.openlmis.requisition.service.referencedata.UserReferenceDataService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -50,10 +48,12 @@ import java.io.Writer;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Service
 public class OrderService {
@@ -63,12 +63,6 @@ public class OrderService {
   @Autowired
   private RequisitionService requisitionService;
 
-  @Autowired
-  private RequisitionRepository requisitionRepository;
-
-  @Autowired
-  private OrderLineItemRepository orderLineItemRepository;
-
   @Autowired
   private OrderRepository orderRepository;
 
@@ -85,7 +79,7 @@ public class OrderService {
   private ProgramReferenceDataService programReferenceDataService;
 
   @Autowired
-  private SupplyLineReferenceDataService supplyLineReferenceDataService;
+  private SupplyLineResolver supplyLineResolver;
 
   @Autowired
   private OrderableProductReferenceDataService orderableProductReferenceDataService;
@@ -100,6 +94,8 @@ public class OrderService {
    * @param program program of searched Orders.
    * @return ist of Orders with matched parameters.
    */
+  @ReplicaRead
+  @Transactional(readOnly = true)
   public List<Order> searchOrders(UUID supplyingFacility, UUID requestingFacility,
                                   UUID program) {
     return orderRepository.searchOrders(
@@ -113,6 +109,8 @@ public class OrderService {
    * @param order Order type object to be transformed into CSV
    * @param chosenColumns String array containing names of columns to be taken from order
    */
+  @ReplicaRead
+  @Transactional(readOnly = true)
   public void orderToCsv(Order order, String[] chosenColumns, Writer writer) {
     if (order != null) {
       List<Map<String, Object>> rows = orderToRows(order);
@@ -141,6 +139,8 @@ public class OrderService {
    * @param chosenColumns String array containing names of columns to be taken from order
    * @param out OutputStream to which the pdf file content will be written
    */
+  @ReplicaRead
+  @Transactional(readOnly = true)
   public void orderToPdf(Order order, String[] chosenColumns, OutputStream out) {
     if (order != null) {
       List<Map<String, Object>> rows = orderToRows(order);
@@ -217,18 +217,42 @@ public class OrderService {
   }
 
   /**
-   * Converting Requisition list to Orders.
+   * Converting Requisition list to Orders. The order number configuration, programs and supply
+   * lines are looked up once for the whole list, supply lines concurrently, and orders are saved
+   * together with their line items, so that they are inserted in JDBC batches. When any of the
+   * requisitions cannot be converted, the release is rolled back as well and all of them stay
+   * approved.
    */
-  @Transactional
+  @Transactional(rollbackFor = RequisitionException.class)
   public List<Order> convertToOrder(List<Requisition> requisitionList, UUID userId)
           throws RequisitionException {
+    return convertToOrder(requisitionList, userId, Collections.emptyMap());
+  }
+
+  /**
+   * Converting Requisition list to Orders through supply lines resolved beforehand. Supply lines
+   * of requisitions missing from the given map are resolved here.
+   */
+  @Transactional(rollbackFor = RequisitionException.class)
+  public List<Order> convertToOrder(List<Requisition> requisitionList, UUID userId,
+                                    Map<UUID, SupplyLineDto> resolvedSupplyLines)
+          throws RequisitionException {
     UserDto user = userReferenceDataService.findOne(userId);
-    requisitionService.releaseRequisitionsAsOrder(requisitionList);
+    List<Requisition> releasedRequisitions =
+        requisitionService.releaseRequisitionsAsOrder(requisitionList);
+    List<Requisition> unresolved = releasedRequisitions.stream()
+        .filter(requisition -> !resolvedSupplyLines.containsKey(requisition.getId()))
+        .collect(Collectors.toList());
+    Map<UUID, SupplyLineDto> supplyLines = new HashMap<>(resolvedSupplyLines);
+    if (!unresolved.isEmpty()) {
+      supplyLines.putAll(supplyLineResolver.resolve(unresolved));
+    }
+    OrderNumberConfiguration orderNumberConfiguration =
+        orderNumberConfigurationRepository.findAll().iterator().next();
+    Map<UUID, ProgramDto> programs = new HashMap<>();
     List<Order> convertedOrders = new ArrayList<>();
 
-    for (Requisition requisition : requisitionList) {
-      requisition = requisitionRepository.findOne(requisition.getId());
-
+    for (Requisition requisition : releasedRequisitions) {
       Order order = new Order();
       order.setCreatedById(user.getId());
       order.setRequisition(requisition);
@@ -237,27 +261,18 @@ public class OrderService {
       order.setReceivingFacility(requisition.getFacility());
       order.setRequestingFacility(requisition.getFacility());
 
-      List<SupplyLineDto> supplyLines =
-          new ArrayList<>(supplyLineReferenceDataService
-          .search(requisition.getProgram(),
-              requisition.getSupervisoryNode()));
-      SupplyLineDto supplyLine = supplyLines.get(0);
-
+      SupplyLineDto supplyLine = supplyLines.get(requisition.getId());
       order.setSupplyingFacility(supplyLine.getSupplyingFacility());
       order.setProgram(supplyLine.getProgram());
 
-      OrderNumberConfiguration orderNumberConfiguration =
-          orderNumberConfigurationRepository.findAll().iterator().next();
-
-      ProgramDto program = programReferenceDataService.findOne(order.getProgram());
+      ProgramDto program = programs.computeIfAbsent(order.getProgram(),
+          programReferenceDataService::findOne);
 
       order.setOrderCode(orderNumberConfiguration.generateOrderNumber(
           requisition.getId(), program.getCode(), requisition.getEmergency()));
 
       order.setQuotedCost(BigDecimal.ZERO);
 
-      orderRepository.save(order);
-
       List<OrderLineItem> orderLineItems = new ArrayList<>();
       for (RequisitionLineItem rl : requisition.getRequisitionLineItems()) {
         OrderLineItem orderLineItem = new OrderLineItem();
@@ -266,11 +281,13 @@ public class OrderService {
         orderLineItem.setFilledQuantity(0L);
         orderLineItem.setOrderedQuantity(rl.getRequestedQuantity().longValue());
         orderLineItems.add(orderLineItem);
-        orderLineItemRepository.save(orderLineItem);
       }
       order.setOrderLineItems(orderLineItems);
       convertedOrders.add(order);
     }
+
+    // line items are persisted through the order
+    orderRepository.save(convertedOrders);
     return convertedOrders;
   }
 }
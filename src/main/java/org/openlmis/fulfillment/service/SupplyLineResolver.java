@@ -0,0 +1,175 @@
+package org.openlmis.fulfillment.service;
+
+import org.openlmis.requisition.domain.Requisition;
+import org.openlmis.requisition.dto.SupplyLineDto;
+import org.openlmis.requisition.exception.RequisitionException;
+import org.openlmis.requisition.service.referencedata.SupplyLineReferenceDataService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+/**
+ * Resolves supply lines which requisitions are converted through. Requisitions sharing program
+ * and supervisory node share the lookup, lookups of different pairs run concurrently on a bounded
+ * pool. Resolution stops at the first pair without a supply line, failed lookup or when the
+ * lookups take longer than the timeout. The RequisitionException thrown then rolls back the whole
+ * conversion, including the release of the requisitions, so they all stay approved. The scheduled
+ * conversion instead resolves what is available and leaves the other requisitions for later.
+ */
+@Service
+public class SupplyLineResolver {
+
+  @Autowired
+  private SupplyLineReferenceDataService supplyLineReferenceDataService;
+
+  @Value("${supplyLineResolution.workers}")
+  private int workers;
+
+  @Value("${supplyLineResolution.timeout}")
+  private long timeout;
+
+  private ExecutorService lookups;
+
+  /**
+   * Starts the workers.
+   */
+  @PostConstruct
+  public void start() {
+    lookups = Executors.newFixedThreadPool(workers,
+        runnable -> new Thread(runnable, "supply-line-resolution"));
+  }
+
+  /**
+   * Stops the workers.
+   */
+  @PreDestroy
+  public void stop() {
+    lookups.shutdownNow();
+  }
+
+  /**
+   * Returns the supply line of each of the given requisitions.
+   *
+   * @param requisitions Requisitions whose supply lines should be resolved.
+   * @return Map of supply lines by ids of requisitions.
+   * @throws RequisitionException naming every requisition found to have no supply line, or whose
+   *                              supply line could not be looked up.
+   */
+  public Map<UUID, SupplyLineDto> resolve(Collection<Requisition> requisitions)
+      throws RequisitionException {
+    return resolveSupplyLines(requisitions, true);
+  }
+
+  /**
+   * Returns supply lines of those of the given requisitions which have one. Requisitions without
+   * a supply line, or whose supply line could not be looked up in time, are left out.
+   *
+   * @param requisitions Requisitions whose supply lines should be resolved.
+   * @return Map of supply lines by ids of requisitions.
+   * @throws RequisitionException when interrupted while waiting for the lookups.
+   */
+  public Map<UUID, SupplyLineDto> resolveAvailable(Collection<Requisition> requisitions)
+      throws RequisitionException {
+    return resolveSupplyLines(requisitions, false);
+  }
+
+  private Map<UUID, SupplyLineDto> resolveSupplyLines(Collection<Requisition> requisitions,
+                                                      boolean failFast)
+      throws RequisitionException {
+    Map<List<UUID>, List<UUID>> requisitionsByPair = new LinkedHashMap<>();
+    for (Requisition requisition : requisitions) {
+      requisitionsByPair.computeIfAbsent(
+          Arrays.asList(requisition.getProgram(), requisition.getSupervisoryNode()),
+          key -> new ArrayList<>()).add(requisition.getId());
+    }
+
+    // completes when all lookups finish or, failing fast, one of them finds no supply line
+    CompletableFuture<Void> done = new CompletableFuture<>();
+    Map<List<UUID>, CompletableFuture<SupplyLineDto>> supplyLines = new HashMap<>();
+    for (List<UUID> pair : requisitionsByPair.keySet()) {
+      CompletableFuture<SupplyLineDto> lookup =
+          CompletableFuture.supplyAsync(() -> findSupplyLine(pair), lookups);
+      if (failFast) {
+        lookup.whenComplete((supplyLine, ex) -> {
+          if (supplyLine == null) {
+            done.complete(null);
+          }
+        });
+      }
+      supplyLines.put(pair, lookup);
+    }
+    CompletableFuture.allOf(supplyLines.values().toArray(
+        new CompletableFuture[supplyLines.size()])).whenComplete((none, ex) -> done.complete(null));
+
+    boolean timedOut = false;
+    try {
+      done.get(timeout, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new RequisitionException("Interrupted while resolving supply lines");
+    } catch (ExecutionException | TimeoutException ex) {
+      timedOut = true;
+    } finally {
+      // lookups which did not start yet are skipped
+      supplyLines.values().forEach(lookup -> lookup.cancel(false));
+    }
+
+    Map<UUID, SupplyLineDto> resolved = new HashMap<>();
+    List<String> errors = new ArrayList<>();
+    for (Map.Entry<List<UUID>, List<UUID>> entry : requisitionsByPair.entrySet()) {
+      CompletableFuture<SupplyLineDto> lookup = supplyLines.get(entry.getKey());
+      String error = lookup.isCancelled()
+          ? (timedOut ? "was not resolved within " + timeout + " ms" : null)
+          : findError(entry.getKey(), lookup);
+      for (UUID requisition : entry.getValue()) {
+        if (error != null) {
+          errors.add("requisition " + requisition + " " + error);
+        } else if (!lookup.isCancelled()) {
+          resolved.put(requisition, lookup.join());
+        }
+      }
+    }
+
+    if (failFast && !errors.isEmpty()) {
+      throw new RequisitionException("Can not convert requisitions to orders: "
+          + String.join("; ", errors));
+    }
+    return resolved;
+  }
+
+  private SupplyLineDto findSupplyLine(List<UUID> pair) {
+    Collection<SupplyLineDto> found = supplyLineReferenceDataService.search(pair.get(0),
+        pair.get(1));
+    return found == null || found.isEmpty() ? null : found.iterator().next();
+  }
+
+  private static String findError(List<UUID> pair, CompletableFuture<SupplyLineDto> lookup) {
+    try {
+      return lookup.join() == null
+          ? "has no supply line for program " + pair.get(0) + " and supervisory node "
+              + pair.get(1)
+          : null;
+    } catch (CompletionException ex) {
+      return "has unknown supply line, the lookup failed: " + ex.getCause().getMessage();
+    }
+  }
+}
@@ -3,20 +3,28 @@ package org.openlmis.fulfillment.web;
 import org.openlmis.fulfillment.domain.Order;
 import org.openlmis.fulfillment.domain.OrderFileTemplate;
 import org.openlmis.fulfillment.domain.OrderStatus;
+import org.openlmis.fulfillment.dto.OrderConversionMetricsDto;
 import org.openlmis.fulfillment.repository.OrderRepository;
+import org.openlmis.fulfillment.service.OrderConversionService;
 import org.openlmis.fulfillment.service.OrderFileTemplateService;
 import org.openlmis.fulfillment.service.OrderService;
 import org.openlmis.requisition.exception.RequisitionException;
 import org.openlmis.requisition.service.referencedata.UserReferenceDataService;
+import org.openlmis.utils.ETagUtils;
+import org.openlmis.utils.EntityExporter;
 import org.openlmis.utils.ErrorResponse;
 import org.openlmis.requisition.web.BaseController;
 import org.openlmis.fulfillment.utils.OrderCsvHelper;
 import org.openlmis.requisition.domain.Requisition;
 import org.openlmis.requisition.dto.UserDto;
+import org.openlmis.utils.InvalidPageRequestException;
+import org.openlmis.utils.Pagination;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -24,16 +32,21 @@ import org.springframework.security.oauth2.provider.OAuth2Authentication;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import javax.servlet.http.HttpServletResponse;
@@ -41,14 +54,26 @@ import javax.servlet.http.HttpServletResponse;
 @Controller
 public class OrderController extends BaseController {
 
+  private static final Set<String> SORTABLE =
+      new HashSet<>(Arrays.asList("orderCode", "createdDate"));
+
   private static final Logger LOGGER = LoggerFactory.getLogger(OrderController.class);
 
   @Autowired
   private OrderRepository orderRepository;
 
+  @Autowired
+  private Pagination pagination;
+
+  @Autowired
+  private EntityExporter entityExporter;
+
   @Autowired
   private OrderService orderService;
 
+  @Autowired
+  private OrderConversionService orderConversionService;
+
   @Autowired
   private OrderCsvHelper csvHelper;
 
@@ -82,29 +107,62 @@ public class OrderController extends BaseController {
   }
 
   /**
-   * Get all orders.
+   * Get a page of orders.
    *
-   * @return Orders.
+   * @param pageNumber Page number to return, starting from 1.
+   * @param pageSize Quantity for one page, at most the configured maximum page size.
+   * @param sortBy Field used to sort: "id", "orderCode" or "createdDate", by default "id".
+   * @param descending Descending direction for sort.
+   * @return ResponseEntity with page of orders and total number of them.
+   * @throws InvalidPageRequestException if the page is too large or the sort is not allowed.
    */
   @RequestMapping(value = "/orders", method = RequestMethod.GET)
   @ResponseBody
-  public ResponseEntity<?> getAllOrders() {
-    Iterable<Order> orders = orderRepository.findAll();
+  public ResponseEntity<?> getAllOrders(
+      @RequestParam Integer pageNumber,
+      @RequestParam Integer pageSize,
+      @RequestParam(required = false) String sortBy,
+      @RequestParam(required = false) Boolean descending) throws InvalidPageRequestException {
+    Page<Order> orders = orderRepository.findAll(
+        pagination.pageRequest(pageNumber, pageSize, sortBy, descending, SORTABLE));
     return new ResponseEntity<>(orders, HttpStatus.OK);
   }
 
+  /**
+   * Streams all orders as a JSON array for exports. They are read in batches, so the
+   * response is not limited by the page size.
+   *
+   * @return ResponseEntity writing all orders.
+   */
+  @RequestMapping(value = "/orders/export", method = RequestMethod.GET)
+  public ResponseEntity<StreamingResponseBody> exportOrders() {
+    return entityExporter.export(Order.class);
+  }
+
   /**
    * Allows updating orders.
    *
    * @param order A order bound to the request body
    * @param orderId UUID of order which we want to update
+   * @param ifMatch Version of order the changes are based on
    * @return ResponseEntity containing the updated order
    */
   @RequestMapping(value = "/orders/{id}", method = RequestMethod.PUT)
   public ResponseEntity<?> updateOrder(@RequestBody Order order,
-                                       @PathVariable("id") UUID orderId) {
+                                       @PathVariable("id") UUID orderId,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH,
+                                           required = false) String ifMatch) {
 
     Order orderToUpdate = orderRepository.findOne(orderId);
+    Long expectedVersion = expectedVersion(ifMatch, order.getVersion());
+    if (orderToUpdate != null && expectedVersion == null) {
+      return versionRequired("Cannot update order with id: " + orderId + " without its version");
+    }
+    if (orderToUpdate != null && !expectedVersion.equals(orderToUpdate.getVersion())) {
+      return versionConflict("Cannot update outdated order with id: " + orderId,
+          orderToUpdate.getVersion());
+    }
+
     try {
       if (orderToUpdate == null) {
         orderToUpdate = new Order();
@@ -131,15 +189,26 @@ public class OrderController extends BaseController {
    * Get chosen order.
    *
    * @param orderId UUID of order whose we want to get
-   * @return Order.
+   * @param ifNoneMatch Entity tag of the order already held by the client
+   * @return Order or "#304 Not Modified" if the client already has its current state.
    */
   @RequestMapping(value = "/orders/{id}", method = RequestMethod.GET)
-  public ResponseEntity<?> getOrder(@PathVariable("id") UUID orderId) {
+  public ResponseEntity<?> getOrder(@PathVariable("id") UUID orderId,
+                                    @RequestHeader(value = HttpHeaders.IF_NONE_MATCH,
+                                        required = false) String ifNoneMatch) {
+    String entityTag = ETagUtils.toETag(orderRepository.findVersionStamp(orderId));
+    if (entityTag == null) {
+      return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+    if (ETagUtils.matches(ifNoneMatch, entityTag)) {
+      return notModified(entityTag);
+    }
+
     Order order = orderRepository.findOne(orderId);
     if (order == null) {
       return new ResponseEntity<>(HttpStatus.NOT_FOUND);
     } else {
-      return new ResponseEntity<>(order, HttpStatus.OK);
+      return new ResponseEntity<>(order, entityTagHeaders(entityTag), HttpStatus.OK);
     }
   }
 
@@ -192,11 +261,14 @@ public class OrderController extends BaseController {
    * Allows finalizing orders.
    *
    * @param orderId The UUID of the order to finalize
+   * @param ifMatch Version of the order the client expects to finalize
    * @return ResponseEntity with the "#200 OK" HTTP response status on success
   or ResponseEntity containing the error description and "#400 Bad Request" status
    */
   @RequestMapping(value = "/orders/{id}/finalize", method = RequestMethod.PUT)
-  public ResponseEntity<?> finalize(@PathVariable("id") UUID orderId) {
+  public ResponseEntity<?> finalize(@PathVariable("id") UUID orderId,
+                                    @RequestHeader(value = HttpHeaders.IF_MATCH,
+                                        required = false) String ifMatch) {
 
     Order order = orderRepository.findOne(orderId);
 
@@ -204,6 +276,11 @@ public class OrderController extends BaseController {
       return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
     }
 
+    if (isOutdated(ifMatch, null, order.getVersion())) {
+      return versionConflict("Cannot finalize outdated order with id: " + orderId,
+          order.getVersion());
+    }
+
     LOGGER.debug("Finalizing the order");
     order.setStatus(OrderStatus.SHIPPED);
     orderRepository.save(order);
@@ -257,7 +334,8 @@ public class OrderController extends BaseController {
    * Converting Requisition list to orders.
    *
    * @param requisitionList List of Requisitions that will be converted to Orders
-   * @return ResponseEntity with the "#200 OK" HTTP response status on success
+   * @return ResponseEntity with the "#201 Created" HTTP response status on success or the
+   *         "#400 Bad Request" status naming requisitions which cannot be converted
    */
   @RequestMapping(value = "/orders/requisitions", method = RequestMethod.POST)
   public ResponseEntity<?> convertToOrder(@RequestBody List<Requisition> requisitionList,
@@ -279,12 +357,24 @@ public class OrderController extends BaseController {
     try {
       orderService.convertToOrder(requisitionList, userId);
     } catch (RequisitionException ex) {
-      LOGGER.debug(ex.getMessage(), ex);
-      return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+      ErrorResponse errorResponse =
+          new ErrorResponse("An error occurred while converting requisitions to orders",
+              ex.getMessage());
+      LOGGER.debug(errorResponse.getMessage(), ex);
+      return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
     }
     return new ResponseEntity<>(HttpStatus.CREATED);
   }
 
+  /**
+   * Get the number of approved requisitions waiting for conversion and statistics of their
+   * automatic conversion.
+   */
+  @RequestMapping(value = "/orders/conversion/metrics", method = RequestMethod.GET)
+  public ResponseEntity<OrderConversionMetricsDto> getConversionMetrics() {
+    return new ResponseEntity<>(orderConversionService.getMetrics(), HttpStatus.OK);
+  }
+
   /**
    * Exporting order to csv.
    *
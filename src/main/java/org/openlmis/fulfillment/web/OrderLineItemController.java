@@ -4,10 +4,13 @@ import org.openlmis.fulfillment.domain.OrderLineItem;
 import org.openlmis.fulfillment.repository.OrderLineItemRepository;
 import org.openlmis.requisition.web.BaseController;
 import org.openlmis.utils.ErrorResponse;
+import org.openlmis.utils.InvalidPageRequestException;
+import org.openlmis.utils.Pagination;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
@@ -15,18 +18,26 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 
+import java.util.Collections;
+import java.util.Set;
 import java.util.UUID;
 
 @Controller
 public class OrderLineItemController extends BaseController {
 
+  private static final Set<String> SORTABLE = Collections.emptySet();
+
   private static final Logger LOGGER = LoggerFactory.getLogger(OrderLineItemController.class);
 
   @Autowired
   private OrderLineItemRepository orderLineItemRepository;
 
+  @Autowired
+  private Pagination pagination;
+
   /**
    * Allows creating new orderLineItems.
    * If the id is specified, it will be ignored.
@@ -51,14 +62,24 @@ public class OrderLineItemController extends BaseController {
   }
 
   /**
-   * Get all orderLineItems.
+   * Get a page of orderLineItems.
    *
-   * @return OrderLineItems.
+   * @param pageNumber Page number to return, starting from 1.
+   * @param pageSize Quantity for one page, at most the configured maximum page size.
+   * @param sortBy Field used to sort: "id", by default "id".
+   * @param descending Descending direction for sort.
+   * @return ResponseEntity with page of orderLineItems and total number of them.
+   * @throws InvalidPageRequestException if the page is too large or the sort is not allowed.
    */
   @RequestMapping(value = "/orderLineItems", method = RequestMethod.GET)
   @ResponseBody
-  public ResponseEntity<?> getAllOrderLineItems() {
-    Iterable<OrderLineItem> orderLineItems = orderLineItemRepository.findAll();
+  public ResponseEntity<?> getAllOrderLineItems(
+      @RequestParam Integer pageNumber,
+      @RequestParam Integer pageSize,
+      @RequestParam(required = false) String sortBy,
+      @RequestParam(required = false) Boolean descending) throws InvalidPageRequestException {
+    Page<OrderLineItem> orderLineItems = orderLineItemRepository.findAll(
+        pagination.pageRequest(pageNumber, pageSize, sortBy, descending, SORTABLE));
     return new ResponseEntity<>(orderLineItems, HttpStatus.OK);
   }
 
@@ -4,28 +4,39 @@ import net.sf.jasperreports.engine.JRException;
 import org.openlmis.fulfillment.domain.ProofOfDelivery;
 import org.openlmis.fulfillment.repository.ProofOfDeliveryRepository;
 import org.openlmis.fulfillment.utils.ReportUtils;
+import org.openlmis.utils.ETagUtils;
+import org.openlmis.utils.EntityExporter;
 import org.openlmis.utils.ErrorResponse;
 import org.openlmis.requisition.web.BaseController;
 import org.openlmis.reporting.model.Template;
 import org.openlmis.reporting.service.JasperReportsViewFactory;
 import org.openlmis.reporting.service.TemplateService;
+import org.openlmis.utils.InvalidPageRequestException;
+import org.openlmis.utils.Pagination;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.view.jasperreports.JasperReportsMultiFormatView;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import javax.servlet.http.HttpServletRequest;
@@ -33,12 +44,20 @@ import javax.servlet.http.HttpServletRequest;
 @Controller
 public class ProofOfDeliveryController extends BaseController {
 
+  private static final Set<String> SORTABLE = Collections.emptySet();
+
   private static final Logger LOGGER = LoggerFactory.getLogger(ProofOfDeliveryController.class);
   private static final String PRINT_POD = "Print POD";
 
   @Autowired
   private JasperReportsViewFactory jasperReportsViewFactory;
 
+  @Autowired
+  private Pagination pagination;
+
+  @Autowired
+  private EntityExporter entityExporter;
+
   @Autowired
   private TemplateService templateService;
 
@@ -70,30 +89,65 @@ public class ProofOfDeliveryController extends BaseController {
   }
 
   /**
-   * Get all proofOfDeliveries.
+   * Get a page of proofOfDeliveries.
    *
-   * @return ProofOfDeliveries.
+   * @param pageNumber Page number to return, starting from 1.
+   * @param pageSize Quantity for one page, at most the configured maximum page size.
+   * @param sortBy Field used to sort: "id", by default "id".
+   * @param descending Descending direction for sort.
+   * @return ResponseEntity with page of proofOfDeliveries and total number of them.
+   * @throws InvalidPageRequestException if the page is too large or the sort is not allowed.
    */
   @RequestMapping(value = "/proofOfDeliveries", method = RequestMethod.GET)
   @ResponseBody
-  public ResponseEntity<?> getAllProofOfDeliveries() {
-    Iterable<ProofOfDelivery> proofOfDeliveries = proofOfDeliveryRepository.findAll();
+  public ResponseEntity<?> getAllProofOfDeliveries(
+      @RequestParam Integer pageNumber,
+      @RequestParam Integer pageSize,
+      @RequestParam(required = false) String sortBy,
+      @RequestParam(required = false) Boolean descending) throws InvalidPageRequestException {
+    Page<ProofOfDelivery> proofOfDeliveries = proofOfDeliveryRepository.findAll(
+        pagination.pageRequest(pageNumber, pageSize, sortBy, descending, SORTABLE));
     return new ResponseEntity<>(proofOfDeliveries, HttpStatus.OK);
   }
 
+  /**
+   * Streams all proofOfDeliveries as a JSON array for exports. They are read in batches, so the
+   * response is not limited by the page size.
+   *
+   * @return ResponseEntity writing all proofOfDeliveries.
+   */
+  @RequestMapping(value = "/proofOfDeliveries/export", method = RequestMethod.GET)
+  public ResponseEntity<StreamingResponseBody> exportProofOfDeliveries() {
+    return entityExporter.export(ProofOfDelivery.class);
+  }
+
   /**
    * Allows updating proofOfDeliveries.
    *
    * @param proofOfDelivery A proofOfDelivery bound to the request body
    * @param proofOfDeliveryId UUID of proofOfDelivery which we want to update
+   * @param ifMatch Version of proofOfDelivery the changes are based on
    * @return ResponseEntity containing the updated proofOfDelivery
    */
   @RequestMapping(value = "/proofOfDeliveries/{id}", method = RequestMethod.PUT)
   public ResponseEntity<?> updateProofOfDelivery(@RequestBody ProofOfDelivery proofOfDelivery,
-                                       @PathVariable("id") UUID proofOfDeliveryId) {
+                                       @PathVariable("id") UUID proofOfDeliveryId,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH,
+                                           required = false) String ifMatch) {
 
     ProofOfDelivery proofOfDeliveryToUpdate =
           proofOfDeliveryRepository.findOne(proofOfDeliveryId);
+    Long expectedVersion = expectedVersion(ifMatch, proofOfDelivery.getVersion());
+    if (proofOfDeliveryToUpdate != null && expectedVersion == null) {
+      return versionRequired("Cannot update proofOfDelivery with id: " + proofOfDeliveryId
+          + " without its version");
+    }
+    if (proofOfDeliveryToUpdate != null
+        && !expectedVersion.equals(proofOfDeliveryToUpdate.getVersion())) {
+      return versionConflict("Cannot update outdated proofOfDelivery with id: "
+          + proofOfDeliveryId, proofOfDeliveryToUpdate.getVersion());
+    }
+
     try {
       if (proofOfDeliveryToUpdate == null) {
         proofOfDeliveryToUpdate = new ProofOfDelivery();
@@ -120,15 +174,27 @@ public class ProofOfDeliveryController extends BaseController {
    * Get chosen proofOfDelivery.
    *
    * @param proofOfDeliveryId UUID of proofOfDelivery whose we want to get
-   * @return ProofOfDelivery.
+   * @param ifNoneMatch Entity tag of the proofOfDelivery already held by the client
+   * @return ProofOfDelivery or "#304 Not Modified" if the client already has its current state.
    */
   @RequestMapping(value = "/proofOfDeliveries/{id}", method = RequestMethod.GET)
-  public ResponseEntity<?> getProofOfDelivery(@PathVariable("id") UUID proofOfDeliveryId) {
+  public ResponseEntity<?> getProofOfDelivery(@PathVariable("id") UUID proofOfDeliveryId,
+                                              @RequestHeader(value = HttpHeaders.IF_NONE_MATCH,
+                                                  required = false) String ifNoneMatch) {
+    String entityTag =
+        ETagUtils.toETag(proofOfDeliveryRepository.findVersionStamp(proofOfDeliveryId));
+    if (entityTag == null) {
+      return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+    if (ETagUtils.matches(ifNoneMatch, entityTag)) {
+      return notModified(entityTag);
+    }
+
     ProofOfDelivery proofOfDelivery = proofOfDeliveryRepository.findOne(proofOfDeliveryId);
     if (proofOfDelivery == null) {
       return new ResponseEntity<>(HttpStatus.NOT_FOUND);
     } else {
-      return new ResponseEntity<>(proofOfDelivery, HttpStatus.OK);
+      return new ResponseEntity<>(proofOfDelivery, entityTagHeaders(entityTag), HttpStatus.OK);
     }
   }
 
@@ -4,10 +4,13 @@ import org.openlmis.fulfillment.domain.ProofOfDeliveryLineItem;
 import org.openlmis.fulfillment.repository.ProofOfDeliveryLineItemRepository;
 import org.openlmis.utils.ErrorResponse;
 import org.openlmis.requisition.web.BaseController;
+import org.openlmis.utils.InvalidPageRequestException;
+import org.openlmis.utils.Pagination;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
@@ -15,19 +18,27 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 
+import java.util.Collections;
+import java.util.Set;
 import java.util.UUID;
 
 @Controller
 public class ProofOfDeliveryLineItemController extends BaseController {
 
+  private static final Set<String> SORTABLE = Collections.emptySet();
+
   private static final Logger LOGGER =
         LoggerFactory.getLogger(ProofOfDeliveryLineItemController.class);
 
   @Autowired
   private ProofOfDeliveryLineItemRepository proofOfDeliveryLineItemRepository;
 
+  @Autowired
+  private Pagination pagination;
+
 
   /**
    * Allows creating new proofOfDeliveryLineItems.
@@ -58,15 +69,25 @@ public class ProofOfDeliveryLineItemController extends BaseController {
   }
 
   /**
-   * Get all proofOfDeliveryLineItems.
+   * Get a page of proofOfDeliveryLineItems.
    *
-   * @return ProofOfDeliveryLineItem.
+   * @param pageNumber Page number to return, starting from 1.
+   * @param pageSize Quantity for one page, at most the configured maximum page size.
+   * @param sortBy Field used to sort: "id", by default "id".
+   * @param descending Descending direction for sort.
+   * @return ResponseEntity with page of proofOfDeliveryLineItems and total number of them.
+   * @throws InvalidPageRequestException if the page is too large or the sort is not allowed.
    */
   @RequestMapping(value = "/proofOfDeliveryLineItems", method = RequestMethod.GET)
   @ResponseBody
-  public ResponseEntity<?> getAllProofOfDeliveryLineItems() {
-    Iterable<ProofOfDeliveryLineItem> proofOfDeliveryLineItems =
-        proofOfDeliveryLineItemRepository.findAll();
+  public ResponseEntity<?> getAllProofOfDeliveryLineItems(
+      @RequestParam Integer pageNumber,
+      @RequestParam Integer pageSize,
+      @RequestParam(required = false) String sortBy,
+      @RequestParam(required = false) Boolean descending) throws InvalidPageRequestException {
+    Page<ProofOfDeliveryLineItem> proofOfDeliveryLineItems =
+        proofOfDeliveryLineItemRepository.findAll(
+            pagination.pageRequest(pageNumber, pageSize, sortBy, descending, SORTABLE));
     return new ResponseEntity<>(proofOfDeliveryLineItems, HttpStatus.OK);
   }
 
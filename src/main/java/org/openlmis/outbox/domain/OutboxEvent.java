@@ -0,0 +1,100 @@
+package org.openlmis.outbox.domain;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateTimeDeserializer;
+import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateTimeSerializer;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.openlmis.fulfillment.utils.LocalDateTimePersistenceConverter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.PrePersist;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+
+/**
+ * Domain event waiting to be delivered to downstream systems. Events are written in the
+ * transaction making the change they describe and removed once the sink accepted them, so the
+ * table only holds events which were not delivered yet. An event being delivered is claimed
+ * until a given time, after which it is delivered again if it has not been removed.
+ */
+@Entity
+@Table(name = "outbox_events")
+@NoArgsConstructor
+public class OutboxEvent {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_event_seq")
+  @SequenceGenerator(name = "outbox_event_seq", sequenceName = "outbox_event_seq",
+      allocationSize = 1)
+  @Getter
+  private Long id;
+
+  @Column(nullable = false)
+  @Getter
+  private String aggregateType;
+
+  @Column(nullable = false)
+  @Getter
+  private UUID aggregateId;
+
+  @Column(nullable = false)
+  @Getter
+  private String eventType;
+
+  @Column(nullable = false, columnDefinition = "text")
+  @JsonRawValue
+  @Getter
+  private String payload;
+
+  @JsonSerialize(using = LocalDateTimeSerializer.class)
+  @JsonDeserialize(using = LocalDateTimeDeserializer.class)
+  @Convert(converter = LocalDateTimePersistenceConverter.class)
+  @Getter
+  private LocalDateTime createdDate;
+
+  @JsonIgnore
+  @Convert(converter = LocalDateTimePersistenceConverter.class)
+  @Getter
+  private LocalDateTime claimedUntil;
+
+  /**
+   * Creates an event of the given aggregate.
+   *
+   * @param aggregateType Type of the changed aggregate, for example "Requisition".
+   * @param aggregateId UUID of the changed aggregate.
+   * @param eventType Kind of the event, for example "REQUISITION_SUBMITTED".
+   * @param payload State of the aggregate after the change as JSON.
+   */
+  public OutboxEvent(String aggregateType, UUID aggregateId, String eventType, String payload) {
+    this.aggregateType = aggregateType;
+    this.aggregateId = aggregateId;
+    this.eventType = eventType;
+    this.payload = payload;
+  }
+
+  /**
+   * Claims this event for a delivery, so other relays skip it until the given time.
+   *
+   * @param claimedUntil Time until which the event is claimed.
+   */
+  public void claim(LocalDateTime claimedUntil) {
+    this.claimedUntil = claimedUntil;
+  }
+
+  @PrePersist
+  private void prePersist() {
+    this.createdDate = LocalDateTime.now();
+  }
+}
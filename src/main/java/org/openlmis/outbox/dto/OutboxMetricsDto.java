@@ -0,0 +1,15 @@
+package org.openlmis.outbox.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@AllArgsConstructor
+@Getter
+public class OutboxMetricsDto {
+  private long pending;
+  private long oldestPendingAgeMillis;
+  private long delivered;
+  private long failedDeliveries;
+  private double averageLagMillis;
+  private long maxLagMillis;
+}
@@ -0,0 +1,154 @@
+package org.openlmis.outbox.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.outbox.domain.OutboxEvent;
+import org.openlmis.requisition.domain.Requisition;
+import org.openlmis.requisition.domain.RequisitionStatus;
+import org.openlmis.utils.TransactionCollector;
+import org.openlmis.utils.TransactionCollector.Participant;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Writes {@link OutboxEvent}s for status changes of requisitions and orders. Changes are
+ * collected per transaction and their events are written right before the transaction commits,
+ * so an event is stored if and only if the change it describes is. This covers submitting,
+ * authorizing, approving, skipping, rejecting and releasing requisitions as well as creating and
+ * finalizing orders, whichever way the entities are saved.
+ */
+@Component
+public class OutboxEventListener implements Participant<List<OutboxEvent>> {
+
+  static final String REQUISITION = "Requisition";
+  static final String ORDER = "Order";
+
+  private static final String STATUS = "status";
+  private static final String PREVIOUS_STATUS = "previousStatus";
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Autowired
+  private TransactionCollector transactionCollector;
+
+  /**
+   * Starts collecting status changes of requisitions and orders.
+   */
+  @PostConstruct
+  public void register() {
+    transactionCollector.addParticipant(this);
+  }
+
+  @Override
+  public void onPostInsert(PostInsertEvent event) {
+    OutboxEvent outboxEvent = toEvent(event.getEntity(), null);
+    if (outboxEvent != null) {
+      transactionCollector.collect(event.getSession(), this).add(outboxEvent);
+    }
+  }
+
+  @Override
+  public void onPostUpdate(PostUpdateEvent event) {
+    boolean tracked = event.getEntity() instanceof Requisition
+        || event.getEntity() instanceof Order;
+    if (!tracked || event.getOldState() == null) {
+      return;
+    }
+    int status = event.getPersister().getEntityMetamodel().getPropertyIndex(STATUS);
+    Object previousStatus = event.getOldState()[status];
+    if (event.getState()[status] == null
+        || Objects.equals(previousStatus, event.getState()[status])) {
+      return;
+    }
+    OutboxEvent outboxEvent = toEvent(event.getEntity(), (Enum<?>) previousStatus);
+    if (outboxEvent != null) {
+      transactionCollector.collect(event.getSession(), this).add(outboxEvent);
+    }
+  }
+
+  @Override
+  public List<OutboxEvent> startCollecting() {
+    return new ArrayList<>();
+  }
+
+  @Override
+  public void beforeCompletion(SessionImplementor session, List<OutboxEvent> events) {
+    if (events.isEmpty()) {
+      return;
+    }
+
+    Session currentSession = (Session) session;
+    events.forEach(currentSession::save);
+    currentSession.flush();
+  }
+
+  /**
+   * Returns the type of the event of a status change. Requisitions moved back to initiated are
+   * rejected, other changes are named after the new status.
+   */
+  static String eventType(String aggregateType, Enum<?> previousStatus, Enum<?> status) {
+    String name = previousStatus != null && status == RequisitionStatus.INITIATED
+        ? "REJECTED" : status.name();
+    return aggregateType.toUpperCase() + "_" + name;
+  }
+
+  private OutboxEvent toEvent(Object entity, Enum<?> previousStatus) {
+    if (entity instanceof Requisition && ((Requisition) entity).getStatus() != null) {
+      return requisitionEvent((Requisition) entity, previousStatus);
+    } else if (entity instanceof Order && ((Order) entity).getStatus() != null) {
+      return orderEvent((Order) entity, previousStatus);
+    }
+    return null;
+  }
+
+  private OutboxEvent requisitionEvent(Requisition requisition, Enum<?> previousStatus) {
+    Map<String, Object> payload = new LinkedHashMap<>();
+    payload.put("id", requisition.getId());
+    payload.put(STATUS, requisition.getStatus());
+    payload.put(PREVIOUS_STATUS, previousStatus);
+    payload.put("program", requisition.getProgram());
+    payload.put("facility", requisition.getFacility());
+    payload.put("processingPeriod", requisition.getProcessingPeriod());
+    payload.put("supervisoryNode", requisition.getSupervisoryNode());
+    payload.put("emergency", requisition.getEmergency());
+    return new OutboxEvent(REQUISITION, requisition.getId(),
+        eventType(REQUISITION, previousStatus, requisition.getStatus()), toJson(payload));
+  }
+
+  private OutboxEvent orderEvent(Order order, Enum<?> previousStatus) {
+    Map<String, Object> payload = new LinkedHashMap<>();
+    payload.put("id", order.getId());
+    payload.put(STATUS, order.getStatus());
+    payload.put(PREVIOUS_STATUS, previousStatus);
+    payload.put("orderCode", order.getOrderCode());
+    payload.put("requisition",
+        order.getRequisition() == null ? null : order.getRequisition().getId());
+    payload.put("program", order.getProgram());
+    payload.put("requestingFacility", order.getRequestingFacility());
+    payload.put("supplyingFacility", order.getSupplyingFacility());
+    return new OutboxEvent(ORDER, order.getId(),
+        eventType(ORDER, previousStatus, order.getStatus()), toJson(payload));
+  }
+
+  private String toJson(Map<String, Object> payload) {
+    try {
+      return objectMapper.writeValueAsString(payload);
+    } catch (JsonProcessingException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+}
@@ -0,0 +1,9 @@
+package org.openlmis.outbox.repository;
+
+import org.openlmis.outbox.domain.OutboxEvent;
+import org.openlmis.outbox.repository.custom.OutboxEventRepositoryCustom;
+import org.springframework.data.repository.CrudRepository;
+
+public interface OutboxEventRepository extends CrudRepository<OutboxEvent, Long>,
+    OutboxEventRepositoryCustom {
+}
@@ -0,0 +1,17 @@
+package org.openlmis.outbox.repository.custom;
+
+import org.openlmis.outbox.domain.OutboxEvent;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface OutboxEventRepositoryCustom {
+
+  List<OutboxEvent> claimPending(int limit, LocalDateTime claimedUntil);
+
+  void releaseClaims(List<Long> ids);
+
+  void deleteDelivered(List<Long> ids);
+
+  LocalDateTime findOldestCreatedDate();
+}
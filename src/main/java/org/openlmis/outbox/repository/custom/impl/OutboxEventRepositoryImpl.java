@@ -0,0 +1,86 @@
+package org.openlmis.outbox.repository.custom.impl;
+
+import org.openlmis.outbox.domain.OutboxEvent;
+import org.openlmis.outbox.repository.custom.OutboxEventRepositoryCustom;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+
+public class OutboxEventRepositoryImpl implements OutboxEventRepositoryCustom {
+
+  private static final String IDS = "ids";
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  /**
+   * Claims the oldest events which are not claimed or whose claim expired. Events are locked
+   * while they are claimed and events locked by another transaction are skipped, so relays of
+   * several instances claim different events.
+   *
+   * @param limit Maximum number of returned events.
+   * @param claimedUntil Time until which the events are claimed.
+   * @return Claimed events ordered by their id.
+   */
+  @Override
+  public List<OutboxEvent> claimPending(int limit, LocalDateTime claimedUntil) {
+    List<OutboxEvent> events = entityManager.createNativeQuery(
+        "SELECT * FROM requisition.outbox_events"
+            + " WHERE claimedUntil IS NULL OR claimedUntil <= :now"
+            + " ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", OutboxEvent.class)
+        .setParameter("now", Timestamp.valueOf(LocalDateTime.now()))
+        .setParameter("limit", limit)
+        .getResultList();
+    for (OutboxEvent event : events) {
+      event.claim(claimedUntil);
+    }
+    entityManager.flush();
+    return events;
+  }
+
+  /**
+   * Releases claims of the given events, so they are delivered again by the next relay.
+   *
+   * @param ids Ids of the claimed events.
+   */
+  @Override
+  public void releaseClaims(List<Long> ids) {
+    entityManager.createQuery(
+        "UPDATE OutboxEvent e SET e.claimedUntil = NULL WHERE e.id IN :ids")
+        .setParameter(IDS, ids)
+        .executeUpdate();
+  }
+
+  /**
+   * Removes delivered events. Events removed by another relay in the meantime are skipped.
+   *
+   * @param ids Ids of the delivered events.
+   */
+  @Override
+  public void deleteDelivered(List<Long> ids) {
+    entityManager.createQuery("DELETE FROM OutboxEvent e WHERE e.id IN :ids")
+        .setParameter(IDS, ids)
+        .executeUpdate();
+  }
+
+  /**
+   * Method returns the creation date of the oldest event.
+   *
+   * @return Creation date or null if there are no events.
+   */
+  @Override
+  public LocalDateTime findOldestCreatedDate() {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<LocalDateTime> query = builder.createQuery(LocalDateTime.class);
+    Root<OutboxEvent> root = query.from(OutboxEvent.class);
+    query.select(builder.least(root.<LocalDateTime>get("createdDate")));
+    return entityManager.createQuery(query).getSingleResult();
+  }
+}
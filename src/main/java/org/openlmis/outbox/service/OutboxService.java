@@ -0,0 +1,155 @@
+package org.openlmis.outbox.service;
+
+import org.openlmis.outbox.domain.OutboxEvent;
+import org.openlmis.outbox.dto.OutboxMetricsDto;
+import org.openlmis.outbox.repository.OutboxEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Relays domain events from the outbox to the configured {@link OutboxSink}. Events are
+ * delivered in batches ordered by their id. A batch is claimed in one short transaction,
+ * delivered without holding a transaction or locks, and removed in a second transaction. Claims
+ * of a failed delivery are released, and claims of a relay which stopped before removing its
+ * batch expire after the claim timeout, so every event is delivered at least once. One relay
+ * delivers events in the order of their ids, which are assigned when the events are written.
+ * Batches delivered by relays of several instances at the same time are not ordered, and a batch
+ * delivered again after a failure or an expired claim may follow later events, so consumers have
+ * to tolerate duplicates and can order events by their id.
+ */
+@Service
+public class OutboxService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(OutboxService.class);
+
+  private final AtomicLong delivered = new AtomicLong();
+  private final AtomicLong failedDeliveries = new AtomicLong();
+  private final AtomicLong totalLagMillis = new AtomicLong();
+  private final AtomicLong maxLagMillis = new AtomicLong();
+
+  @Autowired
+  private OutboxEventRepository outboxEventRepository;
+
+  @Autowired
+  private OutboxSink outboxSink;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @Value("${outbox.batchSize}")
+  private int batchSize;
+
+  @Value("${outbox.claimTimeout}")
+  private long claimTimeout;
+
+  private TransactionTemplate transactionTemplate;
+
+  @PostConstruct
+  public void start() {
+    transactionTemplate = new TransactionTemplate(transactionManager);
+  }
+
+  /**
+   * Delivers pending events until the outbox is empty or a delivery fails. Events of a failed
+   * delivery are retried with the next run.
+   */
+  @Scheduled(fixedDelayString = "${outbox.relayDelay}")
+  public void relay() {
+    int relayed;
+    do {
+      try {
+        relayed = relayBatch();
+      } catch (RuntimeException ex) {
+        failedDeliveries.incrementAndGet();
+        LOGGER.warn("Delivery of outbox events failed, retrying later", ex);
+        return;
+      }
+    } while (relayed == batchSize);
+  }
+
+  /**
+   * Returns the number and age of pending events and delivery statistics since the start.
+   */
+  public OutboxMetricsDto getMetrics() {
+    LocalDateTime oldest = outboxEventRepository.findOldestCreatedDate();
+    long oldestAge = oldest == null ? 0 : lagMillis(oldest, LocalDateTime.now());
+    long deliveredCount = delivered.get();
+    return new OutboxMetricsDto(outboxEventRepository.count(), oldestAge, deliveredCount,
+        failedDeliveries.get(),
+        deliveredCount == 0 ? 0 : (double) totalLagMillis.get() / deliveredCount,
+        maxLagMillis.get());
+  }
+
+  private int relayBatch() {
+    LocalDateTime claimedUntil = LocalDateTime.now().plus(claimTimeout, ChronoUnit.MILLIS);
+    List<OutboxEvent> events = transactionTemplate.execute(
+        status -> outboxEventRepository.claimPending(batchSize, claimedUntil));
+    if (events.isEmpty()) {
+      return 0;
+    }
+
+    List<Long> ids = new ArrayList<>(events.size());
+    for (OutboxEvent event : events) {
+      ids.add(event.getId());
+    }
+    deliver(events, ids);
+    transactionTemplate.execute(status -> {
+      outboxEventRepository.deleteDelivered(ids);
+      return null;
+    });
+
+    LocalDateTime now = LocalDateTime.now();
+    for (OutboxEvent event : events) {
+      long lag = lagMillis(event.getCreatedDate(), now);
+      totalLagMillis.addAndGet(lag);
+      maxLagMillis.accumulateAndGet(lag, Math::max);
+    }
+    delivered.addAndGet(events.size());
+    return events.size();
+  }
+
+  private void deliver(List<OutboxEvent> events, List<Long> ids) {
+    try {
+      outboxSink.deliver(events);
+    } catch (IOException ex) {
+      releaseClaims(ids);
+      throw new UncheckedIOException(ex);
+    } catch (RuntimeException ex) {
+      releaseClaims(ids);
+      throw ex;
+    }
+  }
+
+  private void releaseClaims(List<Long> ids) {
+    try {
+      transactionTemplate.execute(status -> {
+        outboxEventRepository.releaseClaims(ids);
+        return null;
+      });
+    } catch (RuntimeException ex) {
+      LOGGER.warn("Could not release claims of outbox events, they are delivered again after"
+          + " the claim timeout", ex);
+    }
+  }
+
+  private static long lagMillis(LocalDateTime from, LocalDateTime to) {
+    return from == null ? 0 : Duration.between(from, to).toMillis();
+  }
+}
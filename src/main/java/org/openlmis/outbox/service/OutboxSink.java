@@ -0,0 +1,22 @@
+package org.openlmis.outbox.service;
+
+import org.openlmis.outbox.domain.OutboxEvent;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination of domain events relayed from the outbox. The sink is chosen with the
+ * outbox.sink property.
+ */
+public interface OutboxSink {
+
+  /**
+   * Delivers the given events. Returns only when all of them were accepted, events of a failed
+   * delivery are delivered again later, so the sink may receive an event more than once.
+   *
+   * @param events Events ordered by their id.
+   * @throws IOException if the events could not be delivered.
+   */
+  void deliver(List<OutboxEvent> events) throws IOException;
+}
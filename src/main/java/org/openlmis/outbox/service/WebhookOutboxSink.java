@@ -0,0 +1,39 @@
+package org.openlmis.outbox.service;
+
+import org.openlmis.outbox.domain.OutboxEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Posts events to a webhook as a JSON array. Any response other than a success is treated as a
+ * failed delivery.
+ */
+@Component
+@ConditionalOnProperty(name = "outbox.sink", havingValue = "webhook")
+public class WebhookOutboxSink implements OutboxSink {
+
+  private final RestTemplate restTemplate = new RestTemplate();
+
+  @Value("${outbox.webhook.url}")
+  private String url;
+
+  @Override
+  public void deliver(List<OutboxEvent> events) throws IOException {
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    try {
+      restTemplate.postForEntity(url, new HttpEntity<>(events, headers), Void.class);
+    } catch (RestClientException ex) {
+      throw new IOException("Webhook " + url + " did not accept outbox events", ex);
+    }
+  }
+}
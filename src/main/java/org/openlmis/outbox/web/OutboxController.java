@@ -0,0 +1,26 @@
+package org.openlmis.outbox.web;
+
+import org.openlmis.outbox.dto.OutboxMetricsDto;
+import org.openlmis.outbox.service.OutboxService;
+import org.openlmis.requisition.web.BaseController;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+@Controller
+public class OutboxController extends BaseController {
+
+  @Autowired
+  private OutboxService outboxService;
+
+  /**
+   * Returns pending events and the delivery lag of the outbox relay.
+   */
+  @RequestMapping(value = "/outbox/metrics", method = RequestMethod.GET)
+  public ResponseEntity<OutboxMetricsDto> getMetrics() {
+    return new ResponseEntity<>(outboxService.getMetrics(), HttpStatus.OK);
+  }
+}
@@ -1,12 +1,16 @@
 package org.openlmis.reporting.repository;
 
 import org.openlmis.reporting.model.Template;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.repository.query.Param;
 
 import java.util.UUID;
 
+import javax.persistence.QueryHint;
+
 public interface TemplateRepository extends PagingAndSortingRepository<Template, UUID> {
 
+  @QueryHints(@QueryHint(name = org.hibernate.annotations.QueryHints.CACHEABLE, value = "true"))
   Template findByName(@Param("name") String name);
 }
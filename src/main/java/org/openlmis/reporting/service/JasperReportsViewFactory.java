@@ -9,6 +9,7 @@ import net.sf.jasperreports.engine.JRExporterParameter;
 import net.sf.jasperreports.engine.JasperReport;
 import org.openlmis.reporting.model.Template;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.web.context.WebApplicationContext;
 import org.springframework.web.context.support.WebApplicationContextUtils;
@@ -30,8 +31,11 @@ import javax.sql.DataSource;
 @Service
 public class JasperReportsViewFactory {
 
+  // reports are printed right after the data they show is changed, which the replica may not
+  // have replayed yet
   @Autowired
-  private DataSource replicationDataSource;
+  @Qualifier("primaryDataSource")
+  private DataSource primaryDataSource;
 
   /**
    * Create Jasper Report View.
@@ -43,7 +47,7 @@ public class JasperReportsViewFactory {
       throws IOException, ClassNotFoundException, JRException {
     JasperReportsMultiFormatView jasperView = new JasperReportsMultiFormatView();
     setExportParams(jasperView);
-    jasperView.setJdbcDataSource(replicationDataSource);
+    jasperView.setJdbcDataSource(primaryDataSource);
     jasperView.setUrl(getReportUrlForReportData(template));
     if (getApplicationContext(request) != null) {
       jasperView.setApplicationContext(getApplicationContext(request));
@@ -8,8 +8,11 @@ import org.openlmis.reporting.model.Template;
 import org.openlmis.reporting.repository.TemplateRepository;
 import org.openlmis.reporting.service.TemplateService;
 import org.openlmis.requisition.domain.RequisitionTemplate;
+import org.openlmis.utils.InvalidPageRequestException;
+import org.openlmis.utils.Pagination;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
@@ -17,15 +20,20 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.Collections;
+import java.util.Set;
 import java.util.UUID;
 
 @Controller
 public class TemplateController extends BaseController {
 
+  private static final Set<String> SORTABLE = Collections.singleton("name");
+
   private static final String CONSISTENCY_REPORT = "Consistency Report";
 
   private static final Logger LOGGER = Logger.getLogger(TemplateController.class);
@@ -33,6 +41,9 @@ public class TemplateController extends BaseController {
   @Autowired
   private TemplateService templateService;
 
+  @Autowired
+  private Pagination pagination;
+
   @Autowired
   private TemplateRepository templateRepository;
 
@@ -59,14 +70,24 @@ public class TemplateController extends BaseController {
   }
 
   /**
-   * Get all templates.
+   * Get a page of templates.
    *
-   * @return Templates.
+   * @param pageNumber Page number to return, starting from 1.
+   * @param pageSize Quantity for one page, at most the configured maximum page size.
+   * @param sortBy Field used to sort: "id" or "name", by default "id".
+   * @param descending Descending direction for sort.
+   * @return ResponseEntity with page of templates and total number of them.
+   * @throws InvalidPageRequestException if the page is too large or the sort is not allowed.
    */
   @RequestMapping(value = "/templates", method = RequestMethod.GET)
   @ResponseBody
-  public ResponseEntity<?> getAllTemplates() {
-    Iterable<Template> templates = templateRepository.findAll();
+  public ResponseEntity<?> getAllTemplates(
+      @RequestParam Integer pageNumber,
+      @RequestParam Integer pageSize,
+      @RequestParam(required = false) String sortBy,
+      @RequestParam(required = false) Boolean descending) throws InvalidPageRequestException {
+    Page<Template> templates = templateRepository.findAll(
+        pagination.pageRequest(pageNumber, pageSize, sortBy, descending, SORTABLE));
     return new ResponseEntity<>(templates, HttpStatus.OK);
   }
 
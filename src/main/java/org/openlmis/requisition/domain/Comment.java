@@ -9,25 +9,32 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.openlmis.fulfillment.utils.LocalDateTimePersistenceConverter;
+import org.openlmis.view.EntityReferenceSerializer;
 import org.openlmis.view.View;
 
+import javax.persistence.Column;
 import javax.persistence.Convert;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.PrePersist;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "comments", schema = "referencedata")
+@Table(name = "comments", schema = "referencedata", indexes = @Index(
+    name = "comments_requisition", columnList = "requisitionId, createdDate, id"))
 @NoArgsConstructor
 public class Comment extends BaseEntity {
 
-  @ManyToOne
+  @ManyToOne(fetch = FetchType.LAZY)
   @JoinColumn(name = "requisitionId", nullable = false)
   @JsonView(View.BasicInformation.class)
+  @JsonSerialize(using = EntityReferenceSerializer.class)
   @Getter
   @Setter
   private Requisition requisition;
@@ -49,6 +56,12 @@ public class Comment extends BaseEntity {
   @Setter
   private LocalDateTime createdDate;
 
+  @Version
+  @Column(nullable = false, columnDefinition = "bigint default 0")
+  @Getter
+  @Setter
+  private Long version;
+
   @PrePersist
   private void prePersist() {
     this.createdDate = LocalDateTime.now();
@@ -0,0 +1,189 @@
+package org.openlmis.requisition.domain;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Quantities of many requisition line items stored column by column in primitive arrays, for
+ * bulk computations which should not load line items as entities. Each {@link LineItemField} has
+ * an int column and a bitmap with bits set for rows where the field is empty. Values of empty
+ * fields are undefined.
+ */
+@SuppressWarnings("PMD.TooManyMethods")
+public class LineItemBatch {
+
+  private static final LineItemField[] FIELDS = LineItemField.values();
+
+  private int size;
+  private UUID[] requisitions;
+  private final int[][] values = new int[FIELDS.length][];
+  private final long[][] nulls = new long[FIELDS.length][];
+
+  /**
+   * Creates an empty batch with room for the given number of line items. The batch grows when
+   * more line items are added.
+   *
+   * @param capacity Expected number of line items.
+   */
+  public LineItemBatch(int capacity) {
+    int initialCapacity = Math.max(capacity, Long.SIZE);
+    requisitions = new UUID[initialCapacity];
+    for (int field = 0; field < FIELDS.length; field++) {
+      values[field] = new int[initialCapacity];
+      nulls[field] = new long[words(initialCapacity)];
+    }
+  }
+
+  /**
+   * Returns columns to select for {@link #add(ResultSet)}, in the order expected by it.
+   *
+   * @param alias Alias of the requisition line items table.
+   * @return Comma separated columns of the requisition line items table.
+   */
+  public static String selectColumns(String alias) {
+    StringBuilder columns = new StringBuilder(alias).append(".requisitionId");
+    for (LineItemField field : FIELDS) {
+      columns.append(", ").append(alias).append('.').append(field.getName());
+    }
+    return columns.toString();
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public UUID getRequisition(int row) {
+    return requisitions[row];
+  }
+
+  public boolean isNull(LineItemField field, int row) {
+    return (nulls[field.ordinal()][row >>> 6] & (1L << row)) != 0;
+  }
+
+  public int get(LineItemField field, int row) {
+    return values[field.ordinal()][row];
+  }
+
+  /**
+   * Sets value of the given field in the given row.
+   */
+  public void set(LineItemField field, int row, int value) {
+    values[field.ordinal()][row] = value;
+    nulls[field.ordinal()][row >>> 6] &= ~(1L << row);
+  }
+
+  /**
+   * Empties the given field in the given row.
+   */
+  public void setNull(LineItemField field, int row) {
+    nulls[field.ordinal()][row >>> 6] |= 1L << row;
+  }
+
+  /**
+   * Adds a row with all fields empty.
+   *
+   * @param requisition UUID of requisition of the line item.
+   * @return Index of the added row.
+   */
+  public int add(UUID requisition) {
+    if (size == requisitions.length) {
+      grow();
+    }
+    int row = size++;
+    requisitions[row] = requisition;
+    for (LineItemField field : FIELDS) {
+      setNull(field, row);
+    }
+    return row;
+  }
+
+  /**
+   * Adds a row with quantities of the given line item.
+   *
+   * @param lineItem Line item to add.
+   * @return Index of the added row.
+   */
+  public int add(RequisitionLineItem lineItem) {
+    Requisition requisition = lineItem.getRequisition();
+    int row = add(requisition == null ? null : requisition.getId());
+    for (LineItemField field : FIELDS) {
+      Integer value = field.get(lineItem);
+      if (value != null) {
+        set(field, row, value);
+      }
+    }
+    return row;
+  }
+
+  /**
+   * Adds a row from the current row of the given result set, which has to contain the columns
+   * returned by {@link #selectColumns(String)}, in the same order and as the first columns.
+   *
+   * @param resultSet Result set positioned at a line item row.
+   * @return Index of the added row.
+   * @throws SQLException if columns of the result set cannot be read.
+   */
+  public int add(ResultSet resultSet) throws SQLException {
+    int row = add((UUID) resultSet.getObject(1));
+    for (int field = 0; field < FIELDS.length; field++) {
+      int value = resultSet.getInt(field + 2);
+      if (!resultSet.wasNull()) {
+        set(FIELDS[field], row, value);
+      }
+    }
+    return row;
+  }
+
+  /**
+   * Returns sum of non-empty values of the given field.
+   */
+  public long sum(LineItemField field) {
+    int[] column = values[field.ordinal()];
+    long[] nullColumn = nulls[field.ordinal()];
+    long sum = 0;
+    for (int row = 0; row < size; row++) {
+      if ((nullColumn[row >>> 6] & (1L << row)) == 0) {
+        sum += column[row];
+      }
+    }
+    return sum;
+  }
+
+  /**
+   * Returns number of rows in which the given field is equal to the given value.
+   */
+  public int count(LineItemField field, int value) {
+    int[] column = values[field.ordinal()];
+    long[] nullColumn = nulls[field.ordinal()];
+    int count = 0;
+    for (int row = 0; row < size; row++) {
+      if (column[row] == value && (nullColumn[row >>> 6] & (1L << row)) == 0) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  int[] column(LineItemField field) {
+    return values[field.ordinal()];
+  }
+
+  long[] nullColumn(LineItemField field) {
+    return nulls[field.ordinal()];
+  }
+
+  static int words(int rows) {
+    return (rows + Long.SIZE - 1) / Long.SIZE;
+  }
+
+  private void grow() {
+    int capacity = requisitions.length * 2;
+    requisitions = Arrays.copyOf(requisitions, capacity);
+    for (int field = 0; field < FIELDS.length; field++) {
+      values[field] = Arrays.copyOf(values[field], capacity);
+      nulls[field] = Arrays.copyOf(nulls[field], words(capacity));
+    }
+  }
+}
@@ -0,0 +1,313 @@
+package org.openlmis.requisition.domain;
+
+import static org.openlmis.requisition.domain.LineItemField.BEGINNING_BALANCE;
+import static org.openlmis.requisition.domain.LineItemField.REQUESTED_QUANTITY;
+import static org.openlmis.requisition.domain.LineItemField.STOCK_ON_HAND;
+import static org.openlmis.requisition.domain.LineItemField.TOTAL_CONSUMED_QUANTITY;
+import static org.openlmis.requisition.domain.LineItemField.TOTAL_LOSSES_AND_ADJUSTMENTS;
+import static org.openlmis.requisition.domain.LineItemField.TOTAL_RECEIVED_QUANTITY;
+
+import org.openlmis.requisition.exception.RequisitionTemplateColumnException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Calculation of line item fields compiled from calculated columns of a requisition template.
+ * Formulas of calculated fields are resolved once into arrays of field ordinals ordered so that
+ * every field is calculated after the fields it depends on, and calculating line items only walks
+ * these arrays. A calculated field is left empty when any field it depends on is empty.
+ * Line items are calculated on primitive values read once per line item, and a field is only
+ * written back when its value changes, so recalculating allocates nothing per line item. Writing a
+ * changed value boxes it into the line item, as setting the field directly would.
+ */
+public class LineItemCalculation {
+
+  private static final LineItemField[] FIELDS = LineItemField.values();
+  private static final int FIELD_COUNT = FIELDS.length;
+  private static final int BEGINNING_BALANCE_INDEX = BEGINNING_BALANCE.ordinal();
+  private static final int TOTAL_RECEIVED_QUANTITY_INDEX = TOTAL_RECEIVED_QUANTITY.ordinal();
+  private static final int TOTAL_LOSSES_AND_ADJUSTMENTS_INDEX =
+      TOTAL_LOSSES_AND_ADJUSTMENTS.ordinal();
+  private static final int TOTAL_CONSUMED_QUANTITY_INDEX = TOTAL_CONSUMED_QUANTITY.ordinal();
+  private static final int STOCK_ON_HAND_INDEX = STOCK_ON_HAND.ordinal();
+  private static final int REQUESTED_QUANTITY_INDEX = REQUESTED_QUANTITY.ordinal();
+  private static final Map<LineItemField, Map<LineItemField, Integer>> FORMULAS =
+      new EnumMap<>(LineItemField.class);
+  private static final Set<LineItemField> CALCULATED_BY_DEFAULT = EnumSet.of(STOCK_ON_HAND);
+
+  static {
+    define(STOCK_ON_HAND, TOTAL_CONSUMED_QUANTITY,
+        BEGINNING_BALANCE, TOTAL_RECEIVED_QUANTITY, TOTAL_LOSSES_AND_ADJUSTMENTS);
+    define(TOTAL_CONSUMED_QUANTITY, STOCK_ON_HAND,
+        BEGINNING_BALANCE, TOTAL_RECEIVED_QUANTITY, TOTAL_LOSSES_AND_ADJUSTMENTS);
+  }
+
+  private static final LineItemCalculation DEFAULT_CALCULATION =
+      new LineItemCalculation(Collections.singletonList(STOCK_ON_HAND));
+
+  private final int[] targets;
+  private final int[] termOffsets;
+  private final int[] terms;
+  private final int[] signs;
+  // bits of the fields each step depends on, and signs of all fields in each step, zero for
+  // fields the step does not depend on, so that line items are calculated without branches
+  private final int[] operandMasks;
+  private final int[] coefficients;
+
+  private LineItemCalculation(List<LineItemField> order) {
+    List<Integer> termList = new ArrayList<>();
+    List<Integer> signList = new ArrayList<>();
+    targets = new int[order.size()];
+    termOffsets = new int[order.size() + 1];
+    operandMasks = new int[order.size()];
+    coefficients = new int[order.size() * FIELD_COUNT];
+
+    for (int step = 0; step < order.size(); step++) {
+      LineItemField target = order.get(step);
+      targets[step] = target.ordinal();
+      termOffsets[step] = termList.size();
+      for (Map.Entry<LineItemField, Integer> term : FORMULAS.get(target).entrySet()) {
+        termList.add(term.getKey().ordinal());
+        signList.add(term.getValue());
+        operandMasks[step] |= 1 << term.getKey().ordinal();
+        coefficients[step * FIELD_COUNT + term.getKey().ordinal()] = term.getValue();
+      }
+    }
+    termOffsets[order.size()] = termList.size();
+
+    terms = termList.stream().mapToInt(Integer::intValue).toArray();
+    signs = signList.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  /**
+   * Returns calculation used for requisitions without a template, which calculates stock on hand.
+   */
+  public static LineItemCalculation defaultCalculation() {
+    return DEFAULT_CALCULATION;
+  }
+
+  /**
+   * Compiles calculation of fields whose columns are calculated in the given template. Fields
+   * without a column in the template are calculated as in the default calculation.
+   *
+   * @param template Requisition template, null to use the default calculation.
+   * @return Compiled calculation.
+   * @throws RequisitionTemplateColumnException if calculated columns depend on each other.
+   */
+  public static LineItemCalculation compile(RequisitionTemplate template)
+      throws RequisitionTemplateColumnException {
+    if (template == null) {
+      return DEFAULT_CALCULATION;
+    }
+
+    Set<LineItemField> calculated = EnumSet.noneOf(LineItemField.class);
+    for (LineItemField field : FORMULAS.keySet()) {
+      RequisitionTemplateColumn column = template.getColumnsMap().get(field.getName());
+      if (column == null
+          ? CALCULATED_BY_DEFAULT.contains(field) : column.getSource() == SourceType.CALCULATED) {
+        calculated.add(field);
+      }
+    }
+
+    List<LineItemField> order = new ArrayList<>();
+    Set<LineItemField> visiting = EnumSet.noneOf(LineItemField.class);
+    for (LineItemField field : calculated) {
+      visit(field, calculated, visiting, order);
+    }
+    return new LineItemCalculation(order);
+  }
+
+  /**
+   * Builds expressions of the calculated fields, for calculating them outside of line items, like
+   * in an update statement. Operands calculated by an earlier step are given the expression of
+   * that step, so every expression only refers to fields which are not calculated.
+   *
+   * @param builder Builder of expressions.
+   * @param <E> Type of the expressions.
+   * @return Expressions of calculated fields, in the order they are calculated.
+   */
+  public <E> Map<LineItemField, E> buildExpressions(ExpressionBuilder<E> builder) {
+    Map<LineItemField, E> expressions = new LinkedHashMap<>();
+    for (int step = 0; step < targets.length; step++) {
+      E added = null;
+      List<E> subtracted = new ArrayList<>();
+      for (int term = termOffsets[step]; term < termOffsets[step + 1]; term++) {
+        LineItemField operand = FIELDS[terms[term]];
+        E value = expressions.containsKey(operand)
+            ? expressions.get(operand) : builder.field(operand);
+        if (signs[term] < 0) {
+          subtracted.add(value);
+        } else {
+          added = added == null ? value : builder.add(added, value);
+        }
+      }
+      for (E value : subtracted) {
+        added = builder.subtract(added, value);
+      }
+      expressions.put(FIELDS[targets[step]], added);
+    }
+    return expressions;
+  }
+
+  /**
+   * Calculates fields of the given line items, replacing their current values.
+   *
+   * @param lineItems Line items to calculate, may be null.
+   */
+  public void calculate(List<RequisitionLineItem> lineItems) {
+    if (lineItems == null || targets.length == 0) {
+      return;
+    }
+    int[] values = new int[FIELDS.length];
+    for (RequisitionLineItem lineItem : lineItems) {
+      calculate(lineItem, values);
+    }
+  }
+
+  /**
+   * Calculates fields of all line items in the given batch, one column at a time. A calculated
+   * row is empty when the row is empty in any column it depends on.
+   *
+   * @param batch Line items to calculate.
+   */
+  public void calculate(LineItemBatch batch) {
+    int size = batch.size();
+    int words = LineItemBatch.words(size);
+    for (int step = 0; step < targets.length; step++) {
+      int[] target = batch.column(FIELDS[targets[step]]);
+      long[] targetNulls = batch.nullColumn(FIELDS[targets[step]]);
+      Arrays.fill(target, 0, size, 0);
+      Arrays.fill(targetNulls, 0, words, 0L);
+
+      for (int term = termOffsets[step]; term < termOffsets[step + 1]; term++) {
+        int[] operand = batch.column(FIELDS[terms[term]]);
+        long[] operandNulls = batch.nullColumn(FIELDS[terms[term]]);
+        int sign = signs[term];
+        for (int row = 0; row < size; row++) {
+          target[row] += sign * operand[row];
+        }
+        for (int word = 0; word < words; word++) {
+          targetNulls[word] |= operandNulls[word];
+        }
+      }
+    }
+  }
+
+  private void calculate(RequisitionLineItem lineItem, int[] values) {
+    int present = read(lineItem, values);
+    for (int step = 0; step < targets.length; step++) {
+      int target = targets[step];
+      int bit = 1 << target;
+      boolean wasPresent = (present & bit) != 0;
+      if ((present & operandMasks[step]) != operandMasks[step]) {
+        present &= ~bit;
+        if (wasPresent) {
+          set(lineItem, target, null);
+        }
+        continue;
+      }
+
+      int result = 0;
+      int offset = step * FIELD_COUNT;
+      for (int field = 0; field < FIELD_COUNT; field++) {
+        result += coefficients[offset + field] * values[field];
+      }
+      present |= bit;
+      if (!wasPresent || values[target] != result) {
+        values[target] = result;
+        set(lineItem, target, result);
+      }
+    }
+  }
+
+  // reads all fields with direct getters, marking fields which are set in the returned bits
+  private static int read(RequisitionLineItem lineItem, int[] values) {
+    int present = 0;
+    Integer value = lineItem.getBeginningBalance();
+    if (value != null) {
+      values[BEGINNING_BALANCE_INDEX] = value;
+      present |= 1 << BEGINNING_BALANCE_INDEX;
+    }
+    value = lineItem.getTotalReceivedQuantity();
+    if (value != null) {
+      values[TOTAL_RECEIVED_QUANTITY_INDEX] = value;
+      present |= 1 << TOTAL_RECEIVED_QUANTITY_INDEX;
+    }
+    value = lineItem.getTotalLossesAndAdjustments();
+    if (value != null) {
+      values[TOTAL_LOSSES_AND_ADJUSTMENTS_INDEX] = value;
+      present |= 1 << TOTAL_LOSSES_AND_ADJUSTMENTS_INDEX;
+    }
+    value = lineItem.getTotalConsumedQuantity();
+    if (value != null) {
+      values[TOTAL_CONSUMED_QUANTITY_INDEX] = value;
+      present |= 1 << TOTAL_CONSUMED_QUANTITY_INDEX;
+    }
+    value = lineItem.getStockOnHand();
+    if (value != null) {
+      values[STOCK_ON_HAND_INDEX] = value;
+      present |= 1 << STOCK_ON_HAND_INDEX;
+    }
+    value = lineItem.getRequestedQuantity();
+    if (value != null) {
+      values[REQUESTED_QUANTITY_INDEX] = value;
+      present |= 1 << REQUESTED_QUANTITY_INDEX;
+    }
+    return present;
+  }
+
+  private static void set(RequisitionLineItem lineItem, int field, Integer value) {
+    FIELDS[field].set(lineItem, value);
+  }
+
+  private static void visit(LineItemField field, Set<LineItemField> calculated,
+                            Set<LineItemField> visiting, List<LineItemField> order)
+      throws RequisitionTemplateColumnException {
+    if (order.contains(field)) {
+      return;
+    }
+    if (!visiting.add(field)) {
+      throw new RequisitionTemplateColumnException(
+          "Calculated column " + field.getName() + " depends on itself.");
+    }
+    for (LineItemField operand : FORMULAS.get(field).keySet()) {
+      if (calculated.contains(operand)) {
+        visit(operand, calculated, visiting, order);
+      }
+    }
+    visiting.remove(field);
+    order.add(field);
+  }
+
+  /**
+   * Builds expressions of line item fields and their sums and differences.
+   *
+   * @param <E> Type of the expressions.
+   */
+  public interface ExpressionBuilder<E> {
+
+    E field(LineItemField field);
+
+    E add(E augend, E addend);
+
+    E subtract(E minuend, E subtrahend);
+  }
+
+  private static void define(LineItemField field, LineItemField subtracted,
+                             LineItemField... added) {
+    Map<LineItemField, Integer> formula = new EnumMap<>(LineItemField.class);
+    for (LineItemField operand : added) {
+      formula.put(operand, 1);
+    }
+    formula.put(subtracted, -1);
+    FORMULAS.put(field, formula);
+  }
+}
@@ -0,0 +1,72 @@
+package org.openlmis.requisition.domain;
+
+/**
+ * Numeric fields of a requisition line item which can be used in calculations. Names match keys
+ * of requisition template columns.
+ */
+public enum LineItemField {
+  BEGINNING_BALANCE(RequisitionLineItem.BEGINNING_BALANCE),
+  TOTAL_RECEIVED_QUANTITY(RequisitionLineItem.TOTAL_RECEIVED_QUANTITY),
+  TOTAL_LOSSES_AND_ADJUSTMENTS(RequisitionLineItem.TOTAL_LOSSES_AND_ADJUSTMENTS),
+  TOTAL_CONSUMED_QUANTITY(RequisitionLineItem.TOTAL_CONSUMED_QUANTITY),
+  STOCK_ON_HAND(RequisitionLineItem.STOCK_ON_HAND),
+  REQUESTED_QUANTITY(RequisitionLineItem.REQUESTED_QUANTITY);
+
+  private final String name;
+
+  LineItemField(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Returns name of this field, which is also the key of its requisition template column.
+   */
+  public String getName() {
+    return name;
+  }
+
+  // accessors switch over fields instead of holding method references, so that calculation
+  // loops call one monomorphic method which the JIT can inline
+  /**
+   * Returns value of this field in the given line item.
+   */
+  public Integer get(RequisitionLineItem lineItem) {
+    switch (this) {
+      case BEGINNING_BALANCE:
+        return lineItem.getBeginningBalance();
+      case TOTAL_RECEIVED_QUANTITY:
+        return lineItem.getTotalReceivedQuantity();
+      case TOTAL_LOSSES_AND_ADJUSTMENTS:
+        return lineItem.getTotalLossesAndAdjustments();
+      case TOTAL_CONSUMED_QUANTITY:
+        return lineItem.getTotalConsumedQuantity();
+      case STOCK_ON_HAND:
+        return lineItem.getStockOnHand();
+      default:
+        return lineItem.getRequestedQuantity();
+    }
+  }
+
+  void set(RequisitionLineItem lineItem, Integer value) {
+    switch (this) {
+      case BEGINNING_BALANCE:
+        lineItem.setBeginningBalance(value);
+        break;
+      case TOTAL_RECEIVED_QUANTITY:
+        lineItem.setTotalReceivedQuantity(value);
+        break;
+      case TOTAL_LOSSES_AND_ADJUSTMENTS:
+        lineItem.setTotalLossesAndAdjustments(value);
+        break;
+      case TOTAL_CONSUMED_QUANTITY:
+        lineItem.setTotalConsumedQuantity(value);
+        break;
+      case STOCK_ON_HAND:
+        lineItem.setStockOnHand(value);
+        break;
+      default:
+        lineItem.setRequestedQuantity(value);
+        break;
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package org.openlmis.requisition.domain;
 
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
@@ -13,25 +14,39 @@ import org.openlmis.fulfillment.utils.LocalDateTimePersistenceConverter;
 import org.openlmis.requisition.exception.RequisitionException;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
 
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
+import javax.persistence.ColumnResult;
 import javax.persistence.Convert;
 import javax.persistence.Entity;
+import javax.persistence.EntityResult;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
 import javax.persistence.FetchType;
+import javax.persistence.Index;
 import javax.persistence.OneToMany;
 import javax.persistence.PrePersist;
+import javax.persistence.SqlResultSetMapping;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
 @Entity
-@Table(name = "requisitions")
+@Table(name = "requisitions", indexes = @Index(
+    name = "requisitions_created_date", columnList = "createdDate"))
+@SqlResultSetMapping(name = Requisition.WITH_TOTAL_MAPPING,
+    entities = @EntityResult(entityClass = Requisition.class),
+    columns = @ColumnResult(name = "total", type = Long.class))
 @NoArgsConstructor
 public class Requisition extends BaseEntity {
 
+  public static final String WITH_TOTAL_MAPPING = "requisitionWithTotal";
+
   @JsonSerialize(using = LocalDateTimeSerializer.class)
   @JsonDeserialize(using = LocalDateTimeDeserializer.class)
   @Convert(converter = LocalDateTimePersistenceConverter.class)
@@ -46,7 +61,6 @@ public class Requisition extends BaseEntity {
       fetch = FetchType.EAGER,
       orphanRemoval = true)
   @Getter
-  @Setter
   @JsonIdentityInfo(
       generator = ObjectIdGenerators.IntSequenceGenerator.class,
       property = "requisitionLineItemsId")
@@ -86,11 +100,39 @@ public class Requisition extends BaseEntity {
   @Setter
   private UUID supervisoryNode;
 
+  @Version
+  @Column(nullable = false, columnDefinition = "bigint default 0")
+  @Getter
+  @Setter
+  private Long version;
+
+  // set by database triggers whenever line items or comments of the requisition change
+  @Column(nullable = false, insertable = false, updatable = false,
+      columnDefinition = "bigint default 0")
+  @JsonIgnore
+  @Getter
+  private long aggregateVersion;
+
   @PrePersist
   private void prePersist() {
     this.createdDate = LocalDateTime.now();
   }
 
+  /**
+   * Sets line items of the requisition and links each of them to it. Responses leave the link
+   * out, so line items of a requisition sent back by a client are linked here.
+   *
+   * @param requisitionLineItems Line items of the requisition.
+   */
+  public void setRequisitionLineItems(List<RequisitionLineItem> requisitionLineItems) {
+    this.requisitionLineItems = requisitionLineItems;
+    if (requisitionLineItems != null) {
+      requisitionLineItems.stream()
+          .filter(Objects::nonNull)
+          .forEach(lineItem -> lineItem.setRequisition(this));
+    }
+  }
+
   /**
    * Copy values of attributes into new or updated Requisition.
    *
@@ -107,35 +149,43 @@ public class Requisition extends BaseEntity {
 
   /**
    * Submits given requisition.
+   *
+   * @param calculation Calculation of line item fields defined by the requisition template.
    */
-  public void submit() throws RequisitionException {
+  public void submit(LineItemCalculation calculation) throws RequisitionException {
     if (!RequisitionStatus.INITIATED.equals(status)) {
       throw new RequisitionException("Cannot submit requisition: " + getId()
           + ", requisition must have status 'INITIATED' to be submitted.");
     }
 
     status = RequisitionStatus.SUBMITTED;
-    calculateStockOnHand();
+    calculation.calculate(requisitionLineItems);
   }
 
   /**
    * Authorize given Requisition.
+   *
+   * @param calculation Calculation of line item fields defined by the requisition template.
    */
-  public void authorize() throws RequisitionException {
+  public void authorize(LineItemCalculation calculation) throws RequisitionException {
     if (!RequisitionStatus.SUBMITTED.equals(status)) {
       throw new RequisitionException("Cannot authorize requisition: " + getId()
           + ", requisition must have status 'SUBMITTED' to be authorized.");
     }
 
     status = RequisitionStatus.AUTHORIZED;
-    calculateStockOnHand();
+    calculation.calculate(requisitionLineItems);
   }
 
-  private void calculateStockOnHand() {
-    if (requisitionLineItems != null) {
-      for (RequisitionLineItem requisitionLineItem : requisitionLineItems) {
-        requisitionLineItem.calculateStockOnHand();
-      }
-    }
+  /**
+   * Checks whether any of the line items which were already persisted has no version, so its
+   * changes could not be checked against the persisted state.
+   *
+   * @return true if a line item with id has no version.
+   */
+  public boolean hasLineItemsWithoutVersion() {
+    return requisitionLineItems != null && requisitionLineItems.stream()
+        .anyMatch(lineItem -> lineItem.getId() != null && lineItem.getVersion() == null);
   }
+
 }
@@ -0,0 +1,81 @@
+package org.openlmis.requisition.domain;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.Type;
+import org.openlmis.fulfillment.utils.LocalDateTimePersistenceConverter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.PrePersist;
+import javax.persistence.Table;
+
+/**
+ * Released requisition whose order was received, stored in a single row as compressed JSON
+ * together with its line items and comments. Archived requisitions are removed from the
+ * requisition tables, so they are left out of searches and can only be read by their id.
+ */
+@Entity
+@Table(name = "requisition_archives")
+@NoArgsConstructor
+public class RequisitionArchive {
+
+  @Id
+  @Type(type = "pg-uuid")
+  @Getter
+  @Setter
+  private UUID requisitionId;
+
+  @Getter
+  @Setter
+  private UUID facility;
+
+  @Getter
+  @Setter
+  private UUID program;
+
+  @Getter
+  @Setter
+  private UUID processingPeriod;
+
+  @Column(nullable = false)
+  @Getter
+  @Setter
+  private String versionStamp;
+
+  @Convert(converter = LocalDateTimePersistenceConverter.class)
+  @Getter
+  private LocalDateTime archivedDate;
+
+  @Column(nullable = false, columnDefinition = "bytea")
+  @Getter
+  @Setter
+  private byte[] data;
+
+  /**
+   * Creates an archive of the given requisition.
+   *
+   * @param requisition Archived requisition.
+   * @param versionStamp Version stamp of the requisition at the time it was archived.
+   * @param data Compressed representation of the requisition.
+   */
+  public RequisitionArchive(Requisition requisition, String versionStamp, byte[] data) {
+    this.requisitionId = requisition.getId();
+    this.facility = requisition.getFacility();
+    this.program = requisition.getProgram();
+    this.processingPeriod = requisition.getProcessingPeriod();
+    this.versionStamp = versionStamp;
+    this.data = data;
+  }
+
+  @PrePersist
+  private void prePersist() {
+    this.archivedDate = LocalDateTime.now();
+  }
+}
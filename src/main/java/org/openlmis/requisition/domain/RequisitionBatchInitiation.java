@@ -0,0 +1,115 @@
+package org.openlmis.requisition.domain;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateTimeSerializer;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.openlmis.fulfillment.utils.LocalDateTimePersistenceConverter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.Version;
+
+/**
+ * Initiation of requisitions of all facilities supporting a program for a processing period.
+ * Facilities are initiated in chunks, each chunk commits its requisitions together with the
+ * progress, so an initiation interrupted by a crash can be resumed from the recorded progress.
+ */
+@Entity
+@Table(name = "requisition_batch_initiations", indexes = @Index(
+    name = "requisition_batch_initiations_status", columnList = "status, heartbeatDate"))
+@NoArgsConstructor
+public class RequisitionBatchInitiation extends BaseEntity {
+
+  @Column(nullable = false)
+  @Getter
+  @Setter
+  private UUID program;
+
+  @Column(nullable = false)
+  @Getter
+  @Setter
+  private UUID processingPeriod;
+
+  @Column(nullable = false)
+  @Enumerated(EnumType.STRING)
+  @Getter
+  @Setter
+  private RequisitionJobStatus status;
+
+  @Getter
+  @Setter
+  private Integer facilityCount;
+
+  @Column(nullable = false)
+  @Getter
+  @Setter
+  private Integer initiatedCount;
+
+  @Column(nullable = false)
+  @Getter
+  @Setter
+  private Integer skippedCount;
+
+  @Column(nullable = false)
+  @Getter
+  @Setter
+  private Integer failedCount;
+
+  @JsonSerialize(using = LocalDateTimeSerializer.class)
+  @Convert(converter = LocalDateTimePersistenceConverter.class)
+  @Getter
+  @Setter
+  private LocalDateTime createdDate;
+
+  @JsonSerialize(using = LocalDateTimeSerializer.class)
+  @Convert(converter = LocalDateTimePersistenceConverter.class)
+  @Getter
+  @Setter
+  private LocalDateTime heartbeatDate;
+
+  @JsonSerialize(using = LocalDateTimeSerializer.class)
+  @Convert(converter = LocalDateTimePersistenceConverter.class)
+  @Getter
+  @Setter
+  private LocalDateTime finishedDate;
+
+  @Version
+  @Column(nullable = false, columnDefinition = "bigint default 0")
+  @Getter
+  @Setter
+  private Long version;
+
+  /**
+   * Creates a queued initiation of requisitions.
+   *
+   * @param program UUID of the program of initiated requisitions.
+   * @param processingPeriod UUID of the processing period of initiated requisitions.
+   */
+  public RequisitionBatchInitiation(UUID program, UUID processingPeriod) {
+    this.program = program;
+    this.processingPeriod = processingPeriod;
+    this.status = RequisitionJobStatus.QUEUED;
+    this.initiatedCount = 0;
+    this.skippedCount = 0;
+    this.failedCount = 0;
+    this.createdDate = LocalDateTime.now();
+    this.heartbeatDate = createdDate;
+  }
+
+  /**
+   * Returns number of facilities already processed.
+   */
+  public int getProcessedCount() {
+    return initiatedCount + skippedCount + failedCount;
+  }
+}
@@ -0,0 +1,126 @@
+package org.openlmis.requisition.domain;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateTimeDeserializer;
+import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateTimeSerializer;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.openlmis.fulfillment.utils.LocalDateTimePersistenceConverter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.PrePersist;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+
+/**
+ * Entry of the requisition change feed. Entries keep the id of the transaction which wrote them
+ * and are numbered by a database sequence within it. Transactions commit in any order, so the
+ * feed is read by transaction id and change sequence, and only up to the oldest transaction which
+ * is still running. An entry therefore becomes visible once every transaction which started
+ * writing before it has ended, and a token never passes an entry which is still being committed.
+ */
+@Entity
+@Table(name = "requisition_changes", indexes = @Index(
+    name = "requisition_changes_position", columnList = "transactionId, changeSequence"))
+@NoArgsConstructor
+public class RequisitionChange {
+
+  public static final String START_TOKEN = "0";
+  private static final String TOKEN_SEPARATOR = "-";
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "requisition_change_seq")
+  @SequenceGenerator(name = "requisition_change_seq", sequenceName = "requisition_change_seq",
+      allocationSize = 1)
+  @Getter
+  private Long changeSequence;
+
+  // filled in by the database with the id of the inserting transaction
+  @Column(insertable = false, updatable = false,
+      columnDefinition = "bigint NOT NULL DEFAULT txid_current()")
+  @Getter
+  private Long transactionId;
+
+  @Column(nullable = false)
+  @Getter
+  @Setter
+  private UUID requisitionId;
+
+  @Column(nullable = false)
+  @Enumerated(EnumType.STRING)
+  @Getter
+  @Setter
+  private RequisitionChangeType changeType;
+
+  @Enumerated(EnumType.STRING)
+  @Getter
+  @Setter
+  private RequisitionStatus status;
+
+  @JsonSerialize(using = LocalDateTimeSerializer.class)
+  @JsonDeserialize(using = LocalDateTimeDeserializer.class)
+  @Convert(converter = LocalDateTimePersistenceConverter.class)
+  @Getter
+  private LocalDateTime changeDate;
+
+  /**
+   * Creates a change feed entry of the given requisition.
+   *
+   * @param requisitionId UUID of the changed requisition.
+   * @param changeType Kind of the change.
+   * @param status Status of the requisition after the change, if known.
+   */
+  public RequisitionChange(UUID requisitionId, RequisitionChangeType changeType,
+                           RequisitionStatus status) {
+    this.requisitionId = requisitionId;
+    this.changeType = changeType;
+    this.status = status;
+  }
+
+  /**
+   * Returns token of the change feed position right after this change.
+   */
+  public String toToken() {
+    return transactionId + TOKEN_SEPARATOR + changeSequence;
+  }
+
+  /**
+   * Parses the given token of a change feed position.
+   *
+   * @param token Token returned by {@link #toToken()}, or "0" for the beginning of the feed.
+   * @return Transaction id and change sequence of the position, null if the token is invalid.
+   */
+  public static long[] parseToken(String token) {
+    if (START_TOKEN.equals(token)) {
+      return new long[] {0, 0};
+    }
+    String[] parts = token.split(TOKEN_SEPARATOR, -1);
+    if (parts.length != 2) {
+      return null;
+    }
+    try {
+      long[] position = {Long.parseLong(parts[0]), Long.parseLong(parts[1])};
+      return position[0] < 0 || position[1] < 0 ? null : position;
+    } catch (NumberFormatException ex) {
+      return null;
+    }
+  }
+
+  @PrePersist
+  private void prePersist() {
+    this.changeDate = LocalDateTime.now();
+  }
+}
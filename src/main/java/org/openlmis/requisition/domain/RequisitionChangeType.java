@@ -0,0 +1,21 @@
+package org.openlmis.requisition.domain;
+
+/**
+ * Kinds of changes recorded in the requisition change feed. Constants are declared from the
+ * weakest to the strongest, so several changes of one requisition made in a single transaction
+ * are recorded as the strongest of them.
+ */
+public enum RequisitionChangeType {
+  UPDATED,
+  STATUS_CHANGED,
+  CREATED,
+  DELETED,
+  ARCHIVED;
+
+  /**
+   * Returns the stronger of this and the given change type.
+   */
+  public RequisitionChangeType merge(RequisitionChangeType other) {
+    return other == null || compareTo(other) >= 0 ? this : other;
+  }
+}
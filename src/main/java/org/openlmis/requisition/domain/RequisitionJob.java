@@ -0,0 +1,109 @@
+package org.openlmis.requisition.domain;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateTimeSerializer;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Operation on a requisition accepted for asynchronous processing. The result holds the status
+ * code and body the operation would have responded with if it had been processed synchronously.
+ * Only the user who submitted the job can read it.
+ */
+public class RequisitionJob {
+
+  @Getter
+  private final UUID id;
+
+  @Getter
+  private final UUID requisitionId;
+
+  @Getter
+  private final String operation;
+
+  @JsonIgnore
+  @Getter
+  private final String submittedBy;
+
+  @JsonSerialize(using = LocalDateTimeSerializer.class)
+  @Getter
+  private final LocalDateTime createdDate;
+
+  @Getter
+  private volatile RequisitionJobStatus status;
+
+  @JsonSerialize(using = LocalDateTimeSerializer.class)
+  @Getter
+  private volatile LocalDateTime startedDate;
+
+  @JsonSerialize(using = LocalDateTimeSerializer.class)
+  @Getter
+  private volatile LocalDateTime finishedDate;
+
+  @Getter
+  private volatile Integer resultStatus;
+
+  @Getter
+  private volatile Object result;
+
+  @JsonIgnore
+  @Getter
+  private final long createdNanos;
+
+  @JsonIgnore
+  @Getter
+  private volatile long startedNanos;
+
+  @JsonIgnore
+  @Getter
+  private volatile long finishedNanos;
+
+  /**
+   * Creates a queued job.
+   *
+   * @param requisitionId UUID of the processed requisition.
+   * @param operation Name of the operation, for example "submit".
+   * @param submittedBy Name of the user who submitted the operation.
+   */
+  public RequisitionJob(UUID requisitionId, String operation, String submittedBy) {
+    this.id = UUID.randomUUID();
+    this.requisitionId = requisitionId;
+    this.operation = operation;
+    this.submittedBy = submittedBy;
+    this.createdDate = LocalDateTime.now();
+    this.createdNanos = System.nanoTime();
+    this.status = RequisitionJobStatus.QUEUED;
+  }
+
+  /**
+   * Marks the job as being processed.
+   */
+  public void start() {
+    startedNanos = System.nanoTime();
+    startedDate = LocalDateTime.now();
+    status = RequisitionJobStatus.PROCESSING;
+  }
+
+  /**
+   * Records result of the operation. The job is completed if the status code means success,
+   * failed otherwise.
+   *
+   * @param resultStatus HTTP status code of the result.
+   * @param result Body of the result.
+   */
+  public void finish(int resultStatus, Object result) {
+    this.resultStatus = resultStatus;
+    this.result = result;
+    finishedNanos = System.nanoTime();
+    finishedDate = LocalDateTime.now();
+    status = resultStatus < 300 ? RequisitionJobStatus.COMPLETED : RequisitionJobStatus.FAILED;
+  }
+
+  @JsonIgnore
+  public boolean isFinished() {
+    return status == RequisitionJobStatus.COMPLETED || status == RequisitionJobStatus.FAILED;
+  }
+}
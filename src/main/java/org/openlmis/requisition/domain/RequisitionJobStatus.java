@@ -0,0 +1,8 @@
+package org.openlmis.requisition.domain;
+
+public enum RequisitionJobStatus {
+  QUEUED,
+  PROCESSING,
+  COMPLETED,
+  FAILED
+}
@@ -4,20 +4,36 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.UUID;
 
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
 @Entity
-@Table(name = "requisition_line_items")
+@Table(name = "requisition_line_items", indexes = @Index(
+    name = "requisition_line_items_orderable_product", columnList = "orderableProduct"))
 @NoArgsConstructor
 public class RequisitionLineItem extends BaseEntity {
 
+  public static final String BEGINNING_BALANCE = "beginningBalance";
+  public static final String TOTAL_RECEIVED_QUANTITY = "totalReceivedQuantity";
+  public static final String TOTAL_LOSSES_AND_ADJUSTMENTS = "totalLossesAndAdjustments";
+  public static final String TOTAL_CONSUMED_QUANTITY = "totalConsumedQuantity";
+  public static final String STOCK_ON_HAND = "stockOnHand";
+  public static final String REQUESTED_QUANTITY = "requestedQuantity";
+  public static final String REQUESTED_QUANTITY_EXPLANATION = "requestedQuantityExplanation";
+  private static final String REMARKS = "remarks";
+  private static final String STOCK_IN_HAND = "stockInHand";
+  private static final String APPROVED_QUANTITY = "approvedQuantity";
+
   @Getter
   @Setter
   private UUID orderableProduct;
@@ -78,6 +94,12 @@ public class RequisitionLineItem extends BaseEntity {
   @Setter
   private Integer approvedQuantity;
 
+  @Version
+  @Column(nullable = false, columnDefinition = "bigint default 0")
+  @Getter
+  @Setter
+  private Long version;
+
   /**
    * Copy values of attributes into new or updated RequisitionLineItem.
    *
@@ -93,10 +115,59 @@ public class RequisitionLineItem extends BaseEntity {
   }
 
   /**
-   * Calculate StockOnHand field value.
+   * Collects values set in this line item which can be changed while the requisition has
+   * the given status. Values which are not set are considered unchanged, so a change cannot
+   * clear a value which is already stored.
+   *
+   * @param status Current status of the requisition containing the line item.
+   * @return Map of property names to their new values, empty if nothing can be changed.
+   */
+  public Map<String, Object> getChangedValues(RequisitionStatus status) {
+    Map<String, Object> values = new LinkedHashMap<>();
+    if (status == RequisitionStatus.INITIATED || status == RequisitionStatus.SUBMITTED) {
+      putIfSet(values, STOCK_IN_HAND, stockInHand);
+      putIfSet(values, BEGINNING_BALANCE, beginningBalance);
+      putIfSet(values, TOTAL_RECEIVED_QUANTITY, totalReceivedQuantity);
+      putIfSet(values, TOTAL_LOSSES_AND_ADJUSTMENTS, totalLossesAndAdjustments);
+      putIfSet(values, TOTAL_CONSUMED_QUANTITY, totalConsumedQuantity);
+      putIfSet(values, REQUESTED_QUANTITY, requestedQuantity);
+      putIfSet(values, REQUESTED_QUANTITY_EXPLANATION, requestedQuantityExplanation);
+      putIfSet(values, REMARKS, remarks);
+    } else if (status == RequisitionStatus.AUTHORIZED) {
+      putIfSet(values, APPROVED_QUANTITY, approvedQuantity);
+      putIfSet(values, REMARKS, remarks);
+    }
+    return values;
+  }
+
+  /**
+   * Creates a copy of this line item with the given changed values applied, so that changes
+   * can be validated before they are saved.
+   *
+   * @param values Map of property names to their new values, as returned by
+   *               {@link #getChangedValues(RequisitionStatus)}.
+   * @return Copy of this line item containing the changed values.
    */
-  void calculateStockOnHand() {
-    stockOnHand = beginningBalance + totalReceivedQuantity
-        + totalLossesAndAdjustments - totalConsumedQuantity;
+  public RequisitionLineItem withChangedValues(Map<String, Object> values) {
+    RequisitionLineItem merged = new RequisitionLineItem();
+    merged.setId(getId());
+    merged.orderableProduct = orderableProduct;
+    merged.requisition = requisition;
+    merged.stockInHand = (Integer) values.getOrDefault(STOCK_IN_HAND, stockInHand);
+    merged.requestedQuantityExplanation = (String) values.getOrDefault(
+        REQUESTED_QUANTITY_EXPLANATION, requestedQuantityExplanation);
+    merged.remarks = (String) values.getOrDefault(REMARKS, remarks);
+    merged.approvedQuantity = (Integer) values.getOrDefault(APPROVED_QUANTITY, approvedQuantity);
+    merged.version = version;
+    for (LineItemField field : LineItemField.values()) {
+      field.set(merged, (Integer) values.getOrDefault(field.getName(), field.get(this)));
+    }
+    return merged;
+  }
+
+  private static void putIfSet(Map<String, Object> values, String property, Object value) {
+    if (value != null) {
+      values.put(property, value);
+    }
   }
 }
@@ -0,0 +1,75 @@
+package org.openlmis.requisition.domain;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.Type;
+import org.openlmis.fulfillment.utils.LocalDateTimePersistenceConverter;
+import org.openlmis.utils.LocalDatePersistenceConverter;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+/**
+ * Local copy of reference data of an approved requisition which is used to filter and sort
+ * approved requisitions in the database. Entries are created when requisitions are approved,
+ * removed when they are released and their reference data is refreshed periodically.
+ */
+@Entity
+@Table(name = "requisition_search_entries", indexes = {
+    @Index(name = "requisition_search_entries_facility_code", columnList = "facilityCode"),
+    @Index(name = "requisition_search_entries_facility_name", columnList = "facilityName"),
+    @Index(name = "requisition_search_entries_program_name", columnList = "programName"),
+    @Index(name = "requisition_search_entries_facility", columnList = "facility"),
+    @Index(name = "requisition_search_entries_program", columnList = "program"),
+    @Index(name = "requisition_search_entries_period", columnList = "processingPeriod")})
+@NoArgsConstructor
+public class RequisitionSearchEntry {
+
+  @Id
+  @Type(type = "pg-uuid")
+  @Getter
+  @Setter
+  private UUID requisitionId;
+
+  @Getter
+  @Setter
+  private UUID facility;
+
+  @Getter
+  @Setter
+  private String facilityCode;
+
+  @Getter
+  @Setter
+  private String facilityName;
+
+  @Getter
+  @Setter
+  private UUID program;
+
+  @Getter
+  @Setter
+  private String programName;
+
+  @Getter
+  @Setter
+  private UUID processingPeriod;
+
+  @Convert(converter = LocalDatePersistenceConverter.class)
+  @Getter
+  @Setter
+  private LocalDate periodEndDate;
+
+  @Convert(converter = LocalDateTimePersistenceConverter.class)
+  @Getter
+  @Setter
+  private LocalDateTime scheduleModifiedDate;
+}
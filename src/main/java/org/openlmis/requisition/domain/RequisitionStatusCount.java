@@ -0,0 +1,68 @@
+package org.openlmis.requisition.domain;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.UUID;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Table;
+
+/**
+ * Number of requisitions of one program, facility and processing period having given status.
+ * Counts are maintained by {@link org.openlmis.requisition.repository.RequisitionChangeListener}
+ * with every status transition. There is one count for each group, kept unique by the
+ * requisition_status_counts_group index created in import.sql, which the count is upserted on.
+ */
+@Entity
+@Table(name = "requisition_status_counts")
+@EqualsAndHashCode(callSuper = false, of = {"program", "facility", "processingPeriod", "status"})
+@NoArgsConstructor
+public class RequisitionStatusCount extends BaseEntity {
+
+  @Getter
+  @Setter
+  private UUID program;
+
+  @Getter
+  @Setter
+  private UUID facility;
+
+  @Getter
+  @Setter
+  private UUID processingPeriod;
+
+  @Column(nullable = false)
+  @Enumerated(EnumType.STRING)
+  @Getter
+  @Setter
+  private RequisitionStatus status;
+
+  @Column(name = "requisitionCount", nullable = false)
+  @Getter
+  @Setter
+  private Long count;
+
+  /**
+   * Creates a count of requisitions in the given group.
+   *
+   * @param program UUID of the program of counted requisitions.
+   * @param facility UUID of the facility of counted requisitions.
+   * @param processingPeriod UUID of the processing period of counted requisitions.
+   * @param status Status of counted requisitions.
+   * @param count Number of requisitions.
+   */
+  public RequisitionStatusCount(UUID program, UUID facility, UUID processingPeriod,
+                                RequisitionStatus status, Long count) {
+    this.program = program;
+    this.facility = facility;
+    this.processingPeriod = processingPeriod;
+    this.status = status;
+    this.count = count;
+  }
+}
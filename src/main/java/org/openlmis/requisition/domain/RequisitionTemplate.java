@@ -3,20 +3,26 @@ package org.openlmis.requisition.domain;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.openlmis.requisition.exception.RequisitionTemplateColumnException;
 
 import javax.persistence.Column;
 import javax.persistence.ElementCollection;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
+import javax.persistence.Index;
 import javax.persistence.MapKeyColumn;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 
 @Entity
-@Table(name = "requisition_templates")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(name = "requisition_templates", indexes = @Index(
+    name = "requisition_templates_program", columnList = "program"))
 @NoArgsConstructor
 public class RequisitionTemplate extends BaseEntity {
 
@@ -27,10 +33,17 @@ public class RequisitionTemplate extends BaseEntity {
   @ElementCollection(fetch = FetchType.EAGER)
   @MapKeyColumn(name = "key")
   @Column(name = "value")
+  @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
   @Getter
   @Setter
   private Map<String,RequisitionTemplateColumn> columnsMap = new HashMap<>();
 
+  @Version
+  @Column(nullable = false, columnDefinition = "bigint default 0")
+  @Getter
+  @Setter
+  private Long version;
+
   /**
    * Allows creating requisition template with predefined columns.
    *
@@ -0,0 +1,18 @@
+package org.openlmis.requisition.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * Approved requisition with only the fields needed to find the supply line it is converted
+ * through.
+ */
+@AllArgsConstructor
+@Getter
+public class ApprovedRequisitionDto {
+  private UUID id;
+  private UUID program;
+  private UUID supervisoryNode;
+}
@@ -0,0 +1,26 @@
+package org.openlmis.requisition.dto;
+
+import com.fasterxml.jackson.annotation.JsonView;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.openlmis.requisition.domain.Comment;
+import org.openlmis.view.View;
+
+import java.util.List;
+import java.util.UUID;
+
+@AllArgsConstructor
+@Getter
+public class CommentsDto {
+  @JsonView(View.BasicInformation.class)
+  private List<Comment> comments;
+
+  @JsonView(View.BasicInformation.class)
+  private long totalCount;
+
+  @JsonView(View.BasicInformation.class)
+  private UUID nextToken;
+
+  @JsonView(View.BasicInformation.class)
+  private boolean hasMore;
+}
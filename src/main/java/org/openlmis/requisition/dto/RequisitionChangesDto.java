@@ -0,0 +1,15 @@
+package org.openlmis.requisition.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.openlmis.requisition.domain.RequisitionChange;
+
+import java.util.List;
+
+@AllArgsConstructor
+@Getter
+public class RequisitionChangesDto {
+  private List<RequisitionChange> changes;
+  private String nextToken;
+  private boolean hasMore;
+}
@@ -0,0 +1,19 @@
+package org.openlmis.requisition.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@AllArgsConstructor
+@Getter
+public class RequisitionJobMetricsDto {
+  private int workers;
+  private int queueDepth;
+  private int queueCapacity;
+  private int processing;
+  private long completed;
+  private long failed;
+  private long rejected;
+  private double averageWaitMillis;
+  private double averageProcessingMillis;
+  private double maxProcessingMillis;
+}
@@ -0,0 +1,13 @@
+package org.openlmis.requisition.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@AllArgsConstructor
+@Getter
+public class RequisitionLineItemSummaryDto {
+  private int lineItemCount;
+  private long totalConsumedQuantity;
+  private long totalStockOnHand;
+  private int stockOutCount;
+}
@@ -0,0 +1,17 @@
+package org.openlmis.requisition.exception;
+
+import java.util.Map;
+
+public class RequisitionLineItemValidationException extends RequisitionException {
+
+  private final Map<String, String> errors;
+
+  public RequisitionLineItemValidationException(Map<String, String> errors) {
+    super("Requisition line items are not valid: " + errors);
+    this.errors = errors;
+  }
+
+  public Map<String, String> getErrors() {
+    return errors;
+  }
+}
@@ -1,10 +1,11 @@
 package org.openlmis.requisition.repository;
 
 import org.openlmis.requisition.domain.Comment;
+import org.openlmis.requisition.repository.custom.CommentRepositoryCustom;
 import org.springframework.data.repository.PagingAndSortingRepository;
 
 import java.util.UUID;
 
 public interface CommentRepository
-    extends PagingAndSortingRepository<Comment, UUID> {
+    extends PagingAndSortingRepository<Comment, UUID>, CommentRepositoryCustom {
 }
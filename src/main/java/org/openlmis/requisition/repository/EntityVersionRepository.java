@@ -0,0 +1,51 @@
+package org.openlmis.requisition.repository;
+
+import org.openlmis.utils.Pagination;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import javax.persistence.metamodel.EntityType;
+
+/**
+ * Reads current versions of versioned entities of any type, for reporting them when an entity
+ * could not be saved because it has been changed concurrently.
+ */
+@Repository
+public class EntityVersionRepository {
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  /**
+   * Finds the current version of the entity with the given class name and id.
+   *
+   * @param entityName Fully qualified name of the entity class.
+   * @param id Id of the entity.
+   * @return Current version or null if the entity is not versioned or does not exist.
+   */
+  public Long findCurrentVersion(String entityName, Object id) {
+    for (EntityType<?> entity : entityManager.getMetamodel().getEntities()) {
+      if (entity.getJavaType().getName().equals(entityName) && entity.hasVersionAttribute()) {
+        return findCurrentVersion(entity, id);
+      }
+    }
+    return null;
+  }
+
+  private <T> Long findCurrentVersion(EntityType<T> entity, Object id) {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Long> query = builder.createQuery(Long.class);
+    Root<T> root = query.from(entity);
+    query.select(root.get(entity.getVersion(Long.class)));
+    query.where(builder.equal(root.get(Pagination.ID), id));
+
+    List<Long> versions = entityManager.createQuery(query).getResultList();
+    return versions.isEmpty() ? null : versions.get(0);
+  }
+}
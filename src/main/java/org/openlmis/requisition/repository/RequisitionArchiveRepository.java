@@ -0,0 +1,10 @@
+package org.openlmis.requisition.repository;
+
+import org.openlmis.requisition.domain.RequisitionArchive;
+import org.springframework.data.repository.PagingAndSortingRepository;
+
+import java.util.UUID;
+
+public interface RequisitionArchiveRepository extends
+    PagingAndSortingRepository<RequisitionArchive, UUID> {
+}
@@ -0,0 +1,13 @@
+package org.openlmis.requisition.repository;
+
+import org.openlmis.requisition.domain.RequisitionBatchInitiation;
+import org.openlmis.requisition.repository.custom.RequisitionBatchInitiationRepositoryCustom;
+import org.springframework.data.repository.PagingAndSortingRepository;
+
+import java.util.UUID;
+
+public interface RequisitionBatchInitiationRepository extends
+    PagingAndSortingRepository<RequisitionBatchInitiation, UUID>,
+    RequisitionBatchInitiationRepositoryCustom {
+
+}
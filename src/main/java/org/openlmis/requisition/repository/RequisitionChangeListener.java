@@ -0,0 +1,241 @@
+package org.openlmis.requisition.repository;
+
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.tuple.entity.EntityMetamodel;
+import org.openlmis.requisition.domain.Requisition;
+import org.openlmis.requisition.domain.RequisitionChange;
+import org.openlmis.requisition.domain.RequisitionChangeType;
+import org.openlmis.requisition.domain.RequisitionLineItem;
+import org.openlmis.requisition.domain.RequisitionStatus;
+import org.openlmis.requisition.domain.RequisitionStatusCount;
+import org.openlmis.utils.TransactionCollector;
+import org.openlmis.utils.TransactionCollector.Participant;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+/**
+ * Maintains the requisition change feed and requisition status counts. Inserts, updates and
+ * deletes of requisitions and their line items are collected per transaction and written as one
+ * {@link RequisitionChange} for each changed requisition right before the transaction commits.
+ * Changes keep the id of their transaction, by which the feed is ordered, so transactions are not
+ * serialized to commit their changes in order. Status transitions of the collected requisitions
+ * are applied to {@link RequisitionStatusCount}s in the same step, as deltas upserted into the
+ * row of each group. Groups are updated in a fixed order, so transactions changing the same
+ * groups wait for each other instead of deadlocking.
+ */
+@Component
+public class RequisitionChangeListener implements
+    Participant<Map<UUID, RequisitionChangeListener.PendingChange>> {
+
+  private static final Comparator<UUID> ID_ORDER =
+      Comparator.nullsFirst(Comparator.naturalOrder());
+  private static final Comparator<RequisitionStatusCount> GROUP_ORDER = Comparator
+      .comparing(RequisitionStatusCount::getProgram, ID_ORDER)
+      .thenComparing(RequisitionStatusCount::getFacility, ID_ORDER)
+      .thenComparing(RequisitionStatusCount::getProcessingPeriod, ID_ORDER)
+      .thenComparing(RequisitionStatusCount::getStatus);
+
+  @Autowired
+  private TransactionCollector transactionCollector;
+
+  @Autowired
+  private RequisitionStatusCountRepository requisitionStatusCountRepository;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  /**
+   * Starts collecting changes of requisitions.
+   */
+  @PostConstruct
+  public void register() {
+    transactionCollector.addParticipant(this);
+  }
+
+  /**
+   * Records an update of the given requisition made in the current transaction without going
+   * through its entities, for example by a bulk update.
+   *
+   * @param requisitionId UUID of the updated requisition.
+   * @param status Current status of the updated requisition.
+   */
+  public void requisitionUpdated(UUID requisitionId, RequisitionStatus status) {
+    record(entityManager.unwrap(EventSource.class), requisitionId,
+        RequisitionChangeType.UPDATED, status);
+  }
+
+  /**
+   * Records that the given requisition is moved into the archive in the current transaction.
+   * The requisition is deleted in the same transaction, which is recorded as archiving instead.
+   *
+   * @param requisitionId UUID of the archived requisition.
+   * @param status Status of the archived requisition.
+   */
+  public void requisitionArchived(UUID requisitionId, RequisitionStatus status) {
+    record(entityManager.unwrap(EventSource.class), requisitionId,
+        RequisitionChangeType.ARCHIVED, status);
+  }
+
+  @Override
+  public void onPostInsert(PostInsertEvent event) {
+    PendingChange change = record(event.getSession(), event.getEntity(),
+        RequisitionChangeType.CREATED);
+    if (change != null && event.getEntity() instanceof Requisition) {
+      change.trackStatus(null, group(event.getPersister(), event.getState()));
+    }
+  }
+
+  @Override
+  public void onPostUpdate(PostUpdateEvent event) {
+    RequisitionChangeType changeType = RequisitionChangeType.UPDATED;
+    RequisitionStatusCount before = null;
+    RequisitionStatusCount after = null;
+    if (event.getEntity() instanceof Requisition && event.getOldState() != null) {
+      before = group(event.getPersister(), event.getOldState());
+      after = group(event.getPersister(), event.getState());
+      if (before.getStatus() != after.getStatus()) {
+        changeType = RequisitionChangeType.STATUS_CHANGED;
+      }
+    }
+    PendingChange change = record(event.getSession(), event.getEntity(), changeType);
+    if (change != null && after != null) {
+      change.trackStatus(before, after);
+    }
+  }
+
+  @Override
+  public void onPostDelete(PostDeleteEvent event) {
+    PendingChange change = record(event.getSession(), event.getEntity(),
+        RequisitionChangeType.DELETED);
+    if (change != null && event.getEntity() instanceof Requisition) {
+      change.trackStatus(group(event.getPersister(), event.getDeletedState()), null);
+    }
+  }
+
+  @Override
+  public Map<UUID, PendingChange> startCollecting() {
+    return new LinkedHashMap<>();
+  }
+
+  @Override
+  public void beforeCompletion(SessionImplementor session, Map<UUID, PendingChange> changes) {
+    if (changes.isEmpty()) {
+      return;
+    }
+
+    Session currentSession = (Session) session;
+    Map<RequisitionStatusCount, Long> countDeltas = new TreeMap<>(GROUP_ORDER);
+    for (PendingChange change : changes.values()) {
+      currentSession.save(change.getChange());
+      change.addCountDeltas(countDeltas);
+    }
+    countDeltas.forEach((group, delta) -> {
+      if (delta != 0) {
+        requisitionStatusCountRepository.updateCount(group, delta);
+      }
+    });
+    currentSession.flush();
+  }
+
+  private PendingChange record(EventSource session, Object entity,
+                               RequisitionChangeType changeType) {
+    if (entity instanceof Requisition) {
+      Requisition requisition = (Requisition) entity;
+      return record(session, requisition.getId(), changeType, requisition.getStatus());
+    } else if (entity instanceof RequisitionLineItem) {
+      Requisition requisition = ((RequisitionLineItem) entity).getRequisition();
+      if (requisition != null) {
+        return record(session, requisition.getId(), RequisitionChangeType.UPDATED,
+            requisition.getStatus());
+      }
+    }
+    return null;
+  }
+
+  private PendingChange record(EventSource session, UUID requisitionId,
+                               RequisitionChangeType changeType, RequisitionStatus status) {
+    if (requisitionId == null) {
+      return null;
+    }
+    Map<UUID, PendingChange> changes = transactionCollector.collect(session, this);
+    PendingChange change = changes.get(requisitionId);
+    if (change == null) {
+      change = new PendingChange(new RequisitionChange(requisitionId, changeType, status));
+      changes.put(requisitionId, change);
+    } else {
+      change.merge(changeType, status);
+    }
+    return change;
+  }
+
+  private static RequisitionStatusCount group(EntityPersister persister, Object[] state) {
+    EntityMetamodel metamodel = persister.getEntityMetamodel();
+    return new RequisitionStatusCount(
+        (UUID) state[metamodel.getPropertyIndex("program")],
+        (UUID) state[metamodel.getPropertyIndex("facility")],
+        (UUID) state[metamodel.getPropertyIndex("processingPeriod")],
+        (RequisitionStatus) state[metamodel.getPropertyIndex("status")],
+        1L);
+  }
+
+  /**
+   * Change of one requisition collected in a transaction, along with its status count groups
+   * from before and after the transaction.
+   */
+  static class PendingChange {
+    private final RequisitionChange change;
+    private boolean statusTracked;
+    private RequisitionStatusCount before;
+    private RequisitionStatusCount after;
+
+    PendingChange(RequisitionChange change) {
+      this.change = change;
+    }
+
+    RequisitionChange getChange() {
+      return change;
+    }
+
+    void merge(RequisitionChangeType changeType, RequisitionStatus status) {
+      change.setChangeType(changeType.merge(change.getChangeType()));
+      change.setStatus(status);
+    }
+
+    void trackStatus(RequisitionStatusCount before, RequisitionStatusCount after) {
+      if (!statusTracked) {
+        this.before = before;
+        statusTracked = true;
+      }
+      this.after = after;
+    }
+
+    void addCountDeltas(Map<RequisitionStatusCount, Long> countDeltas) {
+      if (!statusTracked || Objects.equals(before, after)) {
+        return;
+      }
+      if (before != null) {
+        countDeltas.merge(before, -1L, Long::sum);
+      }
+      if (after != null) {
+        countDeltas.merge(after, 1L, Long::sum);
+      }
+    }
+  }
+}
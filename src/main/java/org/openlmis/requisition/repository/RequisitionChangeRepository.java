@@ -0,0 +1,10 @@
+package org.openlmis.requisition.repository;
+
+import org.openlmis.requisition.domain.RequisitionChange;
+import org.openlmis.requisition.repository.custom.RequisitionChangeRepositoryCustom;
+import org.springframework.data.repository.PagingAndSortingRepository;
+
+public interface RequisitionChangeRepository extends
+    PagingAndSortingRepository<RequisitionChange, Long>,
+    RequisitionChangeRepositoryCustom {
+}
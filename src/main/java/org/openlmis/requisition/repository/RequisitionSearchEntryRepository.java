@@ -0,0 +1,12 @@
+package org.openlmis.requisition.repository;
+
+import org.openlmis.requisition.domain.RequisitionSearchEntry;
+import org.openlmis.requisition.repository.custom.RequisitionSearchEntryRepositoryCustom;
+import org.springframework.data.repository.PagingAndSortingRepository;
+
+import java.util.UUID;
+
+public interface RequisitionSearchEntryRepository extends
+    PagingAndSortingRepository<RequisitionSearchEntry, UUID>,
+    RequisitionSearchEntryRepositoryCustom {
+}
@@ -0,0 +1,12 @@
+package org.openlmis.requisition.repository;
+
+import org.openlmis.requisition.domain.RequisitionStatusCount;
+import org.openlmis.requisition.repository.custom.RequisitionStatusCountRepositoryCustom;
+import org.springframework.data.repository.PagingAndSortingRepository;
+
+import java.util.UUID;
+
+public interface RequisitionStatusCountRepository extends
+    PagingAndSortingRepository<RequisitionStatusCount, UUID>,
+    RequisitionStatusCountRepositoryCustom {
+}
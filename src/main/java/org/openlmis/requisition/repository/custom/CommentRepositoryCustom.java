@@ -0,0 +1,13 @@
+package org.openlmis.requisition.repository.custom;
+
+import org.openlmis.requisition.domain.Comment;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface CommentRepositoryCustom {
+
+  List<Comment> findComments(UUID requisitionId, UUID after, int limit);
+
+  long countComments(UUID requisitionId);
+}
@@ -0,0 +1,14 @@
+package org.openlmis.requisition.repository.custom;
+
+import org.openlmis.requisition.domain.RequisitionBatchInitiation;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public interface RequisitionBatchInitiationRepositoryCustom {
+
+  void addProgress(UUID batchInitiationId, int initiated, int skipped, int failed);
+
+  List<RequisitionBatchInitiation> findUnfinished(LocalDateTime heartbeatBefore);
+}
@@ -0,0 +1,10 @@
+package org.openlmis.requisition.repository.custom;
+
+import org.openlmis.requisition.domain.RequisitionChange;
+
+import java.util.List;
+
+public interface RequisitionChangeRepositoryCustom {
+
+  List<RequisitionChange> findChanges(long sinceTransaction, long sinceSequence, int limit);
+}
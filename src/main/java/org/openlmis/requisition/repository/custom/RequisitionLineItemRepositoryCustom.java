@@ -1,12 +1,23 @@
 package org.openlmis.requisition.repository.custom;
 
+import org.openlmis.requisition.domain.LineItemBatch;
+import org.openlmis.requisition.domain.LineItemCalculation;
 import org.openlmis.requisition.domain.Requisition;
 import org.openlmis.requisition.domain.RequisitionLineItem;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 public interface RequisitionLineItemRepositoryCustom {
 
   List<RequisitionLineItem> searchRequisitionLineItems(Requisition requisition, UUID product);
+
+  int updateRequisitionLineItem(UUID requisitionId, UUID requisitionLineItemId, long version,
+                                Map<String, Object> values, LineItemCalculation calculation);
+
+  Map<UUID, Long> findVersions(Collection<UUID> requisitionLineItemIds);
+
+  LineItemBatch findLineItemBatch(UUID program, UUID processingPeriod);
 }
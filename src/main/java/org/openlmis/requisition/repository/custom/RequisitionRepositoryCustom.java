@@ -2,11 +2,15 @@ package org.openlmis.requisition.repository.custom;
 
 import org.openlmis.requisition.domain.Requisition;
 import org.openlmis.requisition.domain.RequisitionStatus;
+import org.openlmis.requisition.dto.ApprovedRequisitionDto;
+import org.springframework.data.domain.Page;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
+@SuppressWarnings("PMD.TooManyMethods")
 public interface RequisitionRepositoryCustom {
 
   List<Requisition> searchRequisitions(UUID facility, UUID program,
@@ -16,7 +20,27 @@ public interface RequisitionRepositoryCustom {
                                        UUID supervisoryNode,
                                        RequisitionStatus requisitionStatus);
 
-  List<Requisition> searchApprovedRequisitionsWithSortAndFilterAndPaging(
+  Page<Requisition> searchApprovedRequisitionsWithSortAndFilterAndPaging(
       String filterValue, String filterBy, String sortBy, Boolean descending,
       Integer pageNumber, Integer pageSize);
+
+  List<Requisition> searchRequisitionsOfFacilities(UUID program, UUID processingPeriod,
+                                                   Collection<UUID> facilities);
+
+  List<UUID> findFacilitiesWithRequisition(UUID program, UUID processingPeriod,
+                                           Collection<UUID> facilities);
+
+  RequisitionStatus findStatus(UUID requisitionId);
+
+  UUID findProgram(UUID requisitionId);
+
+  String findVersionStamp(UUID requisitionId);
+
+  List<UUID> findArchivable(LocalDateTime orderedBefore, int limit);
+
+  List<ApprovedRequisitionDto> findApproved(UUID after, int limit);
+
+  long countByStatus(RequisitionStatus status);
+
+  List<Requisition> findAllWithLineItems(Collection<UUID> ids);
 }
@@ -0,0 +1,29 @@
+package org.openlmis.requisition.repository.custom;
+
+import org.openlmis.requisition.domain.Requisition;
+import org.openlmis.requisition.dto.FacilityDto;
+import org.openlmis.requisition.dto.ProcessingPeriodDto;
+import org.openlmis.requisition.dto.ProgramDto;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface RequisitionSearchEntryRepositoryCustom {
+
+  List<UUID> findFacilities();
+
+  List<UUID> findPrograms();
+
+  List<UUID> findProcessingPeriods();
+
+  int updateFacility(FacilityDto facility);
+
+  int updateProgram(ProgramDto program);
+
+  int updateProcessingPeriod(ProcessingPeriodDto processingPeriod);
+
+  int deleteByRequisitionIds(Collection<UUID> requisitionIds);
+
+  List<Requisition> findApprovedRequisitionsWithoutEntry();
+}
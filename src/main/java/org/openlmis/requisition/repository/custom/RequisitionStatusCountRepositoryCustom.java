@@ -0,0 +1,15 @@
+package org.openlmis.requisition.repository.custom;
+
+import org.openlmis.requisition.domain.RequisitionStatusCount;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface RequisitionStatusCountRepositoryCustom {
+
+  void updateCount(RequisitionStatusCount group, long delta);
+
+  void rebuildCounts();
+
+  List<RequisitionStatusCount> searchCounts(UUID program, UUID facility, UUID processingPeriod);
+}
@@ -0,0 +1,79 @@
+package org.openlmis.requisition.repository.custom.impl;
+
+import org.openlmis.requisition.domain.Comment;
+import org.openlmis.requisition.repository.custom.CommentRepositoryCustom;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+public class CommentRepositoryImpl implements CommentRepositoryCustom {
+
+  private static final String ID = "id";
+  private static final String CREATED_DATE = "createdDate";
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  /**
+   * Method returns comments of the requisition ordered by their creation, without loading the
+   * requisition. Comments following the given one are returned, which keeps reading of further
+   * comments as fast as reading of the first ones.
+   * @param requisitionId id of the requisition.
+   * @param after id of the comment after which comments should be returned, comments are
+   *              returned from the first one if it is null.
+   * @param limit Maximum number of returned comments.
+   * @return list of Comments.
+   */
+  @Override
+  public List<Comment> findComments(UUID requisitionId, UUID after, int limit) {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Comment> query = builder.createQuery(Comment.class);
+    Root<Comment> root = query.from(Comment.class);
+    Path<LocalDateTime> createdDate = root.get(CREATED_DATE);
+    Path<UUID> id = root.get(ID);
+
+    Predicate where = ofRequisition(builder, root, requisitionId);
+    if (after != null) {
+      Comment last = entityManager.find(Comment.class, after);
+      if (last != null) {
+        where = builder.and(where, builder.or(
+            builder.greaterThan(createdDate, last.getCreatedDate()),
+            builder.and(builder.equal(createdDate, last.getCreatedDate()),
+                builder.greaterThan(id, after))));
+      }
+    }
+
+    query.where(where);
+    query.orderBy(builder.asc(createdDate), builder.asc(id));
+    return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+  }
+
+  /**
+   * Method returns number of comments of the requisition without loading them.
+   * @param requisitionId id of the requisition.
+   * @return number of comments.
+   */
+  @Override
+  public long countComments(UUID requisitionId) {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Long> query = builder.createQuery(Long.class);
+    Root<Comment> root = query.from(Comment.class);
+    query.select(builder.count(root));
+    query.where(ofRequisition(builder, root, requisitionId));
+    return entityManager.createQuery(query).getSingleResult();
+  }
+
+  private Predicate ofRequisition(CriteriaBuilder builder, Root<Comment> root,
+                                  UUID requisitionId) {
+    return builder.equal(root.get("requisition").get(ID), requisitionId);
+  }
+}
@@ -0,0 +1,76 @@
+package org.openlmis.requisition.repository.custom.impl;
+
+import org.openlmis.requisition.domain.RequisitionBatchInitiation;
+import org.openlmis.requisition.domain.RequisitionJobStatus;
+import org.openlmis.requisition.repository.custom.RequisitionBatchInitiationRepositoryCustom;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.UUID;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Root;
+
+public class RequisitionBatchInitiationRepositoryImpl
+    implements RequisitionBatchInitiationRepositoryCustom {
+
+  private static final String HEARTBEAT_DATE = "heartbeatDate";
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  /**
+   * Method adds numbers of processed facilities to the progress of batch initiation and
+   * refreshes its heartbeat, without loading it.
+   * @param batchInitiationId Id of batch initiation.
+   * @param initiated Number of facilities with newly initiated requisitions.
+   * @param skipped Number of facilities which already had a requisition.
+   * @param failed Number of facilities whose requisitions could not be initiated.
+   */
+  public void addProgress(UUID batchInitiationId, int initiated, int skipped, int failed) {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaUpdate<RequisitionBatchInitiation> update =
+        builder.createCriteriaUpdate(RequisitionBatchInitiation.class);
+    Root<RequisitionBatchInitiation> root = update.from(RequisitionBatchInitiation.class);
+    increment(builder, update, root.get("initiatedCount"), initiated);
+    increment(builder, update, root.get("skippedCount"), skipped);
+    increment(builder, update, root.get("failedCount"), failed);
+    update.set(root.get(HEARTBEAT_DATE), LocalDateTime.now());
+    update.where(builder.equal(root.get("id"), batchInitiationId));
+
+    entityManager.createQuery(update).executeUpdate();
+  }
+
+  /**
+   * Method returns batch initiations which are queued or being processed, but whose progress
+   * has not changed since the given time.
+   * @param heartbeatBefore Time of the last expected progress.
+   * @return List of stalled batch initiations.
+   */
+  public List<RequisitionBatchInitiation> findUnfinished(LocalDateTime heartbeatBefore) {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<RequisitionBatchInitiation> query =
+        builder.createQuery(RequisitionBatchInitiation.class);
+    Root<RequisitionBatchInitiation> root = query.from(RequisitionBatchInitiation.class);
+
+    query.where(builder.and(
+        root.get("status").in(EnumSet.of(RequisitionJobStatus.QUEUED,
+            RequisitionJobStatus.PROCESSING)),
+        builder.lessThan(root.get(HEARTBEAT_DATE), heartbeatBefore)));
+    query.orderBy(builder.asc(root.get("createdDate")));
+
+    return entityManager.createQuery(query).getResultList();
+  }
+
+  private void increment(CriteriaBuilder builder,
+                         CriteriaUpdate<RequisitionBatchInitiation> update, Path<Integer> count,
+                         int delta) {
+    update.set(count, builder.sum(count, delta));
+  }
+}
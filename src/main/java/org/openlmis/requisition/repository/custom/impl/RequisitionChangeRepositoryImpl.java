@@ -0,0 +1,52 @@
+package org.openlmis.requisition.repository.custom.impl;
+
+import org.openlmis.requisition.domain.RequisitionChange;
+import org.openlmis.requisition.repository.custom.RequisitionChangeRepositoryCustom;
+
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Root;
+
+public class RequisitionChangeRepositoryImpl implements RequisitionChangeRepositoryCustom {
+
+  private static final String CHANGE_SEQUENCE = "changeSequence";
+  private static final String TRANSACTION_ID = "transactionId";
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  /**
+   * Method returns requisition changes recorded after the given position, ordered by their
+   * transaction id and change sequence. Only changes of transactions older than the oldest
+   * running transaction are returned, so changes which are still being committed cannot appear
+   * before the returned ones later.
+   * @param sinceTransaction Transaction id of the position after which changes are returned.
+   * @param sinceSequence Change sequence of the position after which changes are returned.
+   * @param limit Maximum number of returned changes.
+   * @return list of RequisitionChanges.
+   */
+  public List<RequisitionChange> findChanges(long sinceTransaction, long sinceSequence,
+                                             int limit) {
+    Number horizon = (Number) entityManager.createNativeQuery(
+        "SELECT txid_snapshot_xmin(txid_current_snapshot())").getSingleResult();
+
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<RequisitionChange> query = builder.createQuery(RequisitionChange.class);
+    Root<RequisitionChange> root = query.from(RequisitionChange.class);
+    Path<Long> transactionPath = root.get(TRANSACTION_ID);
+    Path<Long> sequencePath = root.get(CHANGE_SEQUENCE);
+    query.where(
+        builder.or(
+            builder.greaterThan(transactionPath, sinceTransaction),
+            builder.and(builder.equal(transactionPath, sinceTransaction),
+                builder.greaterThan(sequencePath, sinceSequence))),
+        builder.lessThan(transactionPath, horizon.longValue()));
+    query.orderBy(builder.asc(transactionPath), builder.asc(sequencePath));
+    return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+  }
+}
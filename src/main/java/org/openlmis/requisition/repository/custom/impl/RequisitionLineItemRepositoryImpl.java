@@ -1,21 +1,40 @@
 package org.openlmis.requisition.repository.custom.impl;
 
+import org.hibernate.Session;
+import org.hibernate.type.UUIDBinaryType;
+import org.openlmis.requisition.domain.LineItemBatch;
+import org.openlmis.requisition.domain.LineItemCalculation;
+import org.openlmis.requisition.domain.LineItemField;
 import org.openlmis.requisition.domain.Requisition;
 import org.openlmis.requisition.domain.RequisitionLineItem;
 import org.openlmis.requisition.repository.custom.RequisitionLineItemRepositoryCustom;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 
 public class RequisitionLineItemRepositoryImpl implements RequisitionLineItemRepositoryCustom {
 
+  private static final String VERSION = "version";
+  private static final int BATCH_CAPACITY = 1024;
+  private static final int FETCH_SIZE = 1000;
+
   @PersistenceContext
   private EntityManager entityManager;
 
@@ -58,4 +77,127 @@ public class RequisitionLineItemRepositoryImpl implements RequisitionLineItemRep
     requisition.getRequisitionLineItems().remove(entity);
     entityManager.merge(requisition);
   }
+
+  /**
+   * Updates given values of a single requisition line item with one UPDATE statement, without
+   * loading the line item or its requisition. Fields calculated by the given calculation are
+   * recalculated within the same statement, from the new values and the stored ones.
+   *
+   * @param requisitionId requisition containing the line item.
+   * @param requisitionLineItemId id of the requisition line item to update.
+   * @param version version of the line item the changes are based on.
+   * @param values new values of the line item properties.
+   * @param calculation calculation of the requisition's template.
+   * @return number of updated line items, 0 if not found or not in the given version.
+   */
+  public int updateRequisitionLineItem(UUID requisitionId, UUID requisitionLineItemId,
+                                       long version, Map<String, Object> values,
+                                       LineItemCalculation calculation) {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaUpdate<RequisitionLineItem> update =
+        builder.createCriteriaUpdate(RequisitionLineItem.class);
+    Root<RequisitionLineItem> root = update.from(RequisitionLineItem.class);
+
+    Map<LineItemField, Expression<Integer>> calculated = calculation.buildExpressions(
+        new LineItemCalculation.ExpressionBuilder<Expression<Integer>>() {
+          @Override
+          public Expression<Integer> field(LineItemField field) {
+            return valueOf(builder, root, values, field.getName());
+          }
+
+          @Override
+          public Expression<Integer> add(Expression<Integer> augend,
+                                         Expression<Integer> addend) {
+            return builder.sum(augend, addend);
+          }
+
+          @Override
+          public Expression<Integer> subtract(Expression<Integer> minuend,
+                                              Expression<Integer> subtrahend) {
+            return builder.diff(minuend, subtrahend);
+          }
+        });
+    Set<String> calculatedNames = new HashSet<>();
+    for (Map.Entry<LineItemField, Expression<Integer>> entry : calculated.entrySet()) {
+      calculatedNames.add(entry.getKey().getName());
+      update.set(root.<Integer>get(entry.getKey().getName()), entry.getValue());
+    }
+
+    // calculated values replace given ones, as when calculating loaded line items
+    for (Map.Entry<String, Object> entry : values.entrySet()) {
+      if (!calculatedNames.contains(entry.getKey())) {
+        update.set(entry.getKey(), entry.getValue());
+      }
+    }
+    Path<Long> versionPath = root.get(VERSION);
+    update.set(versionPath, builder.sum(versionPath, 1L));
+
+    update.where(
+        builder.equal(root.get("id"), requisitionLineItemId),
+        builder.equal(root.get("requisition").get("id"), requisitionId),
+        builder.equal(versionPath, version));
+    return entityManager.createQuery(update).executeUpdate();
+  }
+
+  /**
+   * Method returns current versions of given requisition line items.
+   * @param requisitionLineItemIds ids of requisition line items.
+   * @return map of requisition line item ids to their versions.
+   */
+  public Map<UUID, Long> findVersions(Collection<UUID> requisitionLineItemIds) {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Object[]> query = builder.createQuery(Object[].class);
+    Root<RequisitionLineItem> root = query.from(RequisitionLineItem.class);
+
+    query.multiselect(root.get("id"), root.get(VERSION));
+    query.where(root.get("id").in(requisitionLineItemIds));
+
+    Map<UUID, Long> versions = new HashMap<>();
+    for (Object[] row : entityManager.createQuery(query).getResultList()) {
+      versions.put((UUID) row[0], (Long) row[1]);
+    }
+    return versions;
+  }
+
+  private Expression<Integer> valueOf(CriteriaBuilder builder, Root<RequisitionLineItem> root,
+                                      Map<String, Object> values, String property) {
+    if (values.containsKey(property)) {
+      return builder.literal((Integer) values.get(property));
+    }
+    return root.get(property);
+  }
+
+  /**
+   * Method loads quantities of line items of all requisitions for the given program and
+   * processing period into a batch, reading them straight from the result set without creating
+   * entities. Changes not yet flushed to the database are not included.
+   * @param program program of requisitions.
+   * @param processingPeriod processing period of requisitions.
+   * @return batch of requisition line items.
+   */
+  public LineItemBatch findLineItemBatch(UUID program, UUID processingPeriod) {
+    LineItemBatch batch = new LineItemBatch(BATCH_CAPACITY);
+    entityManager.unwrap(Session.class).doWork(connection -> {
+      try (PreparedStatement statement = connection.prepareStatement(
+          "SELECT " + LineItemBatch.selectColumns("li")
+              + " FROM requisition.requisition_line_items li"
+              + " JOIN requisition.requisitions r ON r.id = li.requisitionId"
+              + " WHERE r.program = ? AND r.processingPeriod = ?")) {
+        // program and processing period of requisitions are stored as bytea, unlike ids
+        statement.setBytes(1, toBytes(program));
+        statement.setBytes(2, toBytes(processingPeriod));
+        statement.setFetchSize(FETCH_SIZE);
+        try (ResultSet resultSet = statement.executeQuery()) {
+          while (resultSet.next()) {
+            batch.add(resultSet);
+          }
+        }
+      }
+    });
+    return batch;
+  }
+
+  private static byte[] toBytes(UUID value) {
+    return UUIDBinaryType.INSTANCE.getJavaTypeDescriptor().unwrap(value, byte[].class, null);
+  }
 }
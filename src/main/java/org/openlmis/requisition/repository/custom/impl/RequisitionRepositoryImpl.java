@@ -1,30 +1,46 @@
 package org.openlmis.requisition.repository.custom.impl;
 
+import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.domain.OrderStatus;
 import org.openlmis.requisition.domain.Requisition;
 import org.openlmis.requisition.domain.RequisitionStatus;
-import org.openlmis.requisition.dto.FacilityDto;
-import org.openlmis.requisition.dto.ProcessingPeriodDto;
-import org.openlmis.requisition.dto.ProcessingScheduleDto;
-import org.openlmis.requisition.dto.ProgramDto;
+import org.openlmis.requisition.dto.ApprovedRequisitionDto;
 import org.openlmis.requisition.repository.custom.RequisitionRepositoryCustom;
+import org.openlmis.utils.ETagUtils;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
-import javax.persistence.criteria.Order;
-import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.UUID;
 
+@SuppressWarnings("PMD.TooManyMethods")
 public class RequisitionRepositoryImpl implements RequisitionRepositoryCustom {
 
+  private static final String VERSION = "version";
+  private static final String FACILITY = "facility";
+  private static final String PROGRAM = "program";
+  private static final String STATUS = "status";
+  private static final String CREATED_DATE = "createdDate";
+  private static final String FILTER_VALUE = "filterValue";
+  private static final String APPROVED_SEARCH_FROM = " FROM requisition.requisitions r"
+      + " JOIN requisition.requisition_search_entries e ON e.requisitionId = r.id"
+      + " WHERE r.status = 'APPROVED' AND (";
+
   @PersistenceContext
   private EntityManager entityManager;
 
@@ -53,15 +69,15 @@ public class RequisitionRepositoryImpl implements RequisitionRepositoryCustom {
       predicate = builder.and(predicate, builder.equal(root.get("facility"), facility));
     }
     if (program != null) {
-      predicate = builder.and(predicate, builder.equal(root.get("program"), program));
+      predicate = builder.and(predicate, builder.equal(root.get(PROGRAM), program));
     }
     if (createdDateFrom != null) {
       predicate = builder.and(predicate,
-              builder.greaterThanOrEqualTo(root.get("createdDate"), createdDateFrom));
+              builder.greaterThanOrEqualTo(root.get(CREATED_DATE), createdDateFrom));
     }
     if (createdDateTo != null) {
       predicate = builder.and(predicate,
-              builder.lessThanOrEqualTo(root.get("createdDate"), createdDateTo));
+              builder.lessThanOrEqualTo(root.get(CREATED_DATE), createdDateTo));
     }
     if (processingPeriod != null) {
       predicate = builder.and(predicate,
@@ -73,7 +89,7 @@ public class RequisitionRepositoryImpl implements RequisitionRepositoryCustom {
     }
     if (requisitionStatus != null) {
       predicate = builder.and(predicate,
-              builder.equal(root.get("status"), requisitionStatus));
+              builder.equal(root.get(STATUS), requisitionStatus));
     }
 
     query.where(predicate);
@@ -90,97 +106,278 @@ public class RequisitionRepositoryImpl implements RequisitionRepositoryCustom {
    * @param pageNumber Page number to return.
    * @param pageSize Quantity for one page.
    *
-   * @return List of requisitions.
+   * @return Page of requisitions with total number of matching requisitions.
    */
   @Override
-  public List<Requisition> searchApprovedRequisitionsWithSortAndFilterAndPaging(
+  public Page<Requisition> searchApprovedRequisitionsWithSortAndFilterAndPaging(
       String filterValue, String filterBy, String sortBy, Boolean descending,
       Integer pageNumber, Integer pageSize) {
 
+    String from = APPROVED_SEARCH_FROM + setFiltering(filterBy) + ")";
+    Query query = entityManager.createNativeQuery(
+        "SELECT r.*, count(*) OVER () AS total" + from + setSorting(sortBy, descending),
+        Requisition.WITH_TOTAL_MAPPING);
+    query.setParameter(FILTER_VALUE, "%" + filterValue + "%");
+    query = setPaging(query, pageNumber, pageSize);
+
+    List<Object[]> rows = query.getResultList();
+    List<Requisition> requisitions = new ArrayList<>();
+    for (Object[] row : rows) {
+      requisitions.add((Requisition) row[0]);
+    }
+
+    long total;
+    if (!rows.isEmpty()) {
+      total = (Long) rows.get(0)[1];
+    } else if (pageNumber > 1) {
+      // the requested page is past the last one, so the window count is not available
+      Query countQuery = entityManager.createNativeQuery("SELECT count(*)" + from);
+      countQuery.setParameter(FILTER_VALUE, "%" + filterValue + "%");
+      total = ((Number) countQuery.getSingleResult()).longValue();
+    } else {
+      total = 0;
+    }
+
+    return new PageImpl<>(requisitions, new PageRequest(pageNumber - 1, pageSize), total);
+  }
+
+  /**
+   * Method returns Requisitions of the given facilities for a program and processing period,
+   * with their line items loaded by the same query.
+   * @param program program of searched Requisitions.
+   * @param processingPeriod processing period of searched Requisitions.
+   * @param facilities facilities of searched Requisitions.
+   * @return list of Requisitions with matched parameters.
+   */
+  @Override
+  public List<Requisition> searchRequisitionsOfFacilities(UUID program, UUID processingPeriod,
+                                                          Collection<UUID> facilities) {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Requisition> query = builder.createQuery(Requisition.class);
+    Root<Requisition> root = query.from(Requisition.class);
+    root.fetch("requisitionLineItems", JoinType.LEFT);
+
+    query.select(root).distinct(true);
+    query.where(facilitiesOfPeriod(builder, root, program, processingPeriod, facilities));
+
+    return entityManager.createQuery(query).getResultList();
+  }
+
+  /**
+   * Method returns those of the given facilities which have a Requisition for a program and
+   * processing period, without loading the Requisitions.
+   * @param program program of searched Requisitions.
+   * @param processingPeriod processing period of searched Requisitions.
+   * @param facilities facilities to check.
+   * @return list of facilities with a Requisition.
+   */
+  @Override
+  public List<UUID> findFacilitiesWithRequisition(UUID program, UUID processingPeriod,
+                                                  Collection<UUID> facilities) {
     CriteriaBuilder builder = entityManager.getCriteriaBuilder();
-    CriteriaQuery<Requisition> criteriaQuery = builder.createQuery(Requisition.class);
+    CriteriaQuery<UUID> query = builder.createQuery(UUID.class);
+    Root<Requisition> root = query.from(Requisition.class);
 
-    Root<Requisition> root = criteriaQuery.from(Requisition.class);
+    query.select(root.get(FACILITY)).distinct(true);
+    query.where(facilitiesOfPeriod(builder, root, program, processingPeriod, facilities));
 
-    Path<FacilityDto> facility = root.get("facility");
-    Path<String> facilityCode = facility.get("code");
-    Path<String> facilityName = facility.get("name");
+    return entityManager.createQuery(query).getResultList();
+  }
 
-    Path<ProgramDto> program = root.get("program");
-    Path<String> programName = program.get("name");
+  /**
+   * Get status of requisition without loading the requisition and its line items.
+   *
+   * @param requisitionId Id of requisition.
+   *
+   * @return Status of requisition or null if it does not exist.
+   */
+  @Override
+  public RequisitionStatus findStatus(UUID requisitionId) {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<RequisitionStatus> query = builder.createQuery(RequisitionStatus.class);
+    Root<Requisition> root = query.from(Requisition.class);
 
-    Predicate predicate = setFiltering(filterValue, filterBy, builder, root, facilityCode,
-        facilityName, programName);
+    query.select(root.get(STATUS));
+    query.where(builder.equal(root.get("id"), requisitionId));
 
-    List<Order> orders = setSorting(builder, sortBy, descending, root,
-        programName, facilityCode, facilityName);
+    List<RequisitionStatus> statuses = entityManager.createQuery(query).getResultList();
+    return statuses.isEmpty() ? null : statuses.get(0);
+  }
 
-    criteriaQuery = criteriaQuery.where(predicate).orderBy(orders);
-    Query query = entityManager.createQuery(criteriaQuery);
+  /**
+   * Get program of requisition without loading the requisition and its line items.
+   *
+   * @param requisitionId Id of requisition.
+   *
+   * @return Program of requisition or null if it does not exist.
+   */
+  @Override
+  public UUID findProgram(UUID requisitionId) {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<UUID> query = builder.createQuery(UUID.class);
+    Root<Requisition> root = query.from(Requisition.class);
 
-    query = setPaging(query, pageNumber, pageSize);
+    query.select(root.get(PROGRAM));
+    query.where(builder.equal(root.get("id"), requisitionId));
 
-    return query.getResultList();
+    List<UUID> programs = entityManager.createQuery(query).getResultList();
+    return programs.isEmpty() ? null : programs.get(0);
   }
 
-  private Predicate setFiltering(String filterValue, String filterBy, CriteriaBuilder builder,
-                                 Root<Requisition> root, Path<String> facilityCode,
-                                 Path<String> facilityName, Path<String> programName) {
+  /**
+   * Get stamp identifying current state of requisition with its line items and comments. The
+   * stamp is made of the version of the requisition and its aggregate version, which database
+   * triggers change whenever its line items or comments change, so neither is loaded.
+   *
+   * @param requisitionId Id of requisition.
+   *
+   * @return Version stamp of requisition or null if it does not exist.
+   */
+  @Override
+  public String findVersionStamp(UUID requisitionId) {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Object[]> query = builder.createQuery(Object[].class);
+    Root<Requisition> root = query.from(Requisition.class);
+
+    query.multiselect(root.get(VERSION), root.get("aggregateVersion"));
+    query.where(builder.equal(root.get("id"), requisitionId));
 
-    //Add second important filter
-    filterValue = "%" + filterValue + "%";
-    Predicate predicateFilterBy = builder.disjunction();
+    List<Object[]> rows = entityManager.createQuery(query).getResultList();
+    if (rows.isEmpty()) {
+      return null;
+    }
+    return ETagUtils.versionStamp((Long) rows.get(0)[0], Collections.singletonList(rows.get(0)[1]));
+  }
+
+  /**
+   * Method returns released requisitions whose order was received and created before the given
+   * date, oldest first.
+   *
+   * @param orderedBefore Date before which orders of returned requisitions were created.
+   * @param limit Maximum number of returned requisitions.
+   * @return List of UUIDs of requisitions which can be archived.
+   */
+  @Override
+  public List<UUID> findArchivable(LocalDateTime orderedBefore, int limit) {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<UUID> query = builder.createQuery(UUID.class);
+    Root<Order> root = query.from(Order.class);
+    Join<Order, Requisition> requisition = root.join("requisition");
+
+    query.select(requisition.get("id"));
+    query.where(builder.equal(root.get(STATUS), OrderStatus.RECEIVED),
+        builder.lessThan(root.get(CREATED_DATE), orderedBefore),
+        builder.equal(requisition.get(STATUS), RequisitionStatus.RELEASED));
+    query.orderBy(builder.asc(root.get(CREATED_DATE)));
+
+    return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+  }
+
+  /**
+   * Method returns approved requisitions with ids greater than the given one, ordered by id,
+   * without loading their line items.
+   *
+   * @param after Id after which requisitions should be returned, null to start from the first.
+   * @param limit Maximum number of returned requisitions.
+   * @return List of approved requisitions with their program and supervisory node.
+   */
+  @Override
+  public List<ApprovedRequisitionDto> findApproved(UUID after, int limit) {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<ApprovedRequisitionDto> query =
+        builder.createQuery(ApprovedRequisitionDto.class);
+    Root<Requisition> root = query.from(Requisition.class);
+
+    query.select(builder.construct(ApprovedRequisitionDto.class, root.get("id"),
+        root.get(PROGRAM), root.get("supervisoryNode")));
+    Predicate predicate = builder.equal(root.get(STATUS), RequisitionStatus.APPROVED);
+    if (after != null) {
+      predicate = builder.and(predicate, builder.greaterThan(root.<UUID>get("id"), after));
+    }
+    query.where(predicate);
+    query.orderBy(builder.asc(root.get("id")));
+
+    return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+  }
+
+  /**
+   * Method returns the number of requisitions with the given status.
+   *
+   * @param status Status of counted requisitions.
+   * @return Number of requisitions.
+   */
+  @Override
+  public long countByStatus(RequisitionStatus status) {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Long> query = builder.createQuery(Long.class);
+    Root<Requisition> root = query.from(Requisition.class);
+
+    query.select(builder.count(root));
+    query.where(builder.equal(root.get(STATUS), status));
+
+    return entityManager.createQuery(query).getSingleResult();
+  }
+
+  /**
+   * Method returns requisitions with the given ids, fetching their line items in the same query.
+   *
+   * @param ids Ids of returned requisitions.
+   * @return List of found requisitions in no particular order.
+   */
+  @Override
+  public List<Requisition> findAllWithLineItems(Collection<UUID> ids) {
+    if (ids.isEmpty()) {
+      return new ArrayList<>();
+    }
+
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Requisition> query = builder.createQuery(Requisition.class);
+    Root<Requisition> root = query.from(Requisition.class);
+    root.fetch("requisitionLineItems", JoinType.LEFT);
+    query.where(root.get("id").in(ids));
+
+    // the fetch join repeats a requisition for each of its line items
+    return new ArrayList<>(new LinkedHashSet<>(entityManager.createQuery(query).getResultList()));
+  }
+
+  private Predicate facilitiesOfPeriod(CriteriaBuilder builder, Root<Requisition> root,
+                                       UUID program, UUID processingPeriod,
+                                       Collection<UUID> facilities) {
+    return builder.and(
+        builder.equal(root.get(PROGRAM), program),
+        builder.equal(root.get("processingPeriod"), processingPeriod),
+        root.get(FACILITY).in(facilities));
+  }
+
+  private String setFiltering(String filterBy) {
+    List<String> conditions = new ArrayList<>();
     if (filterBy.equals("programName") || filterBy.equals("all")) {
-      predicateFilterBy =
-          builder.or(predicateFilterBy, builder.like(programName, filterValue));
+      conditions.add("e.programName LIKE :" + FILTER_VALUE);
     }
     if (filterBy.equals("facilityCode") || filterBy.equals("all")) {
-      predicateFilterBy =
-          builder.or(predicateFilterBy, builder.like(facilityCode, filterValue));
+      conditions.add("e.facilityCode LIKE :" + FILTER_VALUE);
     }
     if (filterBy.equals("facilityName") || filterBy.equals("all")) {
-      predicateFilterBy =
-          builder.or(predicateFilterBy, builder.like(facilityName, filterValue));
-    }
-    //Add first important filter
-    Predicate predicate = builder.equal(root.get("status"), RequisitionStatus.APPROVED);
-    //Connector filters
-    predicate = builder.and(predicate, predicateFilterBy);
-    return predicate;
+      conditions.add("e.facilityName LIKE :" + FILTER_VALUE);
+    }
+    return conditions.isEmpty() ? "1 = 0" : String.join(" OR ", conditions);
   }
 
-  private List<Order> setSorting(CriteriaBuilder builder, String sortBy, Boolean descending,
-                                 Path root, Path programName, Path facilityCode,
-                                 Path facilityName) {
-
-    Path<ProcessingPeriodDto> rootProcesingPeriod = root.get("processingPeriod");
-    Path<LocalDate> rootProcesingPeriodEndDate = rootProcesingPeriod.get("endDate");
-    Path<ProcessingScheduleDto> rootProcesingPeriodProcessingSchedule =
-        rootProcesingPeriod.get("processingSchedule");
-    Path<LocalDateTime> rootProcesingPeriodProcesingScheduleModifiedDate =
-        rootProcesingPeriodProcessingSchedule.get("modifiedDate");
-    List<Order> orders = new ArrayList();
-    Path setSortBy;
+  private String setSorting(String sortBy, Boolean descending) {
+    String sortColumn;
+    String secondSortColumn;
     if (sortBy.equals("programName")) {
-      setSortBy = programName;
+      sortColumn = "e.programName";
+      secondSortColumn = "e.periodEndDate";
     } else if (sortBy.equals("facilityCode")) {
-      setSortBy = facilityCode;
-    } else {
-      setSortBy = facilityName;
-    }
-    //Set first sorting
-    if (descending == Boolean.TRUE) {
-      orders.add(builder.desc(setSortBy));
-    } else {
-      orders.add(builder.asc(setSortBy));
-    }
-    //Set second sorting
-    if (setSortBy.equals(programName)) {
-      orders.add(builder.desc(rootProcesingPeriodEndDate));
+      sortColumn = "e.facilityCode";
+      secondSortColumn = "e.scheduleModifiedDate";
     } else {
-      orders.add(builder.desc(rootProcesingPeriodProcesingScheduleModifiedDate));
+      sortColumn = "e.facilityName";
+      secondSortColumn = "e.scheduleModifiedDate";
     }
-    return orders;
+    String direction = descending == Boolean.TRUE ? " DESC" : " ASC";
+    return " ORDER BY " + sortColumn + direction + ", " + secondSortColumn + " DESC, r.id ASC";
   }
 
   private Query setPaging(Query query, Integer pageNumber, Integer pageSize) {
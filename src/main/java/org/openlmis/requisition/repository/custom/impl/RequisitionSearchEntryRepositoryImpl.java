@@ -0,0 +1,157 @@
+package org.openlmis.requisition.repository.custom.impl;
+
+import org.openlmis.requisition.domain.Requisition;
+import org.openlmis.requisition.domain.RequisitionSearchEntry;
+import org.openlmis.requisition.domain.RequisitionStatus;
+import org.openlmis.requisition.dto.FacilityDto;
+import org.openlmis.requisition.dto.ProcessingPeriodDto;
+import org.openlmis.requisition.dto.ProcessingScheduleDto;
+import org.openlmis.requisition.dto.ProgramDto;
+import org.openlmis.requisition.repository.custom.RequisitionSearchEntryRepositoryCustom;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaDelete;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
+
+public class RequisitionSearchEntryRepositoryImpl
+    implements RequisitionSearchEntryRepositoryCustom {
+
+  private static final String FACILITY = "facility";
+  private static final String PROGRAM = "program";
+  private static final String PROCESSING_PERIOD = "processingPeriod";
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  /**
+   * Method returns ids of all facilities referenced by search entries.
+   * @return list of facility ids.
+   */
+  public List<UUID> findFacilities() {
+    return findReferencedIds(FACILITY);
+  }
+
+  /**
+   * Method returns ids of all programs referenced by search entries.
+   * @return list of program ids.
+   */
+  public List<UUID> findPrograms() {
+    return findReferencedIds(PROGRAM);
+  }
+
+  /**
+   * Method returns ids of all processing periods referenced by search entries.
+   * @return list of processing period ids.
+   */
+  public List<UUID> findProcessingPeriods() {
+    return findReferencedIds(PROCESSING_PERIOD);
+  }
+
+  /**
+   * Method copies code and name of the given facility into search entries referencing it.
+   * @param facility facility with current values.
+   * @return number of updated search entries.
+   */
+  public int updateFacility(FacilityDto facility) {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaUpdate<RequisitionSearchEntry> update =
+        builder.createCriteriaUpdate(RequisitionSearchEntry.class);
+    Root<RequisitionSearchEntry> root = update.from(RequisitionSearchEntry.class);
+    update.set(root.get("facilityCode"), facility.getCode());
+    update.set(root.get("facilityName"), facility.getName());
+    update.where(builder.equal(root.get(FACILITY), facility.getId()));
+    return entityManager.createQuery(update).executeUpdate();
+  }
+
+  /**
+   * Method copies name of the given program into search entries referencing it.
+   * @param program program with current values.
+   * @return number of updated search entries.
+   */
+  public int updateProgram(ProgramDto program) {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaUpdate<RequisitionSearchEntry> update =
+        builder.createCriteriaUpdate(RequisitionSearchEntry.class);
+    Root<RequisitionSearchEntry> root = update.from(RequisitionSearchEntry.class);
+    update.set(root.get("programName"), program.getName());
+    update.where(builder.equal(root.get(PROGRAM), program.getId()));
+    return entityManager.createQuery(update).executeUpdate();
+  }
+
+  /**
+   * Method copies end date and schedule modification date of the given processing period into
+   * search entries referencing it.
+   * @param processingPeriod processing period with current values.
+   * @return number of updated search entries.
+   */
+  public int updateProcessingPeriod(ProcessingPeriodDto processingPeriod) {
+    ProcessingScheduleDto schedule = processingPeriod.getProcessingSchedule();
+    LocalDateTime scheduleModifiedDate = schedule == null ? null : schedule.getModifiedDate();
+
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaUpdate<RequisitionSearchEntry> update =
+        builder.createCriteriaUpdate(RequisitionSearchEntry.class);
+    Root<RequisitionSearchEntry> root = update.from(RequisitionSearchEntry.class);
+    update.set(root.get("periodEndDate"), processingPeriod.getEndDate());
+    update.set(root.get("scheduleModifiedDate"), scheduleModifiedDate);
+    update.where(builder.equal(root.get(PROCESSING_PERIOD), processingPeriod.getId()));
+    return entityManager.createQuery(update).executeUpdate();
+  }
+
+  /**
+   * Method removes search entries of the given requisitions with a single statement.
+   * @param requisitionIds ids of requisitions whose search entries should be removed.
+   * @return number of removed search entries.
+   */
+  public int deleteByRequisitionIds(Collection<UUID> requisitionIds) {
+    if (requisitionIds.isEmpty()) {
+      return 0;
+    }
+
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaDelete<RequisitionSearchEntry> delete =
+        builder.createCriteriaDelete(RequisitionSearchEntry.class);
+    Root<RequisitionSearchEntry> root = delete.from(RequisitionSearchEntry.class);
+    delete.where(root.get("requisitionId").in(requisitionIds));
+    return entityManager.createQuery(delete).executeUpdate();
+  }
+
+  /**
+   * Method returns approved requisitions which have no search entry yet.
+   * @return list of approved Requisitions without search entries.
+   */
+  public List<Requisition> findApprovedRequisitionsWithoutEntry() {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Requisition> query = builder.createQuery(Requisition.class);
+    Root<Requisition> root = query.from(Requisition.class);
+
+    Subquery<UUID> entries = query.subquery(UUID.class);
+    Root<RequisitionSearchEntry> entry = entries.from(RequisitionSearchEntry.class);
+    entries.select(entry.get("requisitionId"));
+    entries.where(builder.equal(entry.get("requisitionId"), root.get("id")));
+
+    query.where(builder.and(
+        builder.equal(root.get("status"), RequisitionStatus.APPROVED),
+        builder.not(builder.exists(entries))));
+    return entityManager.createQuery(query).getResultList();
+  }
+
+  private List<UUID> findReferencedIds(String property) {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<UUID> query = builder.createQuery(UUID.class);
+    Root<RequisitionSearchEntry> root = query.from(RequisitionSearchEntry.class);
+    query.select(root.get(property)).distinct(true);
+    query.where(builder.isNotNull(root.get(property)));
+    return entityManager.createQuery(query).getResultList();
+  }
+}
@@ -0,0 +1,121 @@
+package org.openlmis.requisition.repository.custom.impl;
+
+import org.hibernate.SQLQuery;
+import org.hibernate.type.PostgresUUIDType;
+import org.hibernate.type.UUIDBinaryType;
+import org.openlmis.requisition.domain.RequisitionStatus;
+import org.openlmis.requisition.domain.RequisitionStatusCount;
+import org.openlmis.requisition.repository.custom.RequisitionStatusCountRepositoryCustom;
+
+import java.util.List;
+import java.util.UUID;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+public class RequisitionStatusCountRepositoryImpl
+    implements RequisitionStatusCountRepositoryCustom {
+
+  private static final String PROGRAM = "program";
+  private static final String FACILITY = "facility";
+  private static final String PROCESSING_PERIOD = "processingPeriod";
+  private static final String STATUS = "status";
+  private static final String COUNT = "count";
+
+  private static final String TABLE = "requisition.requisition_status_counts";
+  // program, facility and processing period are stored as bytea, unlike ids
+  private static final String NO_ID = "CAST('' AS bytea)";
+  // expressions of the requisition_status_counts_group unique index, see import.sql
+  private static final String GROUP = "coalesce(program, " + NO_ID + "),"
+      + " coalesce(facility, " + NO_ID + "), coalesce(processingPeriod, " + NO_ID + "), status";
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  /**
+   * Method changes number of requisitions in the given group by the given delta, creating
+   * the count if there is none for the group yet. Concurrent changes of a new group end up in
+   * a single count, as the count is inserted or updated by one statement.
+   * @param group Program, facility, processing period and status of counted requisitions.
+   * @param delta Number to add to the count, negative to subtract.
+   */
+  public void updateCount(RequisitionStatusCount group, long delta) {
+    entityManager.createNativeQuery("INSERT INTO " + TABLE
+        + " (id, program, facility, processingPeriod, status, requisitionCount)"
+        + " VALUES (:id, :program, :facility, :processingPeriod, :status, :delta)"
+        + " ON CONFLICT (" + GROUP + ") DO UPDATE"
+        + " SET requisitionCount = requisition_status_counts.requisitionCount"
+        + " + EXCLUDED.requisitionCount")
+        .unwrap(SQLQuery.class)
+        .setParameter("id", UUID.randomUUID(), PostgresUUIDType.INSTANCE)
+        .setParameter(PROGRAM, group.getProgram(), UUIDBinaryType.INSTANCE)
+        .setParameter(FACILITY, group.getFacility(), UUIDBinaryType.INSTANCE)
+        .setParameter(PROCESSING_PERIOD, group.getProcessingPeriod(), UUIDBinaryType.INSTANCE)
+        .setParameter(STATUS, group.getStatus().name())
+        .setParameter("delta", delta)
+        .executeUpdate();
+  }
+
+  /**
+   * Method replaces all counts with numbers of requisitions currently stored, for example after
+   * requisitions were removed without going through their entities. Requisitions are locked
+   * against changes until the end of the transaction, which waits for transactions already
+   * changing them, so no status transition is counted twice or lost.
+   */
+  public void rebuildCounts() {
+    entityManager.createNativeQuery("LOCK TABLE requisition.requisitions IN SHARE MODE")
+        .executeUpdate();
+    entityManager.createNativeQuery("DELETE FROM " + TABLE).executeUpdate();
+    entityManager.createNativeQuery("INSERT INTO " + TABLE
+        + " (id, program, facility, processingPeriod, status, requisitionCount)"
+        + " SELECT CAST(md5(concat(program, facility, processingPeriod, status)) AS uuid),"
+        + " program, facility, processingPeriod, status, count(*)"
+        + " FROM requisition.requisitions"
+        + " GROUP BY program, facility, processingPeriod, status")
+        .executeUpdate();
+  }
+
+  /**
+   * Method returns numbers of requisitions by program, facility, processing period and status,
+   * limited to matched parameters.
+   * @param program program of counted Requisitions.
+   * @param facility facility of counted Requisitions.
+   * @param processingPeriod processingPeriod of counted Requisitions.
+   * @return list of RequisitionStatusCounts, one for each group.
+   */
+  public List<RequisitionStatusCount> searchCounts(UUID program, UUID facility,
+                                                   UUID processingPeriod) {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<RequisitionStatusCount> query =
+        builder.createQuery(RequisitionStatusCount.class);
+    Root<RequisitionStatusCount> root = query.from(RequisitionStatusCount.class);
+    Path<UUID> programPath = root.get(PROGRAM);
+    Path<UUID> facilityPath = root.get(FACILITY);
+    Path<UUID> processingPeriodPath = root.get(PROCESSING_PERIOD);
+
+    Predicate predicate = builder.conjunction();
+    if (program != null) {
+      predicate = builder.and(predicate, builder.equal(programPath, program));
+    }
+    if (facility != null) {
+      predicate = builder.and(predicate, builder.equal(facilityPath, facility));
+    }
+    if (processingPeriod != null) {
+      predicate = builder.and(predicate, builder.equal(processingPeriodPath, processingPeriod));
+    }
+
+    Path<RequisitionStatus> statusPath = root.get(STATUS);
+    Path<Long> countPath = root.get(COUNT);
+    query.select(builder.construct(RequisitionStatusCount.class, programPath, facilityPath,
+        processingPeriodPath, statusPath, builder.sum(countPath)));
+    query.where(predicate);
+    query.groupBy(programPath, facilityPath, processingPeriodPath, statusPath);
+    query.having(builder.notEqual(builder.sum(countPath), 0L));
+    return entityManager.createQuery(query).getResultList();
+  }
+}
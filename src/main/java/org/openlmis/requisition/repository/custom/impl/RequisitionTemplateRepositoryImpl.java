@@ -1,5 +1,6 @@
 package org.openlmis.requisition.repository.custom.impl;
 
+import org.hibernate.annotations.QueryHints;
 import org.openlmis.requisition.domain.RequisitionTemplate;
 import org.openlmis.requisition.repository.custom.RequisitionTemplateRepositoryCustom;
 
@@ -36,6 +37,8 @@ public class RequisitionTemplateRepositoryImpl implements RequisitionTemplateRep
     }
 
     query.where(predicate);
-    return entityManager.createQuery(query).getResultList();
+    return entityManager.createQuery(query)
+        .setHint(QueryHints.CACHEABLE, true)
+        .getResultList();
   }
 }
@@ -0,0 +1,93 @@
+package org.openlmis.requisition.service;
+
+import org.openlmis.requisition.domain.LineItemCalculation;
+import org.openlmis.requisition.domain.RequisitionTemplate;
+import org.openlmis.requisition.exception.RequisitionTemplateColumnException;
+import org.openlmis.requisition.validate.LineItemValidation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Provides line item calculations and validations of requisition templates. Both are compiled
+ * at most once for each version of a template and kept together in one entry per template, which
+ * is replaced only after the template changes.
+ */
+@Service
+public class CompiledTemplateService {
+
+  private final Map<UUID, CompiledTemplate> compiledTemplates = new ConcurrentHashMap<>();
+
+  @Autowired
+  private RequisitionTemplateService requisitionTemplateService;
+
+  /**
+   * Returns line item calculation of the requisition template of the given program.
+   *
+   * @param program UUID of program of calculated requisition.
+   * @return Calculation of the program's template, default calculation if there is no template.
+   * @throws RequisitionTemplateColumnException if calculated columns depend on each other.
+   */
+  public LineItemCalculation getCalculation(UUID program)
+      throws RequisitionTemplateColumnException {
+    RequisitionTemplate template = findTemplate(program);
+    if (template == null) {
+      return LineItemCalculation.defaultCalculation();
+    }
+
+    CompiledTemplate compiled = getCompiledTemplate(template);
+    if (compiled.calculation == null) {
+      compiled.calculation = LineItemCalculation.compile(template);
+    }
+    return compiled.calculation;
+  }
+
+  /**
+   * Returns line item validation of the requisition template of the given program.
+   *
+   * @param program UUID of program of validated requisition.
+   * @return Validation of the program's template, default validation if there is no template.
+   */
+  public LineItemValidation getValidation(UUID program) {
+    RequisitionTemplate template = findTemplate(program);
+    if (template == null) {
+      return LineItemValidation.defaultValidation();
+    }
+
+    CompiledTemplate compiled = getCompiledTemplate(template);
+    if (compiled.validation == null) {
+      compiled.validation = LineItemValidation.compile(template);
+    }
+    return compiled.validation;
+  }
+
+  private RequisitionTemplate findTemplate(UUID program) {
+    List<RequisitionTemplate> templates = program == null
+        ? null : requisitionTemplateService.searchRequisitionTemplates(program);
+    return templates == null || templates.isEmpty() ? null : templates.get(0);
+  }
+
+  private CompiledTemplate getCompiledTemplate(RequisitionTemplate template) {
+    return compiledTemplates.compute(template.getId(), (id, compiled) ->
+        compiled != null && Objects.equals(compiled.version, template.getVersion())
+            ? compiled : new CompiledTemplate(template.getVersion()));
+  }
+
+  /**
+   * Artifacts compiled from one version of a template, each compiled when first needed.
+   */
+  private static class CompiledTemplate {
+    private final Long version;
+    private volatile LineItemCalculation calculation;
+    private volatile LineItemValidation validation;
+
+    CompiledTemplate(Long version) {
+      this.version = version;
+    }
+  }
+}
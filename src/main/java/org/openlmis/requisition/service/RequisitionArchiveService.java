@@ -0,0 +1,158 @@
+package org.openlmis.requisition.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openlmis.requisition.domain.Requisition;
+import org.openlmis.requisition.domain.RequisitionArchive;
+import org.openlmis.requisition.repository.RequisitionArchiveRepository;
+import org.openlmis.requisition.repository.RequisitionChangeListener;
+import org.openlmis.requisition.repository.RequisitionRepository;
+import org.openlmis.view.CompactJsonModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Moves released requisitions whose order was received a while ago out of the requisition
+ * tables into {@link RequisitionArchive}s, which keeps indexes used by searches small. Archived
+ * requisitions are read-only and can still be read by their id.
+ */
+@Service
+public class RequisitionArchiveService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(RequisitionArchiveService.class);
+
+  @Autowired
+  private RequisitionRepository requisitionRepository;
+
+  @Autowired
+  private RequisitionArchiveRepository requisitionArchiveRepository;
+
+  @Autowired
+  private RequisitionChangeListener requisitionChangeListener;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @Autowired
+  private CompactJsonModule compactJsonModule;
+
+  @Value("${requisitionArchive.orderedFor}")
+  private long orderedFor;
+
+  @Value("${requisitionArchive.batchSize}")
+  private int batchSize;
+
+  private TransactionTemplate transactionTemplate;
+
+  private ObjectMapper objectMapper;
+
+  /**
+   * Creates the object mapper of archives, which writes requisitions with the compact serializer
+   * of responses, so line items and comments are written once, without their requisition.
+   */
+  @PostConstruct
+  public void start() {
+    transactionTemplate = new TransactionTemplate(transactionManager);
+    objectMapper = Jackson2ObjectMapperBuilder.json()
+        .modulesToInstall(compactJsonModule)
+        .featuresToDisable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+        .build();
+  }
+
+  /**
+   * Archives released requisitions whose order was received and created longer ago than the
+   * configured time. Requisitions are archived in batches, each in its own transaction.
+   */
+  @Scheduled(fixedDelayString = "${requisitionArchive.delay}")
+  public void archiveReceived() {
+    LocalDateTime orderedBefore = LocalDateTime.now().minusNanos(
+        TimeUnit.MILLISECONDS.toNanos(orderedFor));
+    int total = 0;
+    int archived;
+    do {
+      archived = transactionTemplate.execute(status -> {
+        List<UUID> requisitionIds = requisitionRepository.findArchivable(orderedBefore, batchSize);
+        requisitionIds.forEach(id -> archive(requisitionRepository.findOne(id)));
+        return requisitionIds.size();
+      });
+      total += archived;
+    } while (archived == batchSize);
+
+    if (total > 0) {
+      LOGGER.info("Archived {} requisitions", total);
+    }
+  }
+
+  /**
+   * Moves the given requisition with its line items and comments into the archive. Has to be
+   * called in a transaction.
+   *
+   * @param requisition Requisition to archive.
+   * @return Archive of the requisition.
+   */
+  public RequisitionArchive archive(Requisition requisition) {
+    String versionStamp = requisitionRepository.findVersionStamp(requisition.getId());
+    RequisitionArchive archive = requisitionArchiveRepository.save(
+        new RequisitionArchive(requisition, versionStamp, serialize(requisition)));
+
+    requisitionChangeListener.requisitionArchived(requisition.getId(), requisition.getStatus());
+    requisitionRepository.delete(requisition);
+    return archive;
+  }
+
+  /**
+   * Reads the given requisition from the archive.
+   *
+   * @param archive Archive of the requisition.
+   * @return Archived requisition with its line items and comments.
+   */
+  public Requisition restore(RequisitionArchive archive) {
+    Requisition requisition;
+    try (InputStream input = new GZIPInputStream(new ByteArrayInputStream(archive.getData()))) {
+      requisition = objectMapper.readValue(input, Requisition.class);
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+
+    // back-references are not archived
+    if (requisition.getRequisitionLineItems() != null) {
+      requisition.getRequisitionLineItems().forEach(item -> item.setRequisition(requisition));
+    }
+    if (requisition.getComments() != null) {
+      requisition.getComments().forEach(comment -> comment.setRequisition(requisition));
+    }
+    return requisition;
+  }
+
+  private byte[] serialize(Requisition requisition) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (OutputStream output = new GZIPOutputStream(bytes)) {
+      objectMapper.writeValue(output, requisition);
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+    return bytes.toByteArray();
+  }
+}
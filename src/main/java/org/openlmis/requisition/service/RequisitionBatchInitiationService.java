@@ -0,0 +1,362 @@
+package org.openlmis.requisition.service;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.openlmis.requisition.domain.Requisition;
+import org.openlmis.requisition.domain.RequisitionBatchInitiation;
+import org.openlmis.requisition.domain.RequisitionJobStatus;
+import org.openlmis.requisition.domain.RequisitionLineItem;
+import org.openlmis.requisition.domain.RequisitionStatus;
+import org.openlmis.requisition.domain.RequisitionTemplate;
+import org.openlmis.requisition.domain.RequisitionTemplateColumn;
+import org.openlmis.requisition.dto.FacilityDto;
+import org.openlmis.requisition.dto.ProcessingPeriodDto;
+import org.openlmis.requisition.repository.RequisitionBatchInitiationRepository;
+import org.openlmis.requisition.repository.RequisitionRepository;
+import org.openlmis.requisition.service.referencedata.FacilityReferenceDataService;
+import org.openlmis.requisition.service.referencedata.PeriodReferenceDataService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+/**
+ * Initiates requisitions of all active facilities supporting a program for a processing period.
+ * Facilities are split into chunks initiated in parallel. Each chunk is initiated in its own
+ * transaction with batched inserts, using the template and previous period looked up once for
+ * the whole initiation, and commits together with the progress. Facilities which already have
+ * a requisition for the period are skipped, so an interrupted initiation is resumed by running
+ * it again. A requisition created concurrently by another initiation violates the unique
+ * constraint of regular requisitions, the chunk is then initiated again and skips it.
+ * Initiations without progress for a while are considered interrupted and resumed by any
+ * instance.
+ */
+@Service
+public class RequisitionBatchInitiationService {
+
+  private static final Logger LOGGER =
+      LoggerFactory.getLogger(RequisitionBatchInitiationService.class);
+
+  // primary key of requisition.regular_requisitions, see import.sql
+  static final String REGULAR_REQUISITION_CONSTRAINT = "regular_requisitions_pkey";
+  private static final int CHUNK_ATTEMPTS = 3;
+
+  private final Set<UUID> running = ConcurrentHashMap.newKeySet();
+
+  @Autowired
+  private RequisitionBatchInitiationRepository requisitionBatchInitiationRepository;
+
+  @Autowired
+  private RequisitionRepository requisitionRepository;
+
+  @Autowired
+  private RequisitionTemplateService requisitionTemplateService;
+
+  @Autowired
+  private FacilityReferenceDataService facilityReferenceDataService;
+
+  @Autowired
+  private PeriodReferenceDataService periodReferenceDataService;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Value("${requisitionBatch.workers}")
+  private int workers;
+
+  @Value("${requisitionBatch.chunkSize}")
+  private int chunkSize;
+
+  @Value("${requisitionBatch.staleAfter}")
+  private long staleAfter;
+
+  private ExecutorService coordinator;
+  private ExecutorService chunkWorkers;
+  private TransactionTemplate transactionTemplate;
+
+  /**
+   * Starts the workers.
+   */
+  @PostConstruct
+  public void start() {
+    coordinator = Executors.newSingleThreadExecutor(
+        runnable -> new Thread(runnable, "requisition-batch"));
+    chunkWorkers = Executors.newFixedThreadPool(workers);
+    transactionTemplate = new TransactionTemplate(transactionManager);
+  }
+
+  /**
+   * Stops the workers. Initiations in progress are resumed after the restart.
+   */
+  @PreDestroy
+  public void stop() {
+    coordinator.shutdownNow();
+    chunkWorkers.shutdownNow();
+  }
+
+  /**
+   * Accepts initiation of requisitions of all facilities supporting the given program.
+   *
+   * @param program UUID of the program of initiated requisitions.
+   * @param processingPeriod UUID of the processing period of initiated requisitions.
+   * @return Queued batch initiation.
+   */
+  public RequisitionBatchInitiation initiate(UUID program, UUID processingPeriod) {
+    RequisitionBatchInitiation batch = requisitionBatchInitiationRepository.save(
+        new RequisitionBatchInitiation(program, processingPeriod));
+    schedule(batch.getId());
+    return batch;
+  }
+
+  /**
+   * Resumes initiations which are not finished and made no progress recently, for example
+   * because the instance processing them crashed.
+   */
+  @Scheduled(fixedDelayString = "${requisitionBatch.resumeDelay}")
+  public void resumeStalled() {
+    LocalDateTime heartbeatBefore = LocalDateTime.now().minusNanos(
+        TimeUnit.MILLISECONDS.toNanos(staleAfter));
+    for (RequisitionBatchInitiation batch
+        : requisitionBatchInitiationRepository.findUnfinished(heartbeatBefore)) {
+      LOGGER.info("Resuming batch initiation with id " + batch.getId());
+      schedule(batch.getId());
+    }
+  }
+
+  void schedule(UUID batchId) {
+    if (running.add(batchId)) {
+      coordinator.execute(() -> {
+        try {
+          process(batchId);
+        } finally {
+          running.remove(batchId);
+        }
+      });
+    }
+  }
+
+  void process(UUID batchId) {
+    RequisitionBatchInitiation batch = claim(batchId);
+    if (batch == null) {
+      return;
+    }
+
+    try {
+      List<UUID> facilities = findFacilities(batch.getProgram());
+      batch.setFacilityCount(facilities.size());
+      requisitionBatchInitiationRepository.save(batch);
+
+      RequisitionTemplate template = findTemplate(batch.getProgram());
+      UUID previousPeriod = findPreviousPeriod(batch.getProcessingPeriod());
+
+      List<CompletableFuture<Void>> chunks = new ArrayList<>();
+      for (int from = 0; from < facilities.size(); from += chunkSize) {
+        List<UUID> chunk = facilities.subList(from,
+            Math.min(from + chunkSize, facilities.size()));
+        chunks.add(CompletableFuture.runAsync(
+            () -> processChunk(batch, chunk, template, previousPeriod), chunkWorkers));
+      }
+      CompletableFuture.allOf(chunks.toArray(new CompletableFuture[chunks.size()])).join();
+    } catch (RuntimeException ex) {
+      LOGGER.error("Batch initiation with id " + batchId + " failed", ex);
+    }
+
+    if (!chunkWorkers.isShutdown()) {
+      finish(batchId);
+    }
+  }
+
+  private RequisitionBatchInitiation claim(UUID batchId) {
+    RequisitionBatchInitiation batch = requisitionBatchInitiationRepository.findOne(batchId);
+    if (batch == null || batch.getStatus() == RequisitionJobStatus.COMPLETED
+        || batch.getStatus() == RequisitionJobStatus.FAILED) {
+      return null;
+    }
+
+    // a resumed initiation processes all facilities again, those initiated before the
+    // interruption are counted as skipped
+    batch.setStatus(RequisitionJobStatus.PROCESSING);
+    batch.setInitiatedCount(0);
+    batch.setSkippedCount(0);
+    batch.setFailedCount(0);
+    batch.setHeartbeatDate(LocalDateTime.now());
+    try {
+      return requisitionBatchInitiationRepository.save(batch);
+    } catch (OptimisticLockingFailureException ex) {
+      LOGGER.debug("Batch initiation with id " + batchId + " claimed by another instance", ex);
+      return null;
+    }
+  }
+
+  private void finish(UUID batchId) {
+    RequisitionBatchInitiation batch = requisitionBatchInitiationRepository.findOne(batchId);
+    boolean complete = batch.getFacilityCount() != null
+        && batch.getProcessedCount() >= batch.getFacilityCount();
+    batch.setStatus(complete && batch.getFailedCount() == 0
+        ? RequisitionJobStatus.COMPLETED : RequisitionJobStatus.FAILED);
+    batch.setFinishedDate(LocalDateTime.now());
+    requisitionBatchInitiationRepository.save(batch);
+    LOGGER.info("Batch initiation with id " + batchId + " finished: "
+        + batch.getInitiatedCount() + " initiated, " + batch.getSkippedCount() + " skipped, "
+        + batch.getFailedCount() + " failed");
+  }
+
+  private void processChunk(RequisitionBatchInitiation batch, List<UUID> facilities,
+                            RequisitionTemplate template, UUID previousPeriod) {
+    RuntimeException failure = null;
+    for (int attempt = 1; attempt <= CHUNK_ATTEMPTS && failure == null; attempt++) {
+      try {
+        transactionTemplate.execute(status -> {
+          int initiated = initiateChunk(batch, facilities, template, previousPeriod);
+          requisitionBatchInitiationRepository.addProgress(batch.getId(), initiated,
+              facilities.size() - initiated, 0);
+          return initiated;
+        });
+        return;
+      } catch (RuntimeException ex) {
+        if (attempt < CHUNK_ATTEMPTS && isRegularRequisitionConflict(ex)) {
+          LOGGER.debug("Requisitions of facilities " + facilities
+              + " were initiated concurrently, initiating the chunk again", ex);
+        } else {
+          failure = ex;
+        }
+      }
+    }
+
+    LOGGER.error("Cannot initiate requisitions of facilities " + facilities, failure);
+    transactionTemplate.execute(status -> {
+      requisitionBatchInitiationRepository.addProgress(batch.getId(), 0, 0, facilities.size());
+      return null;
+    });
+  }
+
+  private static boolean isRegularRequisitionConflict(Throwable ex) {
+    for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+      if (cause instanceof ConstraintViolationException) {
+        return REGULAR_REQUISITION_CONSTRAINT.equals(
+            ((ConstraintViolationException) cause).getConstraintName());
+      }
+    }
+    return false;
+  }
+
+  int initiateChunk(RequisitionBatchInitiation batch, List<UUID> facilities,
+                    RequisitionTemplate template, UUID previousPeriod) {
+    Set<UUID> existing = new HashSet<>(requisitionRepository.findFacilitiesWithRequisition(
+        batch.getProgram(), batch.getProcessingPeriod(), facilities));
+    List<UUID> initiated = new ArrayList<>(facilities);
+    initiated.removeAll(existing);
+    if (initiated.isEmpty()) {
+      return 0;
+    }
+
+    Map<UUID, Requisition> previousRequisitions = new HashMap<>();
+    if (previousPeriod != null) {
+      for (Requisition previous : requisitionRepository.searchRequisitionsOfFacilities(
+          batch.getProgram(), previousPeriod, initiated)) {
+        previousRequisitions.putIfAbsent(previous.getFacility(), previous);
+      }
+    }
+
+    for (UUID facility : initiated) {
+      entityManager.persist(createRequisition(batch, facility, template,
+          previousPeriod != null, previousRequisitions.get(facility)));
+    }
+    entityManager.flush();
+    entityManager.clear();
+    return initiated.size();
+  }
+
+  /**
+   * Creates initiated requisition with line items of products of the requisition from the
+   * previous period. Beginning balance and received quantity are initiated the same way as
+   * for a single requisition in {@link RequisitionLineItemService}.
+   */
+  private Requisition createRequisition(RequisitionBatchInitiation batch, UUID facility,
+                                        RequisitionTemplate template, boolean hasPreviousPeriod,
+                                        Requisition previous) {
+    Requisition requisition = new Requisition();
+    requisition.setFacility(facility);
+    requisition.setProgram(batch.getProgram());
+    requisition.setProcessingPeriod(batch.getProcessingPeriod());
+    requisition.setStatus(RequisitionStatus.INITIATED);
+    requisition.setEmergency(false);
+
+    List<RequisitionLineItem> lineItems = new ArrayList<>();
+    if (previous != null) {
+      RequisitionTemplateColumn beginningBalance = template == null
+          ? null : template.getColumnsMap().get(RequisitionLineItem.BEGINNING_BALANCE);
+      boolean inheritBalance = hasPreviousPeriod && beginningBalance != null
+          && Boolean.TRUE.equals(beginningBalance.getIsDisplayed());
+
+      for (RequisitionLineItem previousLineItem : previous.getRequisitionLineItems()) {
+        RequisitionLineItem lineItem = new RequisitionLineItem();
+        lineItem.setRequisition(requisition);
+        lineItem.setOrderableProduct(previousLineItem.getOrderableProduct());
+        if (template != null) {
+          lineItem.setBeginningBalance(inheritBalance && previousLineItem.getStockInHand() != null
+              ? previousLineItem.getStockInHand() : 0);
+          lineItem.setTotalReceivedQuantity(0);
+        }
+        lineItems.add(lineItem);
+      }
+    }
+    requisition.setRequisitionLineItems(lineItems);
+    return requisition;
+  }
+
+  private List<UUID> findFacilities(UUID program) {
+    List<UUID> facilities = new ArrayList<>();
+    for (FacilityDto facility : facilityReferenceDataService.searchSupporting(program)) {
+      if (Boolean.TRUE.equals(facility.getActive())
+          && Boolean.TRUE.equals(facility.getEnabled())) {
+        facilities.add(facility.getId());
+      }
+    }
+    facilities.sort(null);
+    return facilities;
+  }
+
+  private RequisitionTemplate findTemplate(UUID program) {
+    List<RequisitionTemplate> templates =
+        requisitionTemplateService.searchRequisitionTemplates(program);
+    return templates.isEmpty() ? null : templates.get(0);
+  }
+
+  private UUID findPreviousPeriod(UUID processingPeriod) {
+    ProcessingPeriodDto period = periodReferenceDataService.findOne(processingPeriod);
+    Collection<ProcessingPeriodDto> previousPeriods = periodReferenceDataService.search(
+        period.getProcessingSchedule().getId(), period.getStartDate());
+    if (previousPeriods == null || previousPeriods.isEmpty()) {
+      return null;
+    }
+    return previousPeriods.iterator().next().getId();
+  }
+}
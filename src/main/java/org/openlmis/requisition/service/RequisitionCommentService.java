@@ -2,6 +2,7 @@ package org.openlmis.requisition.service;
 
 import org.openlmis.requisition.domain.Comment;
 import org.openlmis.requisition.domain.Requisition;
+import org.openlmis.requisition.dto.CommentsDto;
 import org.openlmis.requisition.dto.UserDto;
 import org.openlmis.requisition.exception.CommentNotFoundException;
 import org.openlmis.requisition.exception.RequisitionNotFoundException;
@@ -13,6 +14,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -20,6 +22,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
 /**
  * Service for managing requisition comments.
  * Comments are handled separately from requisition line items.
@@ -38,18 +43,22 @@ public class RequisitionCommentService {
   @Autowired
   private UserReferenceDataService userReferenceDataService;
 
+  @PersistenceContext
+  private EntityManager entityManager;
 
   /**
-   * Inserts a new comment and ties it with a requisition.
+   * Inserts a new comment and ties it with a requisition. The requisition is referenced by its
+   * id and is not loaded.
    * @param requisitionId the id of the requisition
    * @param comment the comment to be added
-   * @return all comments of the requisition
+   * @return the new comment
    * @throws RequisitionNotFoundException if the requisition
    *                                      with the given id does not exist
    */
-  public List<Comment> insertComment(UUID requisitionId, Comment comment)
+  @Transactional
+  public Comment insertComment(UUID requisitionId, Comment comment)
           throws RequisitionNotFoundException {
-    Requisition requisition = findRequisition(requisitionId);
+    checkRequisitionExists(requisitionId);
 
     String userName =
         (String) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
@@ -57,24 +66,37 @@ public class RequisitionCommentService {
     parameters.put("username", userName);
     List<UserDto> users = new ArrayList<>(userReferenceDataService.findAll("search", parameters));
     comment.setAuthorId(users.get(0).getId());
-    comment.setRequisition(requisition);
-
-    commentRepository.save(comment);
+    comment.setRequisition(entityManager.getReference(Requisition.class, requisitionId));
 
-    return requisition.getComments();
+    return commentRepository.save(comment);
   }
 
   /**
-   * Retrieves all comments for the requisition with the given id.
+   * Retrieves comments of the requisition with the given id in the order they were added,
+   * without loading the requisition.
    * @param requisitionId the id of the requisition
-   * @return all comments of the requisition
+   * @param after token returned by the previous call, comments are returned from the first
+   *              one if it is null
+   * @param limit maximum number of returned comments
+   * @return comments with the total number of comments, the next token and information
+   *         whether there are more comments to fetch
    * @throws RequisitionNotFoundException if the requisition with the given
    *                                      id does not exist
    */
-  public List<Comment> findCommentsForRequisition(UUID requisitionId)
+  @Transactional(readOnly = true)
+  public CommentsDto findCommentsForRequisition(UUID requisitionId, UUID after, int limit)
         throws RequisitionNotFoundException {
-    Requisition requisition = findRequisition(requisitionId);
-    return requisition.getComments();
+    checkRequisitionExists(requisitionId);
+
+    List<Comment> comments = commentRepository.findComments(requisitionId, after, limit + 1);
+    boolean hasMore = comments.size() > limit;
+    if (hasMore) {
+      comments = comments.subList(0, limit);
+    }
+    UUID nextToken = comments.isEmpty() ? after : comments.get(comments.size() - 1).getId();
+
+    return new CommentsDto(comments, commentRepository.countComments(requisitionId),
+        nextToken, hasMore);
   }
 
   /**
@@ -122,11 +144,9 @@ public class RequisitionCommentService {
     commentRepository.delete(comment);
   }
 
-  private Requisition findRequisition(UUID requisitionId) throws RequisitionNotFoundException {
-    Requisition requisition = requisitionRepository.findOne(requisitionId);
-    if (requisition == null) {
+  private void checkRequisitionExists(UUID requisitionId) throws RequisitionNotFoundException {
+    if (!requisitionRepository.exists(requisitionId)) {
       throw new RequisitionNotFoundException(requisitionId);
     }
-    return requisition;
   }
 }
@@ -0,0 +1,184 @@
+package org.openlmis.requisition.service;
+
+import org.openlmis.requisition.domain.RequisitionJob;
+import org.openlmis.requisition.dto.RequisitionJobMetricsDto;
+import org.openlmis.utils.ErrorResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+/**
+ * Processes operations on requisitions in the background. Jobs are distributed over a fixed
+ * number of single threaded workers by requisition id, so jobs of the same requisition are
+ * processed one after another in the order they were accepted. Each worker has a bounded queue,
+ * jobs are not accepted when it is full. Jobs are kept in memory of the instance that accepted
+ * them and removed some time after they are finished, so requests polling a job have to be routed
+ * to that instance. A job can only be read by the user who submitted it.
+ */
+@Service
+public class RequisitionJobService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(RequisitionJobService.class);
+
+  private final Map<UUID, RequisitionJob> jobs = new ConcurrentHashMap<>();
+  private final AtomicInteger processing = new AtomicInteger();
+  private final AtomicLong completed = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+  private final AtomicLong rejected = new AtomicLong();
+  private final AtomicLong totalWaitNanos = new AtomicLong();
+  private final AtomicLong totalProcessingNanos = new AtomicLong();
+  private final AtomicLong maxProcessingNanos = new AtomicLong();
+
+  @Value("${requisitionJobs.workers}")
+  private int workers;
+
+  @Value("${requisitionJobs.queueCapacity}")
+  private int queueCapacity;
+
+  @Value("${requisitionJobs.retention}")
+  private long retention;
+
+  private ThreadPoolExecutor[] lanes;
+
+  /**
+   * Starts the workers.
+   */
+  @PostConstruct
+  public void start() {
+    lanes = new ThreadPoolExecutor[workers];
+    for (int i = 0; i < workers; i++) {
+      String name = "requisition-job-" + i;
+      lanes[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+          new ArrayBlockingQueue<>(queueCapacity), runnable -> new Thread(runnable, name));
+    }
+  }
+
+  /**
+   * Stops the workers after jobs already accepted are processed.
+   */
+  @PreDestroy
+  public void stop() {
+    for (ThreadPoolExecutor lane : lanes) {
+      lane.shutdown();
+    }
+  }
+
+  /**
+   * Accepts an operation on a requisition for processing in the background.
+   *
+   * @param requisitionId UUID of the processed requisition.
+   * @param operation Name of the operation, for example "submit".
+   * @param submittedBy Name of the user submitting the operation.
+   * @param task Operation returning the response it would respond with synchronously.
+   * @return Accepted job or null if the queue of the requisition's worker is full.
+   */
+  public RequisitionJob enqueue(UUID requisitionId, String operation, String submittedBy,
+                                Supplier<ResponseEntity<?>> task) {
+    RequisitionJob job = new RequisitionJob(requisitionId, operation, submittedBy);
+    jobs.put(job.getId(), job);
+    try {
+      lanes[Math.floorMod(requisitionId.hashCode(), lanes.length)]
+          .execute(() -> process(job, task));
+    } catch (RejectedExecutionException ex) {
+      jobs.remove(job.getId());
+      rejected.incrementAndGet();
+      LOGGER.warn("Job queue is full, " + operation + " of requisition with id "
+          + requisitionId + " rejected");
+      return null;
+    }
+    return job;
+  }
+
+  /**
+   * Method returns job with the given id, if it was submitted by the given user.
+   *
+   * @param jobId UUID of the job.
+   * @param user Name of the user reading the job.
+   * @return Job or null if there is no such job of the user or it was already removed.
+   */
+  public RequisitionJob getJob(UUID jobId, String user) {
+    RequisitionJob job = jobs.get(jobId);
+    return job != null && job.getSubmittedBy() != null && job.getSubmittedBy().equals(user)
+        ? job : null;
+  }
+
+  /**
+   * Returns current queue depth and processing statistics since the application started.
+   */
+  public RequisitionJobMetricsDto getMetrics() {
+    int queueDepth = 0;
+    for (ThreadPoolExecutor lane : lanes) {
+      queueDepth += lane.getQueue().size();
+    }
+    long finished = completed.get() + failed.get();
+    return new RequisitionJobMetricsDto(workers, queueDepth, workers * queueCapacity,
+        processing.get(), completed.get(), failed.get(), rejected.get(),
+        averageMillis(totalWaitNanos.get(), finished),
+        averageMillis(totalProcessingNanos.get(), finished),
+        averageMillis(maxProcessingNanos.get(), 1));
+  }
+
+  /**
+   * Removes jobs finished longer ago than the retention period.
+   */
+  @Scheduled(fixedDelayString = "${requisitionJobs.cleanupDelay}")
+  public void removeFinishedJobs() {
+    long expired = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(retention);
+    jobs.values().removeIf(job -> job.isFinished() && job.getFinishedNanos() - expired < 0);
+  }
+
+  void process(RequisitionJob job, Supplier<ResponseEntity<?>> task) {
+    job.start();
+    processing.incrementAndGet();
+    // errors other than runtime exceptions still finish the job as failed before propagating
+    int resultStatus = HttpStatus.INTERNAL_SERVER_ERROR.value();
+    Object result = null;
+    try {
+      ResponseEntity<?> response = task.get();
+      resultStatus = response.getStatusCode().value();
+      result = response.getBody();
+    } catch (RuntimeException ex) {
+      result = new ErrorResponse("An error occurred while processing job with id: "
+          + job.getId(), ex.getMessage());
+      LOGGER.error(((ErrorResponse) result).getMessage(), ex);
+    } finally {
+      processing.decrementAndGet();
+      finish(job, resultStatus, result);
+    }
+  }
+
+  private void finish(RequisitionJob job, int resultStatus, Object result) {
+    long processingNanos = System.nanoTime() - job.getStartedNanos();
+    totalWaitNanos.addAndGet(job.getStartedNanos() - job.getCreatedNanos());
+    totalProcessingNanos.addAndGet(processingNanos);
+    maxProcessingNanos.accumulateAndGet(processingNanos, Math::max);
+    if (resultStatus < 300) {
+      completed.incrementAndGet();
+    } else {
+      failed.incrementAndGet();
+    }
+    job.finish(resultStatus, result);
+  }
+
+  private static double averageMillis(long nanos, long count) {
+    return count == 0 ? 0 : nanos / (count * 1_000_000.0);
+  }
+}
@@ -1,26 +1,59 @@
 package org.openlmis.requisition.service;
 
+import org.openlmis.datasource.ReplicaRead;
+import org.openlmis.requisition.domain.LineItemBatch;
+import org.openlmis.requisition.domain.LineItemCalculation;
+import org.openlmis.requisition.domain.LineItemField;
 import org.openlmis.requisition.domain.Requisition;
 import org.openlmis.requisition.domain.RequisitionLineItem;
+import org.openlmis.requisition.domain.RequisitionStatus;
 import org.openlmis.requisition.domain.RequisitionTemplate;
 import org.openlmis.requisition.domain.RequisitionTemplateColumn;
 import org.openlmis.requisition.dto.ProcessingPeriodDto;
 import org.openlmis.requisition.dto.ProcessingScheduleDto;
+import org.openlmis.requisition.dto.RequisitionLineItemSummaryDto;
 import org.openlmis.requisition.exception.RequisitionException;
+import org.openlmis.requisition.exception.RequisitionLineItemValidationException;
+import org.openlmis.requisition.exception.RequisitionNotFoundException;
+import org.openlmis.requisition.exception.RequisitionTemplateColumnException;
+import org.openlmis.requisition.repository.RequisitionChangeListener;
 import org.openlmis.requisition.repository.RequisitionLineItemRepository;
+import org.openlmis.requisition.repository.RequisitionRepository;
 import org.openlmis.requisition.service.referencedata.PeriodReferenceDataService;
+import org.openlmis.requisition.validate.LineItemValidation;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
-
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.validation.Errors;
+import org.springframework.validation.FieldError;
+import org.springframework.validation.MapBindingResult;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
 public class RequisitionLineItemService {
 
+  private static final Set<RequisitionStatus> EDITABLE_STATUSES = EnumSet.of(
+      RequisitionStatus.INITIATED, RequisitionStatus.SUBMITTED, RequisitionStatus.AUTHORIZED);
+
   @Autowired
   private RequisitionLineItemRepository requisitionLineItemRepository;
 
+  @Autowired
+  private RequisitionRepository requisitionRepository;
+
+  @Autowired
+  private RequisitionChangeListener requisitionChangeListener;
+
   @Autowired
   private RequisitionService requisitionService;
 
@@ -30,6 +63,9 @@ public class RequisitionLineItemService {
   @Autowired
   private PeriodReferenceDataService periodReferenceDataService;
 
+  @Autowired
+  private CompiledTemplateService compiledTemplateService;
+
 
   /**
    * Saves given RequisitionLineItem if possible.
@@ -62,6 +98,100 @@ public class RequisitionLineItemService {
     }
   }
 
+  /**
+   * Applies changes of given requisition line items with targeted updates, without loading
+   * and merging the whole requisition. Only values which are set in the given line items and
+   * can be changed in the current requisition status are updated, so values cannot be cleared.
+   * Each changed line item is validated by the requisition template with its changes applied
+   * before any of them is updated. Fields calculated by the template are recalculated in the
+   * same updates.
+   *
+   * @param requisitionId UUID of requisition containing the line items.
+   * @param changes Line items containing their ids, versions and changed values.
+   * @return Map of ids of changed line items to their new versions.
+   * @throws RequisitionException Exception thrown when the requisition or any of the line
+   *      items does not exist, the line items cannot be changed anymore or any of the changes
+   *      is not valid, in which case it is a {@link RequisitionLineItemValidationException}.
+   * @throws RequisitionTemplateColumnException Exception thrown when calculated columns of the
+   *      requisition template depend on each other.
+   */
+  @Transactional(rollbackFor = {RequisitionException.class,
+      RequisitionTemplateColumnException.class})
+  public Map<UUID, Long> patchRequisitionLineItems(UUID requisitionId,
+                                                   List<RequisitionLineItem> changes)
+      throws RequisitionException, RequisitionTemplateColumnException {
+    RequisitionStatus status = requisitionRepository.findStatus(requisitionId);
+    if (status == null) {
+      throw new RequisitionNotFoundException(requisitionId);
+    }
+    if (!EDITABLE_STATUSES.contains(status)) {
+      throw new RequisitionException("Cannot change line items of requisition: " + requisitionId
+          + ", requisition has status '" + status + "'.");
+    }
+
+    UUID program = requisitionRepository.findProgram(requisitionId);
+    LineItemCalculation calculation = compiledTemplateService.getCalculation(program);
+    LineItemValidation validation = compiledTemplateService.getValidation(program);
+
+    List<RequisitionLineItem> changed = new ArrayList<>();
+    List<Map<String, Object>> changedValues = new ArrayList<>();
+    Errors errors = new MapBindingResult(new HashMap<>(), "requisition");
+    for (int index = 0; index < changes.size(); index++) {
+      RequisitionLineItem change = changes.get(index);
+      if (change.getId() == null || change.getVersion() == null) {
+        throw new RequisitionException("Requisition line item id and version must be specified");
+      }
+
+      Map<String, Object> values = change.getChangedValues(status);
+      if (values.isEmpty()) {
+        continue;
+      }
+
+      RequisitionLineItem merged =
+          findChangedLineItem(requisitionId, change).withChangedValues(values);
+      calculation.calculate(Collections.singletonList(merged));
+      validation.validateChanges(merged, values.keySet(),
+          status != RequisitionStatus.INITIATED, index, errors);
+      changed.add(change);
+      changedValues.add(values);
+    }
+    if (errors.hasErrors()) {
+      throw new RequisitionLineItemValidationException(getErrors(errors));
+    }
+
+    List<UUID> changedIds =
+        updateLineItems(requisitionId, changed, changedValues, calculation);
+    if (changedIds.isEmpty()) {
+      return new HashMap<>();
+    }
+    requisitionChangeListener.requisitionUpdated(requisitionId, status);
+    return requisitionLineItemRepository.findVersions(changedIds);
+  }
+
+  /**
+   * Summarizes line items of all requisitions of the given program and processing period. The
+   * line items are read into a {@link LineItemBatch} without loading them as entities, and their
+   * fields calculated by the program's requisition template are calculated on the batch.
+   *
+   * @param program UUID of program of summarized requisitions.
+   * @param processingPeriod UUID of processing period of summarized requisitions.
+   * @return Consumption, stock on hand and number of stock-outs of the line items.
+   * @throws RequisitionTemplateColumnException Exception thrown when calculated columns of the
+   *      requisition template depend on each other.
+   */
+  @ReplicaRead
+  @Transactional(readOnly = true)
+  public RequisitionLineItemSummaryDto summarizeRequisitionLineItems(UUID program,
+                                                                   UUID processingPeriod)
+      throws RequisitionTemplateColumnException {
+    LineItemBatch batch =
+        requisitionLineItemRepository.findLineItemBatch(program, processingPeriod);
+    compiledTemplateService.getCalculation(program).calculate(batch);
+    return new RequisitionLineItemSummaryDto(batch.size(),
+        batch.sum(LineItemField.TOTAL_CONSUMED_QUANTITY), batch.sum(LineItemField.STOCK_ON_HAND),
+        batch.count(LineItemField.STOCK_ON_HAND, 0));
+  }
+
   /**
    * Method returns all requisition line items with matched parameters.
    * @param requisition requisition of searched requisition line items.
@@ -183,6 +313,47 @@ public class RequisitionLineItemService {
 
   }
 
+  private List<UUID> updateLineItems(UUID requisitionId, List<RequisitionLineItem> changed,
+                                     List<Map<String, Object>> changedValues,
+                                     LineItemCalculation calculation) {
+    List<UUID> changedIds = new ArrayList<>();
+    for (int index = 0; index < changed.size(); index++) {
+      RequisitionLineItem change = changed.get(index);
+      int updated = requisitionLineItemRepository.updateRequisitionLineItem(
+          requisitionId, change.getId(), change.getVersion(), changedValues.get(index),
+          calculation);
+      if (updated == 0) {
+        throw new ObjectOptimisticLockingFailureException(
+            RequisitionLineItem.class, change.getId());
+      }
+      changedIds.add(change.getId());
+    }
+    return changedIds;
+  }
+
+  private RequisitionLineItem findChangedLineItem(UUID requisitionId, RequisitionLineItem change)
+      throws RequisitionException {
+    RequisitionLineItem lineItem = requisitionLineItemRepository.findOne(change.getId());
+    if (lineItem == null || lineItem.getRequisition() == null
+        || !requisitionId.equals(lineItem.getRequisition().getId())) {
+      throw new RequisitionException("Requisition line item: " + change.getId()
+          + " not found in requisition: " + requisitionId);
+    }
+    if (!change.getVersion().equals(lineItem.getVersion())) {
+      throw new ObjectOptimisticLockingFailureException(
+          RequisitionLineItem.class, change.getId());
+    }
+    return lineItem;
+  }
+
+  private static Map<String, String> getErrors(Errors errors) {
+    Map<String, String> messages = new LinkedHashMap<>();
+    for (FieldError error : errors.getFieldErrors()) {
+      messages.put(error.getField(), error.getCode());
+    }
+    return messages;
+  }
+
   private void initiateTotalQuantityReceived(Requisition requisition) {
     for (RequisitionLineItem requisitionLineItem : requisition.getRequisitionLineItems()) {
       requisitionLineItem.setTotalReceivedQuantity(0);
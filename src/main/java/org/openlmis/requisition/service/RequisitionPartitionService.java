@@ -0,0 +1,230 @@
+package org.openlmis.requisition.service;
+
+import org.openlmis.requisition.repository.RequisitionStatusCountRepository;
+import org.openlmis.utils.AdvisoryLocks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.sql.DataSource;
+
+/**
+ * Maintains monthly range partitions of requisitions by their created date. The requisitions
+ * table is created as a partitioned table with a default partition by import.sql, which
+ * requires PostgreSQL 11 or newer, so searches bounded by created date only scan partitions of
+ * the searched months. Ids of requisitions stay unique across partitions through the
+ * requisition_ids table, which line items and comments reference instead of requisitions.
+ * Partitions are created ahead of time and partitions older than the configured number of
+ * months are detached into the archive schema together with line items and comments of their
+ * requisitions. Maintenance is guarded by a database advisory lock, so only one instance changes
+ * partitions at a time. Line items are not partitioned themselves as they are always read by
+ * their requisition, which would have to be looked up in every partition.
+ */
+@Service
+public class RequisitionPartitionService {
+
+  static final String PARTITION_PREFIX = "requisitions_p";
+  static final String ARCHIVE_SCHEMA = "requisition_archive";
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(RequisitionPartitionService.class);
+
+  // arbitrary key identifying the maintenance among advisory locks of the database
+  static final long LOCK_KEY = 4_738_296_105_423L;
+
+  private static final String REQUISITIONS = "requisition.requisitions";
+  private static final String REQUISITIONS_REGCLASS = "CAST('" + REQUISITIONS + "' AS regclass)";
+  private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @Autowired
+  @Qualifier("primaryDataSource")
+  private DataSource primaryDataSource;
+
+  @Autowired
+  private RequisitionStatusCountRepository requisitionStatusCountRepository;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Value("${requisitionPartitions.enabled}")
+  private boolean enabled;
+
+  @Value("${requisitionPartitions.monthsAhead}")
+  private int monthsAhead;
+
+  @Value("${requisitionPartitions.detachAfterMonths}")
+  private int detachAfterMonths;
+
+  private TransactionTemplate transactionTemplate;
+  private volatile boolean active;
+
+  /**
+   * Checks whether requisitions are partitioned and maintains their partitions if they are.
+   */
+  @PostConstruct
+  public void start() {
+    transactionTemplate = new TransactionTemplate(transactionManager);
+    if (!enabled) {
+      return;
+    }
+
+    try {
+      active = transactionTemplate.execute(status -> isPartitioned());
+    } catch (RuntimeException ex) {
+      LOGGER.debug("Could not check partitions of requisitions", ex);
+    }
+    if (!active) {
+      LOGGER.info("Requisitions are not partitioned, partitions are not maintained");
+    }
+
+    maintain();
+  }
+
+  /**
+   * Creates partitions for the following months and detaches partitions older than the
+   * configured number of months, if no other instance is maintaining them.
+   */
+  @Scheduled(fixedDelayString = "${requisitionPartitions.maintenanceDelay}")
+  public void maintain() {
+    if (!active) {
+      return;
+    }
+
+    try (Connection connection = primaryDataSource.getConnection()) {
+      if (!AdvisoryLocks.tryLock(connection, LOCK_KEY)) {
+        LOGGER.debug("Partitions of requisitions are maintained by another instance");
+        return;
+      }
+      try {
+        maintainPartitions();
+      } finally {
+        AdvisoryLocks.unlock(connection, LOCK_KEY);
+      }
+    } catch (SQLException ex) {
+      LOGGER.warn("Could not lock maintenance of requisition partitions", ex);
+    }
+  }
+
+  /**
+   * Method returns months of all partitions of requisitions.
+   *
+   * @return List of months in ascending order.
+   */
+  public List<YearMonth> findPartitions() {
+    @SuppressWarnings("unchecked")
+    List<String> names = entityManager.createNativeQuery(
+        "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid"
+            + " WHERE i.inhparent = " + REQUISITIONS_REGCLASS + " ORDER BY c.relname")
+        .getResultList();
+
+    List<YearMonth> months = new ArrayList<>();
+    for (String name : names) {
+      if (name.startsWith(PARTITION_PREFIX)) {
+        months.add(YearMonth.parse(name.substring(PARTITION_PREFIX.length()), SUFFIX));
+      }
+    }
+    return months;
+  }
+
+  /**
+   * Detaches partition of requisitions created in the given month and moves it into the archive
+   * schema. Line items and comments of its requisitions are moved into archive tables of the
+   * same month, and the requisitions are removed from ids and search entries. Status counts are
+   * rebuilt from the remaining requisitions.
+   * Detached requisitions are not reported in the change feed.
+   *
+   * @param month Month of the detached partition.
+   */
+  public void detach(YearMonth month) {
+    String partition = partitionName(month);
+    String archived = ARCHIVE_SCHEMA + "." + partition;
+    final String requisitionIds = "SELECT id FROM " + archived;
+
+    execute("ALTER TABLE " + REQUISITIONS + " DETACH PARTITION requisition." + partition);
+    execute("CREATE SCHEMA IF NOT EXISTS " + ARCHIVE_SCHEMA);
+    execute("ALTER TABLE requisition." + partition + " SET SCHEMA " + ARCHIVE_SCHEMA);
+
+    moveToArchive("requisition.requisition_line_items", "requisition_line_items", month,
+        requisitionIds);
+    moveToArchive("referencedata.comments", "comments", month, requisitionIds);
+    execute("DELETE FROM requisition.requisition_ids WHERE id IN (" + requisitionIds + ")");
+
+    requisitionStatusCountRepository.rebuildCounts();
+    execute("DELETE FROM requisition.requisition_search_entries"
+        + " WHERE requisitionId IN (" + requisitionIds + ")");
+
+    LOGGER.info("Detached requisitions of {} into {}", month, archived);
+  }
+
+  static String partitionName(YearMonth month) {
+    return PARTITION_PREFIX + month.format(SUFFIX);
+  }
+
+  private void maintainPartitions() {
+    YearMonth current = YearMonth.now();
+    transactionTemplate.execute(status -> {
+      createPartitions(current, current.plusMonths(monthsAhead));
+      return null;
+    });
+
+    if (detachAfterMonths > 0) {
+      YearMonth oldestKept = current.minusMonths(detachAfterMonths);
+      for (YearMonth month : findPartitions()) {
+        if (month.isBefore(oldestKept)) {
+          try {
+            transactionTemplate.execute(status -> {
+              detach(month);
+              return null;
+            });
+          } catch (RuntimeException ex) {
+            LOGGER.error("Could not detach requisitions of " + month, ex);
+          }
+        }
+      }
+    }
+  }
+
+  private boolean isPartitioned() {
+    Number count = (Number) entityManager.createNativeQuery(
+        "SELECT count(*) FROM pg_partitioned_table WHERE partrelid = " + REQUISITIONS_REGCLASS)
+        .getSingleResult();
+    return count.longValue() > 0;
+  }
+
+  private void createPartitions(YearMonth from, YearMonth to) {
+    for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+      execute("CREATE TABLE IF NOT EXISTS requisition." + partitionName(month)
+          + " PARTITION OF " + REQUISITIONS + " FOR VALUES FROM ('" + month.atDay(1)
+          + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+    }
+  }
+
+  private void moveToArchive(String table, String archiveTable, YearMonth month,
+                             String requisitionIds) {
+    execute("CREATE TABLE " + ARCHIVE_SCHEMA + "." + archiveTable + "_p" + month.format(SUFFIX)
+        + " AS SELECT * FROM " + table + " WHERE requisitionId IN (" + requisitionIds + ")");
+    execute("DELETE FROM " + table + " WHERE requisitionId IN (" + requisitionIds + ")");
+  }
+
+  private void execute(String sql) {
+    entityManager.createNativeQuery(sql).executeUpdate();
+  }
+}
@@ -0,0 +1,220 @@
+package org.openlmis.requisition.service;
+
+import org.openlmis.requisition.domain.Requisition;
+import org.openlmis.requisition.domain.RequisitionSearchEntry;
+import org.openlmis.requisition.dto.FacilityDto;
+import org.openlmis.requisition.dto.ProcessingPeriodDto;
+import org.openlmis.requisition.dto.ProcessingScheduleDto;
+import org.openlmis.requisition.dto.ProgramDto;
+import org.openlmis.requisition.repository.RequisitionSearchEntryRepository;
+import org.openlmis.requisition.service.referencedata.BaseReferenceDataService;
+import org.openlmis.requisition.service.referencedata.FacilityReferenceDataService;
+import org.openlmis.requisition.service.referencedata.PeriodReferenceDataService;
+import org.openlmis.requisition.service.referencedata.ProgramReferenceDataService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.openlmis.utils.AdvisoryLocks;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestClientException;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+
+/**
+ * Service for managing local copies of reference data used to search approved requisitions.
+ * Reference data is owned by the reference data service, so entries are refreshed from it
+ * periodically. The refresh is guarded by a database advisory lock, so only one instance
+ * refreshes entries at a time, and runs in batches, each in its own transaction.
+ */
+@Service
+public class RequisitionSearchEntryService {
+
+  private static final Logger LOGGER =
+      LoggerFactory.getLogger(RequisitionSearchEntryService.class);
+
+  // arbitrary key identifying the refresh among advisory locks of the database
+  static final long LOCK_KEY = 4_738_296_105_424L;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @Autowired
+  @Qualifier("primaryDataSource")
+  private DataSource primaryDataSource;
+
+  @Autowired
+  private RequisitionSearchEntryRepository requisitionSearchEntryRepository;
+
+  @Autowired
+  private FacilityReferenceDataService facilityReferenceDataService;
+
+  @Autowired
+  private ProgramReferenceDataService programReferenceDataService;
+
+  @Autowired
+  private PeriodReferenceDataService periodReferenceDataService;
+
+  @Value("${requisitionSearch.refreshBatchSize}")
+  private int batchSize;
+
+  private TransactionTemplate transactionTemplate;
+
+  /**
+   * Creates the transaction template of the refresh batches.
+   */
+  @PostConstruct
+  public void start() {
+    transactionTemplate = new TransactionTemplate(transactionManager);
+  }
+
+  /**
+   * Creates or replaces search entry of the given requisition with current reference data. The
+   * entry is not created when facility, program or period of the requisition is not found, it
+   * is created with the next refresh instead.
+   *
+   * @param requisition Requisition to create search entry for.
+   * @return Saved search entry or null if reference data of the requisition was not found.
+   */
+  public RequisitionSearchEntry createEntry(Requisition requisition) {
+    FacilityDto facility = facilityReferenceDataService.findOne(requisition.getFacility());
+    ProgramDto program = programReferenceDataService.findOne(requisition.getProgram());
+    ProcessingPeriodDto period =
+        periodReferenceDataService.findOne(requisition.getProcessingPeriod());
+    if (facility == null || program == null || period == null) {
+      LOGGER.warn("Reference data of requisition with id " + requisition.getId()
+          + " was not found, its search entry will be created with next refresh");
+      return null;
+    }
+
+    RequisitionSearchEntry entry = new RequisitionSearchEntry();
+    entry.setRequisitionId(requisition.getId());
+    entry.setFacility(requisition.getFacility());
+    entry.setFacilityCode(facility.getCode());
+    entry.setFacilityName(facility.getName());
+    entry.setProgram(requisition.getProgram());
+    entry.setProgramName(program.getName());
+    entry.setProcessingPeriod(requisition.getProcessingPeriod());
+    entry.setPeriodEndDate(period.getEndDate());
+    ProcessingScheduleDto schedule = period.getProcessingSchedule();
+    entry.setScheduleModifiedDate(schedule == null ? null : schedule.getModifiedDate());
+
+    return requisitionSearchEntryRepository.save(entry);
+  }
+
+  /**
+   * Removes search entry of the given requisition if there is one.
+   *
+   * @param requisitionId UUID of requisition whose search entry should be removed.
+   */
+  public void removeEntry(UUID requisitionId) {
+    if (requisitionSearchEntryRepository.exists(requisitionId)) {
+      requisitionSearchEntryRepository.delete(requisitionId);
+    }
+  }
+
+  /**
+   * Removes search entries of the given requisitions.
+   *
+   * @param requisitionIds UUIDs of requisitions whose search entries should be removed.
+   */
+  public void removeEntries(Collection<UUID> requisitionIds) {
+    requisitionSearchEntryRepository.deleteByRequisitionIds(requisitionIds);
+  }
+
+  /**
+   * Creates search entries missing for approved requisitions and copies current reference data
+   * into existing ones, if no other instance is refreshing them.
+   */
+  @Scheduled(fixedDelayString = "${requisitionSearch.refreshDelay}")
+  public void refreshEntries() {
+    try (Connection connection = primaryDataSource.getConnection()) {
+      if (!AdvisoryLocks.tryLock(connection, LOCK_KEY)) {
+        LOGGER.debug("Search entries are refreshed by another instance");
+        return;
+      }
+      try {
+        refreshInBatches();
+      } finally {
+        AdvisoryLocks.unlock(connection, LOCK_KEY);
+      }
+    } catch (SQLException ex) {
+      LOGGER.warn("Could not lock refresh of search entries", ex);
+    }
+  }
+
+  private void refreshInBatches() {
+    List<Requisition> requisitions = transactionTemplate.execute(
+        status -> requisitionSearchEntryRepository.findApprovedRequisitionsWithoutEntry());
+    int created = 0;
+    for (List<Requisition> batch : partition(requisitions)) {
+      created += transactionTemplate.execute(status -> {
+        int batchCreated = 0;
+        for (Requisition requisition : batch) {
+          if (createEntryOrSkip(requisition) != null) {
+            batchCreated++;
+          }
+        }
+        return batchCreated;
+      });
+    }
+
+    refresh(transactionTemplate.execute(status -> requisitionSearchEntryRepository
+        .findFacilities()), facilityReferenceDataService,
+        requisitionSearchEntryRepository::updateFacility);
+    refresh(transactionTemplate.execute(status -> requisitionSearchEntryRepository
+        .findPrograms()), programReferenceDataService,
+        requisitionSearchEntryRepository::updateProgram);
+    refresh(transactionTemplate.execute(status -> requisitionSearchEntryRepository
+        .findProcessingPeriods()), periodReferenceDataService,
+        requisitionSearchEntryRepository::updateProcessingPeriod);
+
+    LOGGER.debug("Search entries refreshed, " + created + " entries created");
+  }
+
+  private RequisitionSearchEntry createEntryOrSkip(Requisition requisition) {
+    try {
+      return createEntry(requisition);
+    } catch (RestClientException ex) {
+      LOGGER.error("Search entry of requisition with id " + requisition.getId()
+          + " will be created with next refresh", ex);
+      return null;
+    }
+  }
+
+  private <T> void refresh(List<UUID> ids, BaseReferenceDataService<T> referenceDataService,
+                           Consumer<T> update) {
+    for (List<UUID> batch : partition(ids)) {
+      transactionTemplate.execute(status -> {
+        for (UUID id : batch) {
+          T object = referenceDataService.findOne(id);
+          if (object != null) {
+            update.accept(object);
+          }
+        }
+        return null;
+      });
+    }
+  }
+
+  private <T> List<List<T>> partition(List<T> list) {
+    List<List<T>> batches = new ArrayList<>();
+    for (int i = 0; i < list.size(); i += batchSize) {
+      batches.add(list.subList(i, Math.min(i + batchSize, list.size())));
+    }
+    return batches;
+  }
+}
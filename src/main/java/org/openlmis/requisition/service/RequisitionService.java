@@ -1,5 +1,6 @@
 package org.openlmis.requisition.service;
 
+import org.openlmis.datasource.ReplicaRead;
 import org.openlmis.requisition.domain.Requisition;
 import org.openlmis.requisition.domain.RequisitionLineItem;
 import org.openlmis.requisition.domain.RequisitionStatus;
@@ -13,11 +14,15 @@ import org.openlmis.requisition.service.referencedata.UserReferenceDataService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
@@ -35,6 +40,9 @@ public class RequisitionService {
   @Autowired
   private RequisitionLineItemService requisitionLineItemService;
 
+  @Autowired
+  private RequisitionSearchEntryService requisitionSearchEntryService;
+
   @Autowired
   private RequisitionLineItemRepository requisitionLineItemRepository;
 
@@ -151,6 +159,8 @@ public class RequisitionService {
   /**
    * Finds requisitions matching all of provided parameters.
    */
+  @ReplicaRead
+  @Transactional(readOnly = true)
   public List<Requisition> searchRequisitions(UUID facility, UUID program,
                                               LocalDateTime createdDateFrom,
                                               LocalDateTime createdDateTo,
@@ -165,6 +175,8 @@ public class RequisitionService {
   /**
    * Get requisitions to approve for specified user.
    */
+  @ReplicaRead
+  @Transactional(readOnly = true)
   public List<Requisition> getRequisitionsForApproval(UUID userId) {
     UserDto user = userReferenceDataService.findOne(userId);
     List<Requisition> requisitionsForApproval = new ArrayList<>();
@@ -178,6 +190,8 @@ public class RequisitionService {
   /**
    * Get authorized requisitions for specified program.
    */
+  @ReplicaRead
+  @Transactional(readOnly = true)
   public List<Requisition> getAuthorizedRequisitions(ProgramDto program) {
     List<Requisition> requisitions = new ArrayList<>();
     List<Requisition> reqList = searchRequisitions(null, program.getId(),
@@ -193,24 +207,37 @@ public class RequisitionService {
   }
 
   /**
-   * Releases the list of given requisitions as order.
+   * Releases the list of given requisitions as order. Requisitions are loaded together with
+   * their line items in one query and their search entries are removed at once.
    *
    * @param requisitionList list of requisitions to be released as order
-   * @return list of released requisitions
+   * @return list of released requisitions, in the order of the given list
    */
+  @Transactional(rollbackFor = RequisitionException.class)
   public List<Requisition> releaseRequisitionsAsOrder(List<Requisition> requisitionList)
           throws RequisitionException {
-    List<Requisition> releasedRequisitions = new ArrayList<>();
+    List<UUID> ids = new ArrayList<>();
     for (Requisition requisition : requisitionList) {
-      Requisition loadedRequisition = requisitionRepository.findOne(requisition.getId());
-      if (RequisitionStatus.APPROVED.equals(loadedRequisition.getStatus())) {
-        loadedRequisition.setStatus(RequisitionStatus.RELEASED);
-        releasedRequisitions.add(requisitionRepository.save(loadedRequisition));
-      } else {
-        throw new RequisitionException("Can not release requisition:" + loadedRequisition.getId()
+      ids.add(requisition.getId());
+    }
+
+    Map<UUID, Requisition> loadedRequisitions = new HashMap<>();
+    for (Requisition requisition : requisitionRepository.findAllWithLineItems(ids)) {
+      loadedRequisitions.put(requisition.getId(), requisition);
+    }
+
+    List<Requisition> releasedRequisitions = new ArrayList<>();
+    for (UUID id : ids) {
+      Requisition loadedRequisition = loadedRequisitions.get(id);
+      if (loadedRequisition == null
+          || !RequisitionStatus.APPROVED.equals(loadedRequisition.getStatus())) {
+        throw new RequisitionException("Can not release requisition:" + id
                 + " as order. Requisition must be approved.");
       }
+      loadedRequisition.setStatus(RequisitionStatus.RELEASED);
+      releasedRequisitions.add(loadedRequisition);
     }
+    requisitionSearchEntryService.removeEntries(ids);
     return releasedRequisitions;
   }
 
@@ -237,9 +264,11 @@ public class RequisitionService {
    * @param pageNumber Page number to return.
    * @param pageSize Quantity for one page.
    *
-   * @return List of requisitions.
+   * @return Page of requisitions with total number of matching requisitions.
    */
-  public List<Requisition> searchApprovedRequisitionsWithSortAndFilterAndPaging(
+  @ReplicaRead
+  @Transactional(readOnly = true)
+  public Page<Requisition> searchApprovedRequisitionsWithSortAndFilterAndPaging(
       String filterValue, String filterBy, String sortBy, Boolean descending,
       Integer pageNumber, Integer pageSize) {
 
@@ -3,6 +3,11 @@ package org.openlmis.requisition.service.referencedata;
 import org.openlmis.requisition.dto.FacilityDto;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
 @Service
 public class FacilityReferenceDataService extends BaseReferenceDataService<FacilityDto> {
 
@@ -15,4 +20,16 @@ public class FacilityReferenceDataService extends BaseReferenceDataService<Facil
   protected Class<FacilityDto> getResultClass() {
     return FacilityDto.class;
   }
+
+  /**
+   * Retrieves facilities supporting the given program from the reference data service.
+   * @param programId UUID of the program
+   * @return A list of facilities supporting the program
+   */
+  public Collection<FacilityDto> searchSupporting(UUID programId) {
+    Map<String, Object> parameters = new HashMap<>();
+    parameters.put("programId", programId);
+
+    return findAll("supported", parameters);
+  }
 }
@@ -0,0 +1,257 @@
+package org.openlmis.requisition.validate;
+
+import static org.openlmis.requisition.domain.LineItemField.BEGINNING_BALANCE;
+import static org.openlmis.requisition.domain.LineItemField.REQUESTED_QUANTITY;
+import static org.openlmis.requisition.domain.LineItemField.STOCK_ON_HAND;
+import static org.openlmis.requisition.domain.LineItemField.TOTAL_CONSUMED_QUANTITY;
+import static org.openlmis.requisition.domain.LineItemField.TOTAL_LOSSES_AND_ADJUSTMENTS;
+import static org.openlmis.requisition.domain.LineItemField.TOTAL_RECEIVED_QUANTITY;
+
+import org.openlmis.requisition.domain.LineItemField;
+import org.openlmis.requisition.domain.RequisitionLineItem;
+import org.openlmis.requisition.domain.RequisitionTemplate;
+import org.openlmis.requisition.domain.RequisitionTemplateColumn;
+import org.openlmis.requisition.domain.SourceType;
+import org.springframework.validation.Errors;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Validation rules of requisition line items compiled from a requisition template. Only columns
+ * displayed in the template are validated: user entered columns are required, quantities other
+ * than losses and adjustments cannot be negative, entered consumption and stock on hand cannot
+ * exceed the stock available in the period, and an entered requested quantity needs an
+ * explanation. All line items are checked in one pass and every error is reported with the index
+ * of its line item. Changes of single line items are additionally checked to only change values
+ * of displayed columns which are entered by users.
+ */
+public class LineItemValidation {
+
+  static final String VALUE_MUST_BE_ENTERED_NOTIFICATION =
+      " must be entered prior to submission of a requisition.";
+  static final String VALUE_MUST_BE_NON_NEGATIVE_NOTIFICATION =
+      " must be a non-negative value.";
+  static final String VALUE_MUST_NOT_EXCEED_AVAILABLE_STOCK_NOTIFICATION =
+      " must not exceed beginning balance, received quantity and adjustments together.";
+  static final String VALUE_CANNOT_BE_CHANGED_NOTIFICATION = " cannot be changed.";
+
+  private static final String REQUISITION_LINE_ITEMS = "requisitionLineItems";
+  private static final Map<LineItemField, String> DEFAULT_LABELS =
+      new EnumMap<>(LineItemField.class);
+  private static final Set<LineItemField> NON_NEGATIVE_FIELDS = EnumSet.of(BEGINNING_BALANCE,
+      TOTAL_RECEIVED_QUANTITY, TOTAL_CONSUMED_QUANTITY, STOCK_ON_HAND, REQUESTED_QUANTITY);
+  private static final Set<LineItemField> AVAILABLE_STOCK_FIELDS =
+      EnumSet.of(BEGINNING_BALANCE, TOTAL_RECEIVED_QUANTITY, TOTAL_LOSSES_AND_ADJUSTMENTS);
+
+  static {
+    DEFAULT_LABELS.put(BEGINNING_BALANCE, "A beginning balance");
+    DEFAULT_LABELS.put(TOTAL_RECEIVED_QUANTITY, "A total received quantity");
+    DEFAULT_LABELS.put(TOTAL_LOSSES_AND_ADJUSTMENTS, "A total losses and adjustments");
+    DEFAULT_LABELS.put(TOTAL_CONSUMED_QUANTITY, "A total consumed quantity");
+    DEFAULT_LABELS.put(STOCK_ON_HAND, "A total stock on hand");
+    DEFAULT_LABELS.put(REQUESTED_QUANTITY, "A quantity");
+  }
+
+  private static final LineItemValidation DEFAULT_VALIDATION = new LineItemValidation(
+      EnumSet.allOf(LineItemField.class), EnumSet.of(BEGINNING_BALANCE, TOTAL_RECEIVED_QUANTITY),
+      EnumSet.noneOf(LineItemField.class), false, EnumSet.allOf(LineItemField.class),
+      DEFAULT_LABELS);
+
+  private final LineItemField[] requiredFields;
+  private final String[] requiredMessages;
+  private final LineItemField[] nonNegativeFields;
+  private final String[] nonNegativeMessages;
+  private final LineItemField[] boundedFields;
+  private final String[] boundedMessages;
+  private final boolean explanationRequired;
+  private final Map<LineItemField, String> readOnlyMessages = new EnumMap<>(LineItemField.class);
+
+  private LineItemValidation(Set<LineItemField> required, Set<LineItemField> nonNegative,
+                             Set<LineItemField> bounded, boolean explanationRequired,
+                             Set<LineItemField> editable, Map<LineItemField, String> labels) {
+    requiredFields = required.toArray(new LineItemField[required.size()]);
+    requiredMessages = messages(requiredFields, labels, VALUE_MUST_BE_ENTERED_NOTIFICATION);
+    nonNegativeFields = nonNegative.toArray(new LineItemField[nonNegative.size()]);
+    nonNegativeMessages =
+        messages(nonNegativeFields, labels, VALUE_MUST_BE_NON_NEGATIVE_NOTIFICATION);
+    boundedFields = bounded.toArray(new LineItemField[bounded.size()]);
+    boundedMessages =
+        messages(boundedFields, labels, VALUE_MUST_NOT_EXCEED_AVAILABLE_STOCK_NOTIFICATION);
+    this.explanationRequired = explanationRequired;
+    for (LineItemField field : EnumSet.complementOf(EnumSet.copyOf(editable))) {
+      readOnlyMessages.put(field, labels.get(field) + VALUE_CANNOT_BE_CHANGED_NOTIFICATION);
+    }
+  }
+
+  /**
+   * Returns validation used for requisitions without a template, which requires all quantities
+   * and checks that beginning balance and received quantity are not negative.
+   */
+  public static LineItemValidation defaultValidation() {
+    return DEFAULT_VALIDATION;
+  }
+
+  /**
+   * Compiles validation rules of columns displayed in the given template.
+   *
+   * @param template Requisition template, null to use the default validation.
+   * @return Compiled validation.
+   */
+  public static LineItemValidation compile(RequisitionTemplate template) {
+    if (template == null) {
+      return DEFAULT_VALIDATION;
+    }
+
+    Set<LineItemField> displayed = EnumSet.noneOf(LineItemField.class);
+    Set<LineItemField> entered = EnumSet.noneOf(LineItemField.class);
+    Set<LineItemField> editable = EnumSet.noneOf(LineItemField.class);
+    Map<LineItemField, String> labels = new EnumMap<>(DEFAULT_LABELS);
+    for (LineItemField field : LineItemField.values()) {
+      RequisitionTemplateColumn column = template.getColumnsMap().get(field.getName());
+      if (column != null && Boolean.TRUE.equals(column.getIsDisplayed())) {
+        displayed.add(field);
+        if (column.getSource() != SourceType.CALCULATED) {
+          entered.add(field);
+          if (!Boolean.FALSE.equals(column.getCanBeChangedByUser())) {
+            editable.add(field);
+          }
+        }
+        if (column.getLabel() != null) {
+          labels.put(field, column.getLabel());
+        }
+      }
+    }
+
+    Set<LineItemField> nonNegative = EnumSet.copyOf(displayed);
+    nonNegative.retainAll(NON_NEGATIVE_FIELDS);
+    Set<LineItemField> bounded = EnumSet.noneOf(LineItemField.class);
+    if (displayed.containsAll(AVAILABLE_STOCK_FIELDS)) {
+      for (LineItemField field : EnumSet.of(TOTAL_CONSUMED_QUANTITY, STOCK_ON_HAND)) {
+        if (entered.contains(field)) {
+          bounded.add(field);
+        }
+      }
+    }
+    RequisitionTemplateColumn explanation = template.getColumnsMap()
+        .get(RequisitionLineItem.REQUESTED_QUANTITY_EXPLANATION);
+    boolean explanationRequired = entered.contains(REQUESTED_QUANTITY) && explanation != null
+        && Boolean.TRUE.equals(explanation.getIsDisplayed());
+
+    return new LineItemValidation(entered, nonNegative, bounded, explanationRequired, editable,
+        labels);
+  }
+
+  /**
+   * Validates a line item with changes of a client applied, before the changes are saved.
+   * Changed values of columns which are not displayed, are calculated or cannot be changed by
+   * users are rejected. The line item is then validated as on submission, except that values
+   * which are not entered yet are only rejected once the requisition was submitted, as line
+   * items of initiated requisitions are filled in gradually.
+   *
+   * @param lineItem Line item with the changes applied and its calculated values recalculated.
+   * @param changed Names of the changed values.
+   * @param submitted Whether the requisition containing the line item was submitted.
+   * @param index Index of the change, errors are reported under it.
+   * @param errors Errors of the changes.
+   */
+  public void validateChanges(RequisitionLineItem lineItem, Set<String> changed,
+                              boolean submitted, int index, Errors errors) {
+    for (Map.Entry<LineItemField, String> readOnly : readOnlyMessages.entrySet()) {
+      if (changed.contains(readOnly.getKey().getName())) {
+        reject(errors, index, readOnly.getKey().getName(), readOnly.getValue());
+      }
+    }
+    if (submitted) {
+      validate(lineItem, index, errors);
+    } else {
+      validateValues(lineItem, index, errors);
+    }
+  }
+
+  /**
+   * Validates all given line items and rejects every invalid value in the given errors, under
+   * the path of its line item.
+   *
+   * @param lineItems Line items to validate.
+   * @param errors Errors of the validated requisition.
+   */
+  public void validate(List<RequisitionLineItem> lineItems, Errors errors) {
+    int index = 0;
+    for (RequisitionLineItem lineItem : lineItems) {
+      validate(lineItem, index++, errors);
+    }
+  }
+
+  private void validate(RequisitionLineItem lineItem, int index, Errors errors) {
+    validateRequired(lineItem, index, errors);
+    validateValues(lineItem, index, errors);
+    if (explanationRequired && lineItem.getRequestedQuantity() != null
+        && isBlank(lineItem.getRequestedQuantityExplanation())) {
+      reject(errors, index, RequisitionLineItem.REQUESTED_QUANTITY_EXPLANATION,
+          "A requested quantity explanation" + VALUE_MUST_BE_ENTERED_NOTIFICATION);
+    }
+  }
+
+  private void validateValues(RequisitionLineItem lineItem, int index, Errors errors) {
+    validateNonNegative(lineItem, index, errors);
+    if (boundedFields.length > 0) {
+      validateAvailableStock(lineItem, index, errors);
+    }
+  }
+
+  private void validateRequired(RequisitionLineItem lineItem, int index, Errors errors) {
+    for (int rule = 0; rule < requiredFields.length; rule++) {
+      if (requiredFields[rule].get(lineItem) == null) {
+        reject(errors, index, requiredFields[rule].getName(), requiredMessages[rule]);
+      }
+    }
+  }
+
+  private void validateNonNegative(RequisitionLineItem lineItem, int index, Errors errors) {
+    for (int rule = 0; rule < nonNegativeFields.length; rule++) {
+      Integer value = nonNegativeFields[rule].get(lineItem);
+      if (value != null && value < 0) {
+        reject(errors, index, nonNegativeFields[rule].getName(), nonNegativeMessages[rule]);
+      }
+    }
+  }
+
+  private void validateAvailableStock(RequisitionLineItem lineItem, int index, Errors errors) {
+    Integer beginningBalance = lineItem.getBeginningBalance();
+    Integer received = lineItem.getTotalReceivedQuantity();
+    Integer adjustments = lineItem.getTotalLossesAndAdjustments();
+    if (beginningBalance == null || received == null || adjustments == null) {
+      return;
+    }
+
+    long available = (long) beginningBalance + received + adjustments;
+    for (int rule = 0; rule < boundedFields.length; rule++) {
+      Integer value = boundedFields[rule].get(lineItem);
+      if (value != null && value > available) {
+        reject(errors, index, boundedFields[rule].getName(), boundedMessages[rule]);
+      }
+    }
+  }
+
+  private static void reject(Errors errors, int index, String field, String message) {
+    errors.rejectValue(REQUISITION_LINE_ITEMS + '[' + index + "]." + field, message);
+  }
+
+  private static boolean isBlank(String value) {
+    return value == null || value.trim().isEmpty();
+  }
+
+  private static String[] messages(LineItemField[] fields, Map<LineItemField, String> labels,
+                                   String notification) {
+    List<String> messages = new ArrayList<>(fields.length);
+    for (LineItemField field : fields) {
+      messages.add(labels.get(field) + notification);
+    }
+    return messages.toArray(new String[fields.length]);
+  }
+}
@@ -1,7 +1,99 @@
 package org.openlmis.requisition.web;
 
+import org.openlmis.utils.ETagUtils;
+import org.openlmis.utils.ErrorResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.RequestMapping;
 
 @RequestMapping("/api")
 public abstract class BaseController {
+
+  /**
+   * Returns name of the authenticated user.
+   *
+   * @return Name of the user or null if the request is not authenticated.
+   */
+  protected String getCurrentUserName() {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    return authentication == null ? null : authentication.getName();
+  }
+
+  /**
+   * Checks whether the version the client based its changes on is no longer the current one.
+   * When the client does not send any version, the changes are not considered outdated, so it is
+   * only used by operations which do not send the resource.
+   *
+   * @param ifMatch Value of the If-Match header, may be null.
+   * @param requestVersion Version sent in the request body, may be null.
+   * @param currentVersion Version of the persisted entity.
+   * @return true if the client expects a version different from the current one.
+   */
+  protected boolean isOutdated(String ifMatch, Long requestVersion, Long currentVersion) {
+    Long expectedVersion = expectedVersion(ifMatch, requestVersion);
+    return expectedVersion != null && !expectedVersion.equals(currentVersion);
+  }
+
+  /**
+   * Reads the version the client based its changes on. Version given in the If-Match header
+   * takes precedence over the one sent in the body.
+   *
+   * @param ifMatch Value of the If-Match header, may be null.
+   * @param requestVersion Version sent in the request body, may be null.
+   * @return Expected version or null if the client did not send any.
+   */
+  protected Long expectedVersion(String ifMatch, Long requestVersion) {
+    Long expectedVersion = ETagUtils.parseVersion(ifMatch);
+    return expectedVersion == null ? requestVersion : expectedVersion;
+  }
+
+  /**
+   * Creates response informing that the client has to send the version its changes are based
+   * on.
+   *
+   * @param message Description of the operation that failed.
+   * @return ResponseEntity containing the error description and "#428 Precondition Required"
+   *         status.
+   */
+  protected ResponseEntity<ErrorResponse> versionRequired(String message) {
+    ErrorResponse errorResponse = new ErrorResponse(message,
+        "Version the changes are based on has to be sent in the If-Match header or the body");
+    return new ResponseEntity<>(errorResponse, HttpStatus.PRECONDITION_REQUIRED);
+  }
+
+  /**
+   * Creates response informing that the client tried to modify an outdated version.
+   *
+   * @param message Description of the operation that failed.
+   * @param currentVersion Version of the persisted entity, returned in the ETag header.
+   * @return ResponseEntity containing the error description and "#409 Conflict" status.
+   */
+  protected ResponseEntity<ErrorResponse> versionConflict(String message, Long currentVersion) {
+    HttpHeaders headers = new HttpHeaders();
+    if (currentVersion != null) {
+      headers.setETag(ETagUtils.toETag(currentVersion));
+    }
+    ErrorResponse errorResponse = new ErrorResponse(message,
+        "The resource has been modified, current version is " + currentVersion);
+    return new ResponseEntity<>(errorResponse, headers, HttpStatus.CONFLICT);
+  }
+
+  /**
+   * Creates response informing that the representation held by the client is still current.
+   *
+   * @param entityTag Current entity tag of the resource.
+   * @return ResponseEntity with the "#304 Not Modified" status and no body.
+   */
+  protected ResponseEntity<?> notModified(String entityTag) {
+    return new ResponseEntity<>(entityTagHeaders(entityTag), HttpStatus.NOT_MODIFIED);
+  }
+
+  protected HttpHeaders entityTagHeaders(String entityTag) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.setETag(entityTag);
+    return headers;
+  }
 }
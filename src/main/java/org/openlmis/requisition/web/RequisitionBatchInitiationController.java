@@ -0,0 +1,67 @@
+package org.openlmis.requisition.web;
+
+import org.openlmis.requisition.domain.RequisitionBatchInitiation;
+import org.openlmis.requisition.repository.RequisitionBatchInitiationRepository;
+import org.openlmis.requisition.service.RequisitionBatchInitiationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.net.URI;
+import java.util.UUID;
+
+/**
+ * Controller for initiating requisitions of all facilities supporting a program at once.
+ */
+@Controller
+public class RequisitionBatchInitiationController extends BaseController {
+
+  private static final String BATCH_URL = "/requisitions/initiate/batch";
+
+  @Autowired
+  private RequisitionBatchInitiationService requisitionBatchInitiationService;
+
+  @Autowired
+  private RequisitionBatchInitiationRepository requisitionBatchInitiationRepository;
+
+  /**
+   * Accepts initiation of requisitions of all active facilities supporting the program for
+   * the processing period. Facilities which already have a requisition are skipped.
+   *
+   * @param program UUID of the program of initiated requisitions.
+   * @param processingPeriod UUID of the processing period of initiated requisitions.
+   * @return ResponseEntity with the queued batch initiation.
+   */
+  @RequestMapping(value = BATCH_URL, method = RequestMethod.POST)
+  public ResponseEntity<RequisitionBatchInitiation> initiateRequisitions(
+      @RequestParam UUID program, @RequestParam UUID processingPeriod) {
+    RequisitionBatchInitiation batch =
+        requisitionBatchInitiationService.initiate(program, processingPeriod);
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.setLocation(URI.create("/api" + BATCH_URL + "/" + batch.getId()));
+    return new ResponseEntity<>(batch, headers, HttpStatus.ACCEPTED);
+  }
+
+  /**
+   * Get chosen batch initiation with its progress.
+   *
+   * @param batchId UUID of batch initiation which we want to get
+   * @return Batch initiation.
+   */
+  @RequestMapping(value = BATCH_URL + "/{id}", method = RequestMethod.GET)
+  public ResponseEntity<RequisitionBatchInitiation> getBatchInitiation(
+      @PathVariable("id") UUID batchId) {
+    RequisitionBatchInitiation batch = requisitionBatchInitiationRepository.findOne(batchId);
+    if (batch == null) {
+      return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+    return new ResponseEntity<>(batch, HttpStatus.OK);
+  }
+}
@@ -1,11 +1,14 @@
 package org.openlmis.requisition.web;
 
 import org.openlmis.requisition.domain.Comment;
+import org.openlmis.requisition.dto.CommentsDto;
 import org.openlmis.requisition.exception.CommentNotFoundException;
 import org.openlmis.requisition.exception.RequisitionNotFoundException;
 import org.openlmis.requisition.repository.CommentRepository;
 import org.openlmis.requisition.service.RequisitionCommentService;
 import org.openlmis.utils.ErrorResponse;
+import org.openlmis.utils.InvalidPageRequestException;
+import org.openlmis.utils.Pagination;
 import org.openlmis.view.View;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,9 +22,9 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
-import java.util.List;
 import java.util.UUID;
 
 /**
@@ -38,24 +41,42 @@ public class RequisitionCommentController extends BaseController {
   @Autowired
   private CommentRepository commentRepository;
 
+  @Autowired
+  private Pagination pagination;
+
   /**
    * Add comment to the requisition.
+   *
+   * @param comment A comment bound to the request body
+   * @param id UUID of the requisition
+   * @return ResponseEntity containing the created comment
    */
   @RequestMapping(value = "/requisitions/{id}/comments", method = RequestMethod.POST)
   public ResponseEntity<MappingJacksonValue> insertComment(@RequestBody Comment comment,
                                                            @PathVariable("id") UUID id)
           throws RequisitionNotFoundException {
-    List<Comment> comments = commentService.insertComment(id, comment);
-    return commentResponse(comments);
+    Comment created = commentService.insertComment(id, comment);
+    return commentResponse(created, HttpStatus.CREATED);
   }
 
-  /**s
-   * Get all comments for specified requisition.
+  /**
+   * Get comments of specified requisition in the order they were added.
+   *
+   * @param id UUID of the requisition
+   * @param after Token returned by the previous request, comments are returned from the first
+   *              one if it is not given.
+   * @param limit Maximum number of returned comments.
+   * @return ResponseEntity with comments, total number of comments, next token and information
+   *         whether there are more comments to fetch.
    */
   @RequestMapping(value = "/requisitions/{id}/comments", method = RequestMethod.GET)
   public ResponseEntity<MappingJacksonValue> getCommentsForRequisition(
-          @PathVariable("id") UUID id) throws RequisitionNotFoundException {
-    List<Comment> comments = commentService.findCommentsForRequisition(id);
+      @PathVariable("id") UUID id,
+      @RequestParam(value = "after", required = false) UUID after,
+      @RequestParam(value = "limit", required = false, defaultValue = "100") Integer limit)
+      throws RequisitionNotFoundException, InvalidPageRequestException {
+    CommentsDto comments =
+        commentService.findCommentsForRequisition(id, after, pagination.limit(limit));
     return commentResponse(comments);
   }
 
@@ -117,8 +138,13 @@ public class RequisitionCommentController extends BaseController {
   }
 
   private ResponseEntity<MappingJacksonValue> commentResponse(Object comments) {
+    return commentResponse(comments, HttpStatus.OK);
+  }
+
+  private ResponseEntity<MappingJacksonValue> commentResponse(Object comments,
+                                                              HttpStatus status) {
     MappingJacksonValue value = new MappingJacksonValue(comments);
     value.setSerializationView(View.BasicInformation.class);
-    return new ResponseEntity<>(value, HttpStatus.OK);
+    return new ResponseEntity<>(value, status);
   }
 }
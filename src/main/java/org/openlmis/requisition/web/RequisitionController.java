@@ -3,21 +3,40 @@ package org.openlmis.requisition.web;
 import static org.springframework.web.bind.annotation.RequestMethod.POST;
 
 import org.openlmis.requisition.domain.Requisition;
+import org.openlmis.requisition.domain.RequisitionArchive;
+import org.openlmis.requisition.domain.RequisitionChange;
+import org.openlmis.requisition.domain.RequisitionJob;
 import org.openlmis.requisition.domain.RequisitionStatus;
+import org.openlmis.requisition.domain.RequisitionStatusCount;
+import org.openlmis.requisition.dto.RequisitionChangesDto;
 import org.openlmis.requisition.dto.UserDto;
 import org.openlmis.requisition.exception.RequisitionException;
+import org.openlmis.requisition.exception.RequisitionTemplateColumnException;
+import org.openlmis.requisition.repository.RequisitionArchiveRepository;
+import org.openlmis.requisition.repository.RequisitionChangeRepository;
 import org.openlmis.requisition.repository.RequisitionRepository;
+import org.openlmis.requisition.repository.RequisitionStatusCountRepository;
+import org.openlmis.requisition.service.CompiledTemplateService;
+import org.openlmis.requisition.service.RequisitionArchiveService;
+import org.openlmis.requisition.service.RequisitionJobService;
+import org.openlmis.requisition.service.RequisitionSearchEntryService;
 import org.openlmis.requisition.service.RequisitionService;
 import org.openlmis.requisition.service.referencedata.UserReferenceDataService;
 import org.openlmis.requisition.validate.RequisitionValidator;
 import org.openlmis.settings.service.ConfigurationSettingService;
+import org.openlmis.utils.ETagUtils;
 import org.openlmis.utils.ErrorResponse;
+import org.openlmis.utils.InvalidPageRequestException;
+import org.openlmis.utils.Pagination;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -29,17 +48,21 @@ import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.InitBinder;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.client.RestClientException;
 
+import java.net.URI;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 import javax.validation.Valid;
 
@@ -49,9 +72,17 @@ public class RequisitionController extends BaseController {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(RequisitionController.class);
 
+  private static final int MAX_CHANGES_LIMIT = 1000;
+
   @Autowired
   private RequisitionRepository requisitionRepository;
 
+  @Autowired
+  private RequisitionChangeRepository requisitionChangeRepository;
+
+  @Autowired
+  private RequisitionStatusCountRepository requisitionStatusCountRepository;
+
   @Autowired
   @Qualifier("beforeSaveRequisitionValidator")
   private RequisitionValidator validator;
@@ -59,12 +90,33 @@ public class RequisitionController extends BaseController {
   @Autowired
   private RequisitionService requisitionService;
 
+  @Autowired
+  private RequisitionSearchEntryService requisitionSearchEntryService;
+
+  @Autowired
+  private CompiledTemplateService compiledTemplateService;
+
+  @Autowired
+  private RequisitionJobService requisitionJobService;
+
+  @Autowired
+  private RequisitionArchiveRepository requisitionArchiveRepository;
+
+  @Autowired
+  private RequisitionArchiveService requisitionArchiveService;
+
   @Autowired
   private ConfigurationSettingService configurationSettingService;
 
   @Autowired
   private UserReferenceDataService userReferenceDataService;
 
+  @Autowired
+  private Pagination pagination;
+
+  @Autowired
+  private RestExceptionHandler restExceptionHandler;
+
   @InitBinder("requisition")
   protected void initBinder(final WebDataBinder binder) {
     binder.addValidators(validator);
@@ -88,28 +140,54 @@ public class RequisitionController extends BaseController {
   }
 
   /**
-   * Submits earlier initiated requisition.
+   * Submits earlier initiated requisition. In asynchronous mode the submission is only validated
+   * and accepted, and the returned job tells the result once it is processed.
    */
   @RequestMapping(value = "/requisitions/{id}/submit", method = RequestMethod.PUT)
   public ResponseEntity<?> submitRequisition(@RequestBody @Valid Requisition requisition,
                                              BindingResult bindingResult,
-                                             @PathVariable("id") UUID requisitionId) {
+                                             @PathVariable("id") UUID requisitionId,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH,
+                                                 required = false) String ifMatch,
+                                             @RequestParam(value = "async", required = false,
+                                                 defaultValue = "false") boolean async) {
     if (bindingResult.hasErrors()) {
       return new ResponseEntity<>(getRequisitionErrors(bindingResult), HttpStatus.BAD_REQUEST);
     }
 
+    if (async) {
+      return acceptJob(requisitionId, "submit",
+          () -> submitRequisition(requisition, requisitionId, ifMatch));
+    }
+    return submitRequisition(requisition, requisitionId, ifMatch);
+  }
+
+  private ResponseEntity<?> submitRequisition(Requisition requisition, UUID requisitionId,
+                                              String ifMatch) {
     Requisition savedRequisition = requisitionRepository.findOne(requisitionId);
 
     if (savedRequisition == null) {
       return new ResponseEntity<>(HttpStatus.NOT_FOUND);
     }
 
+    Long expectedVersion = expectedVersion(ifMatch, requisition.getVersion());
+    if (expectedVersion == null || requisition.hasLineItemsWithoutVersion()) {
+      return versionRequired("Cannot submit requisition with id: " + requisitionId
+          + " without versions of it and its line items");
+    }
+    if (!expectedVersion.equals(savedRequisition.getVersion())) {
+      return versionConflict("Cannot submit outdated requisition with id: " + requisitionId,
+          savedRequisition.getVersion());
+    }
+
     try {
       LOGGER.debug("Submitting a requisition with id " + requisition.getId());
-      requisition.submit();
+      requisition.setVersion(expectedVersion);
+      requisition.submit(
+          compiledTemplateService.getCalculation(savedRequisition.getProgram()));
       requisitionRepository.save(requisition);
       LOGGER.debug("Requisition with id " + requisition.getId() + " submitted");
-    } catch (RequisitionException ex) {
+    } catch (RequisitionException | RequisitionTemplateColumnException ex) {
       ErrorResponse errorResponse =
           new ErrorResponse("An error occurred while submitting requisition with id: "
               + requisition.getId(), ex.getMessage());
@@ -149,13 +227,30 @@ public class RequisitionController extends BaseController {
    *
    * @param requisition A requisition bound to the request body
    * @param requisitionId UUID of requisition which we want to update
+   * @param ifMatch Version of requisition the changes are based on
    * @return ResponseEntity containing the updated requisition
    */
   @RequestMapping(value = "/requisitions/{id}", method = RequestMethod.PUT)
   public ResponseEntity<?> updateRequisition(@RequestBody Requisition requisition,
-                                       @PathVariable("id") UUID requisitionId) {
+                                       @PathVariable("id") UUID requisitionId,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH,
+                                           required = false) String ifMatch) {
 
     Requisition requisitionToUpdate = requisitionRepository.findOne(requisitionId);
+    if (requisitionToUpdate == null) {
+      return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+
+    Long expectedVersion = expectedVersion(ifMatch, requisition.getVersion());
+    if (expectedVersion == null) {
+      return versionRequired("Cannot update requisition with id: " + requisitionId
+          + " without its version");
+    }
+    if (!expectedVersion.equals(requisitionToUpdate.getVersion())) {
+      return versionConflict("Cannot update outdated requisition with id: " + requisitionId,
+          requisitionToUpdate.getVersion());
+    }
+
     try {
       if (requisitionToUpdate.getStatus() == RequisitionStatus.INITIATED) {
         LOGGER.debug("Updating requisition with id: " + requisitionId);
@@ -177,21 +272,88 @@ public class RequisitionController extends BaseController {
   }
 
   /**
-   * Get chosen requisition.
+   * Get chosen requisition. Requisitions which were moved into the archive are read from it.
    *
    * @param requisitionId UUID of requisition whose we want to get
-   * @return Requisition.
+   * @param ifNoneMatch Entity tag of the requisition already held by the client
+   * @return Requisition or "#304 Not Modified" if the client already has its current state.
    */
   @RequestMapping(value = "/requisitions/{id}", method = RequestMethod.GET)
-  public ResponseEntity<?> getRequisition(@PathVariable("id") UUID requisitionId) {
+  public ResponseEntity<?> getRequisition(@PathVariable("id") UUID requisitionId,
+                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH,
+                                              required = false) String ifNoneMatch) {
+    String entityTag = ETagUtils.toETag(requisitionRepository.findVersionStamp(requisitionId));
+    if (entityTag == null) {
+      return getArchivedRequisition(requisitionId, ifNoneMatch);
+    }
+    if (ETagUtils.matches(ifNoneMatch, entityTag)) {
+      return notModified(entityTag);
+    }
+
     Requisition requisition = requisitionRepository.findOne(requisitionId);
     if (requisition == null) {
-      return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+      return getArchivedRequisition(requisitionId, ifNoneMatch);
     } else {
-      return new ResponseEntity<>(requisition, HttpStatus.OK);
+      return new ResponseEntity<>(requisition, entityTagHeaders(entityTag), HttpStatus.OK);
     }
   }
 
+  /**
+   * Returns changes of requisitions recorded after the given token, in the order of the
+   * transactions which made them. Clients pass the returned next token with the following
+   * request to receive only changes they have not seen yet.
+   *
+   * @param since Token returned by the previous request, changes are returned from the
+   *              beginning if it is not given.
+   * @param limit Maximum number of returned changes.
+   * @return ResponseEntity with changes, next token and information whether there are more
+   *         changes to fetch.
+   */
+  @RequestMapping(value = "/requisitions/changes", method = RequestMethod.GET)
+  public ResponseEntity<?> getRequisitionChanges(
+      @RequestParam(value = "since", required = false,
+          defaultValue = RequisitionChange.START_TOKEN) String since,
+      @RequestParam(value = "limit", required = false, defaultValue = "100") Integer limit) {
+    long[] position = RequisitionChange.parseToken(since);
+    if (position == null || limit < 1 || limit > MAX_CHANGES_LIMIT) {
+      ErrorResponse errorResponse = new ErrorResponse("Invalid change feed parameters",
+          "Token must be returned by the change feed and limit must be between 1 and "
+              + MAX_CHANGES_LIMIT);
+      return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+    }
+
+    List<RequisitionChange> changes =
+        requisitionChangeRepository.findChanges(position[0], position[1], limit + 1);
+    boolean hasMore = changes.size() > limit;
+    if (hasMore) {
+      changes = changes.subList(0, limit);
+    }
+    String nextToken = changes.isEmpty() ? since : changes.get(changes.size() - 1).toToken();
+
+    return new ResponseEntity<>(
+        new RequisitionChangesDto(changes, nextToken, hasMore), HttpStatus.OK);
+  }
+
+  /**
+   * Returns numbers of requisitions by program, facility, processing period and status.
+   * Counts are maintained with every status transition, so they are read without scanning
+   * requisitions.
+   *
+   * @param program UUID of program to limit counts to.
+   * @param facility UUID of facility to limit counts to.
+   * @param processingPeriod UUID of processing period to limit counts to.
+   * @return ResponseEntity with list of requisition counts, one for each group.
+   */
+  @RequestMapping(value = "/requisitions/stats", method = RequestMethod.GET)
+  public ResponseEntity<?> getRequisitionStats(
+      @RequestParam(value = "program", required = false) UUID program,
+      @RequestParam(value = "facility", required = false) UUID facility,
+      @RequestParam(value = "processingPeriod", required = false) UUID processingPeriod) {
+    List<RequisitionStatusCount> counts =
+        requisitionStatusCountRepository.searchCounts(program, facility, processingPeriod);
+    return new ResponseEntity<>(counts, HttpStatus.OK);
+  }
+
   /**
    * Finds requisitions matching all of provided parameters.
    */
@@ -250,17 +412,29 @@ public class RequisitionController extends BaseController {
    * Approve specified by id requisition.
    */
   @RequestMapping(value = "/requisitions/{id}/approve", method = RequestMethod.PUT)
-  public ResponseEntity<?> approveRequisition(@PathVariable("id") UUID requisitionId) {
+  public ResponseEntity<?> approveRequisition(@PathVariable("id") UUID requisitionId,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH,
+                                                  required = false) String ifMatch) {
     Requisition requisition = requisitionRepository.findOne(requisitionId);
     if (requisition == null) {
       return new ResponseEntity(HttpStatus.NOT_FOUND);
     }
+    if (isOutdated(ifMatch, null, requisition.getVersion())) {
+      return versionConflict("Cannot approve outdated requisition with id: " + requisitionId,
+          requisition.getVersion());
+    }
     if (requisition.getStatus() == RequisitionStatus.AUTHORIZED
         || (configurationSettingService.getBoolValue("skipAuthorization")
         && requisition.getStatus() == RequisitionStatus.SUBMITTED)) {
       requisition.setStatus(RequisitionStatus.APPROVED);
       requisitionRepository.save(requisition);
       LOGGER.debug("Requisition with id " + requisitionId + " approved");
+      try {
+        requisitionSearchEntryService.createEntry(requisition);
+      } catch (RestClientException ex) {
+        LOGGER.error("Search entry of requisition with id " + requisitionId
+            + " will be created with next refresh", ex);
+      }
       return new ResponseEntity<>(requisition, HttpStatus.OK);
     } else {
       return new ResponseEntity(HttpStatus.BAD_REQUEST);
@@ -282,6 +456,41 @@ public class RequisitionController extends BaseController {
     return new ResponseEntity<>(requisitions, HttpStatus.OK);
   }
 
+  private ResponseEntity<?> acceptJob(UUID requisitionId, String operation,
+                                      Supplier<ResponseEntity<?>> task) {
+    String user = getCurrentUserName();
+    RequisitionJob job = requisitionJobService.enqueue(requisitionId, operation, user, () -> {
+      try {
+        return task.get();
+      } catch (OptimisticLockingFailureException ex) {
+        return restExceptionHandler.handleOptimisticLockingFailure(ex);
+      }
+    });
+    if (job == null) {
+      return new ResponseEntity<>(new ErrorResponse("Cannot accept " + operation
+          + " of requisition with id: " + requisitionId, "Too many jobs are waiting, try again"),
+          HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.setLocation(URI.create("/api/jobs/" + job.getId()));
+    return new ResponseEntity<>(job, headers, HttpStatus.ACCEPTED);
+  }
+
+  private ResponseEntity<?> getArchivedRequisition(UUID requisitionId, String ifNoneMatch) {
+    RequisitionArchive archive = requisitionArchiveRepository.findOne(requisitionId);
+    if (archive == null) {
+      return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+
+    String entityTag = ETagUtils.toETag(archive.getVersionStamp());
+    if (ETagUtils.matches(ifNoneMatch, entityTag)) {
+      return notModified(entityTag);
+    }
+    return new ResponseEntity<>(requisitionArchiveService.restore(archive),
+        entityTagHeaders(entityTag), HttpStatus.OK);
+  }
+
   private Map<String, String> getRequisitionErrors(BindingResult bindingResult) {
     return new HashMap<String, String>() {
       {
@@ -316,12 +525,19 @@ public class RequisitionController extends BaseController {
    * @param requisition Requisition object to be authorized.
    * @param bindingResult Object used for validation.
    * @param requisitionId UUID of Requisition to authorize.
-   * @return ResponseEntity with authorized Requisition if authorization was successful.
+   * @param ifMatch Version of Requisition the changes are based on.
+   * @param async Whether the authorization should be processed in the background.
+   * @return ResponseEntity with authorized Requisition if authorization was successful, or with
+   *         the accepted job in asynchronous mode.
    */
   @RequestMapping(value = "/requisitions/{id}/authorize", method = RequestMethod.PUT)
   public ResponseEntity<?> authorizeRequisition(@RequestBody @Valid Requisition requisition,
                                                 BindingResult bindingResult,
-                                                @PathVariable("id") UUID requisitionId) {
+                                                @PathVariable("id") UUID requisitionId,
+                                                @RequestHeader(value = HttpHeaders.IF_MATCH,
+                                                    required = false) String ifMatch,
+                                                @RequestParam(value = "async", required = false,
+                                                    defaultValue = "false") boolean async) {
 
     if (configurationSettingService.getBoolValue("skipAuthorization")) {
       return new ResponseEntity<>("Requisition authorization is configured to be skipped",
@@ -332,17 +548,38 @@ public class RequisitionController extends BaseController {
       return new ResponseEntity<>(getRequisitionErrors(bindingResult), HttpStatus.BAD_REQUEST);
     }
 
+    if (async) {
+      return acceptJob(requisitionId, "authorize",
+          () -> authorizeRequisition(requisition, requisitionId, ifMatch));
+    }
+    return authorizeRequisition(requisition, requisitionId, ifMatch);
+  }
+
+  private ResponseEntity<?> authorizeRequisition(Requisition requisition, UUID requisitionId,
+                                                 String ifMatch) {
     Requisition savedRequisition = requisitionRepository.findOne(requisitionId);
 
     if (savedRequisition == null) {
       return new ResponseEntity<>(HttpStatus.NOT_FOUND);
     }
 
+    Long expectedVersion = expectedVersion(ifMatch, requisition.getVersion());
+    if (expectedVersion == null || requisition.hasLineItemsWithoutVersion()) {
+      return versionRequired("Cannot authorize requisition with id: " + requisitionId
+          + " without versions of it and its line items");
+    }
+    if (!expectedVersion.equals(savedRequisition.getVersion())) {
+      return versionConflict("Cannot authorize outdated requisition with id: " + requisitionId,
+          savedRequisition.getVersion());
+    }
+
     try {
-      requisition.authorize();
+      requisition.setVersion(expectedVersion);
+      requisition.authorize(
+          compiledTemplateService.getCalculation(savedRequisition.getProgram()));
       requisitionRepository.save(requisition);
       LOGGER.info("Requisition: " +  requisitionId + " authorized.");
-    } catch (RequisitionException ex) {
+    } catch (RequisitionException | RequisitionTemplateColumnException ex) {
       ErrorResponse errorResponse =
           new ErrorResponse("An error occurred while authorizing requisition with id: "
               + requisition.getId(), ex.getMessage());
@@ -366,10 +603,11 @@ public class RequisitionController extends BaseController {
    * @param filterBy Field used to filter: "programName", "facilityCode", "facilityName" or "all".
    * @param sortBy Field used to sort: "programName", "facilityCode" or "facilityName".
    * @param descending Descending direction for sort.
-   * @param pageNumber Page number to return.
+   * @param pageNumber Page number to return, starting from 1.
    * @param pageSize Quantity for one page.
    *
-   * @return ResponseEntity with list of approved requisitions.
+   * @return ResponseEntity with page of approved requisitions and total number of them.
+   * @throws InvalidPageRequestException if the page is not allowed.
    */
   @RequestMapping(value = "/requisitions/approved/search", method = RequestMethod.GET)
   public ResponseEntity<?> searchApprovedRequisitionsWithSortAndFilterAndPaging(
@@ -378,17 +616,18 @@ public class RequisitionController extends BaseController {
       @RequestParam String sortBy,
       @RequestParam Boolean descending,
       @RequestParam Integer pageNumber,
-      @RequestParam Integer pageSize) {
+      @RequestParam Integer pageSize) throws InvalidPageRequestException {
+    pagination.checkPage(pageNumber, pageSize);
 
     // TODO Add filtering about available Requisition for user
     // (If Reference Data Service - EBAC will be finished)
     // TODO Add available supplying depot and filtering about this
     // (If OLMIS-227 will be finished)
 
-    List<Requisition> approvedRequisitionList =
+    Page<Requisition> approvedRequisitions =
         requisitionService.searchApprovedRequisitionsWithSortAndFilterAndPaging(
             filterValue, filterBy, sortBy, descending, pageNumber, pageSize);
 
-    return new ResponseEntity<>(approvedRequisitionList, HttpStatus.OK);
+    return new ResponseEntity<>(approvedRequisitions, HttpStatus.OK);
   }
 }
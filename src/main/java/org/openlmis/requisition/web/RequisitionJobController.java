@@ -0,0 +1,48 @@
+package org.openlmis.requisition.web;
+
+import org.openlmis.requisition.domain.RequisitionJob;
+import org.openlmis.requisition.dto.RequisitionJobMetricsDto;
+import org.openlmis.requisition.service.RequisitionJobService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+import java.util.UUID;
+
+/**
+ * Controller for polling jobs of requisitions submitted or authorized asynchronously.
+ */
+@Controller
+public class RequisitionJobController extends BaseController {
+
+  @Autowired
+  private RequisitionJobService requisitionJobService;
+
+  /**
+   * Get chosen job with its status and, once it is finished, its result. Jobs submitted by other
+   * users are not found.
+   *
+   * @param jobId UUID of job which we want to get
+   * @return Job.
+   */
+  @RequestMapping(value = "/jobs/{id}", method = RequestMethod.GET)
+  public ResponseEntity<RequisitionJob> getJob(@PathVariable("id") UUID jobId) {
+    RequisitionJob job = requisitionJobService.getJob(jobId, getCurrentUserName());
+    if (job == null) {
+      return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+    return new ResponseEntity<>(job, HttpStatus.OK);
+  }
+
+  /**
+   * Get queue depth and processing times of jobs.
+   */
+  @RequestMapping(value = "/jobs/metrics", method = RequestMethod.GET)
+  public ResponseEntity<RequisitionJobMetricsDto> getMetrics() {
+    return new ResponseEntity<>(requisitionJobService.getMetrics(), HttpStatus.OK);
+  }
+}
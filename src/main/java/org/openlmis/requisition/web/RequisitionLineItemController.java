@@ -3,34 +3,56 @@ package org.openlmis.requisition.web;
 import org.openlmis.requisition.domain.Requisition;
 import org.openlmis.requisition.domain.RequisitionLineItem;
 import org.openlmis.requisition.domain.RequisitionStatus;
+import org.openlmis.requisition.exception.RequisitionException;
+import org.openlmis.requisition.exception.RequisitionLineItemValidationException;
+import org.openlmis.requisition.exception.RequisitionNotFoundException;
+import org.openlmis.requisition.exception.RequisitionTemplateColumnException;
 import org.openlmis.requisition.repository.RequisitionLineItemRepository;
 import org.openlmis.requisition.service.RequisitionLineItemService;
+import org.openlmis.utils.EntityExporter;
 import org.openlmis.utils.ErrorResponse;
+import org.openlmis.utils.InvalidPageRequestException;
+import org.openlmis.utils.Pagination;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @Controller
 public class RequisitionLineItemController extends BaseController {
 
+  private static final Set<String> SORTABLE = Collections.singleton("orderableProduct");
+
   private static final Logger LOGGER = LoggerFactory.getLogger(RequisitionLineItemController.class);
 
   @Autowired
   private RequisitionLineItemService requisitionLineItemService;
 
+  @Autowired
+  private Pagination pagination;
+
+  @Autowired
+  private EntityExporter entityExporter;
+
   @Autowired
   private RequisitionLineItemRepository requisitionLineItemRepository;
 
@@ -61,31 +83,87 @@ public class RequisitionLineItemController extends BaseController {
   }
 
   /**
-   * Get all requisitionLineItems.
+   * Get a page of requisitionLineItems.
    *
-   * @return RequisitionLineItems.
+   * @param pageNumber Page number to return, starting from 1.
+   * @param pageSize Quantity for one page, at most the configured maximum page size.
+   * @param sortBy Field used to sort: "id" or "orderableProduct", by default "id".
+   * @param descending Descending direction for sort.
+   * @return ResponseEntity with page of requisitionLineItems and total number of them.
+   * @throws InvalidPageRequestException if the page is too large or the sort is not allowed.
    */
   @RequestMapping(value = "/requisitionLineItems", method = RequestMethod.GET)
   @ResponseBody
-  public ResponseEntity<?> getAllRequisitionLineItems() {
-    Iterable<RequisitionLineItem> requisitionLineItems = requisitionLineItemRepository.findAll();
+  public ResponseEntity<?> getAllRequisitionLineItems(
+      @RequestParam Integer pageNumber,
+      @RequestParam Integer pageSize,
+      @RequestParam(required = false) String sortBy,
+      @RequestParam(required = false) Boolean descending) throws InvalidPageRequestException {
+    Page<RequisitionLineItem> requisitionLineItems = requisitionLineItemRepository.findAll(
+        pagination.pageRequest(pageNumber, pageSize, sortBy, descending, SORTABLE));
     return new ResponseEntity<>(requisitionLineItems, HttpStatus.OK);
   }
 
+  /**
+   * Streams all requisitionLineItems as a JSON array for exports. They are read in batches, so the
+   * response is not limited by the page size.
+   *
+   * @return ResponseEntity writing all requisitionLineItems.
+   */
+  @RequestMapping(value = "/requisitionLineItems/export", method = RequestMethod.GET)
+  public ResponseEntity<StreamingResponseBody> exportRequisitionLineItems() {
+    return entityExporter.export(RequisitionLineItem.class);
+  }
+
+  /**
+   * Summarizes line items of all requisitions of a program and processing period.
+   *
+   * @param program UUID of program of summarized requisitions.
+   * @param processingPeriod UUID of processing period of summarized requisitions.
+   * @return ResponseEntity containing consumption, stock on hand and number of stock-outs.
+   */
+  @RequestMapping(value = "/requisitionLineItems/summary", method = RequestMethod.GET)
+  public ResponseEntity<?> summarizeRequisitionLineItems(
+      @RequestParam(value = "program") UUID program,
+      @RequestParam(value = "processingPeriod") UUID processingPeriod) {
+    try {
+      return new ResponseEntity<>(requisitionLineItemService.summarizeRequisitionLineItems(
+          program, processingPeriod), HttpStatus.OK);
+    } catch (RequisitionTemplateColumnException ex) {
+      ErrorResponse errorResponse = new ErrorResponse(
+          "An error occurred while summarizing requisition line items", ex.getMessage());
+      LOGGER.debug(errorResponse.getMessage(), ex);
+      return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+    }
+  }
+
   /**
    * Allows updating requisitionLineItems.
    *
    * @param requisitionLineItem A requisitionLineItem bound to the request body
    * @param requisitionLineItemId UUID of requisitionLineItem which we want to update
+   * @param ifMatch Version of requisitionLineItem the changes are based on
    * @return ResponseEntity containing the updated requisitionLineItem
    */
   @RequestMapping(value = "/requisitionLineItems/{id}", method = RequestMethod.PUT)
   public ResponseEntity<?> updateRequisitionLineItems(
       @RequestBody RequisitionLineItem requisitionLineItem,
-      @PathVariable("id") UUID requisitionLineItemId) {
+      @PathVariable("id") UUID requisitionLineItemId,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 
     RequisitionLineItem requisitionLineItemToUpdate =
           requisitionLineItemRepository.findOne(requisitionLineItemId);
+    Long expectedVersion = expectedVersion(ifMatch, requisitionLineItem.getVersion());
+    if (requisitionLineItemToUpdate != null && expectedVersion == null) {
+      return versionRequired("Cannot update requisitionLineItem with id: "
+          + requisitionLineItemId + " without its version");
+    }
+    if (requisitionLineItemToUpdate != null
+        && !expectedVersion.equals(requisitionLineItemToUpdate.getVersion())) {
+      return versionConflict("Cannot update outdated requisitionLineItem with id: "
+          + requisitionLineItemId, requisitionLineItemToUpdate.getVersion());
+    }
+
     try {
       if (requisitionLineItemToUpdate == null) {
         requisitionLineItemToUpdate = new RequisitionLineItem();
@@ -183,4 +261,46 @@ public class RequisitionLineItemController extends BaseController {
 
     return new ResponseEntity<>(result, HttpStatus.OK);
   }
+
+  /**
+   * Applies changes of chosen line items of the requisition. Only line items and values sent
+   * in the request are updated, values which are not sent or are sent as null stay unchanged,
+   * so values cannot be cleared through this endpoint. Every line item must be sent with the
+   * version its changes are based on.
+   *
+   * @param requisitionId UUID of requisition containing the line items.
+   * @param changes Line items with their ids, versions and changed values.
+   * @return ResponseEntity containing new versions of changed line items.
+   */
+  @RequestMapping(value = "/requisitions/{id}/requisitionLineItems",
+      method = RequestMethod.PATCH)
+  public ResponseEntity<?> patchRequisitionLineItems(
+      @PathVariable("id") UUID requisitionId,
+      @RequestBody List<RequisitionLineItem> changes) {
+    for (RequisitionLineItem change : changes) {
+      if (change.getVersion() == null) {
+        return versionRequired("Cannot change line items of requisition with id: "
+            + requisitionId + " without their versions");
+      }
+    }
+
+    try {
+      LOGGER.debug("Changing line items of requisition with id: " + requisitionId);
+      Map<UUID, Long> versions =
+          requisitionLineItemService.patchRequisitionLineItems(requisitionId, changes);
+      return new ResponseEntity<>(versions, HttpStatus.OK);
+    } catch (RequisitionNotFoundException ex) {
+      LOGGER.debug(ex.getMessage(), ex);
+      return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    } catch (RequisitionLineItemValidationException ex) {
+      LOGGER.debug(ex.getMessage(), ex);
+      return new ResponseEntity<>(ex.getErrors(), HttpStatus.BAD_REQUEST);
+    } catch (RequisitionException | RequisitionTemplateColumnException ex) {
+      ErrorResponse errorResponse =
+          new ErrorResponse("An error occurred while changing line items of requisition with id: "
+              + requisitionId, ex.getMessage());
+      LOGGER.debug(errorResponse.getMessage(), ex);
+      return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+    }
+  }
 }
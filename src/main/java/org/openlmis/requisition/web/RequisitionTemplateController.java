@@ -4,10 +4,13 @@ import org.openlmis.requisition.domain.RequisitionTemplate;
 import org.openlmis.requisition.repository.RequisitionTemplateRepository;
 import org.openlmis.requisition.service.RequisitionTemplateService;
 import org.openlmis.utils.ErrorResponse;
+import org.openlmis.utils.InvalidPageRequestException;
+import org.openlmis.utils.Pagination;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
@@ -18,17 +21,24 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 @Controller
 public class RequisitionTemplateController extends BaseController {
 
+  private static final Set<String> SORTABLE = Collections.singleton("program");
+
   private static final Logger LOGGER = LoggerFactory.getLogger(RequisitionTemplateController.class);
 
   @Autowired
   private RequisitionTemplateService requisitionTemplateService;
 
+  @Autowired
+  private Pagination pagination;
+
   @Autowired
   private RequisitionTemplateRepository requisitionTemplateRepository;
 
@@ -59,14 +69,24 @@ public class RequisitionTemplateController extends BaseController {
   }
 
   /**
-   * Get all requisitionTemplates.
+   * Get a page of requisitionTemplates.
    *
-   * @return RequisitionTemplates.
+   * @param pageNumber Page number to return, starting from 1.
+   * @param pageSize Quantity for one page, at most the configured maximum page size.
+   * @param sortBy Field used to sort: "id" or "program", by default "id".
+   * @param descending Descending direction for sort.
+   * @return ResponseEntity with page of requisitionTemplates and total number of them.
+   * @throws InvalidPageRequestException if the page is too large or the sort is not allowed.
    */
   @RequestMapping(value = "/requisitionTemplates", method = RequestMethod.GET)
   @ResponseBody
-  public ResponseEntity<?> getAllRequisitionTemplates() {
-    Iterable<RequisitionTemplate> requisitionTemplates = requisitionTemplateRepository.findAll();
+  public ResponseEntity<?> getAllRequisitionTemplates(
+      @RequestParam Integer pageNumber,
+      @RequestParam Integer pageSize,
+      @RequestParam(required = false) String sortBy,
+      @RequestParam(required = false) Boolean descending) throws InvalidPageRequestException {
+    Page<RequisitionTemplate> requisitionTemplates = requisitionTemplateRepository.findAll(
+        pagination.pageRequest(pageNumber, pageSize, sortBy, descending, SORTABLE));
     return new ResponseEntity<>(requisitionTemplates, HttpStatus.OK);
   }
 
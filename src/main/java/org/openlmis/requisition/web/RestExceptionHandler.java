@@ -0,0 +1,64 @@
+package org.openlmis.requisition.web;
+
+import org.openlmis.requisition.repository.EntityVersionRepository;
+import org.openlmis.utils.ErrorResponse;
+import org.openlmis.utils.InvalidPageRequestException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+/**
+ * Maps exceptions thrown by any controller to error responses.
+ */
+@ControllerAdvice
+public class RestExceptionHandler {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(RestExceptionHandler.class);
+
+  @Autowired
+  private EntityVersionRepository entityVersionRepository;
+
+  /**
+   * Handles entities being saved while they have been changed by someone else in the meantime.
+   * The detail names the changed entity and its current version.
+   *
+   * @param ex Exception thrown when the version of the entity is no longer current.
+   * @return ResponseEntity containing the error description and "#409 Conflict" status.
+   */
+  @ExceptionHandler(OptimisticLockingFailureException.class)
+  public ResponseEntity<ErrorResponse> handleOptimisticLockingFailure(
+      OptimisticLockingFailureException ex) {
+    String detail = ex.getMessage();
+    if (ex instanceof ObjectOptimisticLockingFailureException) {
+      ObjectOptimisticLockingFailureException failure =
+          (ObjectOptimisticLockingFailureException) ex;
+      detail = failure.getPersistentClassName() + " with id " + failure.getIdentifier()
+          + " has been modified, current version is "
+          + entityVersionRepository.findCurrentVersion(
+              failure.getPersistentClassName(), failure.getIdentifier());
+    }
+    ErrorResponse errorResponse = new ErrorResponse(
+        "The resource has been modified concurrently, reload it and try again", detail);
+    LOGGER.debug(errorResponse.getMessage(), ex);
+    return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
+  }
+
+  /**
+   * Handles requests for pages which are too large or sorted by a property which is not allowed.
+   *
+   * @param ex Exception thrown when the requested page is not allowed.
+   * @return ResponseEntity containing the error description and "#400 Bad Request" status.
+   */
+  @ExceptionHandler(InvalidPageRequestException.class)
+  public ResponseEntity<ErrorResponse> handleInvalidPageRequest(InvalidPageRequestException ex) {
+    ErrorResponse errorResponse = new ErrorResponse("Invalid page request", ex.getMessage());
+    LOGGER.debug(errorResponse.getMessage(), ex);
+    return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+  }
+}
@@ -0,0 +1,49 @@
+package org.openlmis.utils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Takes and releases PostgreSQL advisory locks, which keep work running on several instances
+ * from overlapping.
+ */
+public class AdvisoryLocks {
+
+  private AdvisoryLocks() {
+  }
+
+  /**
+   * Takes the advisory lock with the given key for the session of the given connection, unless
+   * another session holds it.
+   *
+   * @param connection Connection whose session takes the lock.
+   * @param key Key of the lock.
+   * @return True if the lock was taken.
+   */
+  public static boolean tryLock(Connection connection, long key) throws SQLException {
+    return call(connection, "pg_try_advisory_lock", key);
+  }
+
+  /**
+   * Releases the advisory lock with the given key taken by the session of the given connection.
+   *
+   * @param connection Connection whose session holds the lock.
+   * @param key Key of the lock.
+   */
+  public static void unlock(Connection connection, long key) throws SQLException {
+    call(connection, "pg_advisory_unlock", key);
+  }
+
+  private static boolean call(Connection connection, String function, long key)
+      throws SQLException {
+    try (PreparedStatement statement =
+             connection.prepareStatement("SELECT " + function + "(?)")) {
+      statement.setLong(1, key);
+      try (ResultSet result = statement.executeQuery()) {
+        return result.next() && result.getBoolean(1);
+      }
+    }
+  }
+}
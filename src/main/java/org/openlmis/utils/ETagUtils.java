@@ -0,0 +1,124 @@
+package org.openlmis.utils;
+
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public class ETagUtils {
+
+  private static final String WEAK_PREFIX = "W/";
+  private static final String QUOTE = "\"";
+  private static final String ANY = "*";
+  private static final String STAMP_SEPARATOR = "-";
+
+  private ETagUtils() {
+  }
+
+  /**
+   * Creates a strong entity tag representing the given entity version.
+   *
+   * @param version Version of the entity.
+   * @return Quoted entity tag or null if version is not known.
+   */
+  public static String toETag(Long version) {
+    return toETag(version == null ? null : version.toString());
+  }
+
+  /**
+   * Creates a strong entity tag from the given version stamp.
+   *
+   * @param versionStamp Stamp created by {@link #versionStamp(Long, List)}.
+   * @return Quoted entity tag or null if the stamp is not known.
+   */
+  public static String toETag(String versionStamp) {
+    if (versionStamp == null) {
+      return null;
+    }
+    return QUOTE + versionStamp + QUOTE;
+  }
+
+  /**
+   * Creates a stamp identifying the state of an entity together with the entities embedded in
+   * its representation. The stamp starts with the version of the entity itself, so that it can
+   * still be used as a version in the If-Match header.
+   *
+   * @param version Version of the entity.
+   * @param components Ids and versions of embedded entities, in a stable order.
+   * @return Version stamp or null if version is not known.
+   */
+  public static String versionStamp(Long version, List<?> components) {
+    if (version == null) {
+      return null;
+    }
+    if (components.isEmpty()) {
+      return version.toString();
+    }
+
+    byte[] bytes = components.toString().getBytes(StandardCharsets.UTF_8);
+    return version + STAMP_SEPARATOR + DigestUtils.md5DigestAsHex(bytes);
+  }
+
+  /**
+   * Checks whether value of an If-None-Match header matches the current entity tag. Entity tags
+   * are compared using the weak comparison, as required for If-None-Match.
+   *
+   * @param ifNoneMatch Value of the header, may contain a list of tags or a wildcard.
+   * @param entityTag Current entity tag.
+   * @return true if any of the tags matches.
+   */
+  public static boolean matches(String ifNoneMatch, String entityTag) {
+    if (ifNoneMatch == null || entityTag == null) {
+      return false;
+    }
+
+    String current = stripWeakPrefix(entityTag);
+    for (String tag : ifNoneMatch.split(",")) {
+      String value = tag.trim();
+      if (ANY.equals(value) || current.equals(stripWeakPrefix(value))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Reads entity version from the value of an If-Match or If-None-Match header.
+   *
+   * @param entityTag Value of the header, can be quoted and/or marked as weak. If it contains
+   *                  a version stamp, only the version of the entity itself is read.
+   * @return Version contained in the tag or null if there is no tag, it is a wildcard
+   *         or it does not represent a version.
+   */
+  public static Long parseVersion(String entityTag) {
+    if (entityTag == null) {
+      return null;
+    }
+
+    String value = entityTag.trim();
+    if (value.isEmpty() || ANY.equals(value)) {
+      return null;
+    }
+    value = stripWeakPrefix(value);
+    if (value.length() > 1 && value.startsWith(QUOTE) && value.endsWith(QUOTE)) {
+      value = value.substring(1, value.length() - 1);
+    }
+    int separator = value.indexOf(STAMP_SEPARATOR);
+    if (separator >= 0) {
+      value = value.substring(0, separator);
+    }
+
+    try {
+      return Long.valueOf(value);
+    } catch (NumberFormatException ex) {
+      return null;
+    }
+  }
+
+  private static String stripWeakPrefix(String entityTag) {
+    if (entityTag.startsWith(WEAK_PREFIX)) {
+      return entityTag.substring(WEAK_PREFIX.length());
+    }
+    return entityTag;
+  }
+}
@@ -0,0 +1,126 @@
+package org.openlmis.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import org.openlmis.requisition.domain.BaseEntity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.UUID;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+
+/**
+ * Streams all entities of a type as a JSON array for exports. Entities are read in batches
+ * ordered by id, each batch after the last id of the previous one in its own read-only
+ * transaction, so neither the whole table nor a long transaction is held while the client
+ * reads the response. Exports read every row of a table, so they are only available when they
+ * are enabled by configuration, and otherwise respond as if they did not exist.
+ */
+@Component
+public class EntityExporter {
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Value("${export.enabled}")
+  private boolean enabled;
+
+  @Value("${export.batchSize}")
+  private int batchSize;
+
+  private TransactionTemplate transactionTemplate;
+
+  /**
+   * Creates read-only transactions used for batches.
+   */
+  @PostConstruct
+  public void start() {
+    transactionTemplate = new TransactionTemplate(transactionManager);
+    transactionTemplate.setReadOnly(true);
+  }
+
+  /**
+   * Creates response streaming all entities of the given type.
+   *
+   * @param type Type of exported entities.
+   * @return ResponseEntity with body writing a JSON array of the entities, or not found status
+   *         if exports are disabled.
+   */
+  public <T extends BaseEntity> ResponseEntity<StreamingResponseBody> export(Class<T> type) {
+    if (!enabled) {
+      return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    StreamingResponseBody body = output -> write(type, output);
+    return new ResponseEntity<>(body, headers, HttpStatus.OK);
+  }
+
+  /**
+   * Writes all entities of the given type to the output as a JSON array.
+   *
+   * @param type Type of exported entities.
+   * @param output Stream the array is written to.
+   * @throws IOException if the entities cannot be written.
+   */
+  public <T extends BaseEntity> void write(Class<T> type, OutputStream output)
+      throws IOException {
+    try (SequenceWriter writer = objectMapper.writer().writeValuesAsArray(output)) {
+      UUID last = null;
+      do {
+        final UUID after = last;
+        last = transactionTemplate.execute(status -> writeBatch(type, after, writer));
+      } while (last != null);
+    }
+  }
+
+  private <T extends BaseEntity> UUID writeBatch(Class<T> type, UUID after,
+                                                 SequenceWriter writer) {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<T> query = builder.createQuery(type);
+    Root<T> root = query.from(type);
+    if (after != null) {
+      query.where(builder.greaterThan(root.<UUID>get(Pagination.ID), after));
+    }
+    query.orderBy(builder.asc(root.get(Pagination.ID)));
+
+    List<T> entities = entityManager.createQuery(query)
+        .setMaxResults(batchSize)
+        .getResultList();
+    try {
+      for (T entity : entities) {
+        writer.write(entity);
+      }
+      writer.flush();
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+
+    return entities.size() < batchSize ? null : entities.get(entities.size() - 1).getId();
+  }
+}
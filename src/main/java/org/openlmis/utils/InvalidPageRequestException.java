@@ -0,0 +1,8 @@
+package org.openlmis.utils;
+
+public class InvalidPageRequestException extends Exception {
+
+  public InvalidPageRequestException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,87 @@
+package org.openlmis.utils;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * Creates page requests of collection resources. Pages are numbered from 1 and cannot be larger
+ * than the configured maximum. Sorting is only allowed by the given properties, which have to be
+ * indexed, and the id is always added as the last sort property to keep the order of pages
+ * stable.
+ */
+@Component
+public class Pagination {
+
+  public static final String ID = "id";
+
+  @Value("${pagination.maxPageSize}")
+  private int maxPageSize;
+
+  /**
+   * Creates a page request sorted by the given property.
+   *
+   * @param pageNumber Number of the page, starting from 1.
+   * @param pageSize Number of elements on the page.
+   * @param sortBy Property to sort by, sorted by id if null.
+   * @param descending Whether to sort in descending order, ascending if null.
+   * @param sortable Properties which are allowed to sort by.
+   * @return Page request with the sort.
+   * @throws InvalidPageRequestException if the page or sort is not allowed.
+   */
+  public Pageable pageRequest(Integer pageNumber, Integer pageSize, String sortBy,
+                              Boolean descending, Set<String> sortable)
+      throws InvalidPageRequestException {
+    checkPage(pageNumber, pageSize);
+    return new PageRequest(pageNumber - 1, pageSize, sort(sortBy, descending, sortable));
+  }
+
+  /**
+   * Checks the number and size of a page of a request sorted by its own properties.
+   *
+   * @param pageNumber Number of the page, starting from 1.
+   * @param pageSize Number of elements on the page.
+   * @throws InvalidPageRequestException if the page is not allowed.
+   */
+  public void checkPage(Integer pageNumber, Integer pageSize) throws InvalidPageRequestException {
+    if (pageNumber == null || pageNumber < 1) {
+      throw new InvalidPageRequestException("Page number has to be at least 1");
+    }
+    if (pageSize == null || pageSize < 1 || pageSize > maxPageSize) {
+      throw new InvalidPageRequestException(
+          "Page size has to be between 1 and " + maxPageSize);
+    }
+  }
+
+  /**
+   * Checks the maximum number of elements returned by a request reading elements after a token.
+   *
+   * @param limit Maximum number of returned elements.
+   * @return The limit.
+   * @throws InvalidPageRequestException if the limit is larger than the maximum page size.
+   */
+  public int limit(Integer limit) throws InvalidPageRequestException {
+    if (limit == null || limit < 1 || limit > maxPageSize) {
+      throw new InvalidPageRequestException("Limit has to be between 1 and " + maxPageSize);
+    }
+    return limit;
+  }
+
+  private Sort sort(String sortBy, Boolean descending, Set<String> sortable)
+      throws InvalidPageRequestException {
+    Sort.Direction direction = Boolean.TRUE.equals(descending)
+        ? Sort.Direction.DESC : Sort.Direction.ASC;
+    if (sortBy == null || ID.equals(sortBy)) {
+      return new Sort(direction, ID);
+    }
+    if (!sortable.contains(sortBy)) {
+      throw new InvalidPageRequestException("Cannot sort by " + sortBy
+          + ", allowed properties are " + ID + " and " + sortable);
+    }
+    return new Sort(direction, sortBy).and(new Sort(direction, ID));
+  }
+}
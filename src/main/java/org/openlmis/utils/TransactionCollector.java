@@ -0,0 +1,160 @@
+package org.openlmis.utils;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Collects changes of entities per transaction on behalf of {@link Participant}s. It is the only
+ * Hibernate listener of inserts, updates and deletes, and passes each of them on to every
+ * participant. State a participant collects in a transaction is handed back to it right before
+ * the transaction commits, so what it writes then is committed together with the changes, and
+ * once more after the transaction completes.
+ */
+@Component
+public class TransactionCollector implements PostInsertEventListener, PostUpdateEventListener,
+    PostDeleteEventListener {
+
+  private static final long serialVersionUID = 1L;
+
+  private final transient List<Participant<?>> participants = new CopyOnWriteArrayList<>();
+  private final transient Map<EventSource, Map<Participant<?>, Object>> pending =
+      new ConcurrentHashMap<>();
+
+  @Autowired
+  private transient EntityManagerFactory entityManagerFactory;
+
+  /**
+   * Registers this listener in the Hibernate session factory.
+   */
+  @PostConstruct
+  public void register() {
+    EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+        .getServiceRegistry().getService(EventListenerRegistry.class);
+    registry.appendListeners(EventType.POST_INSERT, this);
+    registry.appendListeners(EventType.POST_UPDATE, this);
+    registry.appendListeners(EventType.POST_DELETE, this);
+  }
+
+  /**
+   * Passes changes of entities on to the given participant from now on.
+   *
+   * @param participant Participant to add.
+   */
+  public void addParticipant(Participant<?> participant) {
+    participants.add(participant);
+  }
+
+  /**
+   * Returns state the given participant collects in the current transaction of the given
+   * session, starting collecting if this is the first change of the transaction it is
+   * interested in.
+   *
+   * @param session Session whose transaction is collected.
+   * @param participant Participant collecting the state.
+   * @param <T> Type of the collected state.
+   * @return State collected so far.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T collect(EventSource session, Participant<T> participant) {
+    return (T) pending.computeIfAbsent(session, this::startCollecting)
+        .computeIfAbsent(participant, key -> participant.startCollecting());
+  }
+
+  @Override
+  public void onPostInsert(PostInsertEvent event) {
+    participants.forEach(participant -> participant.onPostInsert(event));
+  }
+
+  @Override
+  public void onPostUpdate(PostUpdateEvent event) {
+    participants.forEach(participant -> participant.onPostUpdate(event));
+  }
+
+  @Override
+  public void onPostDelete(PostDeleteEvent event) {
+    participants.forEach(participant -> participant.onPostDelete(event));
+  }
+
+  @Override
+  public boolean requiresPostCommitHanding(EntityPersister persister) {
+    return false;
+  }
+
+  private Map<Participant<?>, Object> startCollecting(EventSource session) {
+    Map<Participant<?>, Object> collected = new LinkedHashMap<>();
+    session.getActionQueue().registerProcess((SessionImplementor completing) -> {
+      // changes made while writing are collected again
+      pending.remove(completing, collected);
+      collected.forEach((participant, state) -> beforeCompletion(participant, completing, state));
+    });
+    session.getActionQueue().registerProcess((success, completedSession) -> {
+      pending.remove(completedSession, collected);
+      collected.forEach((participant, state) -> afterCompletion(participant, success, state));
+    });
+    return collected;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> void beforeCompletion(Participant<T> participant,
+                                           SessionImplementor session, Object state) {
+    participant.beforeCompletion(session, (T) state);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> void afterCompletion(Participant<T> participant, boolean success,
+                                          Object state) {
+    participant.afterCompletion(success, (T) state);
+  }
+
+  /**
+   * Collects state from changes of entities made in a transaction and writes it when the
+   * transaction is about to commit.
+   *
+   * @param <T> Type of the collected state.
+   */
+  public interface Participant<T> {
+
+    /**
+     * Creates empty state for a transaction.
+     */
+    T startCollecting();
+
+    /**
+     * Writes the state collected in a transaction which is about to commit.
+     */
+    void beforeCompletion(SessionImplementor session, T collected);
+
+    default void afterCompletion(boolean success, T collected) {
+    }
+
+    default void onPostInsert(PostInsertEvent event) {
+    }
+
+    default void onPostUpdate(PostUpdateEvent event) {
+    }
+
+    default void onPostDelete(PostDeleteEvent event) {
+    }
+  }
+}
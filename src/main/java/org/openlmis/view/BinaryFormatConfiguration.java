@@ -0,0 +1,39 @@
+package org.openlmis.view;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+import java.util.List;
+
+/**
+ * Lets clients exchange requests and responses in Smile or CBOR instead of JSON by sending
+ * them as Content-Type and asking for them in Accept. The binary converters are added after
+ * the default ones, so JSON is still used when a client accepts any media type.
+ */
+@Configuration
+public class BinaryFormatConfiguration extends WebMvcConfigurerAdapter {
+
+  @Autowired
+  private CompactJsonModule compactJsonModule;
+
+  @Override
+  public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+    converters.add(new SmileHttpMessageConverter(createObjectMapper(new SmileFactory())));
+    converters.add(new CborHttpMessageConverter(createObjectMapper(new CBORFactory())));
+  }
+
+  private ObjectMapper createObjectMapper(JsonFactory factory) {
+    ObjectMapper objectMapper = new ObjectMapper(factory);
+    Jackson2ObjectMapperBuilder.json()
+        .modulesToInstall(compactJsonModule)
+        .configure(objectMapper);
+    return objectMapper;
+  }
+}
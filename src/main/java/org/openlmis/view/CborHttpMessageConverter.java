@@ -0,0 +1,23 @@
+package org.openlmis.view;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+
+/**
+ * Reads and writes CBOR, the concise binary object representation.
+ */
+public class CborHttpMessageConverter extends AbstractJackson2HttpMessageConverter {
+
+  public static final MediaType CBOR = new MediaType("application", "cbor");
+
+  /**
+   * Creates converter using the given object mapper, which must have a {@link CBORFactory}.
+   *
+   * @param objectMapper Mapper writing CBOR.
+   */
+  public CborHttpMessageConverter(ObjectMapper objectMapper) {
+    super(objectMapper, CBOR);
+  }
+}
@@ -0,0 +1,49 @@
+package org.openlmis.view;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.domain.ProofOfDelivery;
+import org.openlmis.requisition.domain.Requisition;
+import org.springframework.stereotype.Component;
+
+/**
+ * Replaces default serializers of requisitions, orders and proofs of delivery in responses with
+ * compact ones. Registered in the application object mapper as a bean.
+ */
+@Component
+public class CompactJsonModule extends SimpleModule {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Creates module with serializers of requisitions, orders and proofs of delivery.
+   */
+  public CompactJsonModule() {
+    super(CompactJsonModule.class.getSimpleName());
+    setSerializerModifier(new CompactSerializerModifier());
+  }
+
+  private static class CompactSerializerModifier extends BeanSerializerModifier {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public JsonSerializer<?> modifySerializer(SerializationConfig config,
+                                              BeanDescription description,
+                                              JsonSerializer<?> serializer) {
+      Class<?> type = description.getBeanClass();
+      JsonSerializer<Object> defaultSerializer = (JsonSerializer<Object>) serializer;
+      if (Requisition.class.isAssignableFrom(type)) {
+        return new RequisitionSerializer(defaultSerializer);
+      } else if (Order.class.isAssignableFrom(type)) {
+        return new OrderSerializer(defaultSerializer);
+      } else if (ProofOfDelivery.class.isAssignableFrom(type)) {
+        return new ProofOfDeliverySerializer(defaultSerializer);
+      }
+      return serializer;
+    }
+  }
+}
@@ -0,0 +1,129 @@
+package org.openlmis.view;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateSerializer;
+import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateTimeSerializer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Base of response serializers writing an entity with its children in one pass. Field names are
+ * encoded once, null values are skipped and no object identities are tracked, so back-references
+ * of children to their parent are left out. When a JSON view is active the default serializer of
+ * the entity is used instead.
+ *
+ * @param <T> Type of the serialized entity.
+ */
+@SuppressWarnings("PMD.TooManyMethods")
+public abstract class CompactSerializer<T> extends StdSerializer<T> {
+
+  static final SerializableString ID = new SerializedString("id");
+  static final SerializableString VERSION = new SerializedString("version");
+  static final SerializableString CREATED_DATE = new SerializedString("createdDate");
+  static final SerializableString STATUS = new SerializedString("status");
+  static final SerializableString PROGRAM = new SerializedString("program");
+  static final SerializableString ORDERABLE_PRODUCT = new SerializedString("orderableProduct");
+
+  private static final long serialVersionUID = 1L;
+
+  private final transient JsonSerializer<Object> defaultSerializer;
+
+  protected CompactSerializer(Class<T> type, JsonSerializer<Object> defaultSerializer) {
+    super(type);
+    this.defaultSerializer = defaultSerializer;
+  }
+
+  @Override
+  public void serialize(T value, JsonGenerator generator, SerializerProvider provider)
+      throws IOException {
+    if (provider.getActiveView() != null && defaultSerializer != null) {
+      defaultSerializer.serialize(value, generator, provider);
+    } else {
+      write(value, generator, provider);
+    }
+  }
+
+  protected abstract void write(T value, JsonGenerator generator, SerializerProvider provider)
+      throws IOException;
+
+  static void writeField(JsonGenerator generator, SerializableString name, UUID value)
+      throws IOException {
+    if (value != null) {
+      generator.writeFieldName(name);
+      generator.writeString(value.toString());
+    }
+  }
+
+  static void writeField(JsonGenerator generator, SerializableString name, String value)
+      throws IOException {
+    if (value != null) {
+      generator.writeFieldName(name);
+      generator.writeString(value);
+    }
+  }
+
+  static void writeField(JsonGenerator generator, SerializableString name, Enum<?> value)
+      throws IOException {
+    if (value != null) {
+      generator.writeFieldName(name);
+      generator.writeString(value.name());
+    }
+  }
+
+  static void writeField(JsonGenerator generator, SerializableString name, Boolean value)
+      throws IOException {
+    if (value != null) {
+      generator.writeFieldName(name);
+      generator.writeBoolean(value);
+    }
+  }
+
+  static void writeField(JsonGenerator generator, SerializableString name, Integer value)
+      throws IOException {
+    if (value != null) {
+      generator.writeFieldName(name);
+      generator.writeNumber(value);
+    }
+  }
+
+  static void writeField(JsonGenerator generator, SerializableString name, Long value)
+      throws IOException {
+    if (value != null) {
+      generator.writeFieldName(name);
+      generator.writeNumber(value);
+    }
+  }
+
+  static void writeField(JsonGenerator generator, SerializableString name, BigDecimal value)
+      throws IOException {
+    if (value != null) {
+      generator.writeFieldName(name);
+      generator.writeNumber(value);
+    }
+  }
+
+  static void writeField(JsonGenerator generator, SerializableString name, LocalDateTime value,
+                         SerializerProvider provider) throws IOException {
+    if (value != null) {
+      generator.writeFieldName(name);
+      LocalDateTimeSerializer.INSTANCE.serialize(value, generator, provider);
+    }
+  }
+
+  static void writeField(JsonGenerator generator, SerializableString name, LocalDate value,
+                         SerializerProvider provider) throws IOException {
+    if (value != null) {
+      generator.writeFieldName(name);
+      LocalDateSerializer.INSTANCE.serialize(value, generator, provider);
+    }
+  }
+}
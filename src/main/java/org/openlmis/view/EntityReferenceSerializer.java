@@ -0,0 +1,37 @@
+package org.openlmis.view;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.hibernate.proxy.HibernateProxy;
+import org.openlmis.requisition.domain.BaseEntity;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * Writes a referenced entity as an object with its id only. The id of a lazy reference is read
+ * from the proxy, so the entity is not loaded.
+ */
+public class EntityReferenceSerializer extends StdSerializer<BaseEntity> {
+
+  private static final long serialVersionUID = 1L;
+
+  public EntityReferenceSerializer() {
+    super(BaseEntity.class);
+  }
+
+  @Override
+  public void serialize(BaseEntity value, JsonGenerator generator, SerializerProvider provider)
+      throws IOException {
+    Serializable id = value instanceof HibernateProxy
+        ? ((HibernateProxy) value).getHibernateLazyInitializer().getIdentifier()
+        : value.getId();
+
+    generator.writeStartObject();
+    if (id != null) {
+      generator.writeStringField("id", id.toString());
+    }
+    generator.writeEndObject();
+  }
+}
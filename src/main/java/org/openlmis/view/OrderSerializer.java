@@ -0,0 +1,92 @@
+package org.openlmis.view;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.domain.OrderLineItem;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes an order with its requisition and line items, which are not given their identity nor
+ * the id of the order.
+ */
+public class OrderSerializer extends CompactSerializer<Order> {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final SerializableString REQUISITION = new SerializedString("requisition");
+  private static final SerializableString REQUISITION_ID = new SerializedString("requisitionId");
+  private static final SerializableString CREATED_BY_ID = new SerializedString("createdById");
+  private static final SerializableString REQUESTING_FACILITY =
+      new SerializedString("requestingFacility");
+  private static final SerializableString RECEIVING_FACILITY =
+      new SerializedString("receivingFacility");
+  private static final SerializableString SUPPLYING_FACILITY =
+      new SerializedString("supplyingFacility");
+  private static final SerializableString ORDER_CODE = new SerializedString("orderCode");
+  private static final SerializableString QUOTED_COST = new SerializedString("quotedCost");
+  private static final SerializableString LINE_ITEMS = new SerializedString("orderLineItems");
+
+  private static final SerializableString ORDERED_QUANTITY =
+      new SerializedString("orderedQuantity");
+  private static final SerializableString FILLED_QUANTITY = new SerializedString("filledQuantity");
+
+  public OrderSerializer(JsonSerializer<Object> defaultSerializer) {
+    super(Order.class, defaultSerializer);
+  }
+
+  @Override
+  protected void write(Order order, JsonGenerator generator, SerializerProvider provider)
+      throws IOException {
+    writeOrder(order, generator, provider);
+  }
+
+  static void writeOrder(Order order, JsonGenerator generator, SerializerProvider provider)
+      throws IOException {
+    generator.writeStartObject();
+    writeField(generator, ID, order.getId());
+    if (order.getRequisition() != null) {
+      generator.writeFieldName(REQUISITION);
+      RequisitionSerializer.writeRequisition(order.getRequisition(), generator, provider);
+    }
+    writeField(generator, REQUISITION_ID, order.getRequisitionId());
+    writeField(generator, CREATED_DATE, order.getCreatedDate(), provider);
+    writeField(generator, CREATED_BY_ID, order.getCreatedById());
+    writeField(generator, PROGRAM, order.getProgram());
+    writeField(generator, REQUESTING_FACILITY, order.getRequestingFacility());
+    writeField(generator, RECEIVING_FACILITY, order.getReceivingFacility());
+    writeField(generator, SUPPLYING_FACILITY, order.getSupplyingFacility());
+    writeField(generator, ORDER_CODE, order.getOrderCode());
+    writeField(generator, STATUS, order.getStatus());
+    writeField(generator, QUOTED_COST, order.getQuotedCost());
+
+    List<OrderLineItem> lineItems = order.getOrderLineItems();
+    if (lineItems != null) {
+      generator.writeFieldName(LINE_ITEMS);
+      generator.writeStartArray();
+      for (OrderLineItem lineItem : lineItems) {
+        writeLineItem(lineItem, generator);
+      }
+      generator.writeEndArray();
+    }
+
+    writeField(generator, VERSION, order.getVersion());
+    generator.writeEndObject();
+  }
+
+  static void writeLineItem(OrderLineItem lineItem, JsonGenerator generator)
+      throws IOException {
+    generator.writeStartObject();
+    writeField(generator, ID, lineItem.getId());
+    writeField(generator, ORDERABLE_PRODUCT, lineItem.getOrderableProduct());
+    writeField(generator, ORDERED_QUANTITY, lineItem.getOrderedQuantity());
+    writeField(generator, FILLED_QUANTITY, lineItem.getFilledQuantity());
+    writeField(generator, VERSION, lineItem.getVersion());
+    generator.writeEndObject();
+  }
+}
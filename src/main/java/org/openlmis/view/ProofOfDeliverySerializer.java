@@ -0,0 +1,98 @@
+package org.openlmis.view;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import org.openlmis.fulfillment.domain.ProofOfDelivery;
+import org.openlmis.fulfillment.domain.ProofOfDeliveryLineItem;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes a proof of delivery with its order and line items, which are not given their identity
+ * nor a copy of the proof of delivery.
+ */
+public class ProofOfDeliverySerializer extends CompactSerializer<ProofOfDelivery> {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final SerializableString ORDER = new SerializedString("order");
+  private static final SerializableString LINE_ITEMS =
+      new SerializedString("proofOfDeliveryLineItems");
+  private static final SerializableString TOTAL_SHIPPED_PACKS =
+      new SerializedString("totalShippedPacks");
+  private static final SerializableString TOTAL_RECEIVED_PACKS =
+      new SerializedString("totalReceivedPacks");
+  private static final SerializableString TOTAL_RETURNED_PACKS =
+      new SerializedString("totalReturnedPacks");
+  private static final SerializableString DELIVERED_BY = new SerializedString("deliveredBy");
+  private static final SerializableString RECEIVED_BY = new SerializedString("receivedBy");
+  private static final SerializableString RECEIVED_DATE = new SerializedString("receivedDate");
+
+  private static final SerializableString ORDER_LINE_ITEM = new SerializedString("orderLineItem");
+  private static final SerializableString PACK_TO_SHIP = new SerializedString("packToShip");
+  private static final SerializableString QUANTITY_SHIPPED =
+      new SerializedString("quantityShipped");
+  private static final SerializableString QUANTITY_RECEIVED =
+      new SerializedString("quantityReceived");
+  private static final SerializableString QUANTITY_RETURNED =
+      new SerializedString("quantityReturned");
+  private static final SerializableString REPLACED_PRODUCT_CODE =
+      new SerializedString("replacedProductCode");
+  private static final SerializableString NOTES = new SerializedString("notes");
+
+  public ProofOfDeliverySerializer(JsonSerializer<Object> defaultSerializer) {
+    super(ProofOfDelivery.class, defaultSerializer);
+  }
+
+  @Override
+  protected void write(ProofOfDelivery proofOfDelivery, JsonGenerator generator,
+                       SerializerProvider provider) throws IOException {
+    generator.writeStartObject();
+    writeField(generator, ID, proofOfDelivery.getId());
+    if (proofOfDelivery.getOrder() != null) {
+      generator.writeFieldName(ORDER);
+      OrderSerializer.writeOrder(proofOfDelivery.getOrder(), generator, provider);
+    }
+
+    List<ProofOfDeliveryLineItem> lineItems = proofOfDelivery.getProofOfDeliveryLineItems();
+    if (lineItems != null) {
+      generator.writeFieldName(LINE_ITEMS);
+      generator.writeStartArray();
+      for (ProofOfDeliveryLineItem lineItem : lineItems) {
+        writeLineItem(lineItem, generator);
+      }
+      generator.writeEndArray();
+    }
+
+    writeField(generator, TOTAL_SHIPPED_PACKS, proofOfDelivery.getTotalShippedPacks());
+    writeField(generator, TOTAL_RECEIVED_PACKS, proofOfDelivery.getTotalReceivedPacks());
+    writeField(generator, TOTAL_RETURNED_PACKS, proofOfDelivery.getTotalReturnedPacks());
+    writeField(generator, DELIVERED_BY, proofOfDelivery.getDeliveredBy());
+    writeField(generator, RECEIVED_BY, proofOfDelivery.getReceivedBy());
+    writeField(generator, RECEIVED_DATE, proofOfDelivery.getReceivedDate(), provider);
+    writeField(generator, VERSION, proofOfDelivery.getVersion());
+    generator.writeEndObject();
+  }
+
+  private static void writeLineItem(ProofOfDeliveryLineItem lineItem, JsonGenerator generator)
+      throws IOException {
+    generator.writeStartObject();
+    writeField(generator, ID, lineItem.getId());
+    if (lineItem.getOrderLineItem() != null) {
+      generator.writeFieldName(ORDER_LINE_ITEM);
+      OrderSerializer.writeLineItem(lineItem.getOrderLineItem(), generator);
+    }
+    writeField(generator, PACK_TO_SHIP, lineItem.getPackToShip());
+    writeField(generator, QUANTITY_SHIPPED, lineItem.getQuantityShipped());
+    writeField(generator, QUANTITY_RECEIVED, lineItem.getQuantityReceived());
+    writeField(generator, QUANTITY_RETURNED, lineItem.getQuantityReturned());
+    writeField(generator, REPLACED_PRODUCT_CODE, lineItem.getReplacedProductCode());
+    writeField(generator, NOTES, lineItem.getNotes());
+    writeField(generator, VERSION, lineItem.getVersion());
+    generator.writeEndObject();
+  }
+}
@@ -0,0 +1,129 @@
+package org.openlmis.view;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import org.openlmis.requisition.domain.Comment;
+import org.openlmis.requisition.domain.Requisition;
+import org.openlmis.requisition.domain.RequisitionLineItem;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes a requisition with its line items and comments, which are not given their identity nor
+ * a copy of the requisition.
+ */
+public class RequisitionSerializer extends CompactSerializer<Requisition> {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final SerializableString LINE_ITEMS = new SerializedString("requisitionLineItems");
+  private static final SerializableString COMMENTS = new SerializedString("comments");
+  private static final SerializableString FACILITY = new SerializedString("facility");
+  private static final SerializableString PROCESSING_PERIOD =
+      new SerializedString("processingPeriod");
+  private static final SerializableString EMERGENCY = new SerializedString("emergency");
+  private static final SerializableString SUPERVISORY_NODE =
+      new SerializedString("supervisoryNode");
+
+  private static final SerializableString STOCK_IN_HAND = new SerializedString("stockInHand");
+  private static final SerializableString BEGINNING_BALANCE =
+      new SerializedString("beginningBalance");
+  private static final SerializableString TOTAL_RECEIVED_QUANTITY =
+      new SerializedString("totalReceivedQuantity");
+  private static final SerializableString TOTAL_LOSSES_AND_ADJUSTMENTS =
+      new SerializedString("totalLossesAndAdjustments");
+  private static final SerializableString STOCK_ON_HAND = new SerializedString("stockOnHand");
+  private static final SerializableString REQUESTED_QUANTITY =
+      new SerializedString("requestedQuantity");
+  private static final SerializableString TOTAL_CONSUMED_QUANTITY =
+      new SerializedString("totalConsumedQuantity");
+  private static final SerializableString REQUESTED_QUANTITY_EXPLANATION =
+      new SerializedString("requestedQuantityExplanation");
+  private static final SerializableString REMARKS = new SerializedString("remarks");
+  private static final SerializableString APPROVED_QUANTITY =
+      new SerializedString("approvedQuantity");
+
+  private static final SerializableString AUTHOR_ID = new SerializedString("authorId");
+  private static final SerializableString BODY = new SerializedString("body");
+
+  public RequisitionSerializer(JsonSerializer<Object> defaultSerializer) {
+    super(Requisition.class, defaultSerializer);
+  }
+
+  @Override
+  protected void write(Requisition requisition, JsonGenerator generator,
+                       SerializerProvider provider) throws IOException {
+    writeRequisition(requisition, generator, provider);
+  }
+
+  static void writeRequisition(Requisition requisition, JsonGenerator generator,
+                               SerializerProvider provider) throws IOException {
+    generator.writeStartObject();
+    writeField(generator, ID, requisition.getId());
+    writeField(generator, CREATED_DATE, requisition.getCreatedDate(), provider);
+
+    List<RequisitionLineItem> lineItems = requisition.getRequisitionLineItems();
+    if (lineItems != null) {
+      generator.writeFieldName(LINE_ITEMS);
+      generator.writeStartArray();
+      for (RequisitionLineItem lineItem : lineItems) {
+        writeLineItem(lineItem, generator);
+      }
+      generator.writeEndArray();
+    }
+
+    List<Comment> comments = requisition.getComments();
+    if (comments != null) {
+      generator.writeFieldName(COMMENTS);
+      generator.writeStartArray();
+      for (Comment comment : comments) {
+        writeComment(comment, generator, provider);
+      }
+      generator.writeEndArray();
+    }
+
+    writeField(generator, FACILITY, requisition.getFacility());
+    writeField(generator, PROGRAM, requisition.getProgram());
+    writeField(generator, PROCESSING_PERIOD, requisition.getProcessingPeriod());
+    writeField(generator, STATUS, requisition.getStatus());
+    writeField(generator, EMERGENCY, requisition.getEmergency());
+    writeField(generator, SUPERVISORY_NODE, requisition.getSupervisoryNode());
+    writeField(generator, VERSION, requisition.getVersion());
+    generator.writeEndObject();
+  }
+
+  private static void writeLineItem(RequisitionLineItem lineItem, JsonGenerator generator)
+      throws IOException {
+    generator.writeStartObject();
+    writeField(generator, ID, lineItem.getId());
+    writeField(generator, ORDERABLE_PRODUCT, lineItem.getOrderableProduct());
+    writeField(generator, STOCK_IN_HAND, lineItem.getStockInHand());
+    writeField(generator, BEGINNING_BALANCE, lineItem.getBeginningBalance());
+    writeField(generator, TOTAL_RECEIVED_QUANTITY, lineItem.getTotalReceivedQuantity());
+    writeField(generator, TOTAL_LOSSES_AND_ADJUSTMENTS, lineItem.getTotalLossesAndAdjustments());
+    writeField(generator, STOCK_ON_HAND, lineItem.getStockOnHand());
+    writeField(generator, REQUESTED_QUANTITY, lineItem.getRequestedQuantity());
+    writeField(generator, TOTAL_CONSUMED_QUANTITY, lineItem.getTotalConsumedQuantity());
+    writeField(generator, REQUESTED_QUANTITY_EXPLANATION,
+        lineItem.getRequestedQuantityExplanation());
+    writeField(generator, REMARKS, lineItem.getRemarks());
+    writeField(generator, APPROVED_QUANTITY, lineItem.getApprovedQuantity());
+    writeField(generator, VERSION, lineItem.getVersion());
+    generator.writeEndObject();
+  }
+
+  private static void writeComment(Comment comment, JsonGenerator generator,
+                                   SerializerProvider provider) throws IOException {
+    generator.writeStartObject();
+    writeField(generator, ID, comment.getId());
+    writeField(generator, AUTHOR_ID, comment.getAuthorId());
+    writeField(generator, BODY, comment.getBody());
+    writeField(generator, CREATED_DATE, comment.getCreatedDate(), provider);
+    writeField(generator, VERSION, comment.getVersion());
+    generator.writeEndObject();
+  }
+}
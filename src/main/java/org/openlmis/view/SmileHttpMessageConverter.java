@@ -0,0 +1,23 @@
+package org.openlmis.view;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+
+/**
+ * Reads and writes the binary Smile encoding of JSON.
+ */
+public class SmileHttpMessageConverter extends AbstractJackson2HttpMessageConverter {
+
+  public static final MediaType SMILE = new MediaType("application", "x-jackson-smile");
+
+  /**
+   * Creates converter using the given object mapper, which must have a {@link SmileFactory}.
+   *
+   * @param objectMapper Mapper writing Smile.
+   */
+  public SmileHttpMessageConverter(ObjectMapper objectMapper) {
+    super(objectMapper, SMILE);
+  }
+}
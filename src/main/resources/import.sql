@@ -0,0 +1,15 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX requisition_search_entries_facility_code_trgm ON requisition.requisition_search_entries USING gin (facilityCode gin_trgm_ops);
+CREATE INDEX requisition_search_entries_facility_name_trgm ON requisition.requisition_search_entries USING gin (facilityName gin_trgm_ops);
+CREATE INDEX requisition_search_entries_program_name_trgm ON requisition.requisition_search_entries USING gin (programName gin_trgm_ops);
+CREATE UNIQUE INDEX requisition_status_counts_group ON requisition.requisition_status_counts (coalesce(program, CAST('' AS bytea)), coalesce(facility, CAST('' AS bytea)), coalesce(processingPeriod, CAST('' AS bytea)), status);
+DROP TABLE IF EXISTS requisition.requisition_ids CASCADE;
+CREATE OR REPLACE FUNCTION requisition.track_requisition_ids() RETURNS trigger AS $track$ BEGIN IF TG_OP = 'INSERT' THEN INSERT INTO requisition.requisition_ids (id) VALUES (NEW.id); ELSIF TG_OP = 'DELETE' THEN DELETE FROM requisition.requisition_ids WHERE id = OLD.id; ELSIF NEW.id <> OLD.id THEN UPDATE requisition.requisition_ids SET id = NEW.id WHERE id = OLD.id; END IF; RETURN NULL; END $track$ LANGUAGE plpgsql;
+DO $partition$ DECLARE foreign_key record; index_definitions text[]; index_definition text; BEGIN IF current_setting('server_version_num')::int < 110000 THEN RAISE NOTICE 'Requisitions are not partitioned, PostgreSQL 11 or newer is required'; RETURN; END IF; CREATE TABLE requisition.requisition_ids (id uuid PRIMARY KEY); FOR foreign_key IN SELECT conrelid::regclass AS referencing, conname, pg_get_constraintdef(oid) AS definition FROM pg_constraint WHERE contype = 'f' AND confrelid = 'requisition.requisitions'::regclass LOOP EXECUTE format('ALTER TABLE %s DROP CONSTRAINT %I', foreign_key.referencing, foreign_key.conname); EXECUTE format('ALTER TABLE %s ADD CONSTRAINT %I %s', foreign_key.referencing, foreign_key.conname, regexp_replace(foreign_key.definition, 'REFERENCES \S+\(', 'REFERENCES requisition.requisition_ids(')); END LOOP; SELECT array_agg(pg_get_indexdef(indexrelid)) INTO index_definitions FROM pg_index WHERE indrelid = 'requisition.requisitions'::regclass AND NOT indisunique; ALTER TABLE requisition.requisitions RENAME TO requisitions_unpartitioned; CREATE TABLE requisition.requisitions (LIKE requisition.requisitions_unpartitioned INCLUDING DEFAULTS) PARTITION BY RANGE (createdDate); DROP TABLE requisition.requisitions_unpartitioned; ALTER TABLE requisition.requisitions ADD CONSTRAINT requisitions_pkey PRIMARY KEY (id, createdDate); CREATE TABLE requisition.requisitions_default PARTITION OF requisition.requisitions DEFAULT; FOREACH index_definition IN ARRAY coalesce(index_definitions, '{}') LOOP EXECUTE index_definition; END LOOP; CREATE TRIGGER track_requisition_ids AFTER INSERT OR UPDATE OF id OR DELETE ON requisition.requisitions FOR EACH ROW EXECUTE PROCEDURE requisition.track_requisition_ids(); END $partition$;
+CREATE OR REPLACE FUNCTION requisition.change_aggregate_version() RETURNS trigger AS $change$ BEGIN IF TG_OP <> 'INSERT' THEN UPDATE requisition.requisitions SET aggregateVersion = txid_current() WHERE id = OLD.requisitionId AND aggregateVersion <> txid_current(); END IF; IF TG_OP <> 'DELETE' THEN UPDATE requisition.requisitions SET aggregateVersion = txid_current() WHERE id = NEW.requisitionId AND aggregateVersion <> txid_current(); END IF; RETURN NULL; END $change$ LANGUAGE plpgsql;
+CREATE TRIGGER change_aggregate_version AFTER INSERT OR UPDATE OR DELETE ON requisition.requisition_line_items FOR EACH ROW EXECUTE PROCEDURE requisition.change_aggregate_version();
+CREATE TRIGGER change_aggregate_version AFTER INSERT OR UPDATE OR DELETE ON referencedata.comments FOR EACH ROW EXECUTE PROCEDURE requisition.change_aggregate_version();
+DROP TABLE IF EXISTS requisition.regular_requisitions;
+CREATE TABLE requisition.regular_requisitions (facility bytea NOT NULL, program bytea NOT NULL, processingPeriod bytea NOT NULL, CONSTRAINT regular_requisitions_pkey PRIMARY KEY (facility, program, processingPeriod));
+CREATE OR REPLACE FUNCTION requisition.track_regular_requisitions() RETURNS trigger AS $track$ BEGIN IF TG_OP <> 'INSERT' AND OLD.emergency = false THEN DELETE FROM requisition.regular_requisitions WHERE facility = OLD.facility AND program = OLD.program AND processingPeriod = OLD.processingPeriod; END IF; IF TG_OP <> 'DELETE' AND NEW.emergency = false AND NEW.facility IS NOT NULL AND NEW.program IS NOT NULL AND NEW.processingPeriod IS NOT NULL THEN INSERT INTO requisition.regular_requisitions (facility, program, processingPeriod) VALUES (NEW.facility, NEW.program, NEW.processingPeriod); END IF; RETURN NULL; END $track$ LANGUAGE plpgsql;
+CREATE TRIGGER track_regular_requisitions AFTER INSERT OR UPDATE OF facility, program, processingPeriod, emergency OR DELETE ON requisition.requisitions FOR EACH ROW EXECUTE PROCEDURE requisition.track_regular_requisitions();
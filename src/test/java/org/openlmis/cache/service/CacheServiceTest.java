@@ -0,0 +1,132 @@
+package org.openlmis.cache.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.hibernate.Cache;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.metadata.CollectionMetadata;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.stat.internal.ConcurrentStatisticsImpl;
+import org.hibernate.type.ManyToOneType;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.cache.domain.CacheRegionVersion;
+import org.openlmis.cache.repository.CacheRegionVersionRepository;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CacheServiceTest {
+
+  private static final String TEMPLATE = "org.openlmis.fulfillment.domain.OrderFileTemplate";
+  private static final String COLUMN = "org.openlmis.fulfillment.domain.OrderFileColumn";
+  private static final String COLUMNS = TEMPLATE + ".orderFileColumns";
+
+  @Mock
+  private CacheRegionVersionRepository cacheRegionVersionRepository;
+
+  @Mock
+  private SessionFactoryImplementor sessionFactory;
+
+  @Mock
+  private Cache cache;
+
+  @Mock
+  private CollectionPersister columnsPersister;
+
+  @InjectMocks
+  private CacheService cacheService;
+
+  @Before
+  public void setUp() {
+    ReflectionTestUtils.setField(cacheService, "sessionFactory", sessionFactory);
+    when(sessionFactory.getCache()).thenReturn(cache);
+
+    Map<String, CollectionMetadata> collections = new HashMap<>();
+    collections.put(COLUMNS, null);
+    when(sessionFactory.getAllCollectionMetadata()).thenReturn(collections);
+    when(sessionFactory.getCollectionPersister(COLUMNS)).thenReturn(columnsPersister);
+    when(columnsPersister.hasCache()).thenReturn(true);
+    when(columnsPersister.getElementType()).thenReturn(new ManyToOneType(null, COLUMN));
+
+    when(cacheRegionVersionRepository.findAll()).thenReturn(Arrays.asList(
+        version(TEMPLATE, 1L), version(COLUMN, 4L)));
+    cacheService.evictChanged();
+  }
+
+  @Test
+  public void shouldNotEvictUnchangedEntities() {
+    cacheService.evictChanged();
+
+    verify(cache, never()).evictEntityRegion(anyString());
+    verify(cache, never()).evictQueryRegions();
+    assertEquals(0, getRemoteInvalidations());
+  }
+
+  @Test
+  public void shouldEvictEntitiesChangedByOtherInstances() {
+    when(cacheRegionVersionRepository.findAll()).thenReturn(Arrays.asList(
+        version(TEMPLATE, 2L), version(COLUMN, 4L)));
+
+    cacheService.evictChanged();
+
+    verify(cache).evictEntityRegion(TEMPLATE);
+    verify(cache, never()).evictEntityRegion(COLUMN);
+    verify(cache).evictCollectionRegion(COLUMNS);
+    verify(cache).evictDefaultQueryRegion();
+    verify(cache).evictQueryRegions();
+    assertEquals(1, getRemoteInvalidations());
+  }
+
+  @Test
+  public void shouldEvictCollectionsContainingChangedEntity() {
+    when(cacheRegionVersionRepository.findAll()).thenReturn(Arrays.asList(
+        version(TEMPLATE, 1L), version(COLUMN, 5L)));
+
+    cacheService.evictChanged();
+
+    verify(cache).evictEntityRegion(COLUMN);
+    verify(cache).evictCollectionRegion(COLUMNS);
+  }
+
+  @Test
+  public void shouldNotEvictEntitiesChangedOnlyByThisInstance() {
+    Map<String, Set<Long>> ownVersions = new ConcurrentHashMap<>();
+    ownVersions.put(TEMPLATE, new HashSet<>(Arrays.asList(2L, 3L)));
+    ReflectionTestUtils.setField(cacheService, "ownVersions", ownVersions);
+    when(cacheRegionVersionRepository.findAll()).thenReturn(Arrays.asList(
+        version(TEMPLATE, 3L), version(COLUMN, 4L)));
+
+    cacheService.evictChanged();
+
+    verify(cache, never()).evictEntityRegion(anyString());
+    assertEquals(0, getRemoteInvalidations());
+    assertEquals(0, ownVersions.get(TEMPLATE).size());
+  }
+
+  private long getRemoteInvalidations() {
+    when(sessionFactory.getStatistics())
+        .thenReturn(new ConcurrentStatisticsImpl());
+    return cacheService.getStatistics().getRemoteInvalidations();
+  }
+
+  private static CacheRegionVersion version(String region, Long value) {
+    CacheRegionVersion version = new CacheRegionVersion(region);
+    version.setVersion(value);
+    return version;
+  }
+}
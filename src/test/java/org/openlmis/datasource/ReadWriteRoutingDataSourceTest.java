@@ -0,0 +1,121 @@
+package org.openlmis.datasource;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReadWriteRoutingDataSourceTest {
+
+  @Mock
+  private DataSource primary;
+
+  @Mock
+  private DataSource replica;
+
+  @Mock
+  private ReplicaLagMonitor replicaLagMonitor;
+
+  private ReadWriteRoutingDataSource routingDataSource;
+  private MockHttpServletRequest request;
+
+  @Before
+  public void setUp() {
+    routingDataSource = new ReadWriteRoutingDataSource(primary, replica, replicaLagMonitor);
+    routingDataSource.afterPropertiesSet();
+    request = new MockHttpServletRequest();
+    RequestContextHolder.setRequestAttributes(
+        new ServletRequestAttributes(request, new MockHttpServletResponse()));
+    TransactionSynchronizationManager.initSynchronization();
+  }
+
+  @After
+  public void tearDown() {
+    TransactionSynchronizationManager.clear();
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  @Test
+  public void shouldRouteMarkedReadOnlyTransactionsToReplica() throws Throwable {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    when(replicaLagMonitor.isReplicaReadable(null)).thenReturn(true);
+
+    assertEquals(ReadWriteRoutingDataSource.Route.REPLICA, lookUpInReplicaRead());
+    assertEquals(0, TransactionSynchronizationManager.getSynchronizations().size());
+  }
+
+  @Test
+  public void shouldRouteUnmarkedReadOnlyTransactionsToPrimary() {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    when(replicaLagMonitor.isReplicaReadable(null)).thenReturn(true);
+
+    assertEquals(ReadWriteRoutingDataSource.Route.PRIMARY,
+        routingDataSource.determineCurrentLookupKey());
+  }
+
+  @Test
+  public void shouldRouteMarkedReadOnlyTransactionsToPrimaryIfReplicaIsNotReadable()
+      throws Throwable {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    request.addHeader(ReadPrimaryHeader.NAME, "42");
+    when(replicaLagMonitor.isReplicaReadable(42L)).thenReturn(false);
+
+    assertEquals(ReadWriteRoutingDataSource.Route.PRIMARY, lookUpInReplicaRead());
+  }
+
+  @Test
+  public void shouldRouteMarkedWritesToPrimary() throws Throwable {
+    when(replicaLagMonitor.isReplicaReadable(null)).thenReturn(true);
+
+    assertEquals(ReadWriteRoutingDataSource.Route.PRIMARY, lookUpInReplicaRead());
+  }
+
+  @Test
+  public void shouldRouteWritesToPrimaryAndKeepClientOnPrimaryAfterCommittedWrite() {
+    assertEquals(ReadWriteRoutingDataSource.Route.PRIMARY,
+        routingDataSource.determineCurrentLookupKey());
+
+    verify(replicaLagMonitor, never()).writeCommitted();
+    for (TransactionSynchronization synchronization
+        : TransactionSynchronizationManager.getSynchronizations()) {
+      synchronization.afterCommit();
+    }
+    verify(replicaLagMonitor).writeCommitted();
+  }
+
+  @Test
+  public void shouldNotTrackWritesOutsideRequests() {
+    RequestContextHolder.resetRequestAttributes();
+
+    assertEquals(ReadWriteRoutingDataSource.Route.PRIMARY,
+        routingDataSource.determineCurrentLookupKey());
+    assertEquals(0, TransactionSynchronizationManager.getSynchronizations().size());
+    verify(replicaLagMonitor, never()).isReplicaReadable(anyLong());
+  }
+
+  private Object lookUpInReplicaRead() throws Throwable {
+    ProceedingJoinPoint joinPoint = mock(ProceedingJoinPoint.class);
+    when(joinPoint.proceed()).thenAnswer(
+        invocation -> routingDataSource.determineCurrentLookupKey());
+    return new ReplicaReadAspect().allowReplica(joinPoint);
+  }
+}
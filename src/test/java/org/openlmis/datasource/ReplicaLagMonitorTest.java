@@ -0,0 +1,141 @@
+package org.openlmis.datasource;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReplicaLagMonitorTest {
+
+  @Mock
+  private DataSource replicationDataSource;
+
+  @Mock
+  private Connection connection;
+
+  @Mock
+  private Statement statement;
+
+  @Mock
+  private ResultSet versionResultSet;
+
+  @Mock
+  private ResultSet lagResultSet;
+
+  @Mock
+  private ResultSetMetaData metaData;
+
+  @InjectMocks
+  private ReplicaLagMonitor replicaLagMonitor;
+
+  private MockHttpServletResponse response;
+
+  @Before
+  public void setUp() throws SQLException {
+    ReflectionTestUtils.setField(replicaLagMonitor, "replicationDataSource",
+        replicationDataSource);
+    ReflectionTestUtils.setField(replicaLagMonitor, "maxLag", 5000L);
+    ReflectionTestUtils.setField(replicaLagMonitor, "checkDelay", 1000L);
+
+    when(replicationDataSource.getConnection()).thenReturn(connection);
+    when(connection.createStatement()).thenReturn(statement);
+    when(statement.executeQuery(ReplicaLagMonitor.VERSION_QUERY)).thenReturn(versionResultSet);
+    when(statement.executeQuery(ReplicaLagMonitor.LAG_QUERY)).thenReturn(lagResultSet);
+    when(versionResultSet.next()).thenReturn(true, false);
+    when(versionResultSet.getMetaData()).thenReturn(metaData);
+    when(versionResultSet.getInt(1)).thenReturn(140005);
+    when(lagResultSet.getMetaData()).thenReturn(metaData);
+    when(metaData.getColumnCount()).thenReturn(1);
+
+    response = new MockHttpServletResponse();
+    RequestContextHolder.setRequestAttributes(
+        new ServletRequestAttributes(new MockHttpServletRequest(), response));
+  }
+
+  @After
+  public void tearDown() {
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  @Test
+  public void shouldReadFromReplicaIfLagIsSmall() throws SQLException {
+    measure(200L);
+
+    assertTrue(replicaLagMonitor.isReplicaReadable(null));
+    assertTrue(replicaLagMonitor.isReplicaReadable(System.currentTimeMillis() - 1));
+  }
+
+  @Test
+  public void shouldNotReadFromReplicaIfLagIsTooBig() throws SQLException {
+    measure(8000L);
+
+    assertFalse(replicaLagMonitor.isReplicaReadable(null));
+  }
+
+  @Test
+  public void shouldNotReadFromReplicaIfItCannotBeReached() throws SQLException {
+    when(replicationDataSource.getConnection()).thenThrow(new SQLException("down"));
+
+    replicaLagMonitor.checkLag();
+
+    assertFalse(replicaLagMonitor.isReplicaReadable(null));
+  }
+
+  @Test
+  public void shouldNotReadFromReplicaOlderThanPostgres10() throws SQLException {
+    when(versionResultSet.getInt(1)).thenReturn(90605);
+
+    replicaLagMonitor.checkLag();
+    replicaLagMonitor.checkLag();
+
+    assertFalse(replicaLagMonitor.isReplicaReadable(null));
+    verify(statement, never()).executeQuery(ReplicaLagMonitor.LAG_QUERY);
+  }
+
+  @Test
+  public void shouldReadRecentWritesFromPrimary() throws SQLException {
+    measure(0L);
+
+    assertFalse(replicaLagMonitor.isReplicaReadable(System.currentTimeMillis() + 1000));
+  }
+
+  @Test
+  public void shouldKeepClientOnPrimaryAfterWriteForMaxLagAndCheckDelay() {
+    long before = System.currentTimeMillis();
+
+    replicaLagMonitor.writeCommitted();
+
+    long until = Long.parseLong(response.getHeader(ReadPrimaryHeader.NAME));
+    assertTrue(until >= before + 6000);
+    assertTrue(until <= System.currentTimeMillis() + 6000);
+  }
+
+  private void measure(long lag) throws SQLException {
+    when(lagResultSet.next()).thenReturn(true, false);
+    when(lagResultSet.getLong(1)).thenReturn(lag);
+    replicaLagMonitor.checkLag();
+  }
+}
@@ -0,0 +1,272 @@
+package org.openlmis.fulfillment.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.fulfillment.dto.OrderConversionMetricsDto;
+import org.openlmis.requisition.domain.Requisition;
+import org.openlmis.requisition.dto.ApprovedRequisitionDto;
+import org.openlmis.requisition.dto.SupplyLineDto;
+import org.openlmis.requisition.exception.RequisitionException;
+import org.openlmis.requisition.repository.RequisitionRepository;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OrderConversionServiceTest {
+
+  private static final String LOCK = "SELECT pg_try_advisory_lock(?)";
+  private static final String UNLOCK = "SELECT pg_advisory_unlock(?)";
+
+  @Mock
+  private OrderService orderService;
+
+  @Mock
+  private RequisitionRepository requisitionRepository;
+
+  @Mock
+  private SupplyLineResolver supplyLineResolver;
+
+  @Mock
+  private DataSource primaryDataSource;
+
+  @Mock
+  private Connection connection;
+
+  @Mock
+  private PreparedStatement lockStatement;
+
+  @Mock
+  private PreparedStatement unlockStatement;
+
+  @Mock
+  private ResultSet lockResult;
+
+  @Mock
+  private ResultSet unlockResult;
+
+  @InjectMocks
+  private OrderConversionService orderConversionService;
+
+  private UUID user = UUID.randomUUID();
+  private UUID program = UUID.randomUUID();
+  private UUID node = UUID.randomUUID();
+  private UUID otherNode = UUID.randomUUID();
+  private Map<UUID, SupplyLineDto> supplyLines = new HashMap<>();
+  private List<List<UUID>> convertedChunks = new ArrayList<>();
+
+  @Before
+  public void setUp() throws Exception {
+    ReflectionTestUtils.setField(orderConversionService, "enabled", true);
+    ReflectionTestUtils.setField(orderConversionService, "userId", user.toString());
+    ReflectionTestUtils.setField(orderConversionService, "batchSize", 10);
+    ReflectionTestUtils.setField(orderConversionService, "chunkSize", 2);
+    orderConversionService.start();
+
+    when(primaryDataSource.getConnection()).thenReturn(connection);
+    when(connection.prepareStatement(LOCK)).thenReturn(lockStatement);
+    when(connection.prepareStatement(UNLOCK)).thenReturn(unlockStatement);
+    when(lockStatement.executeQuery()).thenReturn(lockResult);
+    when(unlockStatement.executeQuery()).thenReturn(unlockResult);
+    when(lockResult.next()).thenReturn(true);
+    when(lockResult.getBoolean(1)).thenReturn(true);
+
+    supplyLines.put(node, supplyLine());
+    supplyLines.put(otherNode, supplyLine());
+    when(supplyLineResolver.resolveAvailable(anyCollectionOf(Requisition.class)))
+        .thenAnswer(invocation -> {
+          Map<UUID, SupplyLineDto> resolved = new HashMap<>();
+          for (Requisition requisition
+              : (Collection<Requisition>) invocation.getArguments()[0]) {
+            if (supplyLines.containsKey(requisition.getSupervisoryNode())) {
+              resolved.put(requisition.getId(),
+                  supplyLines.get(requisition.getSupervisoryNode()));
+            }
+          }
+          return resolved;
+        });
+
+    doAnswer(invocation -> {
+      List<Requisition> chunk = (List<Requisition>) invocation.getArguments()[0];
+      convertedChunks.add(chunk.stream().map(Requisition::getId).collect(Collectors.toList()));
+      return new ArrayList<>();
+    }).when(orderService).convertToOrder(anyListOf(Requisition.class), eq(user),
+        anyMapOf(UUID.class, SupplyLineDto.class));
+  }
+
+  @Test
+  public void shouldConvertRequisitionsGroupedBySupplyLineInChunks() throws Exception {
+    ApprovedRequisitionDto first = approved(node);
+    ApprovedRequisitionDto second = approved(otherNode);
+    ApprovedRequisitionDto third = approved(node);
+    ApprovedRequisitionDto fourth = approved(node);
+    when(requisitionRepository.findApproved(null, 10))
+        .thenReturn(Arrays.asList(first, second, third, fourth));
+
+    orderConversionService.convertApproved();
+
+    assertEquals(Arrays.asList(
+        Arrays.asList(first.getId(), third.getId()),
+        Collections.singletonList(fourth.getId()),
+        Collections.singletonList(second.getId())), convertedChunks);
+    verify(supplyLineResolver, times(1)).resolveAvailable(anyCollectionOf(Requisition.class));
+    verify(unlockStatement).setLong(1, OrderConversionService.LOCK_KEY);
+
+    OrderConversionMetricsDto metrics = orderConversionService.getMetrics();
+    assertEquals(1, metrics.getRuns());
+    assertEquals(4, metrics.getConverted());
+    assertEquals(4, metrics.getLastRunConverted());
+  }
+
+  @Test
+  public void shouldReadApprovedRequisitionsInBatches() throws Exception {
+    ReflectionTestUtils.setField(orderConversionService, "batchSize", 2);
+    ApprovedRequisitionDto first = approved(node);
+    ApprovedRequisitionDto second = approved(node);
+    ApprovedRequisitionDto third = approved(node);
+    when(requisitionRepository.findApproved(null, 2)).thenReturn(Arrays.asList(first, second));
+    when(requisitionRepository.findApproved(second.getId(), 2))
+        .thenReturn(Collections.singletonList(third));
+
+    orderConversionService.convertApproved();
+
+    assertEquals(Arrays.asList(
+        Arrays.asList(first.getId(), second.getId()),
+        Collections.singletonList(third.getId())), convertedChunks);
+    verify(supplyLineResolver, times(2)).resolveAvailable(anyCollectionOf(Requisition.class));
+  }
+
+  @Test
+  public void shouldNotConvertWhenAnotherInstanceHoldsLock() throws Exception {
+    when(lockResult.getBoolean(1)).thenReturn(false);
+
+    orderConversionService.convertApproved();
+
+    verify(requisitionRepository, never()).findApproved(any(UUID.class), anyInt());
+    verify(connection, never()).prepareStatement(UNLOCK);
+    verify(connection).close();
+  }
+
+  @Test
+  public void shouldNotConvertWhenDisabled() throws Exception {
+    ReflectionTestUtils.setField(orderConversionService, "enabled", false);
+
+    orderConversionService.convertApproved();
+
+    verify(primaryDataSource, never()).getConnection();
+  }
+
+  @Test
+  public void shouldContinueWithNextChunkWhenConversionFails() throws Exception {
+    ApprovedRequisitionDto first = approved(node);
+    ApprovedRequisitionDto second = approved(node);
+    ApprovedRequisitionDto third = approved(node);
+    when(requisitionRepository.findApproved(null, 10))
+        .thenReturn(Arrays.asList(first, second, third));
+    doAnswer(invocation -> {
+      throw new RequisitionException("not approved");
+    }).doAnswer(invocation -> new ArrayList<>())
+        .when(orderService).convertToOrder(anyListOf(Requisition.class), eq(user),
+            anyMapOf(UUID.class, SupplyLineDto.class));
+
+    orderConversionService.convertApproved();
+
+    verify(orderService, times(2)).convertToOrder(anyListOf(Requisition.class), eq(user),
+        anyMapOf(UUID.class, SupplyLineDto.class));
+    verify(connection).prepareStatement(UNLOCK);
+
+    OrderConversionMetricsDto metrics = orderConversionService.getMetrics();
+    assertEquals(1, metrics.getConverted());
+    assertEquals(2, metrics.getFailed());
+  }
+
+  @Test
+  public void shouldSkipRequisitionsWithoutSupplyLine() throws Exception {
+    ApprovedRequisitionDto first = approved(UUID.randomUUID());
+    ApprovedRequisitionDto second = approved(node);
+    when(requisitionRepository.findApproved(null, 10)).thenReturn(Arrays.asList(first, second));
+
+    orderConversionService.convertApproved();
+
+    assertEquals(Collections.singletonList(Collections.singletonList(second.getId())),
+        convertedChunks);
+    assertEquals(1, orderConversionService.getMetrics().getLastRunWithoutSupplyLine());
+  }
+
+  @Test
+  public void shouldCountRequisitionsWithoutSupplyLineOfLastRunOnly() throws Exception {
+    ApprovedRequisitionDto unsupplied = approved(UUID.randomUUID());
+    when(requisitionRepository.findApproved(null, 10))
+        .thenReturn(Collections.singletonList(unsupplied));
+
+    orderConversionService.convertApproved();
+    orderConversionService.convertApproved();
+
+    OrderConversionMetricsDto metrics = orderConversionService.getMetrics();
+    assertEquals(2, metrics.getRuns());
+    assertEquals(1, metrics.getLastRunWithoutSupplyLine());
+  }
+
+  @Test
+  public void shouldPassResolvedSupplyLinesToConversion() throws Exception {
+    ApprovedRequisitionDto approved = approved(node);
+    when(requisitionRepository.findApproved(null, 10))
+        .thenReturn(Collections.singletonList(approved));
+
+    orderConversionService.convertApproved();
+
+    verify(orderService).convertToOrder(anyListOf(Requisition.class), eq(user),
+        eq(Collections.singletonMap(approved.getId(), supplyLines.get(node))));
+  }
+
+  @Test
+  public void shouldNotConvertWhenLockCannotBeChecked() throws Exception {
+    when(connection.prepareStatement(anyString())).thenThrow(new SQLException("closed"));
+
+    orderConversionService.convertApproved();
+
+    verify(requisitionRepository, never()).findApproved(any(UUID.class), anyInt());
+  }
+
+  private ApprovedRequisitionDto approved(UUID supervisoryNode) {
+    return new ApprovedRequisitionDto(UUID.randomUUID(), program, supervisoryNode);
+  }
+
+  private SupplyLineDto supplyLine() {
+    SupplyLineDto supplyLine = new SupplyLineDto();
+    supplyLine.setId(UUID.randomUUID());
+    return supplyLine;
+  }
+}
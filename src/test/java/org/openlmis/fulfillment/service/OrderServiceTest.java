@@ -1,11 +1,17 @@
 package org.openlmis.fulfillment.service;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 import org.junit.Before;
@@ -39,6 +45,13 @@ import org.openlmis.requisition.service.referencedata.OrderableProductReferenceD
 import org.openlmis.requisition.service.referencedata.ProgramReferenceDataService;
 import org.openlmis.requisition.service.referencedata.SupplyLineReferenceDataService;
 import org.openlmis.requisition.service.referencedata.UserReferenceDataService;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
 
 import java.io.IOException;
 import java.io.StringWriter;
@@ -52,8 +65,12 @@ import java.time.LocalDateTime;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 @SuppressWarnings({"PMD.TooManyMethods", "PMD.UnusedPrivateField"})
 @RunWith(MockitoJUnitRunner.class)
@@ -69,7 +86,7 @@ public class OrderServiceTest {
   private RequisitionService requisitionService;
 
   @Mock
-  private SupplyLineReferenceDataService supplyLineService;
+  private SupplyLineResolver supplyLineResolver;
 
   @Mock
   private UserReferenceDataService userService;
@@ -122,15 +139,12 @@ public class OrderServiceTest {
     when(user.getId()).thenReturn(userId);
     when(userService.findOne(userId)).thenReturn(user);
 
+    when(requisitionService.releaseRequisitionsAsOrder(requisitions)).thenReturn(requisitions);
+    Map<UUID, SupplyLineDto> resolvedSupplyLines = new HashMap<>();
     for (int i = 0; i < requisitions.size(); i++) {
-      when(requisitionRepository
-              .findOne(requisitions.get(i).getId()))
-              .thenReturn(requisitions.get(i));
-      when(supplyLineService.search(
-              requisitions.get(i).getProgram(),
-              requisitions.get(i).getSupervisoryNode()))
-              .thenReturn(Arrays.asList(supplyLines.get(i)));
+      resolvedSupplyLines.put(requisitions.get(i).getId(), supplyLines.get(i));
     }
+    when(supplyLineResolver.resolve(requisitions)).thenReturn(resolvedSupplyLines);
     OrderNumberConfiguration orderNumberConfiguration =
         new OrderNumberConfiguration("prefix", true, true, true);
     when(orderNumberConfigurationRepository.findAll())
@@ -175,9 +189,63 @@ public class OrderServiceTest {
       assertEquals(requisitionLineItem.getOrderableProduct(), orderLineItem.getOrderableProduct());
     }
 
-    verify(requisitionRepository, atLeastOnce()).findOne(anyObject());
-    verify(supplyLineService, atLeastOnce()).search(anyObject(), anyObject());
-    verify(orderRepository, atLeastOnce()).save(any(Order.class));
+    // both requisitions share program and supervisory node
+    verify(programReferenceDataService, times(1)).findOne(anyObject());
+    verify(orderNumberConfigurationRepository, times(1)).findAll();
+    verify(orderRepository).save(orders);
+  }
+
+  @Test
+  public void shouldNotResolveSupplyLinesResolvedBeforehand() throws RequisitionException {
+    UserDto user = mock(UserDto.class);
+    UUID userId = UUID.randomUUID();
+    when(userService.findOne(userId)).thenReturn(user);
+    when(requisitionService.releaseRequisitionsAsOrder(requisitions)).thenReturn(requisitions);
+    Map<UUID, SupplyLineDto> resolvedSupplyLines = new HashMap<>();
+    for (int i = 0; i < requisitions.size(); i++) {
+      resolvedSupplyLines.put(requisitions.get(i).getId(), supplyLines.get(i));
+    }
+    when(orderNumberConfigurationRepository.findAll()).thenReturn(Arrays.asList(
+        new OrderNumberConfiguration("prefix", true, true, true)));
+    when(program.getCode()).thenReturn("code");
+
+    orders = orderService.convertToOrder(requisitions, userId, resolvedSupplyLines);
+
+    assertEquals(2, orders.size());
+    verifyZeroInteractions(supplyLineResolver);
+  }
+
+  @Test
+  public void shouldRollBackReleaseWhenRequisitionHasNoSupplyLine() throws RequisitionException {
+    shouldRollBackReleaseWhenSupplyLinesFail(new RequisitionException(
+        "Can not convert requisitions to orders: requisition " + requisitions.get(0).getId()
+            + " has no supply line"));
+  }
+
+  @Test
+  public void shouldRollBackReleaseWhenSupplyLinesAreNotResolvedInTime()
+      throws RequisitionException {
+    SupplyLineReferenceDataService slowSupplyLines = mock(SupplyLineReferenceDataService.class);
+    CountDownLatch release = new CountDownLatch(1);
+    when(slowSupplyLines.search(anyObject(), anyObject())).thenAnswer(invocation -> {
+      release.await(5, TimeUnit.SECONDS);
+      return supplyLines;
+    });
+    SupplyLineResolver resolver = new SupplyLineResolver();
+    ReflectionTestUtils.setField(resolver, "supplyLineReferenceDataService", slowSupplyLines);
+    ReflectionTestUtils.setField(resolver, "workers", 1);
+    ReflectionTestUtils.setField(resolver, "timeout", 50L);
+    resolver.start();
+    ReflectionTestUtils.setField(orderService, "supplyLineResolver", resolver);
+
+    try {
+      RequisitionException failure = convertFailingInTransaction();
+      assertTrue(failure.getMessage().contains("requisition " + requisitions.get(0).getId()
+          + " was not resolved within 50 ms"));
+    } finally {
+      release.countDown();
+      resolver.stop();
+    }
   }
 
   @Test
@@ -338,4 +406,37 @@ public class OrderServiceTest {
     when(facilityReferenceDataService.findOne(any())).thenReturn(facilityDto);
 
   }
+
+  private void shouldRollBackReleaseWhenSupplyLinesFail(RequisitionException failure)
+      throws RequisitionException {
+    when(supplyLineResolver.resolve(requisitions)).thenThrow(failure);
+    assertEquals(failure, convertFailingInTransaction());
+  }
+
+  private RequisitionException convertFailingInTransaction() throws RequisitionException {
+    PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    TransactionStatus transaction = mock(TransactionStatus.class);
+    when(transactionManager.getTransaction(any(TransactionDefinition.class)))
+        .thenReturn(transaction);
+    ProxyFactory proxyFactory = new ProxyFactory(orderService);
+    proxyFactory.addAdvice(new TransactionInterceptor(transactionManager,
+        new AnnotationTransactionAttributeSource()));
+    OrderService transactionalOrderService = (OrderService) proxyFactory.getProxy();
+
+    when(requisitionService.releaseRequisitionsAsOrder(requisitions)).thenReturn(requisitions);
+
+    RequisitionException failure = null;
+    try {
+      transactionalOrderService.convertToOrder(requisitions, UUID.randomUUID());
+      fail("Requisitions without supply lines should not be converted");
+    } catch (RequisitionException ex) {
+      failure = ex;
+    }
+
+    verify(requisitionService).releaseRequisitionsAsOrder(requisitions);
+    verify(transactionManager).rollback(transaction);
+    verify(transactionManager, never()).commit(transaction);
+    verify(orderRepository, never()).save(anyListOf(Order.class));
+    return failure;
+  }
 }
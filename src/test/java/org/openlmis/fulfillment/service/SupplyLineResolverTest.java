@@ -0,0 +1,189 @@
+package org.openlmis.fulfillment.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.requisition.domain.Requisition;
+import org.openlmis.requisition.dto.SupplyLineDto;
+import org.openlmis.requisition.exception.RequisitionException;
+import org.openlmis.requisition.service.referencedata.SupplyLineReferenceDataService;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestClientException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SupplyLineResolverTest {
+
+  @Mock
+  private SupplyLineReferenceDataService supplyLineReferenceDataService;
+
+  @InjectMocks
+  private SupplyLineResolver supplyLineResolver;
+
+  private UUID program = UUID.randomUUID();
+  private UUID node = UUID.randomUUID();
+  private UUID otherNode = UUID.randomUUID();
+  private SupplyLineDto supplyLine = generateSupplyLine();
+  private SupplyLineDto otherSupplyLine = generateSupplyLine();
+
+  @Before
+  public void setUp() {
+    ReflectionTestUtils.setField(supplyLineResolver, "workers", 2);
+    ReflectionTestUtils.setField(supplyLineResolver, "timeout", 5000L);
+    supplyLineResolver.start();
+  }
+
+  @After
+  public void tearDown() {
+    supplyLineResolver.stop();
+  }
+
+  @Test
+  public void shouldLookUpEachProgramAndSupervisoryNodeOnce() throws RequisitionException {
+    when(supplyLineReferenceDataService.search(program, node))
+        .thenReturn(Collections.singletonList(supplyLine));
+    when(supplyLineReferenceDataService.search(program, otherNode))
+        .thenReturn(Collections.singletonList(otherSupplyLine));
+    Requisition first = generateRequisition(node);
+    Requisition second = generateRequisition(otherNode);
+    Requisition third = generateRequisition(node);
+
+    Map<UUID, SupplyLineDto> supplyLines =
+        supplyLineResolver.resolve(Arrays.asList(first, second, third));
+
+    assertEquals(3, supplyLines.size());
+    assertEquals(supplyLine, supplyLines.get(first.getId()));
+    assertEquals(otherSupplyLine, supplyLines.get(second.getId()));
+    assertEquals(supplyLine, supplyLines.get(third.getId()));
+    verify(supplyLineReferenceDataService, times(1)).search(program, node);
+    verify(supplyLineReferenceDataService, times(1)).search(program, otherNode);
+  }
+
+  @Test
+  public void shouldLookUpSupplyLinesConcurrently() throws RequisitionException {
+    CountDownLatch started = new CountDownLatch(2);
+    when(supplyLineReferenceDataService.search(program, node)).thenAnswer(invocation -> {
+      started.countDown();
+      assertTrue(started.await(5, TimeUnit.SECONDS));
+      return Collections.singletonList(supplyLine);
+    });
+    when(supplyLineReferenceDataService.search(program, otherNode)).thenAnswer(invocation -> {
+      started.countDown();
+      assertTrue(started.await(5, TimeUnit.SECONDS));
+      return Collections.singletonList(otherSupplyLine);
+    });
+
+    Map<UUID, SupplyLineDto> supplyLines = supplyLineResolver.resolve(
+        Arrays.asList(generateRequisition(node), generateRequisition(otherNode)));
+
+    assertEquals(2, supplyLines.size());
+  }
+
+  @Test
+  public void shouldNameEveryRequisitionWithoutSupplyLine() {
+    when(supplyLineReferenceDataService.search(program, node))
+        .thenReturn(Collections.singletonList(supplyLine));
+    when(supplyLineReferenceDataService.search(program, otherNode))
+        .thenReturn(Collections.emptyList());
+    Requisition supplied = generateRequisition(node);
+    Requisition first = generateRequisition(otherNode);
+    Requisition second = generateRequisition(otherNode);
+
+    String message = resolveFailing(supplied, first, second);
+
+    assertTrue(message.contains("requisition " + first.getId() + " has no supply line"));
+    assertTrue(message.contains("requisition " + second.getId() + " has no supply line"));
+    assertFalse(message.contains(supplied.getId().toString()));
+  }
+
+  @Test
+  public void shouldNameRequisitionsWhoseLookupFailed() {
+    when(supplyLineReferenceDataService.search(program, node))
+        .thenThrow(new RestClientException("unavailable"));
+    Requisition requisition = generateRequisition(node);
+
+    String message = resolveFailing(requisition);
+
+    assertTrue(message.contains("requisition " + requisition.getId()
+        + " has unknown supply line, the lookup failed: unavailable"));
+  }
+
+  @Test
+  public void shouldFailWhenSupplyLinesAreNotResolvedInTime() {
+    ReflectionTestUtils.setField(supplyLineResolver, "timeout", 50L);
+    CountDownLatch release = new CountDownLatch(1);
+    when(supplyLineReferenceDataService.search(program, node)).thenAnswer(invocation -> {
+      release.await(5, TimeUnit.SECONDS);
+      return Collections.singletonList(supplyLine);
+    });
+    Requisition requisition = generateRequisition(node);
+
+    try {
+      String message = resolveFailing(requisition);
+      assertTrue(message.contains("requisition " + requisition.getId()
+          + " was not resolved within 50 ms"));
+    } finally {
+      release.countDown();
+    }
+  }
+
+  @Test
+  public void shouldLeaveOutRequisitionsWithoutAvailableSupplyLine() throws RequisitionException {
+    UUID failingNode = UUID.randomUUID();
+    when(supplyLineReferenceDataService.search(program, node))
+        .thenReturn(Collections.singletonList(supplyLine));
+    when(supplyLineReferenceDataService.search(program, otherNode))
+        .thenReturn(Collections.emptyList());
+    when(supplyLineReferenceDataService.search(program, failingNode))
+        .thenThrow(new RestClientException("unavailable"));
+    Requisition supplied = generateRequisition(node);
+
+    Map<UUID, SupplyLineDto> supplyLines = supplyLineResolver.resolveAvailable(Arrays.asList(
+        supplied, generateRequisition(otherNode), generateRequisition(failingNode)));
+
+    assertEquals(Collections.singletonMap(supplied.getId(), supplyLine), supplyLines);
+  }
+
+  private String resolveFailing(Requisition... requisitions) {
+    try {
+      supplyLineResolver.resolve(Arrays.asList(requisitions));
+    } catch (RequisitionException ex) {
+      return ex.getMessage();
+    }
+    fail("Supply lines should not be resolved");
+    return null;
+  }
+
+  private Requisition generateRequisition(UUID supervisoryNode) {
+    Requisition requisition = new Requisition();
+    requisition.setId(UUID.randomUUID());
+    requisition.setProgram(program);
+    requisition.setSupervisoryNode(supervisoryNode);
+    return requisition;
+  }
+
+  private SupplyLineDto generateSupplyLine() {
+    SupplyLineDto supplyLine = new SupplyLineDto();
+    supplyLine.setId(UUID.randomUUID());
+    supplyLine.setProgram(program);
+    return supplyLine;
+  }
+}
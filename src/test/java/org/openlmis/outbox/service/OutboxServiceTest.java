@@ -0,0 +1,154 @@
+package org.openlmis.outbox.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.OngoingStubbing;
+import org.openlmis.outbox.domain.OutboxEvent;
+import org.openlmis.outbox.dto.OutboxMetricsDto;
+import org.openlmis.outbox.repository.OutboxEventRepository;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OutboxServiceTest {
+
+  @Mock
+  private OutboxEventRepository outboxEventRepository;
+
+  @Mock
+  private OutboxSink outboxSink;
+
+  @Mock
+  private PlatformTransactionManager transactionManager;
+
+  @InjectMocks
+  private OutboxService outboxService;
+
+  private long nextId = 1;
+
+  @Before
+  public void setUp() {
+    ReflectionTestUtils.setField(outboxService, "batchSize", 2);
+    ReflectionTestUtils.setField(outboxService, "claimTimeout", 60000L);
+    outboxService.start();
+  }
+
+  @Test
+  public void shouldDeliverAndRemoveEventsInBatches() throws IOException {
+    List<OutboxEvent> first = Arrays.asList(generateEvent(), generateEvent());
+    List<OutboxEvent> second = Collections.singletonList(generateEvent());
+    whenClaimed().thenReturn(first, second);
+
+    outboxService.relay();
+
+    verify(outboxSink).deliver(first);
+    verify(outboxSink).deliver(second);
+    verify(outboxEventRepository).deleteDelivered(ids(first));
+    verify(outboxEventRepository).deleteDelivered(ids(second));
+    assertEquals(3, outboxService.getMetrics().getDelivered());
+  }
+
+  @Test
+  public void shouldNotDeliverWhenOutboxIsEmpty() throws IOException {
+    whenClaimed().thenReturn(new ArrayList<>());
+
+    outboxService.relay();
+
+    verify(outboxSink, never()).deliver(anyListOf(OutboxEvent.class));
+  }
+
+  @Test
+  public void shouldCommitClaimBeforeDeliveringAndRemoveEventsAfterwards() throws IOException {
+    List<OutboxEvent> events = Collections.singletonList(generateEvent());
+    whenClaimed().thenReturn(events);
+
+    outboxService.relay();
+
+    InOrder inOrder = inOrder(outboxEventRepository, transactionManager, outboxSink);
+    inOrder.verify(outboxEventRepository).claimPending(eq(2), any(LocalDateTime.class));
+    inOrder.verify(transactionManager).commit(null);
+    inOrder.verify(outboxSink).deliver(events);
+    inOrder.verify(outboxEventRepository).deleteDelivered(ids(events));
+    inOrder.verify(transactionManager).commit(null);
+  }
+
+  @Test
+  public void shouldReleaseClaimsWhenDeliveryFails() throws IOException {
+    List<OutboxEvent> events = Arrays.asList(generateEvent(), generateEvent());
+    whenClaimed().thenReturn(events);
+    doThrow(new IOException("unavailable")).when(outboxSink).deliver(events);
+
+    outboxService.relay();
+
+    verify(outboxSink, times(1)).deliver(events);
+    verify(outboxEventRepository, never()).deleteDelivered(anyListOf(Long.class));
+    verify(outboxEventRepository).releaseClaims(ids(events));
+
+    OutboxMetricsDto metrics = outboxService.getMetrics();
+    assertEquals(0, metrics.getDelivered());
+    assertEquals(1, metrics.getFailedDeliveries());
+  }
+
+  @Test
+  public void shouldReportPendingEventsAndLag() {
+    List<OutboxEvent> events = Collections.singletonList(generateEvent());
+    whenClaimed().thenReturn(events);
+    outboxService.relay();
+
+    when(outboxEventRepository.count()).thenReturn(5L);
+    when(outboxEventRepository.findOldestCreatedDate())
+        .thenReturn(LocalDateTime.now().minusMinutes(1));
+
+    OutboxMetricsDto metrics = outboxService.getMetrics();
+
+    assertEquals(5, metrics.getPending());
+    assertTrue(metrics.getOldestPendingAgeMillis() >= 60_000);
+    assertTrue(metrics.getMaxLagMillis() >= 2_000);
+    assertTrue(metrics.getAverageLagMillis() >= 2_000);
+  }
+
+  private OngoingStubbing<List<OutboxEvent>> whenClaimed() {
+    return when(outboxEventRepository.claimPending(eq(2), any(LocalDateTime.class)));
+  }
+
+  private List<Long> ids(List<OutboxEvent> events) {
+    List<Long> ids = new ArrayList<>();
+    for (OutboxEvent event : events) {
+      ids.add(event.getId());
+    }
+    return ids;
+  }
+
+  private OutboxEvent generateEvent() {
+    OutboxEvent event = new OutboxEvent("Requisition", UUID.randomUUID(),
+        "REQUISITION_SUBMITTED", "{}");
+    ReflectionTestUtils.setField(event, "id", nextId++);
+    ReflectionTestUtils.setField(event, "createdDate", LocalDateTime.now().minusSeconds(2));
+    return event;
+  }
+}
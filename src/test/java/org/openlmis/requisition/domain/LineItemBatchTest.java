@@ -0,0 +1,67 @@
+package org.openlmis.requisition.domain;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.Test;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+
+public class LineItemBatchTest {
+
+  @Test
+  public void shouldAddQuantitiesOfLineItem() {
+    Requisition requisition = new Requisition();
+    requisition.setId(UUID.randomUUID());
+    RequisitionLineItem lineItem = new RequisitionLineItem();
+    lineItem.setRequisition(requisition);
+    lineItem.setBeginningBalance(10);
+    lineItem.setStockOnHand(0);
+
+    LineItemBatch batch = new LineItemBatch(1);
+    int row = batch.add(lineItem);
+
+    assertEquals(1, batch.size());
+    assertEquals(requisition.getId(), batch.getRequisition(row));
+    assertEquals(10, batch.get(LineItemField.BEGINNING_BALANCE, row));
+    assertFalse(batch.isNull(LineItemField.STOCK_ON_HAND, row));
+    assertTrue(batch.isNull(LineItemField.TOTAL_CONSUMED_QUANTITY, row));
+  }
+
+  @Test
+  public void shouldAddRowFromResultSet() throws SQLException {
+    UUID requisition = UUID.randomUUID();
+    ResultSet resultSet = mock(ResultSet.class);
+    when(resultSet.getObject(1)).thenReturn(requisition);
+    when(resultSet.getInt(2)).thenReturn(10);
+    when(resultSet.wasNull()).thenReturn(false, true, true, true, true);
+
+    LineItemBatch batch = new LineItemBatch(1);
+    int row = batch.add(resultSet);
+
+    assertEquals(requisition, batch.getRequisition(row));
+    assertEquals(10, batch.get(LineItemField.BEGINNING_BALANCE, row));
+    assertTrue(batch.isNull(LineItemField.TOTAL_RECEIVED_QUANTITY, row));
+    assertTrue(batch.isNull(LineItemField.STOCK_ON_HAND, row));
+  }
+
+  @Test
+  public void shouldSumAndCountNonEmptyValuesAfterGrowing() {
+    LineItemBatch batch = new LineItemBatch(1);
+    for (int i = 0; i < 200; i++) {
+      int row = batch.add(UUID.randomUUID());
+      if (i % 2 == 0) {
+        batch.set(LineItemField.STOCK_ON_HAND, row, i % 4);
+      }
+    }
+
+    assertEquals(200, batch.size());
+    assertEquals(100, batch.sum(LineItemField.STOCK_ON_HAND));
+    assertEquals(50, batch.count(LineItemField.STOCK_ON_HAND, 0));
+  }
+}
@@ -0,0 +1,135 @@
+package org.openlmis.requisition.domain;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.openlmis.requisition.exception.RequisitionTemplateColumnException;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+@SuppressWarnings("PMD.TooManyMethods")
+public class LineItemCalculationTest {
+
+  @Test
+  public void shouldCalculateStockOnHand() {
+    RequisitionLineItem requisitionLineItem = generateLineItem();
+    requisitionLineItem.setTotalConsumedQuantity(200);
+
+    LineItemCalculation.defaultCalculation()
+        .calculate(Collections.singletonList(requisitionLineItem));
+
+    assertEquals(1200, requisitionLineItem.getStockOnHand().intValue());
+  }
+
+  @Test
+  public void shouldCalculateStockOnHandWhenTemplateHasNoColumnForIt()
+      throws RequisitionTemplateColumnException {
+    RequisitionLineItem requisitionLineItem = generateLineItem();
+    requisitionLineItem.setTotalConsumedQuantity(200);
+
+    LineItemCalculation.compile(new RequisitionTemplate())
+        .calculate(Collections.singletonList(requisitionLineItem));
+
+    assertEquals(1200, requisitionLineItem.getStockOnHand().intValue());
+  }
+
+  @Test
+  public void shouldCalculateTotalConsumedQuantityFromStockOnHand()
+      throws RequisitionTemplateColumnException {
+    RequisitionLineItem requisitionLineItem = generateLineItem();
+    requisitionLineItem.setStockOnHand(1200);
+
+    LineItemCalculation.compile(generateTemplate(SourceType.USER_INPUT, SourceType.CALCULATED))
+        .calculate(Collections.singletonList(requisitionLineItem));
+
+    assertEquals(200, requisitionLineItem.getTotalConsumedQuantity().intValue());
+    assertEquals(1200, requisitionLineItem.getStockOnHand().intValue());
+  }
+
+  @Test
+  public void shouldLeaveCalculatedFieldEmptyWhenInputIsMissing() {
+    RequisitionLineItem requisitionLineItem = generateLineItem();
+    requisitionLineItem.setStockOnHand(5);
+
+    LineItemCalculation.defaultCalculation()
+        .calculate(Collections.singletonList(requisitionLineItem));
+
+    assertNull(requisitionLineItem.getStockOnHand());
+  }
+
+  @Test
+  public void shouldCalculateBatch() {
+    RequisitionLineItem requisitionLineItem = generateLineItem();
+    requisitionLineItem.setTotalConsumedQuantity(200);
+    LineItemBatch batch = new LineItemBatch(2);
+    batch.add(requisitionLineItem);
+    batch.add(generateLineItem());
+
+    LineItemCalculation.defaultCalculation().calculate(batch);
+
+    assertEquals(1200, batch.get(LineItemField.STOCK_ON_HAND, 0));
+    assertTrue(batch.isNull(LineItemField.STOCK_ON_HAND, 1));
+  }
+
+  @Test
+  public void shouldBuildExpressionsOfCalculatedFields()
+      throws RequisitionTemplateColumnException {
+    LineItemCalculation.ExpressionBuilder<String> builder =
+        new LineItemCalculation.ExpressionBuilder<String>() {
+          @Override
+          public String field(LineItemField field) {
+            return field.getName();
+          }
+
+          @Override
+          public String add(String augend, String addend) {
+            return "(" + augend + " + " + addend + ")";
+          }
+
+          @Override
+          public String subtract(String minuend, String subtrahend) {
+            return "(" + minuend + " - " + subtrahend + ")";
+          }
+        };
+
+    Map<LineItemField, String> expressions = LineItemCalculation
+        .compile(generateTemplate(SourceType.USER_INPUT, SourceType.CALCULATED))
+        .buildExpressions(builder);
+
+    assertEquals(Collections.singletonMap(LineItemField.TOTAL_CONSUMED_QUANTITY,
+        "(((beginningBalance + totalReceivedQuantity) + totalLossesAndAdjustments)"
+            + " - stockOnHand)"), expressions);
+    assertEquals(Collections.singleton(LineItemField.STOCK_ON_HAND),
+        LineItemCalculation.defaultCalculation().buildExpressions(builder).keySet());
+  }
+
+  @Test(expected = RequisitionTemplateColumnException.class)
+  public void shouldNotCompileCalculatedColumnsDependingOnEachOther()
+      throws RequisitionTemplateColumnException {
+    LineItemCalculation.compile(generateTemplate(SourceType.CALCULATED, SourceType.CALCULATED));
+  }
+
+  private RequisitionLineItem generateLineItem() {
+    RequisitionLineItem requisitionLineItem = new RequisitionLineItem();
+    requisitionLineItem.setTotalLossesAndAdjustments(-100);
+    requisitionLineItem.setTotalReceivedQuantity(500);
+    requisitionLineItem.setBeginningBalance(1000);
+    return requisitionLineItem;
+  }
+
+  private RequisitionTemplate generateTemplate(SourceType stockOnHand,
+                                               SourceType totalConsumedQuantity) {
+    Map<String, RequisitionTemplateColumn> columns = new HashMap<>();
+    columns.put(RequisitionLineItem.STOCK_ON_HAND, new RequisitionTemplateColumn(
+        RequisitionLineItem.STOCK_ON_HAND, "Stock on hand", 1, true, false, true, false,
+        stockOnHand));
+    columns.put(RequisitionLineItem.TOTAL_CONSUMED_QUANTITY, new RequisitionTemplateColumn(
+        RequisitionLineItem.TOTAL_CONSUMED_QUANTITY, "Total consumed quantity", 2, true, false,
+        true, false, totalConsumedQuantity));
+    return new RequisitionTemplate(columns);
+  }
+}
@@ -0,0 +1,19 @@
+package org.openlmis.requisition.domain;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class RequisitionChangeTypeTest {
+
+  @Test
+  public void shouldMergeIntoStrongerChangeType() {
+    assertEquals(RequisitionChangeType.STATUS_CHANGED,
+        RequisitionChangeType.UPDATED.merge(RequisitionChangeType.STATUS_CHANGED));
+    assertEquals(RequisitionChangeType.CREATED,
+        RequisitionChangeType.CREATED.merge(RequisitionChangeType.STATUS_CHANGED));
+    assertEquals(RequisitionChangeType.DELETED,
+        RequisitionChangeType.CREATED.merge(RequisitionChangeType.DELETED));
+    assertEquals(RequisitionChangeType.UPDATED, RequisitionChangeType.UPDATED.merge(null));
+  }
+}
@@ -4,18 +4,20 @@ import static org.junit.Assert.assertEquals;
 
 import org.junit.Test;
 
+import java.util.Map;
+
 public class RequisitionLineItemTest {
 
   @Test
-  public void shouldCalculateStockOnHand() {
+  public void shouldReturnOnlyValuesWhichCanBeChangedInAuthorizedRequisition() {
     RequisitionLineItem requisitionLineItem = new RequisitionLineItem();
-    requisitionLineItem.setTotalLossesAndAdjustments(-100);
-    requisitionLineItem.setTotalConsumedQuantity(200);
-    requisitionLineItem.setTotalReceivedQuantity(500);
     requisitionLineItem.setBeginningBalance(1000);
+    requisitionLineItem.setApprovedQuantity(300);
 
-    requisitionLineItem.calculateStockOnHand();
+    Map<String, Object> values =
+        requisitionLineItem.getChangedValues(RequisitionStatus.AUTHORIZED);
 
-    assertEquals(1200, requisitionLineItem.getStockOnHand().intValue());
+    assertEquals(1, values.size());
+    assertEquals(300, values.get("approvedQuantity"));
   }
 }
@@ -1,6 +1,8 @@
 package org.openlmis.requisition.domain;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 
@@ -9,11 +11,15 @@ import org.junit.Test;
 import org.openlmis.requisition.exception.RequisitionException;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
 
 public class RequisitionTest {
 
   private Requisition requisition;
+  private LineItemCalculation calculation = mock(LineItemCalculation.class);
 
   @Before
   public void setUp() {
@@ -25,7 +31,7 @@ public class RequisitionTest {
   @Test
   public void shouldAuthorizeRequisitionIfItStatusIsSubmitted() throws RequisitionException {
     requisition.setStatus(RequisitionStatus.SUBMITTED);
-    requisition.authorize();
+    requisition.authorize(calculation);
 
     assertEquals(requisition.getStatus(), RequisitionStatus.AUTHORIZED);
   }
@@ -33,7 +39,7 @@ public class RequisitionTest {
   @Test(expected = RequisitionException.class)
   public void shouldThrowExceptionWhenAuthorizingRequisitionWithNotSubmittedStatus()
       throws RequisitionException {
-    requisition.authorize();
+    requisition.authorize(calculation);
   }
 
   @Test
@@ -41,11 +47,27 @@ public class RequisitionTest {
       throws RequisitionException {
     RequisitionLineItem requisitionLineItem = mock(RequisitionLineItem.class);
 
-    requisition.setRequisitionLineItems(Collections.singletonList(requisitionLineItem));
+    List<RequisitionLineItem> lineItems = Collections.singletonList(requisitionLineItem);
+    requisition.setRequisitionLineItems(lineItems);
     requisition.setStatus(RequisitionStatus.SUBMITTED);
-    requisition.authorize();
+    requisition.authorize(calculation);
 
     assertEquals(requisition.getStatus(), RequisitionStatus.AUTHORIZED);
-    verify(requisitionLineItem).calculateStockOnHand();
+    verify(calculation).calculate(lineItems);
+  }
+
+  @Test
+  public void shouldFindPersistedLineItemsWithoutVersion() {
+    RequisitionLineItem newLineItem = new RequisitionLineItem();
+    RequisitionLineItem lineItem = new RequisitionLineItem();
+    lineItem.setId(UUID.randomUUID());
+    lineItem.setVersion(3L);
+    requisition.setRequisitionLineItems(Arrays.asList(lineItem, newLineItem));
+
+    assertFalse(requisition.hasLineItemsWithoutVersion());
+
+    lineItem.setVersion(null);
+
+    assertTrue(requisition.hasLineItemsWithoutVersion());
   }
 }
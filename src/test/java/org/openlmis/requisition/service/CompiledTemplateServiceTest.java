@@ -0,0 +1,99 @@
+package org.openlmis.requisition.service;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.requisition.domain.LineItemCalculation;
+import org.openlmis.requisition.domain.RequisitionTemplate;
+import org.openlmis.requisition.exception.RequisitionTemplateColumnException;
+import org.openlmis.requisition.validate.LineItemValidation;
+
+import java.util.Collections;
+import java.util.UUID;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CompiledTemplateServiceTest {
+
+  private static final UUID PROGRAM = UUID.randomUUID();
+
+  @Mock
+  private RequisitionTemplateService requisitionTemplateService;
+
+  @InjectMocks
+  private CompiledTemplateService compiledTemplateService;
+
+  private RequisitionTemplate template;
+
+  @Before
+  public void setUp() {
+    template = new RequisitionTemplate();
+    template.setId(UUID.randomUUID());
+    template.setVersion(0L);
+    when(requisitionTemplateService.searchRequisitionTemplates(PROGRAM))
+        .thenReturn(Collections.singletonList(template));
+  }
+
+  @Test
+  public void shouldReuseCalculationOfSameTemplateVersion()
+      throws RequisitionTemplateColumnException {
+    LineItemCalculation calculation = compiledTemplateService.getCalculation(PROGRAM);
+
+    assertSame(calculation, compiledTemplateService.getCalculation(PROGRAM));
+  }
+
+  @Test
+  public void shouldCompileCalculationAgainAfterTemplateChanged()
+      throws RequisitionTemplateColumnException {
+    LineItemCalculation calculation = compiledTemplateService.getCalculation(PROGRAM);
+    template.setVersion(1L);
+
+    assertNotSame(calculation, compiledTemplateService.getCalculation(PROGRAM));
+  }
+
+  @Test
+  public void shouldReturnDefaultCalculationWhenProgramHasNoTemplate()
+      throws RequisitionTemplateColumnException {
+    UUID program = UUID.randomUUID();
+    when(requisitionTemplateService.searchRequisitionTemplates(program))
+        .thenReturn(Collections.emptyList());
+
+    assertSame(LineItemCalculation.defaultCalculation(),
+        compiledTemplateService.getCalculation(program));
+  }
+
+  @Test
+  public void shouldReuseValidationOfSameTemplateVersion() {
+    LineItemValidation validation = compiledTemplateService.getValidation(PROGRAM);
+
+    assertSame(validation, compiledTemplateService.getValidation(PROGRAM));
+  }
+
+  @Test
+  public void shouldKeepCalculationWhenValidationIsCompiled()
+      throws RequisitionTemplateColumnException {
+    LineItemCalculation calculation = compiledTemplateService.getCalculation(PROGRAM);
+    compiledTemplateService.getValidation(PROGRAM);
+
+    assertSame(calculation, compiledTemplateService.getCalculation(PROGRAM));
+  }
+
+  @Test
+  public void shouldCompileValidationAgainAfterTemplateChanged() {
+    LineItemValidation validation = compiledTemplateService.getValidation(PROGRAM);
+    template.setVersion(1L);
+
+    assertNotSame(validation, compiledTemplateService.getValidation(PROGRAM));
+  }
+
+  @Test
+  public void shouldUseDefaultValidationWithoutProgram() {
+    assertSame(LineItemValidation.defaultValidation(), compiledTemplateService.getValidation(null));
+  }
+}
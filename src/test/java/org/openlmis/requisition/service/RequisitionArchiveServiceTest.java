@@ -0,0 +1,172 @@
+package org.openlmis.requisition.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.requisition.domain.Comment;
+import org.openlmis.requisition.domain.Requisition;
+import org.openlmis.requisition.domain.RequisitionArchive;
+import org.openlmis.requisition.domain.RequisitionLineItem;
+import org.openlmis.requisition.domain.RequisitionStatus;
+import org.openlmis.requisition.repository.RequisitionArchiveRepository;
+import org.openlmis.requisition.repository.RequisitionChangeListener;
+import org.openlmis.requisition.repository.RequisitionRepository;
+import org.openlmis.view.CompactJsonModule;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RequisitionArchiveServiceTest {
+
+  @Mock
+  private RequisitionRepository requisitionRepository;
+
+  @Mock
+  private RequisitionArchiveRepository requisitionArchiveRepository;
+
+  @Mock
+  private RequisitionChangeListener requisitionChangeListener;
+
+  @Mock
+  private PlatformTransactionManager transactionManager;
+
+  @InjectMocks
+  private RequisitionArchiveService requisitionArchiveService;
+
+  private Requisition requisition;
+
+  @Before
+  public void setUp() {
+    ReflectionTestUtils.setField(requisitionArchiveService, "orderedFor", 1000L);
+    ReflectionTestUtils.setField(requisitionArchiveService, "batchSize", 2);
+    ReflectionTestUtils.setField(requisitionArchiveService, "compactJsonModule",
+        new CompactJsonModule());
+    requisitionArchiveService.start();
+
+    requisition = generateRequisition();
+    when(requisitionRepository.findVersionStamp(requisition.getId())).thenReturn("3-stamp");
+    when(requisitionArchiveRepository.save(any(RequisitionArchive.class)))
+        .thenAnswer(invocation -> invocation.getArguments()[0]);
+  }
+
+  @Test
+  public void shouldMoveRequisitionIntoArchive() {
+    RequisitionArchive archive = requisitionArchiveService.archive(requisition);
+
+    assertEquals(requisition.getId(), archive.getRequisitionId());
+    assertEquals(requisition.getFacility(), archive.getFacility());
+    assertEquals("3-stamp", archive.getVersionStamp());
+
+    InOrder order = inOrder(requisitionArchiveRepository, requisitionChangeListener,
+        requisitionRepository);
+    order.verify(requisitionArchiveRepository).save(archive);
+    order.verify(requisitionChangeListener)
+        .requisitionArchived(requisition.getId(), RequisitionStatus.RELEASED);
+    order.verify(requisitionRepository).delete(requisition);
+  }
+
+  @Test
+  public void shouldRestoreArchivedRequisition() {
+    RequisitionArchive archive = requisitionArchiveService.archive(requisition);
+
+    Requisition restored = requisitionArchiveService.restore(archive);
+
+    assertEquals(requisition.getId(), restored.getId());
+    assertEquals(requisition.getStatus(), restored.getStatus());
+    assertEquals(requisition.getVersion(), restored.getVersion());
+    assertEquals(2, restored.getRequisitionLineItems().size());
+    RequisitionLineItem lineItem = restored.getRequisitionLineItems().get(1);
+    assertEquals(requisition.getRequisitionLineItems().get(1).getId(), lineItem.getId());
+    assertEquals(Integer.valueOf(7), lineItem.getStockInHand());
+    assertEquals(restored, lineItem.getRequisition());
+  }
+
+  @Test
+  public void shouldArchiveLargeRequisitionInLinearSize() {
+    Requisition large = generateRequisition(5000);
+    List<Comment> comments = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      Comment comment = new Comment();
+      comment.setId(UUID.randomUUID());
+      comment.setRequisition(large);
+      comment.setBody("comment " + i);
+      comments.add(comment);
+    }
+    ReflectionTestUtils.setField(large, "comments", comments);
+    when(requisitionRepository.findVersionStamp(large.getId())).thenReturn("3-stamp");
+
+    RequisitionArchive archive = requisitionArchiveService.archive(large);
+    Requisition restored = requisitionArchiveService.restore(archive);
+
+    // each line item is written once, without a copy of the requisition
+    assertTrue(archive.getData().length < 5000 * 100);
+    assertEquals(5000, restored.getRequisitionLineItems().size());
+    assertEquals(100, restored.getComments().size());
+    assertEquals("comment 99", restored.getComments().get(99).getBody());
+    assertEquals(restored, restored.getComments().get(0).getRequisition());
+  }
+
+  @Test
+  public void shouldArchiveRequisitionsInBatches() {
+    Requisition second = generateRequisition();
+    Requisition third = generateRequisition();
+    when(requisitionRepository.findArchivable(any(LocalDateTime.class), eq(2)))
+        .thenReturn(Arrays.asList(requisition.getId(), second.getId()))
+        .thenReturn(Collections.singletonList(third.getId()));
+    when(requisitionRepository.findOne(requisition.getId())).thenReturn(requisition);
+    when(requisitionRepository.findOne(second.getId())).thenReturn(second);
+    when(requisitionRepository.findOne(third.getId())).thenReturn(third);
+
+    requisitionArchiveService.archiveReceived();
+
+    verify(requisitionRepository, times(2)).findArchivable(any(LocalDateTime.class), eq(2));
+    verify(requisitionArchiveRepository, times(3)).save(any(RequisitionArchive.class));
+    verify(requisitionRepository).delete(third);
+  }
+
+  private Requisition generateRequisition() {
+    return generateRequisition(2);
+  }
+
+  private Requisition generateRequisition(int lineItemCount) {
+    Requisition generated = new Requisition();
+    generated.setId(UUID.randomUUID());
+    generated.setFacility(UUID.randomUUID());
+    generated.setProgram(UUID.randomUUID());
+    generated.setProcessingPeriod(UUID.randomUUID());
+    generated.setStatus(RequisitionStatus.RELEASED);
+    generated.setCreatedDate(LocalDateTime.now());
+    generated.setVersion(3L);
+
+    List<RequisitionLineItem> lineItems = new ArrayList<>();
+    for (int i = 0; i < lineItemCount; i++) {
+      RequisitionLineItem lineItem = new RequisitionLineItem();
+      lineItem.setId(UUID.randomUUID());
+      lineItem.setRequisition(generated);
+      lineItem.setStockInHand(6 + i);
+      lineItems.add(lineItem);
+    }
+    generated.setRequisitionLineItems(lineItems);
+    return generated;
+  }
+}
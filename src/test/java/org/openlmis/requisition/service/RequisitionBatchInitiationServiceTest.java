@@ -0,0 +1,201 @@
+package org.openlmis.requisition.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.requisition.domain.Requisition;
+import org.openlmis.requisition.domain.RequisitionBatchInitiation;
+import org.openlmis.requisition.domain.RequisitionJobStatus;
+import org.openlmis.requisition.dto.FacilityDto;
+import org.openlmis.requisition.dto.ProcessingPeriodDto;
+import org.openlmis.requisition.dto.ProcessingScheduleDto;
+import org.openlmis.requisition.dto.ProgramDto;
+import org.openlmis.requisition.repository.RequisitionBatchInitiationRepository;
+import org.openlmis.requisition.repository.RequisitionRepository;
+import org.openlmis.requisition.service.referencedata.FacilityReferenceDataService;
+import org.openlmis.requisition.service.referencedata.PeriodReferenceDataService;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RequisitionBatchInitiationServiceTest {
+
+  private static final UUID PROGRAM = UUID.randomUUID();
+  private static final UUID PERIOD = UUID.randomUUID();
+
+  @Mock
+  private RequisitionBatchInitiationRepository requisitionBatchInitiationRepository;
+
+  @Mock
+  private RequisitionRepository requisitionRepository;
+
+  @Mock
+  private RequisitionTemplateService requisitionTemplateService;
+
+  @Mock
+  private FacilityReferenceDataService facilityReferenceDataService;
+
+  @Mock
+  private PeriodReferenceDataService periodReferenceDataService;
+
+  @Mock
+  private PlatformTransactionManager transactionManager;
+
+  @Mock
+  private EntityManager entityManager;
+
+  @InjectMocks
+  private RequisitionBatchInitiationService requisitionBatchInitiationService;
+
+  private RequisitionBatchInitiation batch;
+
+  @Before
+  public void setUp() {
+    ReflectionTestUtils.setField(requisitionBatchInitiationService, "workers", 2);
+    ReflectionTestUtils.setField(requisitionBatchInitiationService, "chunkSize", 1);
+    ReflectionTestUtils.setField(requisitionBatchInitiationService, "staleAfter", 60000L);
+    requisitionBatchInitiationService.start();
+
+    batch = new RequisitionBatchInitiation(PROGRAM, PERIOD);
+    batch.setId(UUID.randomUUID());
+    batch.setVersion(0L);
+    when(requisitionBatchInitiationRepository.findOne(batch.getId())).thenReturn(batch);
+    when(requisitionBatchInitiationRepository.save(batch)).thenReturn(batch);
+    doAnswer(invocation -> {
+      Object[] counts = invocation.getArguments();
+      synchronized (batch) {
+        batch.setInitiatedCount(batch.getInitiatedCount() + (Integer) counts[1]);
+        batch.setSkippedCount(batch.getSkippedCount() + (Integer) counts[2]);
+        batch.setFailedCount(batch.getFailedCount() + (Integer) counts[3]);
+      }
+      return null;
+    }).when(requisitionBatchInitiationRepository)
+        .addProgress(eq(batch.getId()), anyInt(), anyInt(), anyInt());
+
+    ProcessingPeriodDto period = new ProcessingPeriodDto();
+    period.setProcessingSchedule(new ProcessingScheduleDto());
+    when(periodReferenceDataService.findOne(PERIOD)).thenReturn(period);
+    when(requisitionTemplateService.searchRequisitionTemplates(PROGRAM))
+        .thenReturn(new ArrayList<>());
+  }
+
+  @After
+  public void tearDown() {
+    requisitionBatchInitiationService.stop();
+  }
+
+  @Test
+  public void shouldInitiateRequisitionsOfFacilitiesSupportingProgram() {
+    FacilityDto inactive = generateFacility(PROGRAM);
+    inactive.setActive(false);
+    when(facilityReferenceDataService.searchSupporting(PROGRAM)).thenReturn(Arrays.asList(
+        generateFacility(PROGRAM), generateFacility(PROGRAM), inactive));
+
+    requisitionBatchInitiationService.process(batch.getId());
+
+    verify(entityManager, times(2)).persist(any(Requisition.class));
+    assertEquals(Integer.valueOf(2), batch.getFacilityCount());
+    assertEquals(Integer.valueOf(2), batch.getInitiatedCount());
+    assertEquals(RequisitionJobStatus.COMPLETED, batch.getStatus());
+  }
+
+  @Test
+  public void shouldSkipFacilitiesWithRequisition() {
+    FacilityDto facility = generateFacility(PROGRAM);
+    when(facilityReferenceDataService.searchSupporting(PROGRAM))
+        .thenReturn(Collections.singletonList(facility));
+    when(requisitionRepository.findFacilitiesWithRequisition(eq(PROGRAM), eq(PERIOD),
+        anyCollectionOf(UUID.class))).thenReturn(Collections.singletonList(facility.getId()));
+
+    requisitionBatchInitiationService.process(batch.getId());
+
+    verify(entityManager, never()).persist(any(Requisition.class));
+    assertEquals(Integer.valueOf(1), batch.getSkippedCount());
+    assertEquals(RequisitionJobStatus.COMPLETED, batch.getStatus());
+  }
+
+  @Test
+  public void shouldCountFailedChunks() {
+    when(facilityReferenceDataService.searchSupporting(PROGRAM))
+        .thenReturn(Collections.singletonList(generateFacility(PROGRAM)));
+    doThrow(new IllegalStateException()).when(entityManager).persist(any(Requisition.class));
+
+    requisitionBatchInitiationService.process(batch.getId());
+
+    assertEquals(Integer.valueOf(1), batch.getFailedCount());
+    assertEquals(RequisitionJobStatus.FAILED, batch.getStatus());
+  }
+
+  @Test
+  public void shouldSkipFacilitiesWhoseRequisitionWasInitiatedConcurrently() {
+    FacilityDto facility = generateFacility(PROGRAM);
+    when(facilityReferenceDataService.searchSupporting(PROGRAM))
+        .thenReturn(Collections.singletonList(facility));
+    when(requisitionRepository.findFacilitiesWithRequisition(eq(PROGRAM), eq(PERIOD),
+        anyCollectionOf(UUID.class)))
+        .thenReturn(Collections.emptyList())
+        .thenReturn(Collections.singletonList(facility.getId()));
+    doThrow(new PersistenceException(new ConstraintViolationException("duplicate", null,
+        RequisitionBatchInitiationService.REGULAR_REQUISITION_CONSTRAINT)))
+        .when(entityManager).flush();
+
+    requisitionBatchInitiationService.process(batch.getId());
+
+    assertEquals(Integer.valueOf(0), batch.getInitiatedCount());
+    assertEquals(Integer.valueOf(1), batch.getSkippedCount());
+    assertEquals(Integer.valueOf(0), batch.getFailedCount());
+    assertEquals(RequisitionJobStatus.COMPLETED, batch.getStatus());
+  }
+
+  @Test
+  public void shouldNotProcessBatchClaimedByAnotherInstance() {
+    when(requisitionBatchInitiationRepository.save(batch)).thenThrow(
+        new ObjectOptimisticLockingFailureException(RequisitionBatchInitiation.class,
+            batch.getId()));
+
+    requisitionBatchInitiationService.process(batch.getId());
+
+    verify(facilityReferenceDataService, never()).searchSupporting(PROGRAM);
+  }
+
+  private FacilityDto generateFacility(UUID program) {
+    ProgramDto supported = new ProgramDto();
+    supported.setId(program);
+
+    FacilityDto facility = new FacilityDto();
+    facility.setId(UUID.randomUUID());
+    facility.setActive(true);
+    facility.setEnabled(true);
+    List<ProgramDto> programs = new ArrayList<>();
+    programs.add(supported);
+    facility.setSupportedPrograms(programs);
+    return facility;
+  }
+}
@@ -0,0 +1,143 @@
+package org.openlmis.requisition.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.requisition.domain.Comment;
+import org.openlmis.requisition.domain.Requisition;
+import org.openlmis.requisition.dto.CommentsDto;
+import org.openlmis.requisition.dto.UserDto;
+import org.openlmis.requisition.exception.RequisitionNotFoundException;
+import org.openlmis.requisition.repository.CommentRepository;
+import org.openlmis.requisition.repository.RequisitionRepository;
+import org.openlmis.requisition.service.referencedata.UserReferenceDataService;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import javax.persistence.EntityManager;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RequisitionCommentServiceTest {
+
+  private static final UUID REQUISITION_ID = UUID.randomUUID();
+
+  @Mock
+  private RequisitionRepository requisitionRepository;
+
+  @Mock
+  private CommentRepository commentRepository;
+
+  @Mock
+  private UserReferenceDataService userReferenceDataService;
+
+  @Mock
+  private EntityManager entityManager;
+
+  @InjectMocks
+  private RequisitionCommentService requisitionCommentService;
+
+  private List<Comment> comments;
+
+  @Before
+  public void setUp() {
+    SecurityContextHolder.getContext().setAuthentication(
+        new TestingAuthenticationToken("admin", null));
+    when(requisitionRepository.exists(REQUISITION_ID)).thenReturn(true);
+
+    comments = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      Comment comment = new Comment();
+      comment.setId(UUID.randomUUID());
+      comments.add(comment);
+    }
+  }
+
+  @After
+  public void tearDown() {
+    SecurityContextHolder.clearContext();
+  }
+
+  @Test
+  public void shouldInsertCommentReferencingRequisition() throws RequisitionNotFoundException {
+    UserDto user = new UserDto();
+    user.setId(UUID.randomUUID());
+    when(userReferenceDataService.findAll(anyString(), anyMapOf(String.class, Object.class)))
+        .thenReturn(Collections.singletonList(user));
+    Requisition reference = new Requisition();
+    when(entityManager.getReference(Requisition.class, REQUISITION_ID)).thenReturn(reference);
+    when(commentRepository.save(any(Comment.class)))
+        .thenAnswer(invocation -> invocation.getArguments()[0]);
+
+    Comment comment = new Comment();
+    Comment created = requisitionCommentService.insertComment(REQUISITION_ID, comment);
+
+    assertSame(comment, created);
+    assertSame(reference, created.getRequisition());
+    assertEquals(user.getId(), created.getAuthorId());
+    verify(requisitionRepository).exists(REQUISITION_ID);
+  }
+
+  @Test
+  public void shouldReturnCommentsWithNextToken() throws RequisitionNotFoundException {
+    when(commentRepository.findComments(REQUISITION_ID, null, 3)).thenReturn(comments);
+    when(commentRepository.countComments(REQUISITION_ID)).thenReturn(5L);
+
+    CommentsDto result = requisitionCommentService.findCommentsForRequisition(
+        REQUISITION_ID, null, 2);
+
+    assertEquals(comments.subList(0, 2), result.getComments());
+    assertEquals(5L, result.getTotalCount());
+    assertEquals(comments.get(1).getId(), result.getNextToken());
+    assertTrue(result.isHasMore());
+  }
+
+  @Test
+  public void shouldKeepTokenWhenThereAreNoMoreComments() throws RequisitionNotFoundException {
+    UUID after = UUID.randomUUID();
+    when(commentRepository.findComments(REQUISITION_ID, after, 3))
+        .thenReturn(Collections.emptyList());
+
+    CommentsDto result = requisitionCommentService.findCommentsForRequisition(
+        REQUISITION_ID, after, 2);
+
+    assertTrue(result.getComments().isEmpty());
+    assertEquals(after, result.getNextToken());
+    assertFalse(result.isHasMore());
+  }
+
+  @Test(expected = RequisitionNotFoundException.class)
+  public void shouldNotReturnCommentsOfNonexistentRequisition()
+      throws RequisitionNotFoundException {
+    requisitionCommentService.findCommentsForRequisition(UUID.randomUUID(), null, 2);
+  }
+
+  @Test
+  public void shouldReturnNoTokenForRequisitionWithoutComments()
+      throws RequisitionNotFoundException {
+    when(commentRepository.findComments(REQUISITION_ID, null, 3))
+        .thenReturn(Collections.emptyList());
+
+    assertNull(requisitionCommentService.findCommentsForRequisition(REQUISITION_ID, null, 2)
+        .getNextToken());
+  }
+}
@@ -0,0 +1,175 @@
+package org.openlmis.requisition.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openlmis.requisition.domain.RequisitionJob;
+import org.openlmis.requisition.domain.RequisitionJobStatus;
+import org.openlmis.requisition.dto.RequisitionJobMetricsDto;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+public class RequisitionJobServiceTest {
+
+  private static final String USER = "administrator";
+
+  private RequisitionJobService requisitionJobService;
+
+  @Before
+  public void setUp() {
+    requisitionJobService = new RequisitionJobService();
+    ReflectionTestUtils.setField(requisitionJobService, "workers", 2);
+    ReflectionTestUtils.setField(requisitionJobService, "queueCapacity", 1);
+    ReflectionTestUtils.setField(requisitionJobService, "retention", 0L);
+    requisitionJobService.start();
+  }
+
+  @After
+  public void tearDown() {
+    requisitionJobService.stop();
+  }
+
+  @Test
+  public void shouldProcessJobsOfRequisitionInOrder() throws InterruptedException {
+    UUID requisitionId = UUID.randomUUID();
+    CountDownLatch release = new CountDownLatch(1);
+    List<Integer> processed = Collections.synchronizedList(new ArrayList<>());
+
+    Supplier<ResponseEntity<?>> submit = () -> {
+      await(release);
+      processed.add(1);
+      return new ResponseEntity<>("submitted", HttpStatus.OK);
+    };
+    final RequisitionJob first = requisitionJobService.enqueue(requisitionId, "submit", USER,
+        submit);
+    RequisitionJob second = requisitionJobService.enqueue(requisitionId, "authorize", USER, () -> {
+      processed.add(2);
+      return new ResponseEntity<>("authorized", HttpStatus.OK);
+    });
+    release.countDown();
+    awaitFinished(second);
+
+    assertEquals(2, processed.size());
+    assertEquals(Integer.valueOf(1), processed.get(0));
+    assertEquals(RequisitionJobStatus.COMPLETED, first.getStatus());
+    assertEquals("authorized", second.getResult());
+    assertSame(second, requisitionJobService.getJob(second.getId(), USER));
+  }
+
+  @Test
+  public void shouldRejectJobWhenQueueIsFull() throws InterruptedException {
+    UUID requisitionId = UUID.randomUUID();
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    Supplier<ResponseEntity<?>> submit = () -> {
+      started.countDown();
+      await(release);
+      return new ResponseEntity<>(HttpStatus.OK);
+    };
+    final RequisitionJob running = requisitionJobService.enqueue(requisitionId, "submit", USER,
+        submit);
+    started.await(5, TimeUnit.SECONDS);
+    RequisitionJob queued = requisitionJobService.enqueue(requisitionId, "submit", USER,
+        () -> new ResponseEntity<>(HttpStatus.OK));
+    RequisitionJob rejected = requisitionJobService.enqueue(requisitionId, "submit", USER,
+        () -> new ResponseEntity<>(HttpStatus.OK));
+
+    final RequisitionJobMetricsDto metrics = requisitionJobService.getMetrics();
+    release.countDown();
+    awaitFinished(queued);
+
+    assertNull(rejected);
+    assertEquals(1, metrics.getQueueDepth());
+    assertEquals(1, metrics.getProcessing());
+    assertEquals(1, metrics.getRejected());
+    assertEquals(RequisitionJobStatus.COMPLETED, running.getStatus());
+  }
+
+  @Test
+  public void shouldFailJobWithErrorResponse() throws InterruptedException {
+    RequisitionJob badRequest = requisitionJobService.enqueue(UUID.randomUUID(), "submit", USER,
+        () -> new ResponseEntity<>("invalid", HttpStatus.BAD_REQUEST));
+    RequisitionJob error = requisitionJobService.enqueue(UUID.randomUUID(), "submit", USER, () -> {
+      throw new IllegalStateException("broken");
+    });
+    awaitFinished(badRequest);
+    awaitFinished(error);
+
+    assertEquals(RequisitionJobStatus.FAILED, badRequest.getStatus());
+    assertEquals(Integer.valueOf(400), badRequest.getResultStatus());
+    assertEquals(Integer.valueOf(500), error.getResultStatus());
+    assertEquals(2, requisitionJobService.getMetrics().getFailed());
+  }
+
+  @Test
+  public void shouldFinishJobWhenTaskThrowsError() {
+    RequisitionJob job = new RequisitionJob(UUID.randomUUID(), "submit", USER);
+
+    try {
+      requisitionJobService.process(job, () -> {
+        throw new OutOfMemoryError("broken");
+      });
+      fail("Error should be propagated");
+    } catch (OutOfMemoryError ex) {
+      assertEquals("broken", ex.getMessage());
+    }
+
+    assertEquals(RequisitionJobStatus.FAILED, job.getStatus());
+    assertEquals(Integer.valueOf(500), job.getResultStatus());
+    assertEquals(0, requisitionJobService.getMetrics().getProcessing());
+  }
+
+  @Test
+  public void shouldNotReturnJobOfOtherUser() throws InterruptedException {
+    RequisitionJob job = requisitionJobService.enqueue(UUID.randomUUID(), "submit", USER,
+        () -> new ResponseEntity<>(HttpStatus.OK));
+    awaitFinished(job);
+
+    assertNull(requisitionJobService.getJob(job.getId(), "other"));
+    assertNull(requisitionJobService.getJob(job.getId(), null));
+    assertSame(job, requisitionJobService.getJob(job.getId(), USER));
+  }
+
+  @Test
+  public void shouldRemoveFinishedJobs() throws InterruptedException {
+    RequisitionJob job = requisitionJobService.enqueue(UUID.randomUUID(), "submit", USER,
+        () -> new ResponseEntity<>(HttpStatus.OK));
+    awaitFinished(job);
+
+    requisitionJobService.removeFinishedJobs();
+
+    assertNull(requisitionJobService.getJob(job.getId(), USER));
+  }
+
+  private void awaitFinished(RequisitionJob job) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (!job.isFinished() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertTrue(job.isFinished());
+  }
+
+  private void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
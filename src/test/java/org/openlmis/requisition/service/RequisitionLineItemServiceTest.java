@@ -1,8 +1,13 @@
 package org.openlmis.requisition.service;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import org.junit.Before;
@@ -11,6 +16,8 @@ import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.requisition.domain.LineItemBatch;
+import org.openlmis.requisition.domain.LineItemCalculation;
 import org.openlmis.requisition.domain.Requisition;
 import org.openlmis.requisition.domain.RequisitionLineItem;
 import org.openlmis.requisition.domain.RequisitionStatus;
@@ -20,13 +27,21 @@ import org.openlmis.requisition.domain.SourceType;
 import org.openlmis.requisition.dto.ProcessingPeriodDto;
 import org.openlmis.requisition.dto.ProcessingScheduleDto;
 import org.openlmis.requisition.dto.ProgramDto;
+import org.openlmis.requisition.dto.RequisitionLineItemSummaryDto;
 import org.openlmis.requisition.exception.RequisitionException;
+import org.openlmis.requisition.exception.RequisitionLineItemValidationException;
+import org.openlmis.requisition.exception.RequisitionTemplateColumnException;
+import org.openlmis.requisition.repository.RequisitionChangeListener;
 import org.openlmis.requisition.repository.RequisitionLineItemRepository;
+import org.openlmis.requisition.repository.RequisitionRepository;
 import org.openlmis.requisition.service.referencedata.PeriodReferenceDataService;
 import org.openlmis.requisition.service.referencedata.ProgramReferenceDataService;
+import org.openlmis.requisition.validate.LineItemValidation;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -48,6 +63,12 @@ public class RequisitionLineItemServiceTest {
   @Mock
   private RequisitionLineItemRepository requisitionLineItemRepository;
 
+  @Mock
+  private RequisitionRepository requisitionRepository;
+
+  @Mock
+  private RequisitionChangeListener requisitionChangeListener;
+
   @Mock
   private RequisitionService requisitionService;
 
@@ -64,14 +85,18 @@ public class RequisitionLineItemServiceTest {
   @Mock
   private ProcessingPeriodDto periodDto;
 
+  @Mock
+  private CompiledTemplateService compiledTemplateService;
+
   @InjectMocks
   private RequisitionLineItemService requisitionLineItemService;
 
   private UUID program;
   private UUID period;
+  private LineItemCalculation calculation = LineItemCalculation.defaultCalculation();
 
   @Before
-  public void setUp() {
+  public void setUp() throws RequisitionTemplateColumnException {
     program = UUID.randomUUID();
     period = UUID.randomUUID();
     generateInstances();
@@ -178,6 +203,192 @@ public class RequisitionLineItemServiceTest {
     assertEquals(requisitionLineItem, receivedRequisitionLineItems.get(0));
   }
 
+  @Test
+  public void shouldUpdateOnlyChangedValuesOfRequisitionLineItems()
+      throws RequisitionException, RequisitionTemplateColumnException {
+    RequisitionLineItem change = new RequisitionLineItem();
+    change.setId(requisitionLineItem.getId());
+    change.setVersion(2L);
+    change.setBeginningBalance(50);
+    requisitionLineItem.setVersion(2L);
+
+    Map<String, Object> expectedValues = new HashMap<>();
+    expectedValues.put(BEGINNING_BALANCE_FIELD, 50);
+
+    when(requisitionRepository.findStatus(requisition.getId()))
+        .thenReturn(RequisitionStatus.INITIATED);
+    when(requisitionLineItemRepository.updateRequisitionLineItem(requisition.getId(),
+        change.getId(), 2L, expectedValues, calculation)).thenReturn(1);
+    when(requisitionLineItemRepository.findVersions(Arrays.asList(change.getId())))
+        .thenReturn(Collections.singletonMap(change.getId(), 3L));
+
+    Map<UUID, Long> versions = requisitionLineItemService.patchRequisitionLineItems(
+        requisition.getId(), Arrays.asList(change));
+
+    assertEquals(Long.valueOf(3L), versions.get(change.getId()));
+    verify(requisitionChangeListener)
+        .requisitionUpdated(requisition.getId(), RequisitionStatus.INITIATED);
+  }
+
+  @Test(expected = ObjectOptimisticLockingFailureException.class)
+  public void shouldRejectChangesOfOutdatedRequisitionLineItem()
+      throws RequisitionException, RequisitionTemplateColumnException {
+    RequisitionLineItem change = new RequisitionLineItem();
+    change.setId(requisitionLineItem.getId());
+    change.setVersion(1L);
+    change.setRequestedQuantity(15);
+    requisitionLineItem.setVersion(2L);
+
+    when(requisitionRepository.findStatus(requisition.getId()))
+        .thenReturn(RequisitionStatus.SUBMITTED);
+
+    requisitionLineItemService.patchRequisitionLineItems(
+        requisition.getId(), Arrays.asList(change));
+  }
+
+  @Test(expected = ObjectOptimisticLockingFailureException.class)
+  public void shouldRejectChangesOfRequisitionLineItemChangedConcurrently()
+      throws RequisitionException, RequisitionTemplateColumnException {
+    RequisitionLineItem change = new RequisitionLineItem();
+    change.setId(requisitionLineItem.getId());
+    change.setVersion(1L);
+    change.setStockInHand(15);
+    requisitionLineItem.setVersion(1L);
+
+    when(requisitionRepository.findStatus(requisition.getId()))
+        .thenReturn(RequisitionStatus.INITIATED);
+    when(requisitionLineItemRepository.updateRequisitionLineItem(
+        eq(requisition.getId()), eq(change.getId()), eq(1L), any(), eq(calculation)))
+        .thenReturn(0);
+
+    requisitionLineItemService.patchRequisitionLineItems(
+        requisition.getId(), Arrays.asList(change));
+  }
+
+  @Test(expected = RequisitionException.class)
+  public void shouldRejectChangesWithoutVersion()
+      throws RequisitionException, RequisitionTemplateColumnException {
+    RequisitionLineItem change = new RequisitionLineItem();
+    change.setId(requisitionLineItem.getId());
+    change.setStockInHand(15);
+
+    when(requisitionRepository.findStatus(requisition.getId()))
+        .thenReturn(RequisitionStatus.INITIATED);
+
+    requisitionLineItemService.patchRequisitionLineItems(
+        requisition.getId(), Arrays.asList(change));
+  }
+
+  @Test
+  public void shouldRejectChangesOfColumnsWhichCannotBeChangedByUser()
+      throws RequisitionException, RequisitionTemplateColumnException {
+    Map<String, RequisitionTemplateColumn> columns = new HashMap<>();
+    columns.put(BEGINNING_BALANCE_FIELD, new RequisitionTemplateColumn(BEGINNING_BALANCE_FIELD,
+        "Beginning balance", 1, true, false, true, false, SourceType.USER_INPUT));
+    when(compiledTemplateService.getValidation(program))
+        .thenReturn(LineItemValidation.compile(new RequisitionTemplate(columns)));
+
+    RequisitionLineItem change = new RequisitionLineItem();
+    change.setId(requisitionLineItem.getId());
+    change.setVersion(1L);
+    change.setBeginningBalance(50);
+    requisitionLineItem.setVersion(1L);
+
+    when(requisitionRepository.findStatus(requisition.getId()))
+        .thenReturn(RequisitionStatus.INITIATED);
+
+    try {
+      requisitionLineItemService.patchRequisitionLineItems(
+          requisition.getId(), Arrays.asList(change));
+      fail("Expected changes of beginning balance to be rejected");
+    } catch (RequisitionLineItemValidationException ex) {
+      assertEquals("Beginning balance cannot be changed.",
+          ex.getErrors().get("requisitionLineItems[0]." + BEGINNING_BALANCE_FIELD));
+    }
+    verify(requisitionLineItemRepository, never()).updateRequisitionLineItem(
+        any(), any(), anyLong(), any(), any());
+  }
+
+  @Test
+  public void shouldValidateChangedLineItemWithStoredValues()
+      throws RequisitionException, RequisitionTemplateColumnException {
+    RequisitionLineItem change = new RequisitionLineItem();
+    change.setId(requisitionLineItem.getId());
+    change.setVersion(1L);
+    change.setRemarks("checked");
+    requisitionLineItem.setVersion(1L);
+
+    when(requisitionRepository.findStatus(requisition.getId()))
+        .thenReturn(RequisitionStatus.SUBMITTED);
+
+    try {
+      requisitionLineItemService.patchRequisitionLineItems(
+          requisition.getId(), Arrays.asList(change));
+      fail("Expected line item without beginning balance to be rejected");
+    } catch (RequisitionLineItemValidationException ex) {
+      assertTrue(ex.getErrors().containsKey("requisitionLineItems[0]." + BEGINNING_BALANCE_FIELD));
+    }
+  }
+
+  @Test(expected = RequisitionLineItemValidationException.class)
+  public void shouldRejectNegativeValuesOfInitiatedRequisition()
+      throws RequisitionException, RequisitionTemplateColumnException {
+    RequisitionLineItem change = new RequisitionLineItem();
+    change.setId(requisitionLineItem.getId());
+    change.setVersion(1L);
+    change.setTotalReceivedQuantity(-1);
+    requisitionLineItem.setVersion(1L);
+
+    when(requisitionRepository.findStatus(requisition.getId()))
+        .thenReturn(RequisitionStatus.INITIATED);
+
+    requisitionLineItemService.patchRequisitionLineItems(
+        requisition.getId(), Arrays.asList(change));
+  }
+
+  @Test(expected = RequisitionException.class)
+  public void shouldNotChangeLineItemsOfApprovedRequisition()
+      throws RequisitionException, RequisitionTemplateColumnException {
+    RequisitionLineItem change = new RequisitionLineItem();
+    change.setId(requisitionLineItem.getId());
+    change.setApprovedQuantity(15);
+
+    when(requisitionRepository.findStatus(requisition.getId()))
+        .thenReturn(RequisitionStatus.APPROVED);
+
+    requisitionLineItemService.patchRequisitionLineItems(
+        requisition.getId(), Arrays.asList(change));
+  }
+
+  @Test
+  public void shouldSummarizeCalculatedLineItemsOfProgramAndPeriod()
+      throws RequisitionTemplateColumnException {
+    LineItemBatch batch = new LineItemBatch(3);
+    batch.add(createLineItem(10, 5));
+    batch.add(createLineItem(10, 10));
+    batch.add(createLineItem(10, null));
+    when(requisitionLineItemRepository.findLineItemBatch(program, period)).thenReturn(batch);
+
+    RequisitionLineItemSummaryDto summary =
+        requisitionLineItemService.summarizeRequisitionLineItems(program, period);
+
+    assertEquals(3, summary.getLineItemCount());
+    assertEquals(15, summary.getTotalConsumedQuantity());
+    assertEquals(5, summary.getTotalStockOnHand());
+    assertEquals(1, summary.getStockOutCount());
+  }
+
+  private RequisitionLineItem createLineItem(Integer beginningBalance,
+                                             Integer totalConsumedQuantity) {
+    RequisitionLineItem lineItem = new RequisitionLineItem();
+    lineItem.setRequisition(requisition);
+    lineItem.setBeginningBalance(beginningBalance);
+    lineItem.setTotalReceivedQuantity(0);
+    lineItem.setTotalLossesAndAdjustments(0);
+    lineItem.setTotalConsumedQuantity(totalConsumedQuantity);
+    return lineItem;
+  }
+
   private void generateInstances() {
     requisition = createTestRequisition(UUID.randomUUID(), period, program,
         RequisitionStatus.INITIATED);
@@ -212,7 +423,13 @@ public class RequisitionLineItemServiceTest {
     return requisitionLineItem;
   }
 
-  private void mockRepositories() {
+  private void mockRepositories() throws RequisitionTemplateColumnException {
+    when(requisitionRepository.findProgram(requisition.getId())).thenReturn(program);
+    when(compiledTemplateService.getCalculation(program)).thenReturn(calculation);
+    when(compiledTemplateService.getValidation(program))
+        .thenReturn(LineItemValidation.defaultValidation());
+    when(requisitionLineItemRepository.findOne(requisitionLineItem.getId()))
+        .thenReturn(requisitionLineItem);
     when(requisitionTemplateService
         .searchRequisitionTemplates(program))
         .thenReturn(Arrays.asList(requisitionTemplate));
@@ -0,0 +1,163 @@
+package org.openlmis.requisition.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.requisition.repository.RequisitionStatusCountRepository;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.sql.DataSource;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RequisitionPartitionServiceTest {
+
+  @Mock
+  private PlatformTransactionManager transactionManager;
+
+  @Mock
+  private EntityManager entityManager;
+
+  @Mock
+  private Query query;
+
+  @Mock
+  private DataSource primaryDataSource;
+
+  @Mock
+  private RequisitionStatusCountRepository requisitionStatusCountRepository;
+
+  @Mock
+  private Connection connection;
+
+  @Mock
+  private PreparedStatement lockStatement;
+
+  @Mock
+  private ResultSet lockResult;
+
+  @InjectMocks
+  private RequisitionPartitionService requisitionPartitionService;
+
+  private YearMonth current = YearMonth.now();
+
+  @Before
+  public void setUp() throws SQLException {
+    ReflectionTestUtils.setField(requisitionPartitionService, "enabled", false);
+    ReflectionTestUtils.setField(requisitionPartitionService, "monthsAhead", 2);
+    ReflectionTestUtils.setField(requisitionPartitionService, "detachAfterMonths", 12);
+    requisitionPartitionService.start();
+    ReflectionTestUtils.setField(requisitionPartitionService, "active", true);
+
+    when(entityManager.createNativeQuery(anyString())).thenReturn(query);
+    when(query.getResultList()).thenReturn(Arrays.asList(
+        partition(current.minusMonths(13)), partition(current.minusMonths(12)),
+        partition(current), "requisitions_default"));
+
+    when(primaryDataSource.getConnection()).thenReturn(connection);
+    when(connection.prepareStatement(anyString())).thenReturn(lockStatement);
+    when(lockStatement.executeQuery()).thenReturn(lockResult);
+    when(lockResult.next()).thenReturn(true);
+    when(lockResult.getBoolean(1)).thenReturn(true);
+  }
+
+  @Test
+  public void shouldCreatePartitionsAhead() {
+    requisitionPartitionService.maintain();
+
+    List<String> statements = executedStatements();
+    assertTrue(statements.contains("CREATE TABLE IF NOT EXISTS requisition."
+        + partition(current.plusMonths(2)) + " PARTITION OF requisition.requisitions"
+        + " FOR VALUES FROM ('" + current.plusMonths(2).atDay(1) + "') TO ('"
+        + current.plusMonths(3).atDay(1) + "')"));
+    assertFalse(statements.stream().anyMatch(sql -> sql.contains(
+        partition(current.plusMonths(3)))));
+  }
+
+  @Test
+  public void shouldDetachPartitionsOlderThanRetention() throws SQLException {
+    requisitionPartitionService.maintain();
+
+    List<String> statements = executedStatements();
+    assertTrue(statements.contains("ALTER TABLE requisition.requisitions DETACH PARTITION"
+        + " requisition." + partition(current.minusMonths(13))));
+    assertFalse(statements.contains("ALTER TABLE requisition.requisitions DETACH PARTITION"
+        + " requisition." + partition(current.minusMonths(12))));
+    assertTrue(statements.contains("DELETE FROM requisition.requisition_line_items"
+        + " WHERE requisitionId IN (SELECT id FROM requisition_archive."
+        + partition(current.minusMonths(13)) + ")"));
+    assertTrue(statements.contains("DELETE FROM requisition.requisition_ids"
+        + " WHERE id IN (SELECT id FROM requisition_archive."
+        + partition(current.minusMonths(13)) + ")"));
+    verify(requisitionStatusCountRepository).rebuildCounts();
+    verify(connection).prepareStatement("SELECT pg_advisory_unlock(?)");
+  }
+
+  @Test
+  public void shouldNotMaintainPartitionsWhenAnotherInstanceHoldsLock() throws SQLException {
+    when(lockResult.getBoolean(1)).thenReturn(false);
+
+    requisitionPartitionService.maintain();
+
+    verify(entityManager, never()).createNativeQuery(anyString());
+    verify(lockStatement).setLong(1, RequisitionPartitionService.LOCK_KEY);
+    verify(connection).close();
+  }
+
+  @Test
+  public void shouldNotDetachPartitionsWithoutRetention() {
+    ReflectionTestUtils.setField(requisitionPartitionService, "detachAfterMonths", 0);
+
+    requisitionPartitionService.maintain();
+
+    assertFalse(executedStatements().stream().anyMatch(sql -> sql.contains("DETACH")));
+  }
+
+  @Test
+  public void shouldNotMaintainPartitionsWhenNotPartitioned() {
+    ReflectionTestUtils.setField(requisitionPartitionService, "active", false);
+
+    requisitionPartitionService.maintain();
+
+    verify(entityManager, never()).createNativeQuery(anyString());
+  }
+
+  @Test
+  public void shouldFindMonthsOfPartitions() {
+    assertEquals(Arrays.asList(current.minusMonths(13), current.minusMonths(12), current),
+        requisitionPartitionService.findPartitions());
+  }
+
+  private List<String> executedStatements() {
+    ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+    verify(entityManager, atLeastOnce()).createNativeQuery(captor.capture());
+    return captor.getAllValues();
+  }
+
+  private String partition(YearMonth month) {
+    return RequisitionPartitionService.partitionName(month);
+  }
+}
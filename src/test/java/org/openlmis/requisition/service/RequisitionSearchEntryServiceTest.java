@@ -0,0 +1,143 @@
+package org.openlmis.requisition.service;
+
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.requisition.domain.Requisition;
+import org.openlmis.requisition.domain.RequisitionSearchEntry;
+import org.openlmis.requisition.dto.FacilityDto;
+import org.openlmis.requisition.dto.ProcessingPeriodDto;
+import org.openlmis.requisition.dto.ProgramDto;
+import org.openlmis.requisition.repository.RequisitionSearchEntryRepository;
+import org.openlmis.requisition.service.referencedata.FacilityReferenceDataService;
+import org.openlmis.requisition.service.referencedata.PeriodReferenceDataService;
+import org.openlmis.requisition.service.referencedata.ProgramReferenceDataService;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.client.RestClientException;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RequisitionSearchEntryServiceTest {
+
+  @Mock
+  private PlatformTransactionManager transactionManager;
+
+  @Mock
+  private DataSource primaryDataSource;
+
+  @Mock
+  private RequisitionSearchEntryRepository requisitionSearchEntryRepository;
+
+  @Mock
+  private FacilityReferenceDataService facilityReferenceDataService;
+
+  @Mock
+  private ProgramReferenceDataService programReferenceDataService;
+
+  @Mock
+  private PeriodReferenceDataService periodReferenceDataService;
+
+  @Mock
+  private Connection connection;
+
+  @Mock
+  private PreparedStatement lockStatement;
+
+  @Mock
+  private ResultSet lockResult;
+
+  @InjectMocks
+  private RequisitionSearchEntryService requisitionSearchEntryService;
+
+  @Before
+  public void setUp() throws SQLException {
+    ReflectionTestUtils.setField(requisitionSearchEntryService, "batchSize", 2);
+    requisitionSearchEntryService.start();
+
+    when(facilityReferenceDataService.findOne(any(UUID.class))).thenReturn(new FacilityDto());
+    when(programReferenceDataService.findOne(any(UUID.class))).thenReturn(new ProgramDto());
+    when(periodReferenceDataService.findOne(any(UUID.class)))
+        .thenReturn(new ProcessingPeriodDto());
+
+    when(primaryDataSource.getConnection()).thenReturn(connection);
+    when(connection.prepareStatement(anyString())).thenReturn(lockStatement);
+    when(lockStatement.executeQuery()).thenReturn(lockResult);
+    when(lockResult.next()).thenReturn(true);
+    when(lockResult.getBoolean(1)).thenReturn(true);
+  }
+
+  @Test
+  public void shouldCreateMissingEntriesInBatches() {
+    when(requisitionSearchEntryRepository.findApprovedRequisitionsWithoutEntry()).thenReturn(
+        Arrays.asList(generateRequisition(), generateRequisition(), generateRequisition()));
+
+    requisitionSearchEntryService.refreshEntries();
+
+    verify(requisitionSearchEntryRepository, times(3)).save(any(RequisitionSearchEntry.class));
+    // lookup of requisitions, two batches of them and lookups of referenced ids
+    verify(transactionManager, times(6)).commit(any());
+  }
+
+  @Test
+  public void shouldNotCreateEntryWithoutReferenceData() {
+    Requisition requisition = generateRequisition();
+    when(facilityReferenceDataService.findOne(requisition.getFacility())).thenReturn(null);
+
+    assertNull(requisitionSearchEntryService.createEntry(requisition));
+
+    verify(requisitionSearchEntryRepository, never()).save(any(RequisitionSearchEntry.class));
+  }
+
+  @Test
+  public void shouldCreateOtherEntriesWhenReferenceDataCannotBeFetched() {
+    Requisition failing = generateRequisition();
+    when(programReferenceDataService.findOne(failing.getProgram()))
+        .thenThrow(new RestClientException("unavailable"));
+    when(requisitionSearchEntryRepository.findApprovedRequisitionsWithoutEntry())
+        .thenReturn(Arrays.asList(failing, generateRequisition()));
+
+    requisitionSearchEntryService.refreshEntries();
+
+    verify(requisitionSearchEntryRepository).save(any(RequisitionSearchEntry.class));
+  }
+
+  @Test
+  public void shouldNotRefreshEntriesWhenAnotherInstanceHoldsLock() throws SQLException {
+    when(lockResult.getBoolean(1)).thenReturn(false);
+
+    requisitionSearchEntryService.refreshEntries();
+
+    verify(requisitionSearchEntryRepository, never()).findApprovedRequisitionsWithoutEntry();
+    verify(lockStatement).setLong(1, RequisitionSearchEntryService.LOCK_KEY);
+    verify(connection).close();
+  }
+
+  private Requisition generateRequisition() {
+    Requisition requisition = new Requisition();
+    requisition.setId(UUID.randomUUID());
+    requisition.setFacility(UUID.randomUUID());
+    requisition.setProgram(UUID.randomUUID());
+    requisition.setProcessingPeriod(UUID.randomUUID());
+    return requisition;
+  }
+}
@@ -5,6 +5,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import org.junit.Before;
@@ -53,6 +54,9 @@ public class RequisitionServiceTest {
   @Mock
   private RequisitionLineItemRepository requisitionLineItemRepository;
 
+  @Mock
+  private RequisitionSearchEntryService requisitionSearchEntryService;
+
   @Mock
   private ConfigurationSettingService configurationSettingService;
 
@@ -218,9 +222,22 @@ public class RequisitionServiceTest {
   public void shouldReleaseRequisitionsAsOrder() throws RequisitionException {
     requisition.setStatus(RequisitionStatus.APPROVED);
     List<Requisition> requisitions = Arrays.asList(requisition);
+    List<UUID> ids = Arrays.asList(requisition.getId());
+    when(requisitionRepository.findAllWithLineItems(ids)).thenReturn(requisitions);
     List<Requisition> expectedRequisitions = requisitionService
         .releaseRequisitionsAsOrder(requisitions);
     assertEquals(RequisitionStatus.RELEASED, expectedRequisitions.get(0).getStatus());
+    verify(requisitionSearchEntryService).removeEntries(ids);
+  }
+
+  @Test(expected = RequisitionException.class)
+  public void shouldNotReleaseRequisitionWhichIsNotApproved() throws RequisitionException {
+    requisition.setStatus(RequisitionStatus.AUTHORIZED);
+    List<Requisition> requisitions = Arrays.asList(requisition);
+    when(requisitionRepository.findAllWithLineItems(Arrays.asList(requisition.getId())))
+        .thenReturn(requisitions);
+
+    requisitionService.releaseRequisitionsAsOrder(requisitions);
   }
 
   @Test
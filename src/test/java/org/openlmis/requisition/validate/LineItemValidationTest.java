@@ -0,0 +1,165 @@
+package org.openlmis.requisition.validate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+import org.junit.Test;
+import org.openlmis.requisition.domain.Requisition;
+import org.openlmis.requisition.domain.RequisitionLineItem;
+import org.openlmis.requisition.domain.RequisitionTemplate;
+import org.openlmis.requisition.domain.RequisitionTemplateColumn;
+import org.openlmis.requisition.domain.SourceType;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Errors;
+import org.springframework.validation.MapBindingResult;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+@SuppressWarnings("PMD.TooManyMethods")
+public class LineItemValidationTest {
+
+  private static final String REQUISITION = "requisition";
+
+  @Test
+  public void shouldRequireAllQuantitiesWithoutTemplate() {
+    RequisitionLineItem lineItem = generateLineItem();
+    lineItem.setStockOnHand(null);
+    lineItem.setBeginningBalance(-1);
+
+    Errors errors = validate(LineItemValidation.defaultValidation(), generateLineItem(), lineItem);
+
+    assertEquals(2, errors.getErrorCount());
+    assertNotNull(errors.getFieldError("requisitionLineItems[1].stockOnHand"));
+    assertEquals("A beginning balance" + LineItemValidation.VALUE_MUST_BE_NON_NEGATIVE_NOTIFICATION,
+        errors.getFieldError("requisitionLineItems[1].beginningBalance").getCode());
+  }
+
+  @Test
+  public void shouldValidateOnlyDisplayedColumns() {
+    Map<String, RequisitionTemplateColumn> columns = new HashMap<>();
+    addColumn(columns, RequisitionLineItem.BEGINNING_BALANCE, true, SourceType.USER_INPUT);
+    addColumn(columns, RequisitionLineItem.STOCK_ON_HAND, false, SourceType.USER_INPUT);
+    RequisitionLineItem lineItem = new RequisitionLineItem();
+
+    Errors errors = validate(LineItemValidation.compile(new RequisitionTemplate(columns)),
+        lineItem);
+
+    assertEquals(1, errors.getErrorCount());
+    assertEquals("Beginning balance" + LineItemValidation.VALUE_MUST_BE_ENTERED_NOTIFICATION,
+        errors.getFieldError("requisitionLineItems[0].beginningBalance").getCode());
+  }
+
+  @Test
+  public void shouldNotRequireCalculatedColumns() {
+    RequisitionLineItem lineItem = generateLineItem();
+    lineItem.setStockOnHand(null);
+
+    Errors errors = validate(LineItemValidation.compile(generateTemplate()), lineItem);
+
+    assertFalse(errors.hasErrors());
+  }
+
+  @Test
+  public void shouldNotAllowConsumptionExceedingAvailableStock() {
+    RequisitionLineItem lineItem = generateLineItem();
+    lineItem.setTotalConsumedQuantity(1000);
+
+    Errors errors = validate(LineItemValidation.compile(generateTemplate()), lineItem);
+
+    assertEquals(1, errors.getErrorCount());
+    assertNotNull(errors.getFieldError("requisitionLineItems[0].totalConsumedQuantity"));
+  }
+
+  @Test
+  public void shouldRequireExplanationOfRequestedQuantity() {
+    RequisitionLineItem lineItem = generateLineItem();
+    lineItem.setRequestedQuantityExplanation(" ");
+
+    Errors errors = validate(LineItemValidation.compile(generateTemplate()), lineItem);
+
+    assertEquals(1, errors.getErrorCount());
+    assertNotNull(errors.getFieldError("requisitionLineItems[0].requestedQuantityExplanation"));
+  }
+
+  @Test
+  public void shouldRejectChangesOfCalculatedAndHiddenColumns() {
+    Map<String, RequisitionTemplateColumn> columns = generateTemplate().getColumnsMap();
+    columns.get(RequisitionLineItem.BEGINNING_BALANCE).setIsDisplayed(false);
+    RequisitionLineItem lineItem = generateLineItem();
+    Errors errors = new MapBindingResult(new HashMap<>(), REQUISITION);
+
+    LineItemValidation.compile(new RequisitionTemplate(columns)).validateChanges(lineItem,
+        new HashSet<>(Arrays.asList(RequisitionLineItem.BEGINNING_BALANCE,
+            RequisitionLineItem.STOCK_ON_HAND, RequisitionLineItem.REQUESTED_QUANTITY)),
+        false, 0, errors);
+
+    assertEquals(2, errors.getErrorCount());
+    assertEquals("Stock on hand" + LineItemValidation.VALUE_CANNOT_BE_CHANGED_NOTIFICATION,
+        errors.getFieldError("requisitionLineItems[0].stockOnHand").getCode());
+    assertNotNull(errors.getFieldError("requisitionLineItems[0].beginningBalance"));
+  }
+
+  @Test
+  public void shouldRequireEnteredValuesOfChangesOnlyOnceSubmitted() {
+    RequisitionLineItem lineItem = generateLineItem();
+    lineItem.setTotalConsumedQuantity(null);
+    LineItemValidation validation = LineItemValidation.compile(generateTemplate());
+    Errors draftErrors = new MapBindingResult(new HashMap<>(), REQUISITION);
+    Errors submittedErrors = new MapBindingResult(new HashMap<>(), REQUISITION);
+
+    validation.validateChanges(lineItem, Collections.singleton("remarks"),
+        false, 0, draftErrors);
+    validation.validateChanges(lineItem, Collections.singleton("remarks"),
+        true, 0, submittedErrors);
+
+    assertFalse(draftErrors.hasErrors());
+    assertNotNull(submittedErrors.getFieldError("requisitionLineItems[0].totalConsumedQuantity"));
+  }
+
+  private Errors validate(LineItemValidation validation, RequisitionLineItem... lineItems) {
+    Requisition requisition = new Requisition();
+    requisition.setRequisitionLineItems(Arrays.asList(lineItems));
+    Errors errors = new BeanPropertyBindingResult(requisition, REQUISITION);
+    validation.validate(requisition.getRequisitionLineItems(), errors);
+    return errors;
+  }
+
+  private RequisitionLineItem generateLineItem() {
+    RequisitionLineItem lineItem = new RequisitionLineItem();
+    lineItem.setBeginningBalance(100);
+    lineItem.setTotalReceivedQuantity(50);
+    lineItem.setTotalLossesAndAdjustments(-10);
+    lineItem.setTotalConsumedQuantity(40);
+    lineItem.setStockOnHand(100);
+    lineItem.setRequestedQuantity(20);
+    lineItem.setRequestedQuantityExplanation("Expected demand");
+    return lineItem;
+  }
+
+  private RequisitionTemplate generateTemplate() {
+    Map<String, RequisitionTemplateColumn> columns = new HashMap<>();
+    addColumn(columns, RequisitionLineItem.BEGINNING_BALANCE, true, SourceType.USER_INPUT);
+    addColumn(columns, RequisitionLineItem.TOTAL_RECEIVED_QUANTITY, true, SourceType.USER_INPUT);
+    addColumn(columns, RequisitionLineItem.TOTAL_LOSSES_AND_ADJUSTMENTS, true,
+        SourceType.USER_INPUT);
+    addColumn(columns, RequisitionLineItem.TOTAL_CONSUMED_QUANTITY, true, SourceType.USER_INPUT);
+    addColumn(columns, RequisitionLineItem.STOCK_ON_HAND, true, SourceType.CALCULATED);
+    addColumn(columns, RequisitionLineItem.REQUESTED_QUANTITY, true, SourceType.USER_INPUT);
+    addColumn(columns, RequisitionLineItem.REQUESTED_QUANTITY_EXPLANATION, true,
+        SourceType.USER_INPUT);
+    return new RequisitionTemplate(columns);
+  }
+
+  private void addColumn(Map<String, RequisitionTemplateColumn> columns, String name,
+                         boolean displayed, SourceType source) {
+    String label = Character.toUpperCase(name.charAt(0))
+        + name.substring(1).replaceAll("([A-Z])", " $1").toLowerCase();
+    columns.put(name, new RequisitionTemplateColumn(name, label, columns.size() + 1, displayed,
+        false, true, true, source));
+  }
+}
@@ -0,0 +1,69 @@
+package org.openlmis.requisition.validate;
+
+import static org.junit.Assert.assertNotNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.requisition.domain.Requisition;
+import org.openlmis.requisition.domain.RequisitionLineItem;
+import org.openlmis.requisition.service.CompiledTemplateService;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Errors;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RequisitionValidatorTest {
+
+  private static final UUID PROGRAM = UUID.randomUUID();
+
+  @Mock
+  private CompiledTemplateService compiledTemplateService;
+
+  @Mock
+  private LineItemValidation validation;
+
+  @InjectMocks
+  private RequisitionValidator requisitionValidator;
+
+  @Before
+  public void setUp() {
+    when(compiledTemplateService.getValidation(PROGRAM)).thenReturn(validation);
+  }
+
+  @Test
+  public void shouldRejectRequisitionWithoutLineItems() {
+    Requisition requisition = new Requisition();
+    requisition.setProgram(PROGRAM);
+    requisition.setRequisitionLineItems(new ArrayList<>());
+    Errors errors = new BeanPropertyBindingResult(requisition, "requisition");
+
+    requisitionValidator.validate(requisition, errors);
+
+    assertNotNull(errors.getFieldError("requisitionLineItems"));
+  }
+
+  @Test
+  public void shouldValidateLineItemsWithValidationOfTemplate() {
+    Requisition requisition = new Requisition();
+    requisition.setProgram(PROGRAM);
+    List<RequisitionLineItem> lineItems = Collections.singletonList(new RequisitionLineItem());
+    requisition.setRequisitionLineItems(lineItems);
+    Errors errors = new BeanPropertyBindingResult(requisition, "requisition");
+
+    requisitionValidator.validate(requisition, errors);
+
+    verify(validation).validate(same(lineItems), any(Errors.class));
+  }
+}
@@ -0,0 +1,52 @@
+package org.openlmis.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
+public class ETagUtilsTest {
+
+  @Test
+  public void shouldReadVersionFromEntityTag() {
+    assertEquals(Long.valueOf(3L), ETagUtils.parseVersion("\"3\""));
+    assertEquals(Long.valueOf(3L), ETagUtils.parseVersion("W/\"3\""));
+    assertEquals(Long.valueOf(3L), ETagUtils.parseVersion("3"));
+    assertEquals(Long.valueOf(3L), ETagUtils.parseVersion(
+        ETagUtils.toETag(ETagUtils.versionStamp(3L, Arrays.asList(UUID.randomUUID(), 1L)))));
+  }
+
+  @Test
+  public void shouldNotReadVersionFromWildcardOrInvalidEntityTag() {
+    assertNull(ETagUtils.parseVersion(null));
+    assertNull(ETagUtils.parseVersion("*"));
+    assertNull(ETagUtils.parseVersion("\"abc\""));
+  }
+
+  @Test
+  public void shouldChangeVersionStampWhenEmbeddedVersionChanges() {
+    UUID lineItem = UUID.randomUUID();
+
+    assertEquals("2", ETagUtils.versionStamp(2L, Collections.emptyList()));
+    assertNotEquals(ETagUtils.versionStamp(2L, Arrays.asList(lineItem, 0L)),
+        ETagUtils.versionStamp(2L, Arrays.asList(lineItem, 1L)));
+  }
+
+  @Test
+  public void shouldMatchAnyOfGivenEntityTags() {
+    String entityTag = ETagUtils.toETag(5L);
+
+    assertTrue(ETagUtils.matches("\"4\", \"5\"", entityTag));
+    assertTrue(ETagUtils.matches("W/\"5\"", entityTag));
+    assertTrue(ETagUtils.matches("*", entityTag));
+    assertFalse(ETagUtils.matches("\"4\"", entityTag));
+    assertFalse(ETagUtils.matches(null, entityTag));
+  }
+}
@@ -0,0 +1,50 @@
+package org.openlmis.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.fulfillment.domain.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.persistence.EntityManager;
+
+@RunWith(MockitoJUnitRunner.class)
+public class EntityExporterTest {
+
+  @Mock
+  private EntityManager entityManager;
+
+  @InjectMocks
+  private EntityExporter entityExporter;
+
+  @Test
+  public void shouldNotFindExportWhenExportsAreDisabled() {
+    ReflectionTestUtils.setField(entityExporter, "enabled", false);
+
+    ResponseEntity<StreamingResponseBody> response = entityExporter.export(Order.class);
+
+    assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    assertNull(response.getBody());
+    verifyZeroInteractions(entityManager);
+  }
+
+  @Test
+  public void shouldStreamJsonWhenExportsAreEnabled() {
+    ReflectionTestUtils.setField(entityExporter, "enabled", true);
+
+    ResponseEntity<StreamingResponseBody> response = entityExporter.export(Order.class);
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(MediaType.APPLICATION_JSON, response.getHeaders().getContentType());
+  }
+}
@@ -0,0 +1,62 @@
+package org.openlmis.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.Set;
+
+public class PaginationTest {
+
+  private static final String CREATED_DATE = "createdDate";
+  private static final Set<String> SORTABLE = Collections.singleton(CREATED_DATE);
+
+  private Pagination pagination;
+
+  @Before
+  public void setUp() {
+    pagination = new Pagination();
+    ReflectionTestUtils.setField(pagination, "maxPageSize", 100);
+  }
+
+  @Test
+  public void shouldCreatePageRequestSortedById() throws InvalidPageRequestException {
+    Pageable pageable = pagination.pageRequest(3, 20, null, null, SORTABLE);
+
+    assertEquals(2, pageable.getPageNumber());
+    assertEquals(20, pageable.getPageSize());
+    assertEquals(new Sort(Sort.Direction.ASC, Pagination.ID), pageable.getSort());
+  }
+
+  @Test
+  public void shouldSortByAllowedPropertyAndId() throws InvalidPageRequestException {
+    Pageable pageable = pagination.pageRequest(1, 100, CREATED_DATE, true, SORTABLE);
+
+    assertEquals(new Sort(Sort.Direction.DESC, CREATED_DATE, Pagination.ID), pageable.getSort());
+  }
+
+  @Test(expected = InvalidPageRequestException.class)
+  public void shouldNotAllowPagesLargerThanMaximum() throws InvalidPageRequestException {
+    pagination.pageRequest(1, 101, null, null, SORTABLE);
+  }
+
+  @Test(expected = InvalidPageRequestException.class)
+  public void shouldNotAllowPageNumbersBelowOne() throws InvalidPageRequestException {
+    pagination.pageRequest(0, 10, null, null, SORTABLE);
+  }
+
+  @Test(expected = InvalidPageRequestException.class)
+  public void shouldNotAllowCheckedPageNumbersBelowOne() throws InvalidPageRequestException {
+    pagination.checkPage(0, 10);
+  }
+
+  @Test(expected = InvalidPageRequestException.class)
+  public void shouldNotAllowSortingByOtherProperties() throws InvalidPageRequestException {
+    pagination.pageRequest(1, 10, "quotedCost", null, SORTABLE);
+  }
+}
@@ -0,0 +1,138 @@
+package org.openlmis.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.ActionQueue;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.utils.TransactionCollector.Participant;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TransactionCollectorTest {
+
+  @Mock
+  private EventSource session;
+
+  @Mock
+  private ActionQueue actionQueue;
+
+  private TransactionCollector transactionCollector;
+  private RecordingParticipant first;
+  private RecordingParticipant second;
+
+  @Before
+  public void setUp() {
+    when(session.getActionQueue()).thenReturn(actionQueue);
+
+    transactionCollector = new TransactionCollector();
+    first = new RecordingParticipant();
+    second = new RecordingParticipant();
+    transactionCollector.addParticipant(first);
+    transactionCollector.addParticipant(second);
+  }
+
+  @Test
+  public void shouldPassChangesToEveryParticipant() {
+    PostInsertEvent event = new PostInsertEvent("entity", null, null, null, session);
+
+    transactionCollector.onPostInsert(event);
+
+    assertEquals(Collections.singletonList("entity"), transactionCollector.collect(session, first));
+    assertEquals(Collections.singletonList("entity"),
+        transactionCollector.collect(session, second));
+  }
+
+  @Test
+  public void shouldRegisterProcessesOncePerTransaction() {
+    transactionCollector.collect(session, first).add("a");
+    transactionCollector.collect(session, second).add("b");
+    transactionCollector.collect(session, first).add("c");
+
+    verify(actionQueue, times(1)).registerProcess(any(BeforeTransactionCompletionProcess.class));
+    verify(actionQueue, times(1)).registerProcess(any(AfterTransactionCompletionProcess.class));
+  }
+
+  @Test
+  public void shouldHandCollectedStateToParticipantsBeforeAndAfterCompletion() {
+    List<String> collected = transactionCollector.collect(session, first);
+    collected.addAll(Arrays.asList("a", "b"));
+
+    completeTransaction(true);
+
+    assertEquals(Collections.singletonList(collected), first.written);
+    assertTrue(second.written.isEmpty());
+    assertEquals(Collections.singletonList(true), first.completed);
+    assertTrue(second.completed.isEmpty());
+  }
+
+  @Test
+  public void shouldStartCollectingAgainAfterTransaction() {
+    List<String> collected = transactionCollector.collect(session, first);
+    assertSame(collected, transactionCollector.collect(session, first));
+
+    completeTransaction(false);
+
+    assertNotSame(collected, transactionCollector.collect(session, first));
+    assertEquals(Collections.singletonList(false), first.completed);
+  }
+
+  private void completeTransaction(boolean success) {
+    ArgumentCaptor<BeforeTransactionCompletionProcess> before =
+        ArgumentCaptor.forClass(BeforeTransactionCompletionProcess.class);
+    ArgumentCaptor<AfterTransactionCompletionProcess> after =
+        ArgumentCaptor.forClass(AfterTransactionCompletionProcess.class);
+    verify(actionQueue).registerProcess(before.capture());
+    verify(actionQueue).registerProcess(after.capture());
+
+    if (success) {
+      before.getValue().doBeforeTransactionCompletion((SessionImplementor) session);
+    }
+    after.getValue().doAfterTransactionCompletion(success, (SessionImplementor) session);
+  }
+
+  private class RecordingParticipant implements Participant<List<String>> {
+    private final List<List<String>> written = new ArrayList<>();
+    private final List<Boolean> completed = new ArrayList<>();
+
+    @Override
+    public List<String> startCollecting() {
+      return new ArrayList<>();
+    }
+
+    @Override
+    public void beforeCompletion(SessionImplementor session, List<String> collected) {
+      written.add(collected);
+    }
+
+    @Override
+    public void afterCompletion(boolean success, List<String> collected) {
+      completed.add(success);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+      transactionCollector.collect(event.getSession(), this).add((String) event.getEntity());
+    }
+  }
+}
@@ -0,0 +1,127 @@
+package org.openlmis.view;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.openlmis.requisition.domain.Requisition;
+import org.openlmis.requisition.domain.RequisitionLineItem;
+import org.openlmis.requisition.domain.RequisitionStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+public class BinaryFormatConfigurationTest {
+
+  private static final String RESOURCE_URL = "/requisition";
+
+  private static Requisition requisition;
+
+  private List<HttpMessageConverter<?>> converters;
+  private MockMvc mockMvc;
+
+  @Before
+  public void setUp() {
+    requisition = new Requisition();
+    requisition.setId(UUID.randomUUID());
+    requisition.setStatus(RequisitionStatus.SUBMITTED);
+    RequisitionLineItem lineItem = new RequisitionLineItem();
+    lineItem.setId(UUID.randomUUID());
+    lineItem.setRequisition(requisition);
+    lineItem.setRequestedQuantity(25);
+    requisition.setRequisitionLineItems(Collections.singletonList(lineItem));
+
+    BinaryFormatConfiguration configuration = new BinaryFormatConfiguration();
+    ReflectionTestUtils.setField(configuration, "compactJsonModule", new CompactJsonModule());
+    converters = new ArrayList<>();
+    converters.add(new MappingJackson2HttpMessageConverter());
+    configuration.extendMessageConverters(converters);
+
+    mockMvc = MockMvcBuilders.standaloneSetup(new EchoController())
+        .setMessageConverters(converters.toArray(new HttpMessageConverter<?>[0]))
+        .build();
+  }
+
+  @Test
+  public void shouldAddBinaryConvertersAfterJson() {
+    assertEquals(3, converters.size());
+    assertTrue(converters.get(0) instanceof MappingJackson2HttpMessageConverter);
+    assertTrue(converters.get(1) instanceof SmileHttpMessageConverter);
+    assertTrue(converters.get(2) instanceof CborHttpMessageConverter);
+  }
+
+  @Test
+  public void shouldRespondWithJsonWhenAnyTypeIsAccepted() throws Exception {
+    mockMvc.perform(get(RESOURCE_URL).accept(MediaType.ALL))
+        .andExpect(status().isOk())
+        .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+  }
+
+  @Test
+  public void shouldRespondWithSmile() throws Exception {
+    byte[] body = mockMvc.perform(get(RESOURCE_URL).accept(SmileHttpMessageConverter.SMILE))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(SmileHttpMessageConverter.SMILE))
+        .andReturn().getResponse().getContentAsByteArray();
+
+    Requisition read = new ObjectMapper(new SmileFactory()).readValue(body, Requisition.class);
+    assertEquals(requisition.getId(), read.getId());
+    assertEquals(Integer.valueOf(25), read.getRequisitionLineItems().get(0).getRequestedQuantity());
+  }
+
+  @Test
+  public void shouldReadAndWriteCbor() throws Exception {
+    ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+    byte[] request = cborMapper.writeValueAsBytes(requisition);
+
+    byte[] body = mockMvc.perform(put(RESOURCE_URL)
+        .contentType(CborHttpMessageConverter.CBOR)
+        .accept(CborHttpMessageConverter.CBOR)
+        .content(request))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(CborHttpMessageConverter.CBOR))
+        .andReturn().getResponse().getContentAsByteArray();
+
+    Requisition read = cborMapper.readValue(body, Requisition.class);
+    assertEquals(requisition.getId(), read.getId());
+    assertEquals(RequisitionStatus.SUBMITTED, read.getStatus());
+    assertSame(read, read.getRequisitionLineItems().get(0).getRequisition());
+  }
+
+  @RequestMapping(RESOURCE_URL)
+  private static class EchoController {
+
+    @RequestMapping(method = RequestMethod.GET)
+    @ResponseBody
+    public Requisition getRequisition() {
+      return requisition;
+    }
+
+    @RequestMapping(method = RequestMethod.PUT)
+    @ResponseBody
+    public Requisition updateRequisition(@RequestBody Requisition body) {
+      return body;
+    }
+  }
+}
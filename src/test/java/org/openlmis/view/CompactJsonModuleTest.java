@@ -0,0 +1,187 @@
+package org.openlmis.view;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.domain.OrderLineItem;
+import org.openlmis.fulfillment.domain.OrderStatus;
+import org.openlmis.fulfillment.domain.ProofOfDelivery;
+import org.openlmis.fulfillment.domain.ProofOfDeliveryLineItem;
+import org.openlmis.requisition.domain.Comment;
+import org.openlmis.requisition.domain.Requisition;
+import org.openlmis.requisition.domain.RequisitionLineItem;
+import org.openlmis.requisition.domain.RequisitionStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+public class CompactJsonModuleTest {
+
+  private static final String REQUISITION_ID = "requisitionId";
+
+  private ObjectMapper defaultMapper;
+  private ObjectMapper compactMapper;
+  private Requisition requisition;
+
+  @Before
+  public void setUp() {
+    defaultMapper = new Jackson2ObjectMapperBuilder().build();
+    compactMapper = new Jackson2ObjectMapperBuilder().modulesToInstall(new CompactJsonModule())
+        .build();
+    requisition = generateRequisition();
+  }
+
+  @Test
+  public void shouldWriteRequisitionWithoutIdentitiesAndNulls() throws Exception {
+    String json = compactMapper.writeValueAsString(requisition);
+    final JsonNode node = compactMapper.readTree(json);
+
+    assertFalse(json.contains("requisitionLineItemsId"));
+    assertFalse(json.contains("commentsId"));
+    assertFalse(json.contains("null"));
+    assertEquals(requisition.getId().toString(), node.get("id").asText());
+    assertEquals("INITIATED", node.get("status").asText());
+    assertEquals(3, node.get("requisitionLineItems").size());
+
+    JsonNode lineItem = node.get("requisitionLineItems").get(1);
+    assertEquals(requisition.getRequisitionLineItems().get(1).getId().toString(),
+        lineItem.get("id").asText());
+    assertEquals(11, lineItem.get("stockInHand").asInt());
+    assertFalse(lineItem.has("requisition"));
+    assertEquals("body", node.get("comments").get(0).get("body").asText());
+  }
+
+  @Test
+  public void shouldWriteRequisitionReadableByDefaultDeserializer() throws Exception {
+    Requisition read = defaultMapper.readValue(
+        compactMapper.writeValueAsString(requisition), Requisition.class);
+
+    assertEquals(requisition.getId(), read.getId());
+    assertEquals(requisition.getCreatedDate(), read.getCreatedDate());
+    assertEquals(3, read.getRequisitionLineItems().size());
+    assertEquals(Integer.valueOf(12), read.getRequisitionLineItems().get(2).getStockInHand());
+    assertEquals(requisition.getComments().get(0).getCreatedDate(),
+        read.getComments().get(0).getCreatedDate());
+  }
+
+  @Test
+  public void shouldLinkLineItemsOfRequisitionReadBackToIt() throws Exception {
+    Requisition read = compactMapper.readValue(
+        compactMapper.writeValueAsString(requisition), Requisition.class);
+
+    for (RequisitionLineItem lineItem : read.getRequisitionLineItems()) {
+      assertSame(read, lineItem.getRequisition());
+    }
+  }
+
+  @Test
+  public void shouldWriteSmallerRequisitionThanDefaultSerializer() throws Exception {
+    assertTrue(compactMapper.writeValueAsBytes(requisition).length
+        < defaultMapper.writeValueAsBytes(requisition).length);
+  }
+
+  @Test
+  public void shouldUseDefaultSerializerWhenViewIsActive() throws Exception {
+    Comment comment = requisition.getComments().get(0);
+
+    String json = compactMapper.writerWithView(View.BasicInformation.class)
+        .writeValueAsString(comment);
+
+    assertEquals(defaultMapper.writerWithView(View.BasicInformation.class)
+        .writeValueAsString(comment), json);
+  }
+
+  @Test
+  public void shouldWriteProofOfDeliveryWithOrderAndRequisition() throws Exception {
+    Order order = new Order();
+    order.setId(UUID.randomUUID());
+    order.setRequisition(requisition);
+    order.setStatus(OrderStatus.SHIPPED);
+    order.setQuotedCost(BigDecimal.TEN);
+    OrderLineItem orderLineItem = new OrderLineItem();
+    orderLineItem.setId(UUID.randomUUID());
+    orderLineItem.setOrder(order);
+    orderLineItem.setOrderedQuantity(5L);
+    order.setOrderLineItems(Collections.singletonList(orderLineItem));
+
+    ProofOfDelivery proofOfDelivery = new ProofOfDelivery();
+    proofOfDelivery.setId(UUID.randomUUID());
+    proofOfDelivery.setOrder(order);
+    proofOfDelivery.setReceivedDate(LocalDate.of(2016, 10, 1));
+    ProofOfDeliveryLineItem lineItem = new ProofOfDeliveryLineItem();
+    lineItem.setId(UUID.randomUUID());
+    lineItem.setProofOfDelivery(proofOfDelivery);
+    lineItem.setOrderLineItem(orderLineItem);
+    lineItem.setQuantityShipped(3L);
+    proofOfDelivery.setProofOfDeliveryLineItems(Collections.singletonList(lineItem));
+
+    JsonNode node = compactMapper.readTree(compactMapper.writeValueAsString(proofOfDelivery));
+
+    assertEquals(order.getId().toString(), node.get("order").get("id").asText());
+    assertEquals(10, node.get("order").get("quotedCost").asInt());
+    assertEquals(3, node.get("order").get("requisition").get("requisitionLineItems").size());
+    JsonNode lineItemNode = node.get("proofOfDeliveryLineItems").get(0);
+    assertEquals(5, lineItemNode.get("orderLineItem").get("orderedQuantity").asInt());
+    assertFalse(lineItemNode.has("proofOfDelivery"));
+    assertEquals(defaultMapper.readTree(defaultMapper.writeValueAsString(proofOfDelivery))
+        .get("receivedDate"), node.get("receivedDate"));
+  }
+
+  @Test
+  public void shouldWriteRequisitionIdOfOrderWithArchivedRequisition() throws Exception {
+    Order order = new Order();
+    order.setId(UUID.randomUUID());
+    order.setStatus(OrderStatus.RECEIVED);
+    ReflectionTestUtils.setField(order, "requisitionId", requisition.getId());
+
+    JsonNode node = compactMapper.readTree(compactMapper.writeValueAsString(order));
+    JsonNode defaultNode = defaultMapper.readTree(defaultMapper.writeValueAsString(order));
+
+    assertFalse(node.has("requisition"));
+    assertEquals(requisition.getId().toString(), node.get(REQUISITION_ID).asText());
+    assertEquals(node.get(REQUISITION_ID), defaultNode.get(REQUISITION_ID));
+  }
+
+  private Requisition generateRequisition() {
+    Requisition generated = new Requisition();
+    generated.setId(UUID.randomUUID());
+    generated.setFacility(UUID.randomUUID());
+    generated.setStatus(RequisitionStatus.INITIATED);
+    generated.setCreatedDate(LocalDateTime.of(2016, 10, 1, 12, 30));
+    generated.setVersion(1L);
+
+    List<RequisitionLineItem> lineItems = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      RequisitionLineItem lineItem = new RequisitionLineItem();
+      lineItem.setId(UUID.randomUUID());
+      lineItem.setRequisition(generated);
+      lineItem.setStockInHand(10 + i);
+      lineItems.add(lineItem);
+    }
+    generated.setRequisitionLineItems(lineItems);
+
+    Comment comment = new Comment();
+    comment.setId(UUID.randomUUID());
+    comment.setRequisition(generated);
+    comment.setBody("body");
+    comment.setCreatedDate(LocalDateTime.of(2016, 10, 2, 8, 0));
+    List<Comment> comments = new ArrayList<>();
+    comments.add(comment);
+    ReflectionTestUtils.setField(generated, "comments", comments);
+    return generated;
+  }
+}